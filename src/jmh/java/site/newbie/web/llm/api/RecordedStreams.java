@@ -0,0 +1,124 @@
+package site.newbie.web.llm.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基准测试使用的录制 SSE 流（src/jmh/resources/streams/{name}.sse）
+ * 录制的流是网页端和上游的原始响应，经过脱敏后放入仓库；没有录制文件时基准测试会报错并说明如何录制，
+ * 也可以用 -p source=synthetic 改用 SyntheticStreams 生成的流（只适合比较不同长度下的扩展性）
+ *
+ * main 方法从 logs/sse-data.log 中提取 SseDataLogger 记录的一次会话，拼接成原始流并脱敏：
+ * <pre>
+ * java -cp ... site.newbie.web.llm.api.RecordedStreams logs/sse-data.log {Session ID} src/jmh/resources/streams/deepseek-reasoner.sse
+ * </pre>
+ */
+public final class RecordedStreams {
+
+    public static final String DEEPSEEK_REASONER = "deepseek-reasoner";
+    public static final String DEEPSEEK_CHAT = "deepseek-chat";
+    public static final String OPENAI_REASONER = "openai-reasoner";
+    public static final String ANTIGRAVITY = "antigravity";
+
+    // 基准测试的 source 参数
+    public static final String RECORDED = "recorded";
+    public static final String SYNTHETIC = "synthetic";
+
+    // SseDataLogger 写入日志文件的数据块：标题行 + 长度 + 内容，按长度截取内容，内容本身可以包含任意字符
+    private static final Pattern CHUNK_HEADER = Pattern.compile(
+            "--- SSE 数据块 #\\d+(?: \\([^)]*\\))? \\(Session: ([0-9a-f-]+)\\) ---\n长度: (\\d+) 字符\n内容:\n");
+
+    private static final Pattern UUID_PATTERN = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}");
+
+    private RecordedStreams() {
+    }
+
+    /**
+     * 按 source 参数取得基准测试的输入流
+     * @param source recorded 使用录制文件，synthetic 使用生成的流
+     * @param name 录制文件名（不含扩展名）
+     * @param synthetic 生成流的方式
+     */
+    public static String load(String source, String name, Supplier<String> synthetic) {
+        if (SYNTHETIC.equals(source)) {
+            return synthetic.get();
+        }
+        if (!RECORDED.equals(source)) {
+            throw new IllegalArgumentException("未知的 source: " + source + "（可选 recorded、synthetic）");
+        }
+        return load(name);
+    }
+
+    /**
+     * 读取录制的流
+     */
+    public static String load(String name) {
+        String resource = "streams/" + name + ".sse";
+        try (InputStream in = RecordedStreams.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到录制的 SSE 流 src/jmh/resources/" + resource
+                        + "：按 README「性能基准测试」用 SseDataLogger 录制并脱敏后放入，或使用 -p source=synthetic");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 从 SseDataLogger 的日志中提取一次会话的原始流
+     * @param log 日志内容
+     * @param sessionId 会话 ID（日志中的 Session ID）
+     * @return 按接收顺序拼接的所有数据块
+     */
+    static String extract(String log, String sessionId) {
+        StringBuilder stream = new StringBuilder();
+        Matcher matcher = CHUNK_HEADER.matcher(log);
+        int from = 0;
+        while (matcher.find(from)) {
+            int start = matcher.end();
+            int end = Math.min(log.length(), start + Integer.parseInt(matcher.group(2)));
+            if (matcher.group(1).equals(sessionId)) {
+                stream.append(log, start, end);
+            }
+            from = end;
+        }
+        return stream.toString();
+    }
+
+    /**
+     * 脱敏：替换 UUID（对话、消息、请求 ID）和邮箱地址，保留长度和格式不影响解析
+     * 回复正文中的个人信息无法自动识别，提交前仍需要人工检查
+     */
+    static String sanitize(String stream) {
+        String sanitized = UUID_PATTERN.matcher(stream).replaceAll("00000000-0000-0000-0000-000000000000");
+        return EMAIL_PATTERN.matcher(sanitized).replaceAll("user@example.com");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("用法: RecordedStreams <sse-data.log> <Session ID> <输出文件>");
+            System.exit(1);
+        }
+        String stream = extract(Files.readString(Path.of(args[0]), StandardCharsets.UTF_8), args[1]);
+        if (stream.isEmpty()) {
+            System.err.println("日志中没有会话 " + args[1] + " 的数据块");
+            System.exit(1);
+        }
+        Path output = Path.of(args[2]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.writeString(output, sanitize(stream), StandardCharsets.UTF_8);
+        System.out.println("已写入 " + output + "（" + stream.length() + " 字符），提交前请检查正文中是否还有个人信息");
+    }
+}
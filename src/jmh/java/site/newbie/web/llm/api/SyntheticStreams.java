@@ -0,0 +1,196 @@
+package site.newbie.web.llm.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 按各网站的响应格式生成 SSE 流，基准测试默认使用录制的流（{@link RecordedStreams}），
+ * 用 -p source=synthetic 选择生成的流，用于调整 token 数量观察耗时随流长度的变化
+ * 固定随机种子，每次运行生成的流完全一致；事件的种类和顺序与各提供器解析代码处理的格式一致，
+ * 但 token 来自一个很小的词表，不能代替真实流衡量解析和序列化的实际开销
+ * split / splitEvents 也用于切分录制的流
+ */
+public final class SyntheticStreams {
+
+    // token 词表：网页端每个增量通常是 1~4 个字符
+    private static final String[] TOKENS = {
+            "嗯", "，", "用户", "问的是", "如何", "在", " ", "Java", " 中", "实现", "一个", "线程", "安全", "的",
+            " LRU", " 缓存", "。", "首先", "想到", " Linked", "HashMap", " 的", " access", "Order", " 模式",
+            "重写", " remove", "Eldest", "Entry", "，", "但", "高并发", "下", "需要", "加锁", "。", "\n\n",
+            "```java", "\n", "map", ".get", "(key", ")", ";", " \"", "value", "\"", "\\", "1.", " **", "注意", "**",
+            "：", "ConcurrentHashMap", " +", " 双向链表", "可以", "减少", "锁", "竞争", "。", "\t", "?"
+    };
+
+    private SyntheticStreams() {
+    }
+
+    /**
+     * DeepSeek 深度思考流：ready -> THINK fragment -> 简单格式增量 -> BATCH 创建 RESPONSE fragment -> finish / close
+     */
+    public static String deepSeekReasoner(int thinkTokens, int responseTokens) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        sb.append("event: ready\n")
+                .append("data: {\"request_message_id\":1,\"response_message_id\":2}\n\n");
+        data(sb, "{\"v\":{\"response\":{\"message_id\":2,\"parent_id\":1,\"model\":\"\",\"role\":\"ASSISTANT\","
+                + "\"thinking_enabled\":true,\"status\":\"WIP\",\"accumulated_token_usage\":0,\"files\":[],"
+                + "\"fragments\":[],\"has_pending_fragment\":false,\"auto_continue\":false}}}");
+        data(sb, "{\"p\":\"response/fragments\",\"o\":\"APPEND\",\"v\":[{\"id\":1,\"type\":\"THINK\",\"content\":"
+                + quote(token(random)) + ",\"elapsed_secs\":null,\"references\":[],\"stage_id\":1}]}");
+        data(sb, "{\"p\":\"response/fragments/-1/content\",\"o\":\"APPEND\",\"v\":" + quote(token(random)) + "}");
+        for (int i = 0; i < thinkTokens; i++) {
+            data(sb, "{\"v\":" + quote(token(random)) + "}");
+        }
+        data(sb, "{\"p\":\"response\",\"o\":\"BATCH\",\"v\":[{\"p\":\"fragments/-1/elapsed_secs\",\"v\":6.4},"
+                + "{\"p\":\"fragments\",\"o\":\"APPEND\",\"v\":[{\"id\":2,\"type\":\"RESPONSE\",\"content\":"
+                + quote(token(random)) + ",\"references\":[],\"stage_id\":1}]}]}");
+        for (int i = 0; i < responseTokens; i++) {
+            data(sb, "{\"v\":" + quote(token(random)) + "}");
+        }
+        data(sb, "{\"p\":\"response\",\"o\":\"BATCH\",\"v\":[{\"p\":\"accumulated_token_usage\",\"v\":1024},"
+                + "{\"p\":\"quasi_status\",\"v\":\"FINISHED\"}]}");
+        data(sb, "{\"p\":\"response/status\",\"o\":\"SET\",\"v\":\"FINISHED\"}");
+        sb.append("event: finish\ndata: {}\n\n");
+        sb.append("event: close\ndata: {\"click_behavior\":\"none\",\"auto_resume\":false}\n\n");
+        return sb.toString();
+    }
+
+    /**
+     * ChatGPT 深度思考流（delta_encoding v1）：thoughts 增量 -> reasoning_recap -> parts 增量 -> [DONE]
+     */
+    public static String openAiReasoner(int thinkTokens, int responseTokens) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        sb.append("event: delta_encoding\ndata: \"v1\"\n\n");
+        delta(sb, "{\"p\":\"\",\"o\":\"add\",\"v\":{\"message\":{\"id\":\"m-1\",\"author\":{\"role\":\"assistant\"},"
+                + "\"content\":{\"content_type\":\"thoughts\",\"thoughts\":[]},\"status\":\"in_progress\"},"
+                + "\"conversation_id\":\"c-1\",\"error\":null},\"c\":0}");
+        delta(sb, "{\"p\":\"/message/content/thoughts\",\"o\":\"append\",\"v\":[{\"summary\":\"分析问题\",\"content\":"
+                + quote(token(random)) + ",\"chunks\":[],\"finished\":false}]}");
+        for (int i = 0; i < thinkTokens; i++) {
+            // 网页端三种增量写法交替出现：完整路径、数组包装、省略路径
+            switch (i % 3) {
+                case 0 -> delta(sb, "{\"p\":\"/message/content/thoughts/0/content\",\"o\":\"append\",\"v\":"
+                        + quote(token(random)) + "}");
+                case 1 -> delta(sb, "{\"v\":[{\"p\":\"/message/content/thoughts/0/content\",\"o\":\"append\",\"v\":"
+                        + quote(token(random)) + "}]}");
+                default -> delta(sb, "{\"v\":" + quote(token(random)) + "}");
+            }
+        }
+        delta(sb, "{\"v\":{\"message\":{\"id\":\"m-2\",\"author\":{\"role\":\"assistant\"},\"content\":"
+                + "{\"content_type\":\"reasoning_recap\",\"content\":\"已思考 6 秒\"},\"status\":\"finished_successfully\"}},\"c\":1}");
+        delta(sb, "{\"v\":{\"message\":{\"id\":\"m-3\",\"author\":{\"role\":\"assistant\"},\"content\":"
+                + "{\"content_type\":\"text\",\"parts\":[" + quote(token(random)) + "]},\"status\":\"in_progress\"}},\"c\":2}");
+        delta(sb, "{\"p\":\"/message/content/parts/0\",\"o\":\"append\",\"v\":" + quote(token(random)) + "}");
+        for (int i = 0; i < responseTokens; i++) {
+            if (i % 6 == 5) {
+                delta(sb, "{\"p\":\"\",\"o\":\"patch\",\"v\":[{\"p\":\"/message/content/parts/0\",\"o\":\"append\",\"v\":"
+                        + quote(token(random)) + "},{\"p\":\"/message/metadata\",\"o\":\"append\",\"v\":{}}]}");
+            } else {
+                delta(sb, "{\"v\":" + quote(token(random)) + "}");
+            }
+        }
+        data(sb, "{\"type\":\"message_stream_complete\",\"conversation_id\":\"c-1\"}");
+        data(sb, "[DONE]");
+        return sb.toString();
+    }
+
+    /**
+     * Antigravity（v1internal streamGenerateContent）流：thought 增量 -> text 增量 -> finishReason
+     */
+    public static String antigravity(int thinkTokens, int responseTokens) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < thinkTokens; i++) {
+            data(sb, candidate("{\"thought\":" + quote(token(random)) + "}", ""));
+        }
+        for (int i = 0; i < responseTokens; i++) {
+            String finish = i == responseTokens - 1 ? ",\"finishReason\":\"STOP\"" : "";
+            data(sb, candidate("{\"text\":" + quote(token(random)) + "}", finish));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 由 token 拼成的回复正文（不含 SSE 格式）
+     */
+    public static String text(int tokens) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            sb.append(token(random));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按随机长度切分，模拟网络层到达的数据包（会在行中间断开）
+     * 固定随机种子，保证每次运行切分结果一致
+     */
+    public static List<String> split(String stream, int minChunk, int maxChunk) {
+        Random random = new Random(42);
+        List<String> chunks = new ArrayList<>();
+        int offset = 0;
+        while (offset < stream.length()) {
+            int end = Math.min(stream.length(), offset + minChunk + random.nextInt(maxChunk - minChunk + 1));
+            // 不拆开代理对，与浏览器端 TextDecoder 的输出一致
+            if (end < stream.length() && Character.isHighSurrogate(stream.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(stream.substring(offset, end));
+            offset = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * 按 SSE 事件切分（每个 chunk 是一个完整事件），模拟页面拦截脚本逐条推送的数据
+     */
+    public static List<String> splitEvents(String stream) {
+        List<String> events = new ArrayList<>();
+        int offset = 0;
+        int end;
+        while ((end = stream.indexOf("\n\n", offset)) >= 0) {
+            events.add(stream.substring(offset, end + 2));
+            offset = end + 2;
+        }
+        if (offset < stream.length()) {
+            events.add(stream.substring(offset));
+        }
+        return events;
+    }
+
+    private static String candidate(String part, String finish) {
+        return "{\"response\":{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[" + part + "]}" + finish
+                + "}],\"modelVersion\":\"gemini-3-pro\",\"responseId\":\"r-1\"}}";
+    }
+
+    private static void data(StringBuilder sb, String json) {
+        sb.append("data: ").append(json).append("\n\n");
+    }
+
+    private static void delta(StringBuilder sb, String json) {
+        sb.append("event: delta\n");
+        data(sb, json);
+    }
+
+    private static String token(Random random) {
+        return TOKENS[random.nextInt(TOKENS.length)];
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,77 @@
+package site.newbie.web.llm.api.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import site.newbie.web.llm.api.RecordedStreams;
+import site.newbie.web.llm.api.SyntheticStreams;
+import site.newbie.web.llm.api.provider.ChatCompletionChunkEncoder;
+import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.deepseek.DeepSeekSseParser;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式 chunk 序列化：ChatCompletionResponse + writeValueAsString（基线）与 sendSseChunk 使用的 ChatCompletionChunkEncoder 对比
+ * token 序列取自录制的 DeepSeek 深度思考流的解析结果，每次调用序列化整段回复
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatCompletionChunkBenchmark {
+
+    private static final String MODEL = "deepseek-reasoner";
+
+    // recorded：src/jmh/resources/streams 中录制的流；synthetic：生成的流
+    @Param({RecordedStreams.RECORDED})
+    public String source;
+
+    private ObjectMapper objectMapper;
+    private List<String> tokens;
+    private String id;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        id = UUID.randomUUID().toString();
+        tokens = new ArrayList<>();
+        DeepSeekSseParser parser = new DeepSeekSseParser();
+        String stream = RecordedStreams.load(source, RecordedStreams.DEEPSEEK_REASONER,
+                () -> SyntheticStreams.deepSeekReasoner(1500, 1500));
+        for (String event : SyntheticStreams.splitEvents(stream)) {
+            ModelConfig.SseParseResult result = parser.feed(event);
+            if (result.thinkingContent() != null) tokens.add(result.thinkingContent());
+            if (result.responseContent() != null) tokens.add(result.responseContent());
+        }
+    }
+
+    @Benchmark
+    public void builderAndWriteValueAsString(Blackhole blackhole) {
+        for (String token : tokens) {
+            blackhole.consume(objectMapper.writeValueAsString(ChatCompletionResponse.contentChunk(id, MODEL, token)));
+        }
+    }
+
+    @Benchmark
+    public void chunkEncoder(Blackhole blackhole) {
+        for (String token : tokens) {
+            blackhole.consume(ChatCompletionChunkEncoder.of(id, MODEL).content(token));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package site.newbie.web.llm.api.provider.antigravity.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import site.newbie.web.llm.api.RecordedStreams;
+import site.newbie.web.llm.api.SyntheticStreams;
+import site.newbie.web.llm.api.util.SseEventReader;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Antigravity 流式响应转换：录制的上游 SSE 字节流 -> OpenAI chunk 回调
+ * lineReaderBaseline / sseEventReader 只比较事件切分 + JSON 解析这一段：
+ * 前者是改造前 ResponseMapper 的 BufferedReader + StringBuilder + substring 写法，后者是当前的字节级切分
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMapperBenchmark {
+
+    // recorded：src/jmh/resources/streams 中录制的流；synthetic：生成的流
+    @Param({RecordedStreams.RECORDED})
+    public String source;
+
+    private ResponseMapper responseMapper;
+    private ObjectMapper objectMapper;
+    private byte[] stream;
+
+    @Setup
+    public void setup() {
+        responseMapper = new ResponseMapper();
+        objectMapper = new ObjectMapper();
+        stream = RecordedStreams.load(source, RecordedStreams.ANTIGRAVITY, () -> SyntheticStreams.antigravity(1500, 1500))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void processStreamResponse(Blackhole blackhole) throws Exception {
+        responseMapper.processStreamResponse(new ByteArrayInputStream(stream), "gemini-3-pro", new ResponseMapper.ResponseHandler() {
+            @Override
+            public void onChunk(String id, String content, String model) {
+                blackhole.consume(content);
+            }
+
+            @Override
+            public void onFinish(String finishReason) {
+                blackhole.consume(finishReason);
+            }
+        });
+    }
+
+    @Benchmark
+    public void lineReaderBaseline(Blackhole blackhole) throws Exception {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8))) {
+            String line;
+            StringBuilder buffer = new StringBuilder();
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    if (buffer.length() > 0) {
+                        String data = buffer.toString().trim();
+                        if (data.startsWith("data: ")) {
+                            String jsonStr = data.substring(6).trim();
+                            if (jsonStr.equals("[DONE]")) {
+                                break;
+                            }
+                            if (!jsonStr.isEmpty()) {
+                                blackhole.consume(objectMapper.readTree(jsonStr));
+                            }
+                        }
+                        buffer.setLength(0);
+                    }
+                    continue;
+                }
+                buffer.append(line).append("\n");
+            }
+        }
+    }
+
+    @Benchmark
+    public void sseEventReader(Blackhole blackhole) throws Exception {
+        try (SseEventReader reader = new SseEventReader(new ByteArrayInputStream(stream))) {
+            reader.read((data, offset, length) -> {
+                if (SseEventReader.isDone(data, offset, length)) {
+                    return false;
+                }
+                if (!SseEventReader.isBlank(data, offset, length)) {
+                    blackhole.consume(objectMapper.readTree(data, offset, length));
+                }
+                return true;
+            });
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package site.newbie.web.llm.api.provider.deepseek;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import site.newbie.web.llm.api.RecordedStreams;
+import site.newbie.web.llm.api.SyntheticStreams;
+import site.newbie.web.llm.api.provider.ModelConfig;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeepSeek SSE 解析：完整解析一次录制的深度思考流 / 普通对话流
+ * legacyParseSseIncremental 为改造前的逐行 JsonNode 实现（只支持按事件切分），与 chunking=event 的 parseStream 对比；
+ * 配合 -prof gc 查看每个流的分配量（gc.alloc.rate.norm）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeepSeekSseParserBenchmark {
+
+    // recorded：src/jmh/resources/streams 中录制的流；synthetic：生成的流
+    @Param({RecordedStreams.RECORDED})
+    public String source;
+
+    @Param({RecordedStreams.DEEPSEEK_REASONER, RecordedStreams.DEEPSEEK_CHAT})
+    public String stream;
+
+    @State(Scope.Benchmark)
+    public static class Chunks {
+
+        // packet：按网络数据包切分（行会跨 chunk）；event：每个 chunk 一条完整事件
+        @Param({"packet", "event"})
+        public String chunking;
+
+        private List<String> chunks;
+
+        @Setup
+        public void setup(DeepSeekSseParserBenchmark benchmark) {
+            chunks = "packet".equals(chunking)
+                    ? SyntheticStreams.split(benchmark.content, 64, 512)
+                    : SyntheticStreams.splitEvents(benchmark.content);
+        }
+    }
+
+    private LegacyDeepSeekSseParser legacyParser;
+    private String content;
+    private List<String> events;
+
+    @Setup
+    public void setup() {
+        legacyParser = new LegacyDeepSeekSseParser();
+        content = RecordedStreams.load(source, stream, () -> SyntheticStreams.deepSeekReasoner(1500, 1500));
+        events = SyntheticStreams.splitEvents(content);
+    }
+
+    @Benchmark
+    public void parseStream(Chunks chunks, Blackhole blackhole) {
+        DeepSeekSseParser parser = new DeepSeekSseParser();
+        for (String chunk : chunks.chunks) {
+            ModelConfig.SseParseResult result = parser.feed(chunk);
+            blackhole.consume(result);
+        }
+    }
+
+    @Benchmark
+    public void legacyParseSseIncremental(Blackhole blackhole) {
+        Map<Integer, String> fragmentTypeMap = new HashMap<>();
+        Integer lastActiveFragmentIndex = null;
+        for (String event : events) {
+            ModelConfig.ParseResultWithIndex result = legacyParser.parseSseIncremental(event, fragmentTypeMap, lastActiveFragmentIndex);
+            lastActiveFragmentIndex = result.lastActiveFragmentIndex();
+            blackhole.consume(result.result());
+        }
+    }
+}
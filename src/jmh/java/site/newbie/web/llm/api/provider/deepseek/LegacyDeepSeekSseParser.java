@@ -0,0 +1,252 @@
+package site.newbie.web.llm.api.provider.deepseek;
+
+import lombok.extern.slf4j.Slf4j;
+import site.newbie.web.llm.api.provider.ModelConfig;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * 基线：引入 DeepSeekSseParser 之前 DeepSeekProvider.parseSseIncremental 的实现，原样保留，仅用于基准测试对比
+ * 每行构建一棵 JsonNode 树，fragment 索引每次通过 max() 计算；要求每个 chunk 以完整行结尾
+ */
+@Slf4j
+class LegacyDeepSeekSseParser {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ModelConfig.ParseResultWithIndex parseSseIncremental(String sseData, Map<Integer, String> fragmentTypeMap,
+                                                     Integer lastActiveFragmentIndex) {
+        if (sseData == null || sseData.isEmpty()) {
+            return new ModelConfig.ParseResultWithIndex(new ModelConfig.SseParseResult(null, null, false), lastActiveFragmentIndex);
+        }
+
+        StringBuilder thinkingText = new StringBuilder();
+        StringBuilder responseText = new StringBuilder();
+        boolean finished = false;
+        Integer currentActiveIndex = lastActiveFragmentIndex;
+
+        for (String line : sseData.split("\n")) {
+            line = line.trim();
+
+            if (line.startsWith("event: ")) {
+                String event = line.substring(7).trim();
+                if ("finish".equals(event) || "close".equals(event)) {
+                    finished = true;
+                }
+                continue;
+            }
+
+            if (!line.startsWith("data: ")) continue;
+            String jsonStr = line.substring(6).trim();
+            if (jsonStr.isEmpty() || jsonStr.equals("{}")) continue;
+
+            try {
+                JsonNode json = objectMapper.readTree(jsonStr);
+                String path = json.has("p") ? json.get("p").asString() : null;
+                String operation = json.has("o") ? json.get("o").asString() : null;
+
+                // Fragment 创建（处理多种可能的路径格式）
+                if ((path != null && (path.equals("fragments") || path.equals("response/fragments") || path.endsWith("/fragments")))
+                        && "APPEND".equals(operation) && json.has("v") && json.get("v").isArray()) {
+                    int nextIndex = fragmentTypeMap.isEmpty() ? 0 :
+                            fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+                    for (JsonNode fragment : json.get("v")) {
+                        if (fragment.has("type")) {
+                            String type = fragment.get("type").asString();
+                            fragmentTypeMap.put(nextIndex, type);
+                            log.info("创建 fragment {}: type={}", nextIndex, type);
+                            if (fragment.has("content")) {
+                                String content = fragment.get("content").asString();
+                                if (content != null && !content.isEmpty()) {
+                                    log.info("Fragment {} 初始内容: {}", nextIndex, content.length() > 50 ? content.substring(0, 50) + "..." : content);
+                                    if ("THINK".equals(type)) thinkingText.append(content);
+                                    else if ("RESPONSE".equals(type)) responseText.append(content);
+                                }
+                            }
+                            // 更新当前活动索引为最后创建的 fragment
+                            currentActiveIndex = nextIndex;
+                            nextIndex++;
+                        }
+                    }
+                    continue;
+                }
+
+                // 内容更新 - 处理完整路径
+                if (path != null && path.contains("fragments/") && path.endsWith("/content")) {
+                    Integer idx = extractFragmentIndex(path);
+                    if (idx != null) {
+                        // 处理 -1 索引（表示最后一个 fragment）
+                        if (idx == -1 && !fragmentTypeMap.isEmpty()) {
+                            idx = fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+                        }
+                        if (idx >= 0 && fragmentTypeMap.containsKey(idx)) {
+                            currentActiveIndex = idx;
+                            String type = fragmentTypeMap.get(idx);
+                            if (json.has("v") && json.get("v").isString()) {
+                                String content = json.get("v").asString();
+                                if (content != null && !content.isEmpty()) {
+                                    log.trace("Fragment {} 内容更新 (type={}): {}", idx, type, content);
+                                    if ("THINK".equals(type)) thinkingText.append(content);
+                                    else responseText.append(content);
+                                }
+                            }
+                        } else {
+                            log.info("Fragment 索引无效或不存在: idx={}, path={}", idx, path);
+                        }
+                    } else {
+                        log.info("无法从路径提取索引: {}", path);
+                    }
+                }
+                // 简单格式 - 只有 v 字段，没有 p 字段
+                else if (json.has("v") && !json.has("p") && json.get("v").isString()) {
+                    String content = json.get("v").asString();
+                    if (content != null && !content.isEmpty()) {
+                        // 根据当前活动的 fragment 类型决定是思考还是回复
+                        boolean isThinking = false;
+
+                        if (currentActiveIndex != null && fragmentTypeMap.containsKey(currentActiveIndex)) {
+                            // 如果当前活动 fragment 类型已知，直接使用
+                            isThinking = "THINK".equals(fragmentTypeMap.get(currentActiveIndex));
+                        } else {
+                            // 如果 fragment 类型未知，使用启发式判断：
+                            boolean hasThinkFragment = fragmentTypeMap.values().stream().anyMatch("THINK"::equals);
+                            boolean hasResponseFragment = fragmentTypeMap.values().stream().anyMatch("RESPONSE"::equals);
+
+                            // 启发式规则：
+                            // 1. 如果有 THINK fragment 且还没有 RESPONSE fragment，说明还在思考阶段
+                            // 2. 如果已有思考内容但还没有回复内容，继续当作思考内容（深度思考进行中）
+                            // 3. 如果已有回复内容，继续当作回复内容
+                            // 4. 如果只有 RESPONSE fragment（没有 THINK fragment），说明是不带思考的响应
+                            if (hasThinkFragment && !hasResponseFragment) {
+                                // 有思考 fragment 但还没有回复 fragment，说明还在思考
+                                isThinking = true;
+                            } else if (thinkingText.length() > 0 && responseText.length() == 0) {
+                                // 已有思考内容但还没有回复内容，说明还在深度思考中
+                                isThinking = true;
+                            } else if (responseText.length() > 0) {
+                                // 已有回复内容，继续当作回复内容
+                                isThinking = false;
+                            } else if (hasResponseFragment && !hasThinkFragment) {
+                                // 只有 RESPONSE fragment，没有 THINK fragment，说明是不带思考的响应
+                                isThinking = false;
+                            } else if (fragmentTypeMap.isEmpty()) {
+                                // fragmentTypeMap 为空时，如果已有思考内容，继续当作思考内容
+                                // 否则当作回复内容（保守策略，因为大多数情况下是不带思考的）
+                                isThinking = thinkingText.length() > 0;
+                            } else {
+                                // 其他情况，默认当作回复内容
+                                isThinking = false;
+                            }
+                        }
+
+                        log.trace("简单格式内容 (activeIdx={}, isThinking={}, hasThink={}, hasResponse={}, thinkingLen={}, responseLen={}): {}",
+                                currentActiveIndex, isThinking,
+                                fragmentTypeMap.values().stream().anyMatch("THINK"::equals),
+                                fragmentTypeMap.values().stream().anyMatch("RESPONSE"::equals),
+                                thinkingText.length(), responseText.length(),
+                                content.length() > 50 ? content.substring(0, 50) + "..." : content);
+                        if (isThinking) {
+                            thinkingText.append(content);
+                        } else {
+                            responseText.append(content);
+                        }
+                    }
+                }
+                // BATCH 操作
+                else if (path != null && "BATCH".equals(operation) && json.has("v") && json.get("v").isArray()) {
+                    for (JsonNode item : json.get("v")) {
+                        if (!item.has("p") || !item.has("v")) continue;
+                        String itemPath = item.get("p").asString();
+
+                        // 处理 fragment 创建
+                        if (itemPath != null && (itemPath.equals("fragments") || itemPath.endsWith("/fragments"))) {
+                            if (item.has("o") && "APPEND".equals(item.get("o").asString()) && item.get("v").isArray()) {
+                                int nextIndex = fragmentTypeMap.isEmpty() ? 0 :
+                                        fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+                                for (JsonNode fragment : item.get("v")) {
+                                    if (fragment.has("type")) {
+                                        String type = fragment.get("type").asString();
+                                        fragmentTypeMap.put(nextIndex, type);
+                                        log.info("BATCH 创建 fragment {}: type={}", nextIndex, type);
+                                        if (fragment.has("content")) {
+                                            String content = fragment.get("content").asString();
+                                            if (content != null && !content.isEmpty()) {
+                                                if ("THINK".equals(type)) thinkingText.append(content);
+                                                else if ("RESPONSE".equals(type)) responseText.append(content);
+                                            }
+                                        }
+                                        // 更新当前活动索引为最后创建的 fragment
+                                        currentActiveIndex = nextIndex;
+                                        nextIndex++;
+                                    }
+                                }
+                            }
+                            continue;
+                        }
+
+                        // 处理内容更新
+                        if (itemPath != null && itemPath.contains("fragments/") && itemPath.endsWith("/content")) {
+                            Integer idx = extractFragmentIndex(itemPath);
+                            if (idx != null) {
+                                // 处理 -1 索引（表示最后一个 fragment）
+                                if (idx == -1 && !fragmentTypeMap.isEmpty()) {
+                                    idx = fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+                                }
+                                if (idx >= 0 && fragmentTypeMap.containsKey(idx)) {
+                                    currentActiveIndex = idx;
+                                    String type = fragmentTypeMap.get(idx);
+                                    if (item.get("v").isString()) {
+                                        String content = item.get("v").asString();
+                                        if (content != null && !content.isEmpty()) {
+                                            if ("THINK".equals(type)) thinkingText.append(content);
+                                            else if ("RESPONSE".equals(type)) responseText.append(content);
+                                        }
+                                    }
+                                } else {
+                                    log.info("BATCH Fragment 索引无效或不存在: idx={}, path={}", idx, itemPath);
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.info("解析 SSE 数据行时出错: {}, line: {}", e.getMessage(), line.length() > 100 ? line.substring(0, 100) + "..." : line);
+            }
+        }
+
+        if (log.isDebugEnabled() && (thinkingText.length() > 0 || responseText.length() > 0)) {
+            log.info("SSE 解析结果: thinking={} chars, response={} chars, finished={}",
+                    thinkingText.length(), responseText.length(), finished);
+        }
+
+        ModelConfig.SseParseResult result = new ModelConfig.SseParseResult(
+                thinkingText.length() > 0 ? thinkingText.toString() : null,
+                responseText.length() > 0 ? responseText.toString() : null,
+                finished
+        );
+        return new ModelConfig.ParseResultWithIndex(result, currentActiveIndex);
+    }
+
+    /**
+     * 从路径中提取 fragment 索引
+     * 支持格式：response/fragments/0/content, fragments/0/content
+     */
+    private Integer extractFragmentIndex(String path) {
+        if (path == null) return null;
+        try {
+            // 查找 "fragments/" 后面的数字
+            int fragmentsIdx = path.indexOf("fragments/");
+            if (fragmentsIdx >= 0) {
+                String afterFragments = path.substring(fragmentsIdx + "fragments/".length());
+                int slashIdx = afterFragments.indexOf('/');
+                String indexStr = slashIdx > 0 ? afterFragments.substring(0, slashIdx) : afterFragments;
+                return Integer.parseInt(indexStr);
+            }
+        } catch (Exception e) {
+            log.info("提取 fragment 索引失败: path={}", path);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package site.newbie.web.llm.api.provider.openai.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import site.newbie.web.llm.api.RecordedStreams;
+import site.newbie.web.llm.api.SyntheticStreams;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenAI 深度思考流解析：录制的 ChatGPT 流按 SSE 事件切分后逐条调用 extractContentFromSse
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAIReasonerConfigBenchmark {
+
+    // recorded：src/jmh/resources/streams 中录制的流；synthetic：生成的流
+    @Param({RecordedStreams.RECORDED})
+    public String source;
+
+    private OpenAIReasonerConfig config;
+    private List<String> chunks;
+
+    @Setup
+    public void setup() {
+        config = new OpenAIReasonerConfig(new ObjectMapper());
+        chunks = SyntheticStreams.splitEvents(RecordedStreams.load(source, RecordedStreams.OPENAI_REASONER,
+                () -> SyntheticStreams.openAiReasoner(1500, 1500)));
+    }
+
+    @Benchmark
+    public void extractContent(Blackhole blackhole) {
+        for (String chunk : chunks) {
+            blackhole.consume(config.extractContentFromSse(chunk));
+        }
+    }
+}
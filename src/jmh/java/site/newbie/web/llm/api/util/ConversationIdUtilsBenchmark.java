@@ -0,0 +1,56 @@
+package site.newbie.web.llm.api.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import site.newbie.web.llm.api.SyntheticStreams;
+import site.newbie.web.llm.api.model.ChatCompletionRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从历史消息中提取对话 ID：每个请求都会执行一次，历史越长成本越高
+ * 每条 assistant 消息是一段较长的回复，末尾带有对话 ID 标记
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationIdUtilsBenchmark {
+
+    // 历史消息轮数
+    @Param({"2", "20", "100"})
+    public int turns;
+
+    private List<ChatCompletionRequest.Message> messages;
+
+    @Setup
+    public void setup() {
+        // 较长的 assistant 回复内容（约 4000 字符）
+        String reply = SyntheticStreams.text(1500);
+        messages = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            messages.add(new ChatCompletionRequest.Message("user", "第 " + i + " 个问题"));
+            messages.add(new ChatCompletionRequest.Message("assistant",
+                    reply + "\n\n```nwla-conversation-id\nconversation-" + i + "\n```\n\n"));
+        }
+        messages.add(new ChatCompletionRequest.Message("user", "继续"));
+    }
+
+    @Benchmark
+    public String extractConversationIdFromMessages() {
+        return ConversationIdUtils.extractConversationIdFromMessages(messages, true);
+    }
+}
@@ -4,27 +4,60 @@ import java.util.Set;
 
 /**
  * API Key 上下文信息
- * 存储当前请求的 API key 及其支持的 providers
+ * 存储当前请求的 API key 及其支持的 providers 和限流配置
+ * 由 ApiKeyManager 在密钥创建、修改时预先生成，不可变，所有请求共享同一个实例
  */
 public class ApiKeyContext {
     private final String apiKey;
     private final Set<String> supportedProviders;
-    
+    // 每分钟请求数上限，0 表示不限制
+    private final int requestsPerMinute;
+    // 同时进行的请求数上限，0 表示不限制
+    private final int maxConcurrentRequests;
+    // 每日估算 token 数上限，0 表示不限制
+    private final long dailyTokenLimit;
+
     public ApiKeyContext(String apiKey, Set<String> supportedProviders) {
+        this(apiKey, supportedProviders, 0, 0, 0);
+    }
+
+    public ApiKeyContext(String apiKey, Set<String> supportedProviders, int requestsPerMinute,
+                         int maxConcurrentRequests, long dailyTokenLimit) {
         this.apiKey = apiKey;
-        this.supportedProviders = supportedProviders;
+        this.supportedProviders = Set.copyOf(supportedProviders);
+        this.requestsPerMinute = requestsPerMinute;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.dailyTokenLimit = dailyTokenLimit;
     }
-    
+
     public String getApiKey() {
         return apiKey;
     }
-    
+
     public Set<String> getSupportedProviders() {
         return supportedProviders;
     }
-    
+
     public boolean supportsProvider(String providerName) {
         return supportedProviders.contains(providerName);
     }
-}
 
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public long getDailyTokenLimit() {
+        return dailyTokenLimit;
+    }
+
+    /**
+     * 是否配置了任何限流
+     */
+    public boolean hasLimits() {
+        return requestsPerMinute > 0 || maxConcurrentRequests > 0 || dailyTokenLimit > 0;
+    }
+}
@@ -1,31 +1,40 @@
 package site.newbie.web.llm.api.config;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import site.newbie.web.llm.api.manager.ApiKeyManager;
+import site.newbie.web.llm.api.manager.ApiKeyRateLimiter;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * API Key 验证拦截器
- * 为所有 /v1/** 接口添加 API key 验证
+ * 为所有 /v1/** 接口添加 API key 验证，并按密钥的限流配置限制请求频率、同时请求数和每日 token 预算，
+ * 超出时返回 429 和 Retry-After
  */
 @Slf4j
 @Component
-public class ApiKeyInterceptor implements HandlerInterceptor {
+public class ApiKeyInterceptor implements AsyncHandlerInterceptor {
+
+    // 请求占用了并发名额时记录 API key，请求结束后归还
+    private static final String CONCURRENCY_PERMIT_ATTRIBUTE = ApiKeyInterceptor.class.getName() + ".permit";
 
     @Autowired
     private ApiKeyManager apiKeyManager;
     
+    @Autowired
+    private ApiKeyRateLimiter rateLimiter;
+    
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -43,19 +52,31 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
             return false;
         }
         
-        // 验证 API key 并获取支持的 providers
-        Set<String> supportedProviders = getSupportedProviders(apiKey);
-        if (supportedProviders.isEmpty()) {
+        // 验证 API key：已启用且支持至少一个提供器的密钥才有预先生成的上下文
+        ApiKeyContext context = apiKeyManager.getApiKeyContext(apiKey);
+        if (context == null) {
             log.warn("无效的 API key: {}", request.getRequestURI());
             sendUnauthorizedResponse(response, "Invalid API Key");
             return false;
         }
         
+        // 限流只在首次分发时检查，异步请求（SSE）结束后的再次分发不重复计数
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            ApiKeyRateLimiter.Rejection rejection = rateLimiter.tryAcquire(context);
+            if (rejection != null) {
+                log.warn("API key 触发限流: {}, {}", request.getRequestURI(), rejection.message());
+                sendRateLimitedResponse(response, rejection);
+                return false;
+            }
+            if (context.getMaxConcurrentRequests() > 0) {
+                request.setAttribute(CONCURRENCY_PERMIT_ATTRIBUTE, apiKey);
+            }
+        }
+        
         // 将 API key 信息存储到 ScopedValue，供后续业务流程使用
-        ApiKeyContext context = new ApiKeyContext(apiKey, supportedProviders);
         ApiKeyScopedValue.set(context);
         
-        log.debug("API key 验证通过: {}, 支持的 providers: {}", request.getRequestURI(), supportedProviders);
+        log.debug("API key 验证通过: {}, 支持的 providers: {}", request.getRequestURI(), context.getSupportedProviders());
         return true;
     }
 
@@ -80,25 +101,6 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
         return null;
     }
 
-    /**
-     * 获取 API key 支持的所有 providers
-     * @param apiKey API key
-     * @return 支持的 providers 集合，如果无效则返回空集合
-     */
-    private Set<String> getSupportedProviders(String apiKey) {
-        Set<String> supportedProviders = new HashSet<>();
-        String[] providers = {"deepseek", "gemini", "openai"};
-        for (String provider : providers) {
-            if (apiKeyManager.supportsProvider(apiKey, provider)) {
-                String accountId = apiKeyManager.getAccountIdByApiKey(apiKey, provider);
-                if (accountId != null) {
-                    supportedProviders.add(provider);
-                }
-            }
-        }
-        return supportedProviders;
-    }
-
     /**
      * 发送未授权响应
      */
@@ -118,8 +120,66 @@ public class ApiKeyInterceptor implements HandlerInterceptor {
         response.getWriter().write(objectMapper.writeValueAsString(responseMap));
     }
     
+    /**
+     * 发送限流响应（OpenAI 格式）
+     */
+    private void sendRateLimitedResponse(HttpServletResponse response, ApiKeyRateLimiter.Rejection rejection) throws IOException {
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(rejection.retryAfterSeconds()));
+        response.setContentType("application/json;charset=UTF-8");
+        
+        Map<String, Object> errorMap = new HashMap<>();
+        errorMap.put("message", rejection.message());
+        errorMap.put("code", "rate_limit_exceeded");
+        errorMap.put("type", "rate_limit_error");
+        
+        Map<String, Object> responseMap = new HashMap<>();
+        responseMap.put("error", errorMap);
+        
+        response.getWriter().write(objectMapper.writeValueAsString(responseMap));
+    }
+    
+    /**
+     * 归还请求占用的并发名额（只归还一次）
+     */
+    private void releasePermit(HttpServletRequest request) {
+        Object apiKey = request.getAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+        if (apiKey != null) {
+            request.removeAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+            rateLimiter.release((String) apiKey);
+        }
+    }
+    
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 流式请求在异步处理结束（完成、超时或出错）后才归还并发名额
+        Object apiKey = request.getAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+        if (apiKey != null) {
+            request.removeAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    rateLimiter.release((String) apiKey);
+                }
+                
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+                
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+                
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        }
+    }
+    
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        releasePermit(request);
         // 请求处理完成后清理 ThreadLocal，避免内存泄漏
         ApiKeyScopedValue.clear();
     }
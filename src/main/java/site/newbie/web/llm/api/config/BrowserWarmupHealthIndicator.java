@@ -0,0 +1,64 @@
+package site.newbie.web.llm.api.config;
+
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.manager.BrowserManager;
+import site.newbie.web.llm.api.manager.BrowserWarmup;
+
+import java.util.Map;
+
+/**
+ * 浏览器预热健康检查（/actuator/health 中的 browserWarmup），仅在开启启动预热时参与判断：
+ * - Playwright 初始化中或启动预热进行中：OUT_OF_SERVICE，负载均衡不应转发流量
+ * - Playwright 初始化失败，或预热结束但没有任何账号就绪：DOWN
+ * - 其他情况：UP，details 中列出每个账号的预热结果
+ */
+@Component
+public class BrowserWarmupHealthIndicator implements HealthIndicator {
+
+    private final BrowserManager browserManager;
+    private final BrowserWarmup browserWarmup;
+
+    public BrowserWarmupHealthIndicator(BrowserManager browserManager, BrowserWarmup browserWarmup) {
+        this.browserManager = browserManager;
+        this.browserWarmup = browserWarmup;
+    }
+
+    @Override
+    public Health health() {
+        BrowserManager.InitStatus initStatus = browserManager.getInitStatus();
+        BrowserWarmup.State state = browserWarmup.getState();
+        if (state == BrowserWarmup.State.DISABLED) {
+            // 未开启启动预热时只提供信息，不影响整体健康状态
+            return Health.up()
+                    .withDetail("playwright", initStatus)
+                    .withDetail("warmup", state)
+                    .build();
+        }
+        if (initStatus == BrowserManager.InitStatus.FAILED) {
+            return Health.down()
+                    .withDetail("playwright", initStatus)
+                    .withDetail("error", String.valueOf(browserManager.getInitErrorMessage()))
+                    .build();
+        }
+
+        Map<String, BrowserWarmup.AccountState> accounts = browserWarmup.getAccountStates();
+        Health.Builder builder;
+        if (initStatus == BrowserManager.InitStatus.INITIALIZING || state == BrowserWarmup.State.RUNNING) {
+            builder = Health.status(Status.OUT_OF_SERVICE);
+        } else if (state == BrowserWarmup.State.FINISHED && !accounts.isEmpty()
+                && !accounts.containsValue(BrowserWarmup.AccountState.READY)
+                && !accounts.containsValue(BrowserWarmup.AccountState.SKIPPED)) {
+            builder = Health.down();
+        } else {
+            builder = Health.up();
+        }
+        return builder
+                .withDetail("playwright", initStatus)
+                .withDetail("warmup", state)
+                .withDetail("accounts", accounts)
+                .build();
+    }
+}
@@ -341,6 +341,8 @@ public class AdminController {
                 }
                 account.setLoginVerified(true);
                 accountManager.saveAccounts();
+                // 共享浏览器模式下立即保存登录状态
+                browserManager.saveStorageState(providerName, accountId);
             }
             
             return ResponseEntity.ok(result);
@@ -385,6 +387,8 @@ public class AdminController {
                         // 标记为已完成登录验证
                         account.setLoginVerified(true);
                         accountManager.saveAccounts();
+                        // 共享浏览器模式下立即保存登录状态
+                        browserManager.saveStorageState(session.getProviderName(), session.getAccountId());
                     }
                 }
             }
@@ -671,6 +675,50 @@ public class AdminController {
         }
     }
     
+    /**
+     * 更新 API 密钥关联的账号池（请求会在池中选择最空闲的已登录账号）
+     */
+    @PutMapping("/api-keys/{apiKey}/account-pools")
+    public ResponseEntity<Map<String, Object>> updateApiKeyAccountPools(
+            @PathVariable String apiKey,
+            @RequestBody UpdateApiKeyAccountPoolsRequest request) {
+        try {
+            apiKeyManager.updateProviderAccountPools(
+                apiKey,
+                request.getProviderAccountPools()
+            );
+            
+            return ResponseEntity.ok(Map.of("success", true, "message", "账号池已更新"));
+        } catch (Exception e) {
+            log.error("更新 API 密钥账号池失败: apiKey={}", apiKey, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 更新 API 密钥的限流配置（每分钟请求数、同时请求数、每日 token 预算，0 表示不限制）
+     */
+    @PutMapping("/api-keys/{apiKey}/rate-limits")
+    public ResponseEntity<Map<String, Object>> updateApiKeyRateLimits(
+            @PathVariable String apiKey,
+            @RequestBody UpdateApiKeyRateLimitsRequest request) {
+        try {
+            apiKeyManager.updateRateLimits(
+                apiKey,
+                request.getRequestsPerMinute(),
+                request.getMaxConcurrentRequests(),
+                request.getDailyTokenLimit()
+            );
+            
+            return ResponseEntity.ok(Map.of("success", true, "message", "限流配置已更新"));
+        } catch (Exception e) {
+            log.error("更新 API 密钥限流配置失败: apiKey={}", apiKey, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     /**
      * 删除 API 密钥
      */
@@ -803,6 +851,18 @@ public class AdminController {
         private Map<String, String> providerAccounts; // providerName -> accountId
     }
     
+    @Data
+    public static class UpdateApiKeyAccountPoolsRequest {
+        private Map<String, List<String>> providerAccountPools; // providerName -> [accountId]
+    }
+    
+    @Data
+    public static class UpdateApiKeyRateLimitsRequest {
+        private Integer requestsPerMinute;
+        private Integer maxConcurrentRequests;
+        private Long dailyTokenLimit;
+    }
+    
     @Data
     public static class VerifyLoginRequest {
         private String sessionId;
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.config.ApiKeyScopedValue;
 import site.newbie.web.llm.api.manager.ApiKeyManager;
@@ -20,19 +21,28 @@ import site.newbie.web.llm.api.model.ChatCompletionResponse;
 import site.newbie.web.llm.api.model.ImageGenerationRequest;
 import site.newbie.web.llm.api.model.ImageGenerationResponse;
 import site.newbie.web.llm.api.model.ModelResponse;
+import site.newbie.web.llm.api.provider.AccountLoadBalancer;
+import site.newbie.web.llm.api.provider.AggregatingSseEmitter;
+import site.newbie.web.llm.api.provider.CompletionAccumulator;
 import site.newbie.web.llm.api.provider.LLMProvider;
 import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.SseChunkCoalescer;
 import site.newbie.web.llm.api.provider.command.Command;
 import site.newbie.web.llm.api.provider.command.CommandHandler;
 import site.newbie.web.llm.api.provider.command.CommandParser;
 import site.newbie.web.llm.api.provider.gemini.GeminiProvider;
 import site.newbie.web.llm.api.util.ConversationIdUtils;
+import site.newbie.web.llm.api.util.TokenEstimateUtils;
 import tools.jackson.databind.ObjectMapper;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
@@ -44,6 +54,13 @@ public class OpenAiController {
     private final ProviderRegistry providerRegistry;
     private final ObjectMapper objectMapper;
     private final ApiKeyManager apiKeyManager;
+    private final AccountLoadBalancer accountLoadBalancer;
+    private final SseChunkCoalescer chunkCoalescer;
+
+    private static final MediaType APPLICATION_JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
+
+    // 排队等待许可的请求在虚拟线程中等待，不占用请求线程
+    private final ExecutorService queueExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     @Value("${app.server.base-url:http://localhost:24753}")
     private String serverBaseUrl;
@@ -51,10 +68,17 @@ public class OpenAiController {
     @Value("${app.browser.user-data-dir:./user-data}")
     private String userDataDir;
 
-    public OpenAiController(ProviderRegistry providerRegistry, ObjectMapper objectMapper, ApiKeyManager apiKeyManager) {
+    // 非流式请求等待完整回复的超时时间（毫秒，包括排队时间）
+    @Value("${app.chat.non-stream-timeout-ms:300000}")
+    private long nonStreamTimeoutMs;
+
+    public OpenAiController(ProviderRegistry providerRegistry, ObjectMapper objectMapper, ApiKeyManager apiKeyManager,
+                            AccountLoadBalancer accountLoadBalancer, SseChunkCoalescer chunkCoalescer) {
         this.providerRegistry = providerRegistry;
         this.objectMapper = objectMapper;
         this.apiKeyManager = apiKeyManager;
+        this.accountLoadBalancer = accountLoadBalancer;
+        this.chunkCoalescer = chunkCoalescer;
     }
 
     @PostMapping(value = "/chat/completions", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_JSON_VALUE})
@@ -129,7 +153,9 @@ public class OpenAiController {
                             "API key does not support provider: " + providerName,
                             "type", "invalid_request_error")));
         }
-        String accountIdFromApiKey = apiKeyManager.getAccountIdByApiKey(apiKeyFromHeader, providerName);
+        // API key 关联了账号池时，选择当前最空闲的可用账号
+        List<String> accountPool = apiKeyManager.getAccountPoolByApiKey(apiKeyFromHeader, providerName);
+        String accountIdFromApiKey = accountLoadBalancer.select(providerName, accountPool);
         if (accountIdFromApiKey == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", Map.of(
@@ -141,12 +167,13 @@ public class OpenAiController {
         }
         // 从 API key 设置 accountId
         request.setAccountId(accountIdFromApiKey);
+        apiKeyManager.recordTokens(apiKeyFromHeader, TokenEstimateUtils.estimate(request.getMessages()));
 
         // 4. 判断是流式 (Stream) 还是 普通请求
         if (request.isStream()) {
             return handleStreamRequest(request, provider);
         } else {
-            return handleNormalRequest(request);
+            return handleNormalRequest(request, provider);
         }
     }
 
@@ -155,14 +182,7 @@ public class OpenAiController {
         String providerName = provider.getProviderName();
 
         // 统一检查是否是指令对话（在 Controller 层统一处理，避免每个 provider 重复实现）
-        String userMessage = null;
-        if (request.getMessages() != null) {
-            userMessage = request.getMessages().stream()
-                    .filter(m -> "user".equals(m.getRole()))
-                    .reduce((first, second) -> second)
-                    .map(ChatCompletionRequest.Message::getContent)
-                    .orElse(null);
-        }
+        String userMessage = lastUserMessage(request);
 
         // 从 provider 获取 CommandParser（可能包含 provider 特定指令）
         CommandParser commandParser = provider.getCommandParser();
@@ -189,57 +209,34 @@ public class OpenAiController {
 
             SseEmitter emitter = new SseEmitter(300000L);
 
-            // 设置响应头（使用 AtomicBoolean 防止重复释放锁）
-            AtomicBoolean lockReleased = new AtomicBoolean(false);
+            // 设置响应头（许可与 emitter 绑定，重复释放是安全的）
             Runnable releaseLock = () -> {
-                if (needsLock && lockReleased.compareAndSet(false, true)) {
-                    providerRegistry.releaseLock(providerName);
-                    log.debug("已释放锁: {}", providerName);
+                if (needsLock) {
+                    providerRegistry.releaseLock(emitter);
                 }
             };
 
+            // emitter 结束后，排队中的指令不再执行
+            AtomicBoolean commandFinished = new AtomicBoolean(false);
             emitter.onError((ex) -> {
                 log.error("SSE Error: {}", ex.getMessage(), ex);
+                commandFinished.set(true);
                 releaseLock.run();
             });
             emitter.onTimeout(() -> {
                 log.warn("SSE Timeout");
+                commandFinished.set(true);
                 emitter.complete();
                 releaseLock.run();
             });
             emitter.onCompletion(() -> {
                 log.info("SSE Completed");
+                commandFinished.set(true);
                 releaseLock.run(); // 这里也会尝试释放，但只会释放一次
             });
 
-            // 只有需要页面或登录的指令才需要获取锁
-            if (needsLock) {
-                if (!providerRegistry.tryAcquireLock(providerName)) {
-                    log.warn("提供器 {} 正忙，拒绝指令请求", providerName);
-                    try {
-                        String errorMessage = providerName + " 提供器正忙，请等待当前对话完成后再试";
-                        String id = UUID.randomUUID().toString();
-                        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                                .delta(ChatCompletionResponse.Delta.builder().content(errorMessage).build())
-                                .index(0).build();
-                        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                                .id(id).object("chat.completion.chunk")
-                                .created(System.currentTimeMillis() / 1000)
-                                .model(request.getModel()).choices(List.of(choice)).build();
-
-                        MediaType APPLICATION_JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
-                        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
-                        emitter.send(SseEmitter.event().data("[DONE]", MediaType.TEXT_PLAIN));
-                        emitter.complete();
-                    } catch (Exception e) {
-                        emitter.completeWithError(e);
-                    }
-                    return emitter;
-                }
-            }
-
             // 使用 CommandHandler 统一处理指令
-            CommandHandler.handleCommandOnly(
+            Runnable handleCommand = () -> CommandHandler.handleCommandOnly(
                     request, emitter, provider, commandParser,
                     provider::getOrCreatePage,
                     provider::getConversationId,
@@ -248,6 +245,22 @@ public class OpenAiController {
                     provider.getCommandSuccessCallback(), // 从 provider 获取成功回调
                     releaseLock); // 传入释放锁的回调，确保指令执行完成后立即释放锁
 
+            // 只有需要页面或登录的指令才需要获取锁，拿不到时与对话请求一样排队
+            if (!needsLock) {
+                handleCommand.run();
+                return emitter;
+            }
+            ProviderRegistry.AdmissionResult admission =
+                    providerRegistry.tryAcquireOrEnqueue(providerName, request.getAccountId(), emitter);
+            if (admission == ProviderRegistry.AdmissionResult.QUEUE_FULL) {
+                log.warn("提供器 {} 正忙且排队已满，拒绝指令请求", providerName);
+                return busyResponse(providerName + " 提供器正忙且排队已满，请稍后再试");
+            }
+            if (admission == ProviderRegistry.AdmissionResult.ACQUIRED) {
+                handleCommand.run();
+            } else {
+                queueExecutor.submit(() -> waitInQueueAndRun(request, providerName, emitter, commandFinished, handleCommand));
+            }
             return emitter;
         }
 
@@ -266,43 +279,109 @@ public class OpenAiController {
         log.debug("处理请求: providerName={}, conversationId={}, isNewConversation={}",
                 providerName, conversationId, isNewConversation);
 
-        // 获取锁
-        if (!providerRegistry.tryAcquireLock(providerName)) {
-            log.warn("提供器 {} 正忙，拒绝请求", providerName);
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(Map.of("error", Map.of(
-                            "message", providerName + " 提供器正忙，请等待当前对话完成后再试",
-                            "type", "provider_busy_error"
-                    )));
+        SseEmitter emitter = new SseEmitter(5 * 60 * 1000L);
+        String apiKey = ApiKeyScopedValue.getApiKey();
+
+        // 获取锁（按 provider + account 分配许可），拿不到时进入排队，只有队列已满才拒绝；
+        // 入队在返回 SSE 之前完成，队列已满时客户端收到的是 429 而不是 200 + 提示消息
+        String accountId = request.getAccountId();
+        ProviderRegistry.AdmissionResult admission = providerRegistry.tryAcquireOrEnqueue(providerName, accountId, emitter);
+        if (admission == ProviderRegistry.AdmissionResult.QUEUE_FULL) {
+            log.warn("提供器 {} 正忙且排队已满，拒绝请求", providerName);
+            return busyResponse(providerName + " 提供器正忙且排队已满，请稍后再试");
         }
 
-        SseEmitter emitter = new SseEmitter(5 * 60 * 1000L);
+        // 记录账号负载（排队中的请求也计入，避免账号池把新请求继续分到同一个账号）
+        accountLoadBalancer.onStart(providerName, accountId);
+        long startTime = System.currentTimeMillis();
+        AtomicBoolean failed = new AtomicBoolean(false);
 
-        // 设置响应头
+        // 设置响应头（emitter 结束后，排队中的请求不再继续）
+        AtomicBoolean finished = new AtomicBoolean(false);
         emitter.onError((ex) -> {
             System.err.println("SSE Error: " + ex.getMessage());
             ex.printStackTrace();
-            providerRegistry.releaseLock(providerName);
+            failed.set(true);
+            finished.set(true);
+            providerRegistry.releaseLock(emitter);
         });
 
         emitter.onTimeout(() -> {
             System.err.println("SSE Timeout");
+            failed.set(true);
+            finished.set(true);
             emitter.complete();
-            providerRegistry.releaseLock(providerName);
+            providerRegistry.releaseLock(emitter);
         });
 
         emitter.onCompletion(() -> {
             System.out.println("SSE Completed");
-            providerRegistry.releaseLock(providerName);
+            finished.set(true);
+            providerRegistry.releaseLock(emitter);
+            accountLoadBalancer.onFinish(providerName, accountId, System.currentTimeMillis() - startTime, !failed.get());
+            // 流结束（包括出错和超时）后计入已输出内容的 token 数
+            apiKeyManager.recordTokens(apiKey, chunkCoalescer.takeCompletionTokens(emitter));
         });
 
-        // 直接调用提供者处理请求（登录功能已移至管理后台）
-        provider.streamChat(request, emitter);
+        if (admission == ProviderRegistry.AdmissionResult.ACQUIRED) {
+            // 直接调用提供者处理请求（登录功能已移至管理后台）
+            provider.streamChat(request, emitter);
+        } else {
+            queueExecutor.submit(() -> waitInQueueAndRun(request, providerName, emitter, finished,
+                    () -> provider.streamChat(request, emitter)));
+        }
 
         return emitter;
     }
 
+    /**
+     * 排队等待许可，期间通过 SSE 注释推送排队位置（OpenAI SDK 会忽略注释行），拿到许可后再执行 action
+     */
+    private void waitInQueueAndRun(ChatCompletionRequest request, String providerName,
+                                   SseEmitter emitter, AtomicBoolean finished, Runnable action) {
+        try {
+            ProviderRegistry.AdmissionResult result = providerRegistry.awaitQueuedLock(
+                    providerName, request.getAccountId(), emitter,
+                    position -> emitter.send(SseEmitter.event().comment("queue position: " + position)));
+            switch (result) {
+                case ACQUIRED -> {
+                    if (finished.get()) {
+                        // 排队期间客户端已断开，归还刚拿到的许可
+                        providerRegistry.releaseLock(emitter);
+                        return;
+                    }
+                    action.run();
+                }
+                case TIMEOUT -> sendMessageAndComplete(emitter, request.getModel(),
+                        providerName + " 提供器排队超时，请稍后再试");
+                case CANCELLED, QUEUED, QUEUE_FULL -> log.info("排队请求已取消: provider={}", providerName);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            providerRegistry.releaseLock(emitter);
+        } catch (Exception e) {
+            // 推送排队位置失败，说明客户端已断开
+            log.warn("排队等待时出错: {}", e.getMessage());
+            providerRegistry.releaseLock(emitter);
+        }
+    }
+
+    /**
+     * 以一个普通 chunk 发送提示消息并结束流
+     */
+    private void sendMessageAndComplete(SseEmitter emitter, String model, String message) {
+        try {
+            String id = UUID.randomUUID().toString();
+            ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, message);
+
+            emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+            emitter.send(SseEmitter.event().data("[DONE]", MediaType.TEXT_PLAIN));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+    }
+
     /**
      * 获取所有可用的提供者和模型
      * 注意：API key 验证由拦截器处理
@@ -352,7 +431,8 @@ public class OpenAiController {
                                 .build());
             }
 
-            String accountIdFromApiKey = apiKeyManager.getAccountIdByApiKey(apiKeyFromHeader, "gemini");
+            String accountIdFromApiKey = accountLoadBalancer.select("gemini",
+                    apiKeyManager.getAccountPoolByApiKey(apiKeyFromHeader, "gemini"));
             if (accountIdFromApiKey == null) {
                 log.warn("无效的 API key for Gemini provider");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -501,13 +581,176 @@ public class OpenAiController {
     }
 
     // 处理普通请求
-    private Map<String, Object> handleNormalRequest(ChatCompletionRequest request) {
-        // TODO: 暂时返回一个 Mock 数据测试接口通不通
-        return Map.of(
-                "id", "mock-id",
-                "choices", java.util.List.of(
-                        Map.of("message", Map.of("role", "assistant", "content", "这是测试回复，接口已打通！"))
-                )
-        );
+    /**
+     * 处理非流式请求
+     * 复用提供器的流式实现：增量直接写入 AggregatingSseEmitter 的累加器，流结束后一次性返回 chat.completion；
+     * 等待期间不占用请求线程，许可、排队和账号负载统计与流式请求一致
+     */
+    private Object handleNormalRequest(ChatCompletionRequest request, LLMProvider provider) {
+        String providerName = provider.getProviderName();
+
+        // 指令对话的结果依赖流式推送（例如登录二维码），只支持流式请求
+        CommandParser commandParser = provider.getCommandParser();
+        String userMessage = lastUserMessage(request);
+        if (commandParser != null && userMessage != null && commandParser.isCommandOnly(userMessage)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", Map.of("message", "指令对话仅支持流式请求（stream=true）", "type", "invalid_request_error")));
+        }
+
+        AggregatingSseEmitter sink = new AggregatingSseEmitter(objectMapper);
+        String apiKey = ApiKeyScopedValue.getApiKey();
+
+        // 获取锁（按 provider + account 分配许可），拿不到时进入排队，只有队列已满才拒绝
+        String accountId = request.getAccountId();
+        ProviderRegistry.AdmissionResult admission = providerRegistry.tryAcquireOrEnqueue(providerName, accountId, sink);
+        if (admission == ProviderRegistry.AdmissionResult.QUEUE_FULL) {
+            log.warn("提供器 {} 正忙且排队已满，拒绝请求", providerName);
+            return busyResponse(providerName + " 提供器正忙且排队已满，请稍后再试");
+        }
+
+        accountLoadBalancer.onStart(providerName, accountId);
+        long startTime = System.currentTimeMillis();
+
+        DeferredResult<ResponseEntity<Object>> deferred = new DeferredResult<>(nonStreamTimeoutMs);
+        // 超时或客户端断开时结束聚合，提供器下一次发送会失败并退出
+        deferred.onTimeout(() -> sink.completeWithError(new TimeoutException("等待回复超时")));
+        deferred.onError(sink::completeWithError);
+
+        sink.result().whenComplete((accumulator, ex) -> {
+            providerRegistry.releaseLock(sink);
+            long latency = System.currentTimeMillis() - startTime;
+            accountLoadBalancer.onFinish(providerName, accountId, latency, ex == null);
+            if (ex == null) {
+                log.info("非流式请求完成: provider={}, 耗时={} ms", providerName, latency);
+                ResponseEntity<Object> completion = buildCompletionResponse(request, accumulator);
+                if (completion.getBody() instanceof ChatCompletionResponse body && body.getUsage() != null) {
+                    apiKeyManager.recordTokens(apiKey, body.getUsage().getCompletionTokens());
+                }
+                deferred.setResult(completion);
+            } else {
+                deferred.setResult(errorResponse(providerName, ex));
+            }
+        });
+
+        if (admission == ProviderRegistry.AdmissionResult.ACQUIRED) {
+            provider.streamChat(request, sink);
+        } else {
+            queueExecutor.submit(() -> waitInQueueAndAggregate(request, provider, sink));
+        }
+        return deferred;
+    }
+
+    /**
+     * 非流式请求排队等待许可，拿到许可后再开始对话
+     */
+    private void waitInQueueAndAggregate(ChatCompletionRequest request, LLMProvider provider, AggregatingSseEmitter sink) {
+        String providerName = provider.getProviderName();
+        try {
+            ProviderRegistry.AdmissionResult result = providerRegistry.awaitQueuedLock(
+                    providerName, request.getAccountId(), sink, null);
+            switch (result) {
+                case ACQUIRED -> {
+                    if (sink.result().isDone()) {
+                        // 排队期间已超时或客户端已断开，归还刚拿到的许可
+                        providerRegistry.releaseLock(sink);
+                        return;
+                    }
+                    provider.streamChat(request, sink);
+                }
+                case TIMEOUT -> sink.completeWithError(new ProviderBusyException(
+                        providerName + " 提供器排队超时，请稍后再试"));
+                case CANCELLED, QUEUED, QUEUE_FULL -> log.info("排队请求已取消: provider={}", providerName);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sink.completeWithError(e);
+        } catch (Exception e) {
+            log.warn("排队等待时出错: {}", e.getMessage());
+            sink.completeWithError(e);
+        }
+    }
+
+    /**
+     * 将聚合结果组装为 chat.completion
+     */
+    private ResponseEntity<Object> buildCompletionResponse(ChatCompletionRequest request, CompletionAccumulator accumulator) {
+        String content = accumulator.getContent();
+        int promptTokens = TokenEstimateUtils.estimate(request.getMessages());
+        int completionTokens = TokenEstimateUtils.estimate(content) + TokenEstimateUtils.estimate(accumulator.getReasoningContent());
+
+        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
+                .index(0)
+                .message(new ChatCompletionRequest.Message("assistant", content))
+                .finishReason(accumulator.getFinishReason() != null ? accumulator.getFinishReason() : "stop")
+                .build();
+        ChatCompletionResponse response = ChatCompletionResponse.builder()
+                .id(accumulator.getId() != null ? accumulator.getId() : UUID.randomUUID().toString())
+                .object("chat.completion")
+                .created(System.currentTimeMillis() / 1000)
+                .model(request.getModel())
+                .choices(List.of(choice))
+                .usage(ChatCompletionResponse.Usage.builder()
+                        .promptTokens(promptTokens)
+                        .completionTokens(completionTokens)
+                        .totalTokens(promptTokens + completionTokens)
+                        .build())
+                .conversationId(accumulator.getConversationId())
+                .build();
+        return ResponseEntity.ok().contentType(APPLICATION_JSON_UTF8).body(response);
+    }
+
+    private ResponseEntity<Object> errorResponse(String providerName, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof ProviderBusyException) {
+            return busyResponse(cause.getMessage());
+        }
+        if (cause instanceof TimeoutException) {
+            log.warn("非流式请求超时: provider={}, timeout={} ms", providerName, nonStreamTimeoutMs);
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", Map.of(
+                            "message", providerName + " 等待回复超时（" + nonStreamTimeoutMs + " ms）",
+                            "type", "timeout_error"
+                    )));
+        }
+        log.error("非流式请求失败: provider={}, error={}", providerName, cause.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", Map.of(
+                        "message", cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName(),
+                        "type", "server_error"
+                )));
+    }
+
+    private static ResponseEntity<Object> busyResponse(String message) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", Map.of(
+                        "message", message,
+                        "type", "provider_busy_error"
+                )));
+    }
+
+    /**
+     * 最后一条用户消息
+     */
+    private static String lastUserMessage(ChatCompletionRequest request) {
+        if (request.getMessages() == null) {
+            return null;
+        }
+        return request.getMessages().stream()
+                .filter(m -> "user".equals(m.getRole()))
+                .reduce((first, second) -> second)
+                .map(ChatCompletionRequest.Message::getContent)
+                .orElse(null);
+    }
+
+    /**
+     * 排队已满或排队超时
+     */
+    private static class ProviderBusyException extends RuntimeException {
+        ProviderBusyException(String message) {
+            super(message);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,13 @@
 package site.newbie.web.llm.api.manager;
 
 import lombok.Data;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import site.newbie.web.llm.api.config.ApiKeyContext;
+import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.util.DebouncedJsonFile;
 import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
 
@@ -15,10 +19,16 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * API 密钥管理服务
@@ -34,22 +44,43 @@ public class ApiKeyManager {
     
     private final ObjectMapper objectMapper;
     private final AccountManager accountManager;
+    private final ProviderRegistry providerRegistry;
+    private final ApiKeyRateLimiter rateLimiter;
     private Path apiKeysFile;
     
     @Value("${app.browser.user-data-dir:./user-data}")
     private String userDataDir;
     
+    // 使用统计（最后使用时间、请求数、估算 token 数）写入文件的间隔（毫秒）
+    @Value("${app.api-keys.usage-flush-interval-ms:60000}")
+    private long usageFlushIntervalMs;
+    
     // 内存缓存：apiKey -> ApiKeyInfo
     private final Map<String, ApiKeyInfo> apiKeysCache = new ConcurrentHashMap<>();
     
     // 反向索引：accountId -> Set<apiKey>
     private final Map<String, Set<String>> accountToApiKeys = new ConcurrentHashMap<>();
     
+    // 认证索引：apiKey -> ApiKeyContext，只包含已启用且支持至少一个已注册提供器的密钥
+    // 密钥创建、修改、删除时重建对应的条目，认证时只需要一次查找
+    private final Map<String, ApiKeyContext> apiKeyContexts = new ConcurrentHashMap<>();
+    
+    // 使用统计：apiKey -> 计数器，请求路径上只累加内存计数，由后台定期合并到 ApiKeyInfo 并保存
+    private final Map<String, KeyUsage> usages = new ConcurrentHashMap<>();
+    
+    private DebouncedJsonFile apiKeysWriter;
+    
+    private final ScheduledExecutorService usageScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("api-key-usage").daemon(true).factory());
+    
     private final SecureRandom secureRandom = new SecureRandom();
     
-    public ApiKeyManager(ObjectMapper objectMapper, AccountManager accountManager) {
+    public ApiKeyManager(ObjectMapper objectMapper, AccountManager accountManager,
+                         ProviderRegistry providerRegistry, ApiKeyRateLimiter rateLimiter) {
         this.objectMapper = objectMapper;
         this.accountManager = accountManager;
+        this.providerRegistry = providerRegistry;
+        this.rateLimiter = rateLimiter;
     }
     
     @jakarta.annotation.PostConstruct
@@ -57,12 +88,18 @@ public class ApiKeyManager {
         try {
             Path storageDir = Paths.get(userDataDir);
             this.apiKeysFile = storageDir.resolve(API_KEYS_FILE);
+            // 管理操作立即写入（先写临时文件再重命名），使用统计由定时任务批量写入
+            this.apiKeysWriter = new DebouncedJsonFile(apiKeysFile, objectMapper, () -> apiKeysCache, 0, usageScheduler);
             
             if (!Files.exists(storageDir)) {
                 Files.createDirectories(storageDir);
             }
             
             loadApiKeys();
+            if (usageFlushIntervalMs > 0) {
+                usageScheduler.scheduleWithFixedDelay(this::flushUsage, usageFlushIntervalMs, usageFlushIntervalMs,
+                        TimeUnit.MILLISECONDS);
+            }
             log.info("API 密钥管理服务初始化完成，共加载 {} 个 API 密钥", apiKeysCache.size());
         } catch (Exception e) {
             log.error("初始化 API 密钥管理服务失败: {}", e.getMessage(), e);
@@ -82,10 +119,18 @@ public class ApiKeyManager {
         private String providerName;
         // 新版本：按提供器映射账号ID，key 是提供器名称，value 是账号ID
         private Map<String, String> providerAccounts; // providerName -> accountId
+        // 可选的账号池：配置后请求会在池中选择最空闲的账号，优先于 providerAccounts
+        private Map<String, List<String>> providerAccountPools; // providerName -> [accountId]
         private String name; // 密钥名称（用户自定义）
         private String description; // 密钥描述
         private long createdAt;
         private long lastUsedAt;
+        private long requestCount; // 累计请求数
+        private long estimatedTokens; // 累计估算 token 数
+        // 限流配置，0 表示不限制
+        private int requestsPerMinute; // 每分钟请求数
+        private int maxConcurrentRequests; // 同时进行的请求数（流式请求在输出结束后释放）
+        private long dailyTokenLimit; // 每日估算 token 数
         private boolean enabled; // 是否启用
         
         public ApiKeyInfo() {
@@ -109,11 +154,25 @@ public class ApiKeyManager {
             return null;
         }
         
+        /**
+         * 获取指定提供器的账号池（未配置账号池时返回单个关联账号）
+         */
+        public List<String> getAccountPoolForProvider(String providerName) {
+            if (providerAccountPools != null) {
+                List<String> pool = providerAccountPools.get(providerName);
+                if (pool != null && !pool.isEmpty()) {
+                    return pool;
+                }
+            }
+            String accountId = getAccountIdForProvider(providerName);
+            return accountId != null ? List.of(accountId) : List.of();
+        }
+        
         /**
          * 检查是否支持指定提供器
          */
         public boolean supportsProvider(String providerName) {
-            return getAccountIdForProvider(providerName) != null;
+            return !getAccountPoolForProvider(providerName).isEmpty();
         }
     }
     
@@ -184,6 +243,7 @@ public class ApiKeyManager {
         }
         
         apiKeysCache.put(apiKey, info);
+        initUsage(info);
         
         // 更新反向索引
         if (providerAccounts != null) {
@@ -192,6 +252,7 @@ public class ApiKeyManager {
             }
         }
         
+        rebuildApiKeyContext(apiKey);
         saveApiKeys();
         log.info("创建 API 密钥: providerAccounts={}, name={}", providerAccounts, name);
         
@@ -209,9 +270,8 @@ public class ApiKeyManager {
             return null;
         }
         
-        // 更新最后使用时间
-        info.setLastUsedAt(System.currentTimeMillis());
-        saveApiKeys();
+        // 记录使用情况（只更新内存计数，定期保存）
+        recordRequest(apiKey);
         
         // 优先从 providerAccounts 获取
         if (info.getProviderAccounts() != null && !info.getProviderAccounts().isEmpty()) {
@@ -234,13 +294,30 @@ public class ApiKeyManager {
             return null;
         }
         
-        // 更新最后使用时间
-        info.setLastUsedAt(System.currentTimeMillis());
-        saveApiKeys();
+        // 记录使用情况（只更新内存计数，定期保存）
+        recordRequest(apiKey);
         
         return info.getAccountIdForProvider(providerName);
     }
     
+    /**
+     * 根据 API 密钥和提供器名称获取可用的账号池
+     * @param apiKey API 密钥
+     * @param providerName 提供器名称
+     * @return 账号ID列表，如果密钥不存在、已禁用或不支持该提供器则返回空列表
+     */
+    public List<String> getAccountPoolByApiKey(String apiKey, String providerName) {
+        ApiKeyInfo info = apiKeysCache.get(apiKey);
+        if (info == null || !info.isEnabled()) {
+            return Collections.emptyList();
+        }
+        
+        // 记录使用情况（只更新内存计数，定期保存）
+        recordRequest(apiKey);
+        
+        return info.getAccountPoolForProvider(providerName);
+    }
+    
     /**
      * 检查 API 密钥是否支持指定提供器
      * @param apiKey API 密钥
@@ -255,12 +332,127 @@ public class ApiKeyManager {
         return info.supportsProvider(providerName);
     }
     
+    /**
+     * 获取 API 密钥的认证上下文（请求认证使用）
+     * @param apiKey API 密钥
+     * @return 预先生成的上下文，如果密钥不存在、已禁用或不支持任何已注册的提供器则返回 null
+     */
+    public ApiKeyContext getApiKeyContext(String apiKey) {
+        return apiKeyContexts.get(apiKey);
+    }
+    
+    /**
+     * 重新生成 API 密钥的认证上下文，支持的提供器按 ProviderRegistry 中实际注册的提供器计算
+     */
+    private void rebuildApiKeyContext(String apiKey) {
+        ApiKeyInfo info = apiKeysCache.get(apiKey);
+        if (info == null || !info.isEnabled()) {
+            apiKeyContexts.remove(apiKey);
+            return;
+        }
+        Set<String> supportedProviders = new HashSet<>();
+        for (String providerName : providerRegistry.getProviderNames()) {
+            // 关联了单个账号或账号池都视为支持
+            if (info.supportsProvider(providerName)) {
+                supportedProviders.add(providerName);
+            }
+        }
+        if (supportedProviders.isEmpty()) {
+            apiKeyContexts.remove(apiKey);
+        } else {
+            apiKeyContexts.put(apiKey, new ApiKeyContext(apiKey, supportedProviders, info.getRequestsPerMinute(),
+                    info.getMaxConcurrentRequests(), info.getDailyTokenLimit()));
+        }
+    }
+    
+    /**
+     * 记录一次请求（更新最后使用时间和请求数）
+     */
+    public void recordRequest(String apiKey) {
+        KeyUsage usage = usages.get(apiKey);
+        if (usage != null) {
+            usage.requests.increment();
+            usage.lastUsedAt.accumulate(System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * 累加估算的 token 数
+     */
+    public void recordTokens(String apiKey, long tokens) {
+        KeyUsage usage = usages.get(apiKey);
+        if (usage != null && tokens > 0) {
+            usage.tokens.add(tokens);
+            rateLimiter.addTokens(apiKey, tokens);
+        }
+    }
+    
+    /**
+     * 把内存中的使用统计合并到 ApiKeyInfo
+     * @return true 如果有变化
+     */
+    private boolean mergeUsage() {
+        boolean changed = false;
+        for (Map.Entry<String, KeyUsage> entry : usages.entrySet()) {
+            ApiKeyInfo info = apiKeysCache.get(entry.getKey());
+            if (info == null) {
+                continue;
+            }
+            KeyUsage usage = entry.getValue();
+            long requests = usage.requests.sum();
+            long tokens = usage.tokens.sum();
+            long lastUsedAt = usage.lastUsedAt.get();
+            if (requests != info.getRequestCount() || tokens != info.getEstimatedTokens()
+                    || lastUsedAt != info.getLastUsedAt()) {
+                info.setRequestCount(requests);
+                info.setEstimatedTokens(tokens);
+                info.setLastUsedAt(lastUsedAt);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * 定期保存使用统计，没有新的使用时不写文件
+     */
+    private void flushUsage() {
+        try {
+            if (mergeUsage()) {
+                saveApiKeys();
+            }
+        } catch (Exception e) {
+            log.warn("保存 API 密钥使用统计失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 为密钥创建使用统计计数器，从已保存的统计继续累加
+     */
+    private void initUsage(ApiKeyInfo info) {
+        KeyUsage usage = new KeyUsage();
+        usage.requests.add(info.getRequestCount());
+        usage.tokens.add(info.getEstimatedTokens());
+        usage.lastUsedAt.accumulate(info.getLastUsedAt());
+        usages.put(info.getApiKey(), usage);
+    }
+    
+    /**
+     * 单个密钥的使用统计，多线程累加不加锁
+     */
+    private static class KeyUsage {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder tokens = new LongAdder();
+        private final LongAccumulator lastUsedAt = new LongAccumulator(Long::max, 0);
+    }
+    
     /**
      * 根据 API 密钥获取密钥信息
      * @param apiKey API 密钥
      * @return 密钥信息，如果不存在则返回 null
      */
     public ApiKeyInfo getApiKeyInfo(String apiKey) {
+        mergeUsage();
         return apiKeysCache.get(apiKey);
     }
     
@@ -270,6 +462,7 @@ public class ApiKeyManager {
      * @return API 密钥列表
      */
     public List<ApiKeyInfo> getApiKeysByAccount(String accountId) {
+        mergeUsage();
         Set<String> apiKeys = accountToApiKeys.get(accountId);
         if (apiKeys == null || apiKeys.isEmpty()) {
             return Collections.emptyList();
@@ -291,6 +484,7 @@ public class ApiKeyManager {
      * @return 所有 API 密钥列表
      */
     public List<ApiKeyInfo> getAllApiKeys() {
+        mergeUsage();
         return new ArrayList<>(apiKeysCache.values());
     }
     
@@ -317,10 +511,46 @@ public class ApiKeyManager {
             info.setEnabled(enabled);
         }
         
+        rebuildApiKeyContext(apiKey);
         saveApiKeys();
         log.info("更新 API 密钥: apiKey={}, name={}, enabled={}", apiKey, name, enabled);
     }
     
+    /**
+     * 更新 API 密钥的限流配置
+     * @param apiKey API 密钥
+     * @param requestsPerMinute 每分钟请求数，0 表示不限制，null 表示不修改
+     * @param maxConcurrentRequests 同时进行的请求数，0 表示不限制，null 表示不修改
+     * @param dailyTokenLimit 每日估算 token 数，0 表示不限制，null 表示不修改
+     */
+    public void updateRateLimits(String apiKey, Integer requestsPerMinute, Integer maxConcurrentRequests,
+                                 Long dailyTokenLimit) {
+        ApiKeyInfo info = apiKeysCache.get(apiKey);
+        if (info == null) {
+            throw new IllegalArgumentException("API 密钥不存在: " + apiKey);
+        }
+        if ((requestsPerMinute != null && requestsPerMinute < 0)
+                || (maxConcurrentRequests != null && maxConcurrentRequests < 0)
+                || (dailyTokenLimit != null && dailyTokenLimit < 0)) {
+            throw new IllegalArgumentException("限流配置不能为负数");
+        }
+        
+        if (requestsPerMinute != null) {
+            info.setRequestsPerMinute(requestsPerMinute);
+        }
+        if (maxConcurrentRequests != null) {
+            info.setMaxConcurrentRequests(maxConcurrentRequests);
+        }
+        if (dailyTokenLimit != null) {
+            info.setDailyTokenLimit(dailyTokenLimit);
+        }
+        
+        rebuildApiKeyContext(apiKey);
+        saveApiKeys();
+        log.info("更新 API 密钥限流配置: apiKey={}, requestsPerMinute={}, maxConcurrentRequests={}, dailyTokenLimit={}",
+                apiKey, info.getRequestsPerMinute(), info.getMaxConcurrentRequests(), info.getDailyTokenLimit());
+    }
+    
     /**
      * 更新 API 密钥关联的账号
      * @param apiKey API 密钥
@@ -390,16 +620,84 @@ public class ApiKeyManager {
             }
         }
         
+        rebuildApiKeyContext(apiKey);
         saveApiKeys();
         log.info("更新 API 密钥关联账号: apiKey={}, providerAccounts={}", apiKey, providerAccounts);
     }
     
+    /**
+     * 更新 API 密钥关联的账号池
+     * @param apiKey API 密钥
+     * @param providerAccountPools 提供器名称到账号ID列表的映射，可以为空或 null（表示不使用账号池）
+     */
+    public void updateProviderAccountPools(String apiKey, Map<String, List<String>> providerAccountPools) {
+        ApiKeyInfo info = apiKeysCache.get(apiKey);
+        if (info == null) {
+            throw new IllegalArgumentException("API 密钥不存在: " + apiKey);
+        }
+        
+        // 验证所有账号是否存在且属于对应提供器
+        Map<String, List<String>> pools = new HashMap<>();
+        if (providerAccountPools != null) {
+            for (Map.Entry<String, List<String>> entry : providerAccountPools.entrySet()) {
+                String providerName = entry.getKey();
+                List<String> pool = entry.getValue() != null ? entry.getValue() : List.of();
+                for (String accountId : pool) {
+                    AccountManager.AccountInfo account = accountManager.getAccount(accountId);
+                    if (account == null) {
+                        throw new IllegalArgumentException("账号不存在: " + accountId);
+                    }
+                    if (!account.getProviderName().equals(providerName)) {
+                        throw new IllegalArgumentException("账号 " + accountId + " 不属于提供器 " + providerName);
+                    }
+                }
+                if (!pool.isEmpty()) {
+                    pools.put(providerName, new ArrayList<>(pool.stream().distinct().toList()));
+                }
+            }
+        }
+        
+        // 从旧的反向索引中移除
+        if (info.getProviderAccountPools() != null) {
+            for (List<String> pool : info.getProviderAccountPools().values()) {
+                for (String accountId : pool) {
+                    if (info.getProviderAccounts() != null && info.getProviderAccounts().containsValue(accountId)) {
+                        continue; // 仍通过 providerAccounts 关联
+                    }
+                    Set<String> apiKeys = accountToApiKeys.get(accountId);
+                    if (apiKeys != null) {
+                        apiKeys.remove(apiKey);
+                        if (apiKeys.isEmpty()) {
+                            accountToApiKeys.remove(accountId);
+                        }
+                    }
+                }
+            }
+        }
+        
+        info.setProviderAccountPools(pools);
+        
+        // 更新新的反向索引
+        for (List<String> pool : pools.values()) {
+            for (String accountId : pool) {
+                accountToApiKeys.computeIfAbsent(accountId, k -> ConcurrentHashMap.newKeySet()).add(apiKey);
+            }
+        }
+        
+        rebuildApiKeyContext(apiKey);
+        saveApiKeys();
+        log.info("更新 API 密钥账号池: apiKey={}, providerAccountPools={}", apiKey, pools);
+    }
+    
     /**
      * 删除 API 密钥
      * @param apiKey API 密钥
      */
     public void deleteApiKey(String apiKey) {
         ApiKeyInfo info = apiKeysCache.remove(apiKey);
+        apiKeyContexts.remove(apiKey);
+        usages.remove(apiKey);
+        rateLimiter.remove(apiKey);
         if (info != null) {
             // 从所有关联的账号中移除
             if (info.getProviderAccounts() != null) {
@@ -422,6 +720,20 @@ public class ApiKeyManager {
                     }
                 }
             }
+            // 从账号池关联的账号中移除
+            if (info.getProviderAccountPools() != null) {
+                for (List<String> pool : info.getProviderAccountPools().values()) {
+                    for (String accountId : pool) {
+                        Set<String> apiKeys = accountToApiKeys.get(accountId);
+                        if (apiKeys != null) {
+                            apiKeys.remove(apiKey);
+                            if (apiKeys.isEmpty()) {
+                                accountToApiKeys.remove(accountId);
+                            }
+                        }
+                    }
+                }
+            }
             saveApiKeys();
             log.info("删除 API 密钥: apiKey={}", apiKey);
         }
@@ -436,6 +748,9 @@ public class ApiKeyManager {
         if (apiKeys != null) {
             for (String apiKey : apiKeys) {
                 apiKeysCache.remove(apiKey);
+                apiKeyContexts.remove(apiKey);
+                usages.remove(apiKey);
+                rateLimiter.remove(apiKey);
             }
             saveApiKeys();
             log.info("删除账号的所有 API 密钥: accountId={}, count={}", accountId, apiKeys.size());
@@ -461,9 +776,12 @@ public class ApiKeyManager {
             
             apiKeysCache.clear();
             accountToApiKeys.clear();
+            apiKeyContexts.clear();
+            usages.clear();
             
             for (ApiKeyInfo info : loaded.values()) {
                 apiKeysCache.put(info.getApiKey(), info);
+                initUsage(info);
                 
                 // 兼容旧版本：如果 providerAccounts 为空，从 accountId 和 providerName 构建
                 if (info.getProviderAccounts() == null || info.getProviderAccounts().isEmpty()) {
@@ -484,8 +802,17 @@ public class ApiKeyManager {
                     accountToApiKeys.computeIfAbsent(info.getAccountId(), k -> ConcurrentHashMap.newKeySet())
                         .add(info.getApiKey());
                 }
+                if (info.getProviderAccountPools() != null) {
+                    for (List<String> pool : info.getProviderAccountPools().values()) {
+                        for (String accountId : pool) {
+                            accountToApiKeys.computeIfAbsent(accountId, k -> ConcurrentHashMap.newKeySet())
+                                .add(info.getApiKey());
+                        }
+                    }
+                }
             }
             
+            apiKeysCache.keySet().forEach(this::rebuildApiKeyContext);
             log.info("从文件加载了 {} 个 API 密钥", apiKeysCache.size());
         } catch (IOException e) {
             log.error("加载 API 密钥失败: {}", e.getMessage(), e);
@@ -493,15 +820,20 @@ public class ApiKeyManager {
     }
     
     /**
-     * 保存 API 密钥到文件
+     * 保存 API 密钥到文件（先写临时文件再重命名）
      */
     private void saveApiKeys() {
-        try {
-            String content = objectMapper.writerWithDefaultPrettyPrinter()
-                .writeValueAsString(apiKeysCache);
-            Files.writeString(apiKeysFile, content);
-        } catch (IOException e) {
-            log.error("保存 API 密钥失败: {}", e.getMessage(), e);
+        apiKeysWriter.flush();
+    }
+    
+    /**
+     * 应用退出时保存尚未写入的使用统计
+     */
+    @PreDestroy
+    public void shutdown() {
+        usageScheduler.shutdownNow();
+        if (apiKeysWriter != null) {
+            flushUsage();
         }
     }
 }
@@ -0,0 +1,161 @@
+package site.newbie.web.llm.api.manager;
+
+import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.config.ApiKeyContext;
+
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * API 密钥限流
+ * 按密钥限制每分钟请求数、同时进行的请求数和每日 token 预算（在 ApiKeyInfo 中配置，0 表示不限制），
+ * 避免单个调用方占满共享的浏览器账号
+ *
+ * - 每分钟请求数：令牌桶（GCRA 实现，只保存一个时间戳，CAS 更新），允许在一分钟内集中使用全部额度
+ * - 同时进行的请求数：计数器，流式请求在 SSE 结束后才释放
+ * - 每日 token 预算：按估算的 token 数累加，超过后当天剩余时间内拒绝；统计只在内存中，重启后重新计算
+ */
+@Component
+public class ApiKeyRateLimiter {
+
+    private static final long MINUTE_MICROS = 60_000_000L;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * 拒绝原因
+     * @param retryAfterSeconds 建议的重试等待时间（秒）
+     */
+    public record Rejection(String message, long retryAfterSeconds) {
+    }
+
+    // 按服务器本地时区划分自然日
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    // apiKey -> 限流状态
+    private final Map<String, KeyState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 检查并占用请求额度
+     * 返回 null 且密钥限制了同时请求数时占用了一个并发名额，请求结束后需要调用 {@link #release}
+     * @return null 如果允许请求，否则返回拒绝原因
+     */
+    public Rejection tryAcquire(ApiKeyContext context) {
+        if (!context.hasLimits()) {
+            return null;
+        }
+        KeyState state = states.computeIfAbsent(context.getApiKey(), k -> new KeyState());
+        long now = System.currentTimeMillis();
+
+        long dailyTokenLimit = context.getDailyTokenLimit();
+        if (dailyTokenLimit > 0 && state.tokensToday(currentDay(now)) >= dailyTokenLimit) {
+            long nextDayStart = (currentDay(now) + 1) * DAY_MS - timeZone.getOffset(now);
+            return new Rejection("API key daily token budget exceeded (" + dailyTokenLimit + " tokens)",
+                    seconds(nextDayStart - now));
+        }
+
+        int maxConcurrent = context.getMaxConcurrentRequests();
+        if (maxConcurrent > 0 && state.inFlight.incrementAndGet() > maxConcurrent) {
+            state.inFlight.decrementAndGet();
+            return new Rejection("API key concurrent request limit exceeded (" + maxConcurrent + ")", 1);
+        }
+
+        int requestsPerMinute = context.getRequestsPerMinute();
+        if (requestsPerMinute > 0) {
+            long waitMicros = state.takeRequest(now * 1000, MINUTE_MICROS / requestsPerMinute);
+            if (waitMicros > 0) {
+                if (maxConcurrent > 0) {
+                    state.inFlight.decrementAndGet();
+                }
+                return new Rejection("API key rate limit exceeded (" + requestsPerMinute + " requests per minute)",
+                        seconds(waitMicros / 1000));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 归还并发名额
+     */
+    public void release(String apiKey) {
+        KeyState state = states.get(apiKey);
+        if (state != null) {
+            state.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 累加当天使用的 token 数
+     */
+    public void addTokens(String apiKey, long tokens) {
+        KeyState state = states.get(apiKey);
+        if (state != null) {
+            state.addTokens(currentDay(System.currentTimeMillis()), tokens);
+        }
+    }
+
+    /**
+     * 删除密钥时清理状态
+     */
+    public void remove(String apiKey) {
+        states.remove(apiKey);
+    }
+
+    private long currentDay(long now) {
+        return Math.floorDiv(now + timeZone.getOffset(now), DAY_MS);
+    }
+
+    private static long seconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    /**
+     * 单个密钥的限流状态
+     */
+    private static class KeyState {
+        // 令牌桶的理论到达时间（微秒），早于当前时间表示桶是满的
+        private final AtomicLong tat = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // 日期和当天 token 数作为一个整体替换，跨天清零与累加不会交错
+        private final AtomicReference<DayTokens> dayTokens = new AtomicReference<>(new DayTokens(0, 0));
+
+        /**
+         * 占用一个请求令牌
+         * @param interval 每个令牌的恢复时间（微秒）
+         * @return 0 如果成功，否则返回需要等待的时间（微秒）
+         */
+        long takeRequest(long nowMicros, long interval) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, nowMicros) + interval;
+                long excess = next - nowMicros - MINUTE_MICROS;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * 当天已使用的 token 数，跨天时清零
+         */
+        long tokensToday(long today) {
+            DayTokens current = dayTokens.get();
+            return current.day() == today ? current.tokens() : 0;
+        }
+
+        void addTokens(long today, long tokens) {
+            dayTokens.updateAndGet(current -> current.day() == today
+                    ? new DayTokens(today, current.tokens() + tokens)
+                    : new DayTokens(today, tokens));
+        }
+    }
+
+    private record DayTokens(long day, long tokens) {
+    }
+}
@@ -1,5 +1,6 @@
 package site.newbie.web.llm.api.manager;
 
+import com.microsoft.playwright.Browser;
 import com.microsoft.playwright.BrowserContext;
 import com.microsoft.playwright.BrowserType;
 import com.microsoft.playwright.Page;
@@ -8,18 +9,29 @@ import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import site.newbie.web.llm.api.provider.ProviderRegistry;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -36,7 +48,9 @@ public class BrowserManager {
 
     private volatile InitStatus initStatus = InitStatus.INITIALIZING;
     private volatile String initErrorMessage = null;
-    private Playwright playwright;
+    // 启动时创建的实例，用于检查 Playwright 是否可用以及共享浏览器
+    // 共享浏览器上所有 context 的操作都使用这个实例，由 ProviderRegistry 的共享浏览器许可保证同一时间只有一个线程在使用
+    private volatile Playwright playwright;
     private CompletableFuture<Void> initFuture;
     private final ExecutorService initExecutor = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "playwright-init");
@@ -48,24 +62,105 @@ public class BrowserManager {
     // Key 格式: "providerName" 或 "providerName:accountId"
     private final ConcurrentHashMap<String, BrowserContext> providerContexts = new ConcurrentHashMap<>();
 
+    // 正在启动的 context：同一个 key 只启动一次，其他请求等待同一个结果；不同 key 的启动互不阻塞
+    private final ConcurrentHashMap<String, CompletableFuture<BrowserContext>> pendingContexts = new ConcurrentHashMap<>();
+
+    // 持久化 context 各自使用独立的 Playwright 实例（独立的 driver 连接）：Playwright 不是线程安全的，
+    // 不同账号的启动和页面操作在各自的请求线程上并发进行，不能共用一个实例；某个实例断开时也只影响这一个账号
+    // Key 与 providerContexts 相同，只由持有该 key 启动权的线程创建和替换
+    private final ConcurrentHashMap<String, Playwright> contextPlaywrights = new ConcurrentHashMap<>();
+
+    // contextKey -> context 的运行信息，供内存治理判断是否需要回收
+    private final ConcurrentHashMap<String, ContextInfo> contextInfos = new ConcurrentHashMap<>();
+
     // 从配置文件读取配置
     @Value("${app.browser.headless:false}") // 默认为 false，方便你第一次扫码登录
     private boolean headless;
 
     @Value("${app.browser.user-data-dir:./user-data}")
     private String userDataDir;
+
+    // 使用共享浏览器的提供器（逗号分隔）：这些提供器的账号不再各自启动一个 Chromium，
+    // 而是在同一个浏览器中用 newContext 创建轻量的 context，登录状态（cookie / localStorage）保存在 storage-state.json
+    @Value("${app.browser.shared.providers:}")
+    private Set<String> sharedProviders;
+
+    // 共享浏览器 context 登录状态的保存间隔（毫秒）
+    @Value("${app.browser.shared.save-interval-ms:300000}")
+    private long storageStateSaveIntervalMs;
+
+    // 共享模式下保存登录状态的文件名（位于提供器+账号的用户数据目录下）
+    private static final String STORAGE_STATE_FILE = "storage-state.json";
+
+    private static final List<String> BROWSER_ARGS = List.of(
+            "--disable-blink-features=AutomationControlled",
+            "--no-sandbox",
+            "--disable-setuid-sandbox"
+    );
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+
+    // 共享浏览器（按需启动），与共享 context 的创建都在 sharedBrowserLock 内进行
+    private Browser sharedBrowser;
+
+    // 共享浏览器的启动、创建 context 和重建串行执行（不持有共享浏览器许可的登录流程也可能在这里创建 context）；
+    // 独立的锁，不会阻塞其他账号持久化 context 的启动
+    private final Object sharedBrowserLock = new Object();
+
+    // 在共享浏览器中创建的 contextKey，共享浏览器断开时一起清理
+    private final Set<String> sharedContextKeys = ConcurrentHashMap.newKeySet();
+
+    // 每个提供器+账号预热的页面数，0 表示不预热
+    @Value("${app.browser.warm-pool.size:1}")
+    private int warmPoolSize;
+
+    // 预热页面最长空闲时间（毫秒），超过后关闭；账号超过该时间没有新对话时不再补充
+    @Value("${app.browser.warm-pool.max-idle-ms:600000}")
+    private long warmPoolMaxIdleMs;
+
+    // 预热页面健康检查间隔（毫秒）
+    @Value("${app.browser.warm-pool.check-interval-ms:30000}")
+    private long warmPoolCheckIntervalMs;
+
+    // 提供器名称 -> 预热逻辑
+    private final ConcurrentHashMap<String, PageWarmer> pageWarmers = new ConcurrentHashMap<>();
+
+    // contextKey -> 预热页面池（账号第一次开启新对话时创建）
+    private final ConcurrentHashMap<String, WarmPagePool> warmPools = new ConcurrentHashMap<>();
+
+    // 正在补充的池，同一个池同时只有一个补充任务
+    private final Set<String> refillingPools = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService warmExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService warmScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("warm-page-pool").daemon(true).factory());
     
+    // 补充预热页面的步骤间隔：账号正忙时的重试间隔，以及检查页面是否就绪的间隔
+    private static final long WARM_STEP_INTERVAL_MS = 500;
+
+    // 预热页面从开始导航到就绪的最长时间，超过后视为无法直接使用（通常是未登录）
+    private static final long WARM_PAGE_READY_TIMEOUT_MS = 15000;
+
     private final AccountManager accountManager;
+    private final ResourceBlocker resourceBlocker;
+    private final LoginStateCache loginStateCache;
+    private final ProviderRegistry providerRegistry;
     
-    public BrowserManager(AccountManager accountManager) {
+    public BrowserManager(AccountManager accountManager, ResourceBlocker resourceBlocker,
+                          LoginStateCache loginStateCache, @Lazy ProviderRegistry providerRegistry) {
         this.accountManager = accountManager;
+        this.resourceBlocker = resourceBlocker;
+        this.loginStateCache = loginStateCache;
+        this.providerRegistry = providerRegistry;
     }
 
     /**
      * 在应用启动完成后异步初始化 Playwright
      * 使用 ApplicationReadyEvent 确保应用完全启动后再初始化，不阻塞启动过程
+     * 最先执行，保证其他监听器（如启动预热）使用浏览器时初始化已经开始
      */
     @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public void onApplicationReady() {
         // 在后台线程中异步初始化 Playwright
         initFuture = CompletableFuture.runAsync(() -> {
@@ -95,6 +190,16 @@ public class BrowserManager {
                 throw new RuntimeException(e);
             }
         }, initExecutor);
+
+        if (warmPoolSize > 0) {
+            warmScheduler.scheduleWithFixedDelay(this::maintainWarmPools,
+                    warmPoolCheckIntervalMs, warmPoolCheckIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        if (!sharedProviders.isEmpty()) {
+            log.info("以下提供器使用共享浏览器: {}", sharedProviders);
+            warmScheduler.scheduleWithFixedDelay(this::saveSharedStorageStates,
+                    storageStateSaveIntervalMs, storageStateSaveIntervalMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -139,10 +244,10 @@ public class BrowserManager {
     }
 
     /**
-     * 检查并确保 Playwright 实例有效，如果无效则重新创建
-     * 如果 Playwright 尚未初始化，会等待初始化完成
+     * 等待 Playwright 初始化完成，初始化失败时抛出异常
+     * 不加锁：各账号的实例在启动 context 时各自创建，不需要在这里串行
      */
-    private synchronized void ensurePlaywrightValid() {
+    private void awaitPlaywrightReady() {
         // 如果 Playwright 正在初始化，等待初始化完成
         if (initStatus == InitStatus.INITIALIZING) {
             try {
@@ -158,36 +263,28 @@ public class BrowserManager {
         if (initStatus == InitStatus.FAILED) {
             throw new RuntimeException("Playwright 初始化失败: " + initErrorMessage);
         }
+    }
 
-        if (playwright == null) {
-            log.warn("Playwright 实例为 null，重新创建...");
-            playwright = Playwright.create();
-            log.info("Playwright 实例已重新创建");
+    /**
+     * 取得 contextKey 专用的 Playwright 实例，没有时创建
+     * 只由持有该 key 启动权的线程调用（见 getOrCreateContext），同一个实例不会被两个线程同时用于启动
+     */
+    private Playwright contextPlaywright(String contextKey) {
+        return contextPlaywrights.computeIfAbsent(contextKey, key -> {
+            log.info("为 {} 创建独立的 Playwright 实例", key);
+            return Playwright.create();
+        });
+    }
+
+    private static void closeQuietly(Playwright instance) {
+        if (instance == null) {
             return;
         }
-
-        // 尝试通过访问浏览器类型来检查 Playwright 是否有效
-        // 如果连接已关闭，会抛出异常
         try {
-            playwright.chromium();
+            instance.close();
         } catch (Exception e) {
-            String errorMsg = e.getMessage();
-            if (errorMsg != null && (errorMsg.contains("Playwright connection closed") ||
-                    errorMsg.contains("Connection closed") ||
-                    errorMsg.contains("Target closed"))) {
-                log.warn("Playwright 实例无效（连接已关闭），重新创建: {}", errorMsg);
-                try {
-                    playwright.close();
-                } catch (Exception closeEx) {
-                    // 忽略关闭错误
-                    log.debug("关闭旧的 Playwright 实例时出错: {}", closeEx.getMessage());
-                }
-                playwright = Playwright.create();
-                log.info("Playwright 实例已重新创建");
-            } else {
-                // 其他类型的错误，记录但不重新创建
-                log.debug("检查 Playwright 实例时出现异常（非连接关闭）: {}", errorMsg);
-            }
+            // 忽略关闭错误
+            log.debug("关闭 Playwright 实例时出错: {}", e.getMessage());
         }
     }
 
@@ -196,7 +293,7 @@ public class BrowserManager {
      * @deprecated 请使用 getOrCreateContext(String providerName, String accountId) 方法
      */
     @Deprecated
-    public synchronized BrowserContext getOrCreateContext(String providerName) {
+    public BrowserContext getOrCreateContext(String providerName) {
         return getOrCreateContext(providerName, null);
     }
     
@@ -207,10 +304,33 @@ public class BrowserManager {
      * @param providerName 提供器名称
      * @param accountId 账号ID，如果为 null 则使用默认账号（兼容旧代码）
      */
-    public synchronized BrowserContext getOrCreateContext(String providerName, String accountId) {
+    public BrowserContext getOrCreateContext(String providerName, String accountId) {
         return getOrCreateContext(providerName, accountId, null);
     }
     
+    /**
+     * 检查提供器账号的 BrowserContext 是否可用（不加锁，供负载均衡选择账号时使用）
+     * 尚未创建的 context 视为可用，首次使用时会自动创建
+     * @param providerName 提供器名称
+     * @param accountId 账号ID
+     * @return false 如果 context 已存在但已关闭或无法访问
+     */
+    public boolean isContextAlive(String providerName, String accountId) {
+        String contextKey = accountId != null && !accountId.isEmpty()
+                ? providerName + ":" + accountId
+                : providerName;
+        BrowserContext context = providerContexts.get(contextKey);
+        if (context == null) {
+            return true;
+        }
+        try {
+            context.pages();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
     /**
      * 获取或创建指定提供器和账号的 BrowserContext（支持强制指定 headless 模式）
      * 每个提供器+账号有独立的浏览器上下文，避免并发冲突
@@ -219,10 +339,54 @@ public class BrowserManager {
      * @param accountId 账号ID，如果为 null 则使用默认账号（兼容旧代码）
      * @param forceHeadless 强制指定 headless 模式，null 表示使用账号配置
      */
-    public synchronized BrowserContext getOrCreateContext(String providerName, String accountId, Boolean forceHeadless) {
+    public BrowserContext getOrCreateContext(String providerName, String accountId, Boolean forceHeadless) {
         String contextKey = accountId != null && !accountId.isEmpty() 
                 ? providerName + ":" + accountId 
                 : providerName;
+        BrowserContext existingContext = getAliveContext(providerName, accountId, contextKey);
+        if (existingContext != null) {
+            return existingContext;
+        }
+
+        // 同一个 key 只有一个线程负责启动，其他线程等待它的结果
+        CompletableFuture<BrowserContext> created = new CompletableFuture<>();
+        CompletableFuture<BrowserContext> pending = pendingContexts.putIfAbsent(contextKey, created);
+        if (pending != null) {
+            log.debug("提供器 {} 账号 {} 的 BrowserContext 正在启动，等待完成", providerName, accountId);
+            return awaitContext(pending);
+        }
+        try {
+            // 获得启动权之前可能已有其他线程启动完成
+            BrowserContext context = getAliveContext(providerName, accountId, contextKey);
+            if (context == null) {
+                context = launchContext(providerName, accountId, forceHeadless, contextKey);
+            }
+            created.complete(context);
+            return context;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingContexts.remove(contextKey, created);
+        }
+    }
+
+    private static BrowserContext awaitContext(CompletableFuture<BrowserContext> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("创建 BrowserContext 失败", e.getCause());
+        }
+    }
+
+    /**
+     * 获取已存在且仍可用的 context，已关闭的会被移除
+     * @return null 如果不存在或已关闭
+     */
+    private BrowserContext getAliveContext(String providerName, String accountId, String contextKey) {
         BrowserContext existingContext = providerContexts.get(contextKey);
 
         // 检查现有 context 是否有效
@@ -245,12 +409,18 @@ public class BrowserManager {
                 } else {
                     log.warn("提供器 {} 账号 {} 的 BrowserContext 访问失败，将重新创建: {}", providerName, accountId, errorMsg);
                 }
-                providerContexts.remove(contextKey);
+                providerContexts.remove(contextKey, existingContext);
             }
         }
+        return null;
+    }
 
-        // 确保 Playwright 实例有效
-        ensurePlaywrightValid();
+    /**
+     * 启动新的 context（调用方保证同一个 key 同时只有一个线程在启动）
+     */
+    private BrowserContext launchContext(String providerName, String accountId, Boolean forceHeadless, String contextKey) {
+        // 确保 Playwright 已初始化
+        awaitPlaywrightReady();
 
         // 创建新的 context
         if (accountId != null && !accountId.isEmpty()) {
@@ -298,28 +468,49 @@ public class BrowserManager {
         BrowserType.LaunchPersistentContextOptions options = new BrowserType.LaunchPersistentContextOptions()
                 .setHeadless(useHeadless)
                 .setViewportSize(1366, 768)
-                .setArgs(List.of(
-                        "--disable-blink-features=AutomationControlled",
-                        "--no-sandbox",
-                        "--disable-setuid-sandbox"
-                ))
-                .setUserAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+                .setArgs(BROWSER_ARGS)
+                .setUserAgent(USER_AGENT);
+
+        // 共享浏览器只有一种显示模式，要求的模式不同时（例如需要有界面扫码登录）仍使用独立的持久化 context
+        boolean shared = sharedProviders.contains(providerName) && useHeadless == headless;
 
         // 重试机制：如果 Playwright 连接关闭，尝试重新创建 Playwright 实例
+        // 持久化 context 只重建本账号的实例；共享浏览器只在浏览器或连接本身断开时重建，
+        // 只是本账号的 context 被关闭（例如刚被内存治理回收）时不影响其他共享账号
         int maxRetries = 2;
         for (int attempt = 0; attempt < maxRetries; attempt++) {
+            Playwright current = shared ? playwright : null;
+            BrowserContext context = null;
             try {
-                BrowserContext context = playwright.chromium().launchPersistentContext(
-                        Paths.get(providerDataDir), options);
+                if (shared) {
+                    context = newSharedContext(providerDataDir);
+                } else {
+                    current = contextPlaywright(contextKey);
+                    context = current.chromium().launchPersistentContext(Paths.get(providerDataDir), options);
+                }
 
                 // 注入抗检测脚本
                 context.addInitScript("Object.defineProperty(navigator, 'webdriver', {get: () => undefined})");
+                // 中止页面不需要的图片、字体和统计脚本请求
+                resourceBlocker.install(context, providerName);
+                // 请求返回 401 或跳转到登录页时使登录状态缓存失效
+                loginStateCache.install(context, providerName, accountId);
 
                 providerContexts.put(contextKey, context);
+                if (shared) {
+                    sharedContextKeys.add(contextKey);
+                } else {
+                    sharedContextKeys.remove(contextKey);
+                }
+                contextInfos.put(contextKey, new ContextInfo(providerName, accountId,
+                        Paths.get(providerDataDir).toAbsolutePath().normalize().toString(),
+                        System.currentTimeMillis(), new AtomicInteger()));
                 if (accountId != null && !accountId.isEmpty()) {
-                    log.info("提供器 {} 账号 {} 的 BrowserContext 创建成功，数据目录: {}", providerName, accountId, providerDataDir);
+                    log.info("提供器 {} 账号 {} 的 BrowserContext 创建成功（{}），数据目录: {}", providerName, accountId,
+                            shared ? "共享浏览器" : "独立浏览器", providerDataDir);
                 } else {
-                    log.info("提供器 {} 的 BrowserContext 创建成功，数据目录: {}", providerName, providerDataDir);
+                    log.info("提供器 {} 的 BrowserContext 创建成功（{}），数据目录: {}", providerName,
+                            shared ? "共享浏览器" : "独立浏览器", providerDataDir);
                 }
                 return context;
             } catch (Exception e) {
@@ -334,20 +525,16 @@ public class BrowserManager {
                 );
                 
                 if (isConnectionClosed) {
-                    log.warn("Playwright 连接或浏览器已关闭，尝试重新创建 Playwright 实例 (尝试 {}/{})", attempt + 1, maxRetries);
                     // 清理上下文缓存
                     providerContexts.remove(contextKey);
-                    // 重新创建 Playwright 实例
-                    try {
-                        if (playwright != null) {
-                            playwright.close();
-                        }
-                    } catch (Exception closeEx) {
-                        // 忽略关闭错误
-                        log.debug("关闭旧的 Playwright 实例时出错: {}", closeEx.getMessage());
+                    if (shared) {
+                        // 创建到一半的 context 不再使用
+                        closeQuietly(context);
+                        recoverSharedBrowser(current, errorMsg.contains("Playwright connection closed"));
+                    } else {
+                        log.warn("Playwright 连接或浏览器已关闭，尝试重新创建 Playwright 实例 (尝试 {}/{})", attempt + 1, maxRetries);
+                        recreateContextPlaywright(contextKey, current);
                     }
-                    playwright = Playwright.create();
-                    log.info("Playwright 实例已重新创建，重试创建 BrowserContext...");
 
                     if (attempt == maxRetries - 1) {
                         // 最后一次尝试失败，抛出异常
@@ -365,18 +552,90 @@ public class BrowserManager {
         throw new RuntimeException("创建 BrowserContext 失败");
     }
 
+    /**
+     * 丢弃 contextKey 的 Playwright 实例，下次重试时重新创建
+     * 该实例只承载这一个账号的 context，不影响其他账号
+     * @param broken 启动失败时使用的实例
+     */
+    private void recreateContextPlaywright(String contextKey, Playwright broken) {
+        if (broken != null && contextPlaywrights.remove(contextKey, broken)) {
+            closeQuietly(broken);
+        }
+        log.info("{} 的 Playwright 实例将重新创建，重试创建 BrowserContext...", contextKey);
+    }
+
+    /**
+     * 创建共享 context 时遇到关闭类错误后的恢复
+     * 共享浏览器仍然连接时只是本账号的 context 已关闭，直接重试创建；浏览器或 driver 连接断开时才重建实例，
+     * 此时该实例上的所有共享 context 都已随之失效，一并清理，其他账号下次使用时重新创建
+     * 多个共享 context 同时启动失败时只重建一次：实例已被其他线程替换时直接使用新实例
+     * @param broken 启动失败时使用的实例
+     * @param connectionLost driver 连接已断开（浏览器对象可能还未感知到断开）
+     */
+    private void recoverSharedBrowser(Playwright broken, boolean connectionLost) {
+        synchronized (sharedBrowserLock) {
+            if (playwright != broken) {
+                log.info("Playwright 实例已由其他线程重新创建，重试创建 BrowserContext...");
+                return;
+            }
+            if (!connectionLost && sharedBrowser != null && sharedBrowser.isConnected()) {
+                log.warn("共享浏览器仍然连接，只是本账号的 context 已关闭，重试创建 BrowserContext...");
+                return;
+            }
+            log.warn("共享浏览器或 Playwright 连接已断开，重新创建 Playwright 实例并清理所有共享 context");
+            for (String contextKey : sharedContextKeys) {
+                sharedContextKeys.remove(contextKey);
+                contextInfos.remove(contextKey);
+                providerContexts.remove(contextKey);
+                // 页面已随浏览器一起关闭，只丢弃引用
+                WarmPagePool pool = warmPools.remove(contextKey);
+                if (pool != null) {
+                    pool.pages.clear();
+                    pool.loading = null;
+                }
+            }
+            closeQuietly(playwright);
+            sharedBrowser = null;
+            playwright = Playwright.create();
+            log.info("Playwright 实例已重新创建，重试创建 BrowserContext...");
+        }
+    }
+
+    private static void closeQuietly(BrowserContext context) {
+        if (context == null) {
+            return;
+        }
+        try {
+            context.close();
+        } catch (Exception e) {
+            log.debug("关闭 BrowserContext 时出错（可能已关闭）: {}", e.getMessage());
+        }
+    }
+
     /**
      * 强制清理指定提供器和账号的 BrowserContext
      * 用于在浏览器关闭后清理无效的上下文引用
      * @param providerName 提供器名称
      * @param accountId 账号ID，如果为 null 则使用默认账号
      */
-    public synchronized void clearContext(String providerName, String accountId) {
+    public void clearContext(String providerName, String accountId) {
         String contextKey = accountId != null && !accountId.isEmpty() 
                 ? providerName + ":" + accountId 
                 : providerName;
+        // 正在启动的 context 等启动结束后再清理，避免清理后又被放回
+        CompletableFuture<BrowserContext> pending = pendingContexts.get(contextKey);
+        if (pending != null) {
+            pending.handle((context, e) -> null).join();
+        }
+        WarmPagePool pool = warmPools.remove(contextKey);
+        if (pool != null) {
+            pool.closeAll();
+        }
+        contextInfos.remove(contextKey);
+        sharedContextKeys.remove(contextKey);
         BrowserContext context = providerContexts.remove(contextKey);
         if (context != null) {
+            saveStorageState(providerName, accountId, context);
             try {
                 context.close();
                 log.info("已清理提供器 {} 账号 {} 的 BrowserContext", providerName, accountId);
@@ -384,8 +643,91 @@ public class BrowserManager {
                 log.debug("清理 BrowserContext 时出错（可能已关闭）: {}", e.getMessage());
             }
         }
+        // 账号独立的 Playwright 实例随 context 一起关闭，释放 driver 进程
+        closeQuietly(contextPlaywrights.remove(contextKey));
     }
     
+    // ==================== 共享浏览器 ====================
+
+    /**
+     * 在共享浏览器中创建 context，并加载之前保存的登录状态
+     */
+    private BrowserContext newSharedContext(String providerDataDir) {
+        Browser.NewContextOptions options = new Browser.NewContextOptions()
+                .setViewportSize(1366, 768)
+                .setUserAgent(USER_AGENT);
+        Path statePath = Paths.get(providerDataDir, STORAGE_STATE_FILE);
+        if (Files.exists(statePath)) {
+            options.setStorageStatePath(statePath);
+        }
+        synchronized (sharedBrowserLock) {
+            return getOrLaunchSharedBrowser().newContext(options);
+        }
+    }
+
+    /**
+     * 调用方持有 sharedBrowserLock
+     */
+    private Browser getOrLaunchSharedBrowser() {
+        if (playwright == null) {
+            playwright = Playwright.create();
+        }
+        if (sharedBrowser == null || !sharedBrowser.isConnected()) {
+            log.info("启动共享浏览器，模式: {}", headless ? "Headless (无头)" : "Headed (有界面)");
+            sharedBrowser = playwright.chromium().launch(new BrowserType.LaunchOptions()
+                    .setHeadless(headless)
+                    .setArgs(BROWSER_ARGS));
+        }
+        return sharedBrowser;
+    }
+
+    /**
+     * 保存共享模式提供器账号的登录状态（登录验证成功后调用，持久化模式的提供器不需要）
+     */
+    public void saveStorageState(String providerName, String accountId) {
+        String contextKey = accountId != null && !accountId.isEmpty()
+                ? providerName + ":" + accountId
+                : providerName;
+        BrowserContext context = providerContexts.get(contextKey);
+        if (context != null) {
+            saveStorageState(providerName, accountId, context);
+        }
+    }
+
+    private void saveStorageState(String providerName, String accountId, BrowserContext context) {
+        if (!sharedProviders.contains(providerName)) {
+            return;
+        }
+        String providerDataDir = accountId != null && !accountId.isEmpty()
+                ? userDataDir + "/" + providerName + "/" + accountId
+                : userDataDir + "/" + providerName;
+        try {
+            Path statePath = Paths.get(providerDataDir, STORAGE_STATE_FILE);
+            Files.createDirectories(statePath.getParent());
+            context.storageState(new BrowserContext.StorageStateOptions().setPath(statePath));
+            log.debug("已保存提供器 {} 账号 {} 的登录状态", providerName, accountId);
+        } catch (Exception e) {
+            log.warn("保存提供器 {} 账号 {} 的登录状态失败: {}", providerName, accountId, e.getMessage());
+        }
+    }
+
+    /**
+     * 定期保存共享模式 context 的登录状态（cookie 会在使用过程中刷新）
+     * 保存需要操作共享的 Playwright 实例，只在账号和共享浏览器都空闲时进行，正忙的账号留到下一次
+     */
+    private void saveSharedStorageStates() {
+        for (ContextInfo info : getContextInfos()) {
+            if (!sharedProviders.contains(info.providerName())) {
+                continue;
+            }
+            boolean saved = providerRegistry.runIfAccountIdle(info.providerName(), info.accountId(),
+                    () -> saveStorageState(info.providerName(), info.accountId()));
+            if (!saved) {
+                log.debug("提供器 {} 账号 {} 正忙，下次再保存登录状态", info.providerName(), info.accountId());
+            }
+        }
+    }
+
     /**
      * 获取一个新的页面用于聊天（兼容旧接口，使用默认上下文）
      *
@@ -401,7 +743,7 @@ public class BrowserManager {
      * @deprecated 请使用 newPage(String providerName, String accountId) 方法
      */
     @Deprecated
-    public synchronized Page newPage(String providerName) {
+    public Page newPage(String providerName) {
         return newPage(providerName, null);
     }
     
@@ -409,7 +751,7 @@ public class BrowserManager {
      * 为指定提供器和账号获取一个新的页面
      * 如果 context 已关闭会自动重新创建并重试
      */
-    public synchronized Page newPage(String providerName, String accountId) {
+    public Page newPage(String providerName, String accountId) {
         return newPage(providerName, accountId, null);
     }
     
@@ -420,19 +762,28 @@ public class BrowserManager {
      * @param accountId 账号ID
      * @param forceHeadless 强制指定 headless 模式，null 表示使用账号配置
      */
-    public synchronized Page newPage(String providerName, String accountId, Boolean forceHeadless) {
+    public Page newPage(String providerName, String accountId, Boolean forceHeadless) {
         String contextKey = accountId != null && !accountId.isEmpty() 
                 ? providerName + ":" + accountId 
                 : providerName;
         int maxRetries = 3;
         for (int attempt = 0; attempt < maxRetries; attempt++) {
+            BrowserContext context = null;
             try {
-                BrowserContext context = getOrCreateContext(providerName, accountId, forceHeadless);
-                return context.newPage();
+                context = getOrCreateContext(providerName, accountId, forceHeadless);
+                Page page = context.newPage();
+                ContextInfo info = contextInfos.get(contextKey);
+                if (info != null) {
+                    info.pagesOpened().incrementAndGet();
+                }
+                return page;
             } catch (Exception e) {
                 // context 可能已关闭，移除并重新创建
                 log.warn("提供器 {} 账号 {} 创建页面失败 (尝试 {}/{}): {}", providerName, accountId, attempt + 1, maxRetries, e.getMessage());
-                providerContexts.remove(contextKey);
+                // 只移除失败的 context，其他线程可能已经重新创建了新的
+                if (context != null) {
+                    providerContexts.remove(contextKey, context);
+                }
 
                 if (attempt < maxRetries - 1) {
                     // 等待一小段时间后重试
@@ -452,6 +803,310 @@ public class BrowserManager {
         throw new RuntimeException("创建页面失败");
     }
 
+    /**
+     * BrowserContext 的运行信息
+     * @param userDataDir 用户数据目录的绝对路径（用于查找对应的 Chromium 进程）
+     * @param createdAt 创建时间
+     * @param pagesOpened 创建以来打开过的页面数（每个新对话打开一个页面，近似为处理过的对话数）
+     */
+    public record ContextInfo(String providerName, String accountId, String userDataDir,
+                              long createdAt, AtomicInteger pagesOpened) {
+    }
+
+    /**
+     * 获取当前所有 BrowserContext 的运行信息
+     */
+    public List<ContextInfo> getContextInfos() {
+        List<ContextInfo> infos = new ArrayList<>();
+        contextInfos.forEach((key, info) -> {
+            if (providerContexts.containsKey(key)) {
+                infos.add(info);
+            }
+        });
+        return infos;
+    }
+
+    // ==================== 预热页面池 ====================
+    //
+    // 预热页面与对话使用同一个 context（同一个 Playwright 实例），Playwright 不是线程安全的：
+    // 取出页面在持有账号锁的请求线程上进行；后台的补充和健康检查都通过 ProviderRegistry.runIfAccountIdle
+    // 在账号空闲时独占执行，不会与该账号的对话同时操作 context 和页面，账号正忙时推迟到下一次
+    // 补充拆成几个很短的步骤（创建页面并发起导航、检查是否就绪），每一步只占用账号几毫秒，
+    // 页面在浏览器中加载时不持有许可，补充期间到达的请求不需要等待页面加载完成
+
+    /**
+     * 提供器的页面预热逻辑
+     */
+    public interface PageWarmer {
+        /**
+         * 在新页面上发起导航（账号空闲时在后台线程中独占执行），只发起不等待，应立即返回
+         */
+        void start(Page page);
+
+        /**
+         * 检查页面是否已可以直接输入（不等待，应尽量轻量；补充时轮询调用，取出页面时也会调用，调用时账号已被独占）
+         * 从 start 开始超过一定时间仍未就绪（例如未登录）的页面会被关闭
+         */
+        boolean isReady(Page page);
+
+        /**
+         * 页面就绪后、放入池之前的收尾工作（如启用 SSE 捕获），应立即返回
+         */
+        default void finish(Page page) {
+        }
+    }
+
+    /**
+     * 注册提供器的页面预热逻辑，注册后该提供器开启新对话时可以从预热池取页面
+     */
+    public void registerPageWarmer(String providerName, PageWarmer warmer) {
+        pageWarmers.put(providerName, warmer);
+    }
+
+    /**
+     * 取出一个已预热好的页面（取出后由调用方负责管理和关闭），并在账号空闲后于后台补充
+     * 调用方应持有账号锁（对话请求或 runIfAccountIdle 中）
+     * 账号第一次调用时池还是空的，之后会一直保持 warm-pool.size 个页面
+     * @return 可以直接输入的页面，池中没有可用页面时返回 null，调用方应按原流程创建页面
+     */
+    public Page takeWarmPage(String providerName, String accountId) {
+        PageWarmer warmer = pageWarmers.get(providerName);
+        if (warmPoolSize <= 0 || warmer == null) {
+            return null;
+        }
+        String contextKey = accountId != null && !accountId.isEmpty()
+                ? providerName + ":" + accountId
+                : providerName;
+        WarmPagePool pool = warmPools.computeIfAbsent(contextKey, k -> new WarmPagePool(k, providerName, accountId));
+        pool.lastTakenAt = System.currentTimeMillis();
+
+        Page page = null;
+        WarmPage warmPage;
+        while ((warmPage = pool.pages.pollFirst()) != null) {
+            if (isWarmPageUsable(warmer, warmPage)) {
+                page = warmPage.page();
+                break;
+            }
+            closeQuietly(warmPage.page());
+        }
+        refillWarmPool(pool);
+
+        if (page != null) {
+            log.info("提供器 {} 账号 {} 使用预热页面，剩余 {} 个", providerName, accountId, pool.pages.size());
+        } else {
+            log.debug("提供器 {} 账号 {} 没有可用的预热页面", providerName, accountId);
+        }
+        return page;
+    }
+
+    private boolean isWarmPageUsable(PageWarmer warmer, WarmPage warmPage) {
+        Page page = warmPage.page();
+        if (page.isClosed() || System.currentTimeMillis() - warmPage.readyAt() > warmPoolMaxIdleMs) {
+            return false;
+        }
+        try {
+            return warmer.isReady(page);
+        } catch (Exception e) {
+            log.debug("检查预热页面时出错: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 在后台把池补充到 warm-pool.size 个页面
+     * 每一步在账号空闲时独占执行，步骤之间释放账号；账号持续忙碌超过健康检查间隔时留给下一次定期维护，
+     * 正在加载的页面保留在池中，下一次补充时继续检查
+     */
+    private void refillWarmPool(WarmPagePool pool) {
+        if (pool.pages.size() >= warmPoolSize || !refillingPools.add(pool.key)) {
+            return;
+        }
+        warmExecutor.submit(() -> {
+            try {
+                long idleDeadline = System.currentTimeMillis() + warmPoolCheckIntervalMs;
+                while (pool.pages.size() < warmPoolSize && warmPools.get(pool.key) == pool) {
+                    WarmStep[] step = {WarmStep.FAILED};
+                    boolean ran = providerRegistry.runIfAccountIdle(pool.providerName, pool.accountId,
+                            () -> step[0] = advanceWarmPage(pool));
+                    if (ran) {
+                        if (step[0] == WarmStep.FAILED) {
+                            return;
+                        }
+                        idleDeadline = System.currentTimeMillis() + warmPoolCheckIntervalMs;
+                        if (step[0] == WarmStep.READY) {
+                            continue;
+                        }
+                    } else if (System.currentTimeMillis() > idleDeadline) {
+                        log.debug("提供器 {} 账号 {} 一直忙碌，推迟补充预热页面", pool.providerName, pool.accountId);
+                        return;
+                    }
+                    Thread.sleep(WARM_STEP_INTERVAL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // 补充期间池已被移除（context 被清理），关闭多余的页面
+                if (warmPools.get(pool.key) != pool) {
+                    providerRegistry.runIfAccountIdle(pool.providerName, pool.accountId, pool::closeAll);
+                }
+                refillingPools.remove(pool.key);
+            }
+        });
+    }
+
+    /**
+     * 补充预热页面的一步的结果
+     */
+    private enum WarmStep {
+        LOADING, // 页面已创建，正在加载
+        READY,   // 页面已就绪并放入池中
+        FAILED   // 预热失败，停止本次补充
+    }
+
+    /**
+     * 推进池中正在预热的页面（调用方已独占账号，每一步都应立即返回）：
+     * 没有正在预热的页面时创建一个并发起导航；否则检查它是否已就绪，就绪后放入池中，超时未就绪则关闭
+     */
+    private WarmStep advanceWarmPage(WarmPagePool pool) {
+        PageWarmer warmer = pageWarmers.get(pool.providerName);
+        if (warmer == null || warmPools.get(pool.key) != pool) {
+            return WarmStep.FAILED;
+        }
+        WarmPage loading = pool.loading;
+        try {
+            if (loading == null) {
+                Page page = newPage(pool.providerName, pool.accountId);
+                pool.loading = new WarmPage(page, System.currentTimeMillis());
+                warmer.start(page);
+                return WarmStep.LOADING;
+            }
+            Page page = loading.page();
+            long elapsed = System.currentTimeMillis() - loading.readyAt();
+            if (!page.isClosed() && warmer.isReady(page)) {
+                warmer.finish(page);
+                pool.loading = null;
+                pool.pages.addLast(new WarmPage(page, System.currentTimeMillis()));
+                log.info("提供器 {} 账号 {} 已预热页面，耗时 {} ms", pool.providerName, pool.accountId, elapsed);
+                return WarmStep.READY;
+            }
+            if (page.isClosed() || elapsed > WARM_PAGE_READY_TIMEOUT_MS) {
+                // 未登录等情况，等下一次健康检查再尝试
+                log.info("提供器 {} 账号 {} 的页面预热未就绪，稍后重试", pool.providerName, pool.accountId);
+                pool.loading = null;
+                closeQuietly(page);
+                return WarmStep.FAILED;
+            }
+            return WarmStep.LOADING;
+        } catch (Exception e) {
+            log.warn("提供器 {} 账号 {} 预热页面失败: {}", pool.providerName, pool.accountId, e.getMessage());
+            WarmPage failed = pool.loading;
+            pool.loading = null;
+            if (failed != null) {
+                closeQuietly(failed.page());
+            }
+            return WarmStep.FAILED;
+        }
+    }
+
+    /**
+     * 定期维护：关闭空闲过久或已失效的预热页面，移除长时间没有使用的池，其余的补满
+     * 检查页面需要操作 Playwright，只在账号空闲时进行，正忙的账号跳过本次检查
+     */
+    private void maintainWarmPools() {
+        long now = System.currentTimeMillis();
+        for (WarmPagePool pool : warmPools.values()) {
+            try {
+                if (now - pool.lastTakenAt > warmPoolMaxIdleMs) {
+                    boolean ran = providerRegistry.runIfAccountIdle(pool.providerName, pool.accountId, () -> {
+                        if (warmPools.remove(pool.key, pool)) {
+                            log.info("提供器 {} 账号 {} 长时间没有新对话，关闭预热页面", pool.providerName, pool.accountId);
+                            pool.closeAll();
+                        }
+                    });
+                    if (!ran) {
+                        log.debug("提供器 {} 账号 {} 正忙，跳过预热页面检查", pool.providerName, pool.accountId);
+                    }
+                    continue;
+                }
+                boolean ran = providerRegistry.runIfAccountIdle(pool.providerName, pool.accountId,
+                        () -> removeUnusableWarmPages(pool));
+                if (!ran) {
+                    log.debug("提供器 {} 账号 {} 正忙，跳过预热页面检查", pool.providerName, pool.accountId);
+                    continue;
+                }
+                refillWarmPool(pool);
+            } catch (Exception e) {
+                log.warn("维护预热页面池 {} 时出错: {}", pool.key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 关闭池中已失效的页面（调用方已独占账号）
+     */
+    private void removeUnusableWarmPages(WarmPagePool pool) {
+        PageWarmer warmer = pageWarmers.get(pool.providerName);
+        for (WarmPage warmPage : pool.pages) {
+            if (warmer == null || !isWarmPageUsable(warmer, warmPage)) {
+                if (pool.pages.remove(warmPage)) {
+                    log.info("提供器 {} 账号 {} 的预热页面已失效，关闭", pool.providerName, pool.accountId);
+                    closeQuietly(warmPage.page());
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Page page) {
+        if (page == null) {
+            return;
+        }
+        try {
+            if (!page.isClosed()) {
+                page.close();
+            }
+        } catch (Exception e) {
+            log.debug("关闭预热页面时出错: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 预热中的页面
+     * @param readyAt 放入池中的时间；正在加载的页面为开始导航的时间
+     */
+    private record WarmPage(Page page, long readyAt) {
+    }
+
+    /**
+     * 单个提供器+账号的预热页面池
+     */
+    private static class WarmPagePool {
+        private final String key;
+        private final String providerName;
+        private final String accountId;
+        private final ConcurrentLinkedDeque<WarmPage> pages = new ConcurrentLinkedDeque<>();
+        // 正在加载、还未就绪的页面（只由补充任务在独占账号时推进）
+        private volatile WarmPage loading;
+        private volatile long lastTakenAt = System.currentTimeMillis();
+
+        WarmPagePool(String key, String providerName, String accountId) {
+            this.key = key;
+            this.providerName = providerName;
+            this.accountId = accountId;
+        }
+
+        void closeAll() {
+            WarmPage warmPage;
+            while ((warmPage = pages.pollFirst()) != null) {
+                closeQuietly(warmPage.page());
+            }
+            warmPage = loading;
+            loading = null;
+            if (warmPage != null) {
+                closeQuietly(warmPage.page());
+            }
+        }
+    }
+
     /**
      * 获取所有打开的页面（兼容旧接口）
      *
@@ -499,7 +1154,12 @@ public class BrowserManager {
     public void destroy() {
         log.info("正在关闭 Playwright...");
 
+        warmScheduler.shutdownNow();
+        warmExecutor.shutdownNow();
+        warmPools.clear();
+
         // 关闭所有提供器的 BrowserContext
+        saveSharedStorageStates();
         for (var entry : providerContexts.entrySet()) {
             try {
                 log.info("关闭提供器 {} 的 BrowserContext...", entry.getKey());
@@ -510,6 +1170,16 @@ public class BrowserManager {
         }
         providerContexts.clear();
 
+        if (sharedBrowser != null) {
+            try {
+                sharedBrowser.close();
+            } catch (Exception e) {
+                log.warn("关闭共享浏览器时出错: {}", e.getMessage());
+            }
+        }
+
+        contextPlaywrights.values().forEach(BrowserManager::closeQuietly);
+        contextPlaywrights.clear();
         if (playwright != null) {
             playwright.close();
         }
@@ -0,0 +1,364 @@
+package site.newbie.web.llm.api.manager;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.microsoft.playwright.CDPSession;
+import com.microsoft.playwright.Page;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.provider.ProviderRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 浏览器内存治理
+ * 定期采样每个 BrowserContext 的内存：
+ * - Chromium 进程树的 RSS（Linux 下按 --user-data-dir 从 /proc 找到浏览器进程，累加其所有子进程）
+ * - 各页面的 JS 堆占用（CDP Performance.getMetrics，所有平台可用）
+ *   Playwright 不是线程安全的，JS 堆只在账号空闲时通过 runIfAccountIdle 独占采样，账号正忙时沿用上一次的结果；
+ *   每个页面复用同一个 CDPSession，页面关闭或 context 回收时解除
+ *
+ * context 内存超过阈值，或打开过的页面数（近似对话数）超过上限时，在账号没有进行中和排队的对话时关闭 context，
+ * 下一次请求会重新启动，登录状态保存在用户数据目录中不受影响
+ */
+@Slf4j
+@Component
+public class BrowserMemoryGovernor {
+
+    private static final Path PROC = Path.of("/proc");
+    private static final long PAGE_SIZE = 4096;
+    private static final long MB = 1024 * 1024;
+
+    private final BrowserManager browserManager;
+    private final ProviderRegistry providerRegistry;
+    private final MeterRegistry meterRegistry;
+
+    // 采样间隔（毫秒），0 表示关闭内存治理
+    @Value("${app.browser.memory.check-interval-ms:60000}")
+    private long checkIntervalMs;
+
+    // 单个 context 的内存上限（MB），优先按进程 RSS 判断，拿不到 RSS 时按 JS 堆判断；0 表示不限制
+    @Value("${app.browser.memory.max-context-mb:2048}")
+    private long maxContextMb;
+
+    // context 打开过的页面数达到该值后回收，0 表示不限制
+    @Value("${app.browser.memory.max-conversations:500}")
+    private int maxConversations;
+
+    // context 启动后至少运行多久才允许回收，避免重启后内存仍然偏高时反复回收
+    @Value("${app.browser.memory.min-age-ms:600000}")
+    private long minAgeMs;
+
+    // contextKey -> 最近一次采样结果
+    private final Map<String, ContextMemory> samples = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("browser-memory").daemon(true).factory());
+
+    public BrowserMemoryGovernor(BrowserManager browserManager, ProviderRegistry providerRegistry,
+                                 MeterRegistry meterRegistry) {
+        this.browserManager = browserManager;
+        this.providerRegistry = providerRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (checkIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::check, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 单个 context 最近一次的采样结果
+     * @param rssBytes 进程树 RSS，无法获取时为 -1
+     * @param jsHeapBytes 所有页面已使用的 JS 堆之和
+     * @param pagesOpened 启动以来打开过的页面数
+     * @param ageMs 启动以来的时间
+     */
+    public record ContextMemoryStats(String providerName, String accountId, long rssBytes, long jsHeapBytes,
+                                     int pagesOpened, long ageMs) {
+    }
+
+    /**
+     * 获取所有 context 最近一次的采样结果
+     */
+    public List<ContextMemoryStats> getStats() {
+        long now = System.currentTimeMillis();
+        List<ContextMemoryStats> stats = new ArrayList<>();
+        for (ContextMemory memory : samples.values()) {
+            BrowserManager.ContextInfo info = memory.info;
+            stats.add(new ContextMemoryStats(info.providerName(), info.accountId(), memory.rssBytes,
+                    memory.jsHeapBytes, info.pagesOpened().get(), now - info.createdAt()));
+        }
+        return stats;
+    }
+
+    private void check() {
+        if (!browserManager.isInitialized()) {
+            return;
+        }
+        try {
+            Map<Long, long[]> processes = readProcesses();
+            Set<String> alive = new HashSet<>();
+            for (BrowserManager.ContextInfo info : browserManager.getContextInfos()) {
+                String key = key(info.providerName(), info.accountId());
+                alive.add(key);
+                ContextMemory memory = samples.get(key);
+                if (memory == null || memory.info != info) {
+                    // context 重新创建过，重新注册指标
+                    if (memory != null) {
+                        memory.unregister();
+                    }
+                    memory = new ContextMemory(info);
+                    samples.put(key, memory);
+                }
+                memory.rssBytes = processes.isEmpty() ? -1 : processTreeRss(processes, info.userDataDir());
+                ContextMemory sampling = memory;
+                if (!providerRegistry.runIfAccountIdle(info.providerName(), info.accountId(),
+                        () -> sampling.jsHeapBytes = jsHeapUsed(sampling))) {
+                    log.debug("提供器 {} 账号 {} 正忙，沿用上一次的 JS 堆采样", info.providerName(), info.accountId());
+                }
+                log.debug("提供器 {} 账号 {} 内存: RSS {} MB, JS 堆 {} MB, 已打开页面 {} 个", info.providerName(),
+                        info.accountId(), memory.rssBytes / MB, memory.jsHeapBytes / MB, info.pagesOpened().get());
+                recycleIfNeeded(memory);
+            }
+            samples.entrySet().removeIf(entry -> {
+                if (alive.contains(entry.getKey())) {
+                    return false;
+                }
+                entry.getValue().unregister();
+                return true;
+            });
+        } catch (Exception e) {
+            log.warn("采样浏览器内存时出错: {}", e.getMessage());
+        }
+    }
+
+    private void recycleIfNeeded(ContextMemory memory) {
+        BrowserManager.ContextInfo info = memory.info;
+        if (System.currentTimeMillis() - info.createdAt() < minAgeMs) {
+            return;
+        }
+        long usedBytes = memory.rssBytes >= 0 ? memory.rssBytes : memory.jsHeapBytes;
+        String reason;
+        if (maxContextMb > 0 && usedBytes > maxContextMb * MB) {
+            reason = "memory";
+        } else if (maxConversations > 0 && info.pagesOpened().get() >= maxConversations) {
+            reason = "conversations";
+        } else {
+            return;
+        }
+
+        boolean recycled = providerRegistry.runIfAccountIdle(info.providerName(), info.accountId(), () -> {
+            memory.detachSessions();
+            browserManager.clearContext(info.providerName(), info.accountId());
+        });
+        if (recycled) {
+            counter(info.providerName(), reason).increment();
+            log.info("提供器 {} 账号 {} 的 BrowserContext 已回收（原因: {}，RSS {} MB，JS 堆 {} MB，已打开页面 {} 个）",
+                    info.providerName(), info.accountId(), reason, memory.rssBytes / MB, memory.jsHeapBytes / MB,
+                    info.pagesOpened().get());
+        } else {
+            log.info("提供器 {} 账号 {} 的 BrowserContext 需要回收（原因: {}），账号有进行中的对话，下次检查时重试",
+                    info.providerName(), info.accountId(), reason);
+        }
+    }
+
+    /**
+     * 通过 CDP 读取 context 中所有页面已使用的 JS 堆（调用方已独占账号）
+     * 每个页面的 CDPSession 只创建一次并启用 Performance 域，之后的采样直接复用
+     */
+    private long jsHeapUsed(ContextMemory memory) {
+        List<Page> pages = browserManager.getAllPages(memory.info.providerName(), memory.info.accountId());
+        // 已关闭的页面，会话随页面一起失效
+        memory.sessions.keySet().removeIf(page -> page.isClosed() || !pages.contains(page));
+        long total = 0;
+        for (Page page : pages) {
+            try {
+                CDPSession session = memory.sessions.get(page);
+                if (session == null) {
+                    session = page.context().newCDPSession(page);
+                    memory.sessions.put(page, session);
+                    session.send("Performance.enable");
+                }
+                JsonObject result = session.send("Performance.getMetrics");
+                for (JsonElement metric : result.getAsJsonArray("metrics")) {
+                    JsonObject item = metric.getAsJsonObject();
+                    if ("JSHeapUsedSize".equals(item.get("name").getAsString())) {
+                        total += item.get("value").getAsLong();
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("读取页面 JS 堆失败: {}", e.getMessage());
+                detachQuietly(memory.sessions.remove(page));
+            }
+        }
+        return total;
+    }
+
+    private static void detachQuietly(CDPSession session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.detach();
+        } catch (Exception ignored) {
+            // 页面或 context 已关闭
+        }
+    }
+
+    /**
+     * 读取所有进程的父进程和 RSS（仅 Linux）
+     * @return pid -> {ppid, rss 页数}，不支持时返回空
+     */
+    private static Map<Long, long[]> readProcesses() {
+        Map<Long, long[]> processes = new HashMap<>();
+        if (!Files.isDirectory(PROC)) {
+            return processes;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(PROC, path -> path.getFileName().toString().chars().allMatch(Character::isDigit))) {
+            for (Path dir : dirs) {
+                try {
+                    String stat = Files.readString(dir.resolve("stat"));
+                    // 进程名可能包含空格，从最后一个 ')' 之后开始按字段解析：state ppid ... rss(第 22 个)
+                    String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                    processes.put(Long.parseLong(dir.getFileName().toString()),
+                            new long[]{Long.parseLong(fields[1]), Long.parseLong(fields[21])});
+                } catch (Exception ignored) {
+                    // 进程已退出
+                }
+            }
+        } catch (IOException e) {
+            log.debug("读取进程列表失败: {}", e.getMessage());
+        }
+        return processes;
+    }
+
+    /**
+     * 找到使用该用户数据目录的浏览器主进程，累加它和所有子进程（渲染、GPU 等）的 RSS
+     */
+    private static long processTreeRss(Map<Long, long[]> processes, String userDataDir) {
+        String flag = "--user-data-dir=" + userDataDir;
+        Set<Long> tree = new HashSet<>();
+        for (Long pid : processes.keySet()) {
+            try {
+                String cmdline = new String(Files.readAllBytes(PROC.resolve(pid.toString()).resolve("cmdline")),
+                        StandardCharsets.UTF_8);
+                if (!cmdline.contains("--type=") && cmdline.contains(flag)) {
+                    tree.add(pid);
+                }
+            } catch (Exception ignored) {
+            }
+        }
+        if (tree.isEmpty()) {
+            return -1;
+        }
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (Map.Entry<Long, long[]> entry : processes.entrySet()) {
+                if (!tree.contains(entry.getKey()) && tree.contains(entry.getValue()[0])) {
+                    tree.add(entry.getKey());
+                    added = true;
+                }
+            }
+        }
+        long pages = 0;
+        for (Long pid : tree) {
+            pages += processes.get(pid)[1];
+        }
+        return pages * PAGE_SIZE;
+    }
+
+    private Counter counter(String providerName, String reason) {
+        return Counter.builder("llm.browser.context.recycles")
+                .description("BrowserContext 回收次数")
+                .tag("provider", providerName)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static String key(String providerName, String accountId) {
+        return accountId != null && !accountId.isEmpty() ? providerName + ":" + accountId : providerName;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 单个 context 的采样结果和对应的指标
+     */
+    private class ContextMemory {
+        private final BrowserManager.ContextInfo info;
+        private final List<Meter> meters = new ArrayList<>();
+        // 页面 -> 复用的 CDPSession，只在账号被独占时访问
+        private final Map<Page, CDPSession> sessions = new HashMap<>();
+        private volatile long rssBytes = -1;
+        private volatile long jsHeapBytes;
+
+        ContextMemory(BrowserManager.ContextInfo info) {
+            this.info = info;
+            String account = info.accountId() != null ? info.accountId() : "";
+            meters.add(Gauge.builder("llm.browser.context.rss", this, m -> m.rssBytes)
+                    .description("BrowserContext 进程树 RSS（字节），-1 表示无法获取")
+                    .baseUnit("bytes")
+                    .tag("provider", info.providerName()).tag("account", account)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("llm.browser.context.js.heap", this, m -> m.jsHeapBytes)
+                    .description("BrowserContext 所有页面已使用的 JS 堆（字节）")
+                    .baseUnit("bytes")
+                    .tag("provider", info.providerName()).tag("account", account)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("llm.browser.context.pages.opened", info, i -> i.pagesOpened().get())
+                    .description("BrowserContext 启动以来打开过的页面数")
+                    .tag("provider", info.providerName()).tag("account", account)
+                    .register(meterRegistry));
+        }
+
+        /**
+         * 解除所有 CDPSession（调用方已独占账号）
+         */
+        void detachSessions() {
+            sessions.forEach((page, session) -> {
+                if (!page.isClosed()) {
+                    detachQuietly(session);
+                }
+            });
+            sessions.clear();
+        }
+
+        /**
+         * 移除指标；context 已重建或关闭，会话随旧 context 一起失效，不再操作 Playwright
+         */
+        void unregister() {
+            meters.forEach(meterRegistry::remove);
+            sessions.clear();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package site.newbie.web.llm.api.manager;
+
+import com.microsoft.playwright.Page;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.model.ChatCompletionRequest;
+import site.newbie.web.llm.api.provider.LLMProvider;
+import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.ProviderType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 启动预热
+ * 应用启动后为所有已完成登录验证的 Playwright 类账号并行启动 BrowserContext、打开新对话页面并检查登录状态，
+ * 同时让预热页面池开始补充，部署后的第一个请求不再承担浏览器启动和页面加载的耗时
+ *
+ * 预热进度通过 actuator 健康检查（browserWarmup）上报，负载均衡可以只把流量转发到预热完成的节点
+ */
+@Slf4j
+@Component
+public class BrowserWarmup {
+
+    /**
+     * 预热状态
+     */
+    public enum State {
+        DISABLED,   // 未开启
+        RUNNING,    // 预热中
+        FINISHED    // 已完成（包括部分账号失败）
+    }
+
+    /**
+     * 单个账号的预热结果
+     */
+    public enum AccountState {
+        PENDING,        // 等待中
+        READY,          // 已就绪
+        NOT_LOGGED_IN,  // 登录状态已失效
+        SKIPPED,        // 账号正在处理请求，跳过
+        FAILED          // 启动失败
+    }
+
+    private final BrowserManager browserManager;
+    private final AccountManager accountManager;
+    private final ProviderRegistry providerRegistry;
+    private final ConversationPageCache pageCache;
+    private final LoginStateCache loginStateCache;
+    private final List<LLMProvider> providers;
+
+    // 是否在启动时预热
+    @Value("${app.browser.startup-warmup.enabled:false}")
+    private boolean enabled;
+
+    // 同时预热的账号数
+    @Value("${app.browser.startup-warmup.concurrency:2}")
+    private int concurrency;
+
+    private volatile State state = State.DISABLED;
+
+    // provider:accountId -> 预热结果
+    private final Map<String, AccountState> accountStates = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    public BrowserWarmup(BrowserManager browserManager, AccountManager accountManager,
+                         ProviderRegistry providerRegistry, ConversationPageCache pageCache,
+                         LoginStateCache loginStateCache, List<LLMProvider> providers) {
+        this.browserManager = browserManager;
+        this.accountManager = accountManager;
+        this.providerRegistry = providerRegistry;
+        this.pageCache = pageCache;
+        this.loginStateCache = loginStateCache;
+        this.providers = providers;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        for (LLMProvider provider : providers) {
+            if (provider.getProviderType() != ProviderType.PLAYWRIGHT) {
+                continue;
+            }
+            for (AccountManager.AccountInfo account : accountManager.getAccountsByProvider(provider.getProviderName())) {
+                if (account.isLoginVerified()) {
+                    String key = provider.getProviderName() + ":" + account.getAccountId();
+                    accountStates.put(key, AccountState.PENDING);
+                    tasks.add(() -> accountStates.put(key, warmUp(provider, account.getAccountId())));
+                }
+            }
+        }
+        if (tasks.isEmpty()) {
+            state = State.FINISHED;
+            log.info("启动预热: 没有已登录的账号");
+            return;
+        }
+
+        state = State.RUNNING;
+        long start = System.currentTimeMillis();
+        log.info("启动预热: 共 {} 个账号，并发 {}", tasks.size(), concurrency);
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency),
+                Thread.ofVirtual().name("browser-warmup-", 0).factory());
+        CompletableFuture.allOf(tasks.stream()
+                        .map(task -> CompletableFuture.runAsync(task, executor))
+                        .toArray(CompletableFuture[]::new))
+                .whenComplete((v, e) -> {
+                    state = State.FINISHED;
+                    executor.shutdown();
+                    log.info("启动预热完成，耗时 {} ms: {}", System.currentTimeMillis() - start, accountStates);
+                });
+    }
+
+    /**
+     * 预热单个账号：启动 context、打开新对话页面（同时触发预热页面池）并检查登录状态
+     * 预热期间独占账号，避免与刚到达的请求同时操作同一个 context
+     */
+    private AccountState warmUp(LLMProvider provider, String accountId) {
+        String providerName = provider.getProviderName();
+        AccountState[] result = {AccountState.SKIPPED};
+        long start = System.currentTimeMillis();
+        boolean ran = providerRegistry.runIfAccountIdle(providerName, accountId, () -> {
+            Page page = null;
+            try {
+                ChatCompletionRequest request = ChatCompletionRequest.builder()
+                        .model(provider.getSupportedModels().getFirst())
+                        .messages(List.of())
+                        .accountId(accountId)
+                        .build();
+                page = provider.getOrCreatePage(request);
+                if (page == null) {
+                    result[0] = AccountState.FAILED;
+                    return;
+                }
+                boolean loggedIn = provider.checkLoginStatus(page);
+                loginStateCache.record(providerName, accountId, loggedIn);
+                result[0] = loggedIn ? AccountState.READY : AccountState.NOT_LOGGED_IN;
+            } catch (Exception e) {
+                log.warn("提供器 {} 账号 {} 预热失败: {}", providerName, accountId, e.getMessage());
+                result[0] = AccountState.FAILED;
+            } finally {
+                // 页面只用于检查，预热页面池会在后台补充新对话页面
+                if (page != null) {
+                    pageCache.remove(providerName, accountId, page);
+                    try {
+                        page.close();
+                    } catch (Exception ignored) {
+                    }
+                }
+            }
+        });
+        if (!ran) {
+            log.info("提供器 {} 账号 {} 正在处理请求，跳过预热", providerName, accountId);
+        } else if (result[0] == AccountState.NOT_LOGGED_IN) {
+            log.warn("提供器 {} 账号 {} 预热时检测到登录状态已失效", providerName, accountId);
+        } else {
+            log.info("提供器 {} 账号 {} 预热结果: {}，耗时 {} ms", providerName, accountId, result[0],
+                    System.currentTimeMillis() - start);
+        }
+        return result[0];
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 各账号的预热结果（provider:accountId -> 结果）
+     */
+    public Map<String, AccountState> getAccountStates() {
+        return Map.copyOf(accountStates);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
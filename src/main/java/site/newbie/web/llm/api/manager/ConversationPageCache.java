@@ -0,0 +1,359 @@
+package site.newbie.web.llm.api.manager;
+
+import com.microsoft.playwright.Page;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话页面缓存
+ * 按 提供器+账号（即一个 BrowserContext）保存 对话 ID -> Page，继续对话时按对话 ID 直接取回原来的 tab，
+ * 不再遍历所有 tab 比较 URL
+ *
+ * 页面的生命周期：
+ * 1. 提供器打开 / 取回页面后调用 {@link #register} 或 {@link #acquire}，页面处于使用中，不会被淘汰
+ * 2. 拿到对话 ID 后调用 {@link #bind} 关联对话 ID；请求结束时（无论成功、出错还是提前返回）在 finally 中调用
+ *    {@link #release}，页面变为空闲，按最近使用顺序排队
+ * 3. 空闲页面超过数量上限、所在 context 的 tab 总数超过上限或空闲过久时，关闭最久未使用的页面
+ *
+ * 使用中的页面只有在超过 max-idle-ms 仍未释放时才会被清理（视为异常退出后遗留的页面）
+ */
+@Slf4j
+@Component
+public class ConversationPageCache {
+
+    private final BrowserManager browserManager;
+    private final MeterRegistry meterRegistry;
+
+    // 每个账号最多缓存的对话页面数
+    @Value("${app.browser.page-cache.max-pages:8}")
+    private int maxPages;
+
+    // 每个 BrowserContext 最多打开的 tab 数（包括预热页面、登录页面等不在缓存中的页面）
+    @Value("${app.browser.page-cache.max-context-pages:12}")
+    private int maxContextPages;
+
+    // 页面超过该时间没有使用则关闭
+    @Value("${app.browser.page-cache.max-idle-ms:1800000}")
+    private long maxIdleMs;
+
+    private final Map<String, AccountPages> accounts = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("page-cache").daemon(true).factory());
+
+    public ConversationPageCache(BrowserManager browserManager, MeterRegistry meterRegistry) {
+        this.browserManager = browserManager;
+        this.meterRegistry = meterRegistry;
+        scheduler.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 按对话 ID 取回页面并标记为使用中
+     * @return 缓存的页面，没有或已关闭时返回 null
+     */
+    public Page acquire(String providerName, String accountId, String conversationId) {
+        if (conversationId == null || conversationId.isEmpty()) {
+            return null;
+        }
+        AccountPages pages = accounts.get(key(providerName, accountId));
+        Page page = null;
+        if (pages != null) {
+            synchronized (pages) {
+                Entry entry = pages.byConversation.get(conversationId);
+                if (entry != null && entry.page.isClosed()) {
+                    pages.remove(entry);
+                    entry = null;
+                }
+                if (entry != null) {
+                    // 访问顺序的 LinkedHashMap，get 会把页面移到队尾
+                    pages.byPage.get(entry.page);
+                    entry.inUse++;
+                    entry.lastAccess = System.currentTimeMillis();
+                    page = entry.page;
+                }
+            }
+        }
+        counter(providerName, page != null ? "hit" : "miss").increment();
+        return page;
+    }
+
+    /**
+     * 登记一个新打开的页面（新对话或缓存未命中时重新打开的对话），标记为使用中
+     * 登记前会按上限关闭最久未使用的空闲页面，为新页面腾出位置
+     */
+    public void register(String providerName, String accountId, Page page) {
+        if (page == null) {
+            return;
+        }
+        AccountPages pages = accounts.computeIfAbsent(key(providerName, accountId),
+                k -> new AccountPages(providerName, accountId));
+        List<Page> evicted;
+        // 在锁外统计 tab 数，避免持锁期间调用 Playwright
+        int contextPages = contextPageCount(pages);
+        synchronized (pages) {
+            Entry entry = pages.byPage.computeIfAbsent(page, Entry::new);
+            entry.inUse++;
+            entry.lastAccess = System.currentTimeMillis();
+            evicted = evictOverflow(pages, contextPages);
+        }
+        closeEvicted(pages, evicted);
+    }
+
+    /**
+     * 把对话 ID 关联到使用中的页面，不改变使用状态；页面释放后可以按该 ID 取回
+     * 同一对话 ID 之前对应的其他页面会被关闭（同一个对话只保留一个 tab）
+     */
+    public void bind(String providerName, String accountId, Page page, String conversationId) {
+        if (page == null || page.isClosed() || conversationId == null || conversationId.isEmpty()) {
+            return;
+        }
+        AccountPages pages = accounts.computeIfAbsent(key(providerName, accountId),
+                k -> new AccountPages(providerName, accountId));
+        List<Page> evicted = new ArrayList<>();
+        synchronized (pages) {
+            Entry entry = pages.byPage.computeIfAbsent(page, Entry::new);
+            assignConversation(pages, entry, conversationId, evicted);
+        }
+        closeEvicted(pages, evicted);
+    }
+
+    /**
+     * 使用结束，页面变为空闲；conversationId 不为空时同 {@link #bind}，为空时保留已关联的对话 ID
+     * 提供器应在请求路径的 finally 中调用，保证出错或提前返回时页面也会变为空闲
+     */
+    public void release(String providerName, String accountId, Page page, String conversationId) {
+        if (page == null || page.isClosed()) {
+            remove(providerName, accountId, page);
+            return;
+        }
+        AccountPages pages = accounts.computeIfAbsent(key(providerName, accountId),
+                k -> new AccountPages(providerName, accountId));
+        int contextPages = contextPageCount(pages);
+        List<Page> evicted = new ArrayList<>();
+        synchronized (pages) {
+            Entry entry = pages.byPage.computeIfAbsent(page, Entry::new);
+            entry.inUse = Math.max(0, entry.inUse - 1);
+            entry.lastAccess = System.currentTimeMillis();
+            assignConversation(pages, entry, conversationId, evicted);
+            evicted.addAll(evictOverflow(pages, contextPages));
+        }
+        closeEvicted(pages, evicted);
+    }
+
+    /**
+     * 关联对话 ID，被替换的旧页面加入 evicted（调用方持有锁）
+     */
+    private void assignConversation(AccountPages pages, Entry entry, String conversationId, List<Page> evicted) {
+        if (conversationId == null || conversationId.isEmpty() || conversationId.equals(entry.conversationId)) {
+            return;
+        }
+        if (entry.conversationId != null) {
+            pages.byConversation.remove(entry.conversationId, entry);
+        }
+        Entry previous = pages.byConversation.put(conversationId, entry);
+        if (previous != null && previous != entry) {
+            pages.byPage.remove(previous.page);
+            evicted.add(previous.page);
+        }
+        entry.conversationId = conversationId;
+    }
+
+    /**
+     * 从缓存中移除页面（页面出错将被关闭时调用），不会关闭页面
+     */
+    public void remove(String providerName, String accountId, Page page) {
+        if (page == null) {
+            return;
+        }
+        AccountPages pages = accounts.get(key(providerName, accountId));
+        if (pages != null) {
+            synchronized (pages) {
+                Entry entry = pages.byPage.get(page);
+                if (entry != null) {
+                    pages.remove(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * 关闭并移除指定提供器缓存的所有页面
+     * @return 关闭的页面数
+     */
+    public int clear(String providerName) {
+        int closed = 0;
+        for (AccountPages pages : accounts.values()) {
+            if (!pages.providerName.equals(providerName)) {
+                continue;
+            }
+            List<Page> toClose;
+            synchronized (pages) {
+                toClose = new ArrayList<>(pages.byPage.keySet());
+                pages.byPage.clear();
+                pages.byConversation.clear();
+            }
+            toClose.forEach(ConversationPageCache::closeQuietly);
+            closed += toClose.size();
+        }
+        return closed;
+    }
+
+    /**
+     * 所在 context 当前打开的 tab 数，在锁外调用
+     */
+    private int contextPageCount(AccountPages pages) {
+        return browserManager.getAllPages(pages.providerName, pages.accountId).size();
+    }
+
+    /**
+     * 超过上限时从最久未使用的空闲页面开始淘汰（调用方持有锁，返回的页面在锁外关闭）
+     * @param contextPages 加锁前统计的 context tab 数
+     */
+    private List<Page> evictOverflow(AccountPages pages, int contextPages) {
+        List<Page> evicted = new ArrayList<>();
+        Iterator<Entry> it = pages.byPage.values().iterator();
+        while (it.hasNext() && (pages.byPage.size() > maxPages || contextPages - evicted.size() > maxContextPages)) {
+            Entry entry = it.next();
+            if (entry.inUse > 0) {
+                continue;
+            }
+            it.remove();
+            if (entry.conversationId != null) {
+                pages.byConversation.remove(entry.conversationId, entry);
+            }
+            evicted.add(entry.page);
+        }
+        return evicted;
+    }
+
+    /**
+     * 定期关闭空闲过久的页面，并清理已关闭的页面
+     */
+    private void evictIdle() {
+        long threshold = System.currentTimeMillis() - maxIdleMs;
+        for (AccountPages pages : accounts.values()) {
+            try {
+                List<Page> evicted = new ArrayList<>();
+                synchronized (pages) {
+                    Iterator<Entry> it = pages.byPage.values().iterator();
+                    while (it.hasNext()) {
+                        Entry entry = it.next();
+                        boolean closed = entry.page.isClosed();
+                        if (!closed && entry.lastAccess >= threshold) {
+                            continue;
+                        }
+                        it.remove();
+                        if (entry.conversationId != null) {
+                            pages.byConversation.remove(entry.conversationId, entry);
+                        }
+                        if (!closed) {
+                            if (entry.inUse > 0) {
+                                log.warn("提供器 {} 账号 {} 的页面超过 {} ms 未释放，强制关闭",
+                                        pages.providerName, pages.accountId, maxIdleMs);
+                            }
+                            evicted.add(entry.page);
+                        }
+                    }
+                }
+                closeEvicted(pages, evicted);
+                log.debug("提供器 {} 账号 {} 缓存页面 {} 个", pages.providerName, pages.accountId, pages.byPage.size());
+            } catch (Exception e) {
+                log.warn("清理对话页面缓存时出错: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void closeEvicted(AccountPages pages, List<Page> evicted) {
+        if (evicted.isEmpty()) {
+            return;
+        }
+        evicted.forEach(ConversationPageCache::closeQuietly);
+        counter(pages.providerName, "eviction").increment(evicted.size());
+        log.info("提供器 {} 账号 {} 关闭 {} 个最久未使用的对话页面，剩余 {} 个",
+                pages.providerName, pages.accountId, evicted.size(), pages.byPage.size());
+    }
+
+    private Counter counter(String providerName, String result) {
+        return counters.computeIfAbsent(providerName + ":" + result, k -> Counter.builder("llm.page.cache")
+                .description("对话页面缓存命中 / 未命中 / 淘汰次数")
+                .tag("provider", providerName)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private static String key(String providerName, String accountId) {
+        return accountId != null && !accountId.isEmpty() ? providerName + ":" + accountId : providerName;
+    }
+
+    private static void closeQuietly(Page page) {
+        try {
+            if (!page.isClosed()) {
+                page.close();
+            }
+        } catch (Exception e) {
+            log.debug("关闭对话页面时出错: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 单个提供器+账号（一个 BrowserContext）的页面
+     * byPage 按访问顺序排列，队首是最久未使用的页面；byConversation 用于按对话 ID 查找
+     */
+    private class AccountPages {
+        private final String providerName;
+        private final String accountId;
+        private final LinkedHashMap<Page, Entry> byPage = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<String, Entry> byConversation = new HashMap<>();
+
+        AccountPages(String providerName, String accountId) {
+            this.providerName = providerName;
+            this.accountId = accountId;
+            Gauge.builder("llm.page.cache.size", byPage, Map::size)
+                    .description("缓存的对话页面数")
+                    .tag("provider", providerName)
+                    .tag("account", accountId != null ? accountId : "")
+                    .register(meterRegistry);
+        }
+
+        void remove(Entry entry) {
+            byPage.remove(entry.page);
+            if (entry.conversationId != null) {
+                byConversation.remove(entry.conversationId, entry);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Page page;
+        private String conversationId;
+        private int inUse;
+        private long lastAccess = System.currentTimeMillis();
+
+        Entry(Page page) {
+            this.page = page;
+        }
+    }
+}
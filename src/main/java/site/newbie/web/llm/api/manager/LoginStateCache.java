@@ -0,0 +1,150 @@
+package site.newbie.web.llm.api.manager;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 登录状态缓存
+ * 按 提供器+账号 缓存最近一次确认已登录的时间，有效期内的请求直接跳过页面上的登录检查（等待加载 + DOM 探测），
+ * 只有缓存过期或被失效后才重新检查
+ *
+ * 缓存失效的来源：
+ * - 网络层：context 中的页面 / XHR / fetch 请求返回 401，或页面跳转到登录地址（login-urls，按提供器配置）
+ * - 页面检查：检查结果为未登录时立即失效（只缓存已登录状态，未登录总是重新检查）
+ *
+ * 后台由 {@link LoginStateChecker} 在账号空闲时提前刷新即将过期的缓存
+ */
+@Slf4j
+@Component
+public class LoginStateCache {
+
+    private static final String LOGIN_URLS_PROPERTY = "app.browser.login-state.login-urls.";
+
+    private static final Set<String> WATCHED_TYPES = Set.of("document", "xhr", "fetch");
+
+    private final Environment environment;
+
+    // 已登录状态的有效期（毫秒），0 表示不缓存，每个请求都检查
+    @Value("${app.browser.login-state.ttl-ms:600000}")
+    private long ttlMs;
+
+    // provider:accountId -> 最近一次确认已登录的时间
+    private final Map<String, Long> verifiedAt = new ConcurrentHashMap<>();
+
+    // 提供器名称 -> 登录页地址片段
+    private final Map<String, List<String>> loginUrls = new ConcurrentHashMap<>();
+
+    public LoginStateCache(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * 检查登录状态：缓存有效时直接返回已登录，否则执行 probe 并记录结果
+     */
+    public boolean check(String providerName, String accountId, BooleanSupplier probe) {
+        if (isFresh(providerName, accountId)) {
+            return true;
+        }
+        boolean loggedIn = probe.getAsBoolean();
+        record(providerName, accountId, loggedIn);
+        return loggedIn;
+    }
+
+    /**
+     * 缓存中是否有未过期的已登录状态
+     */
+    public boolean isFresh(String providerName, String accountId) {
+        Long time = verifiedAt.get(key(providerName, accountId));
+        return time != null && System.currentTimeMillis() - time < ttlMs;
+    }
+
+    /**
+     * 记录页面检查的结果
+     */
+    public void record(String providerName, String accountId, boolean loggedIn) {
+        if (loggedIn) {
+            verifiedAt.put(key(providerName, accountId), System.currentTimeMillis());
+        } else {
+            invalidate(providerName, accountId, "页面检查未登录");
+        }
+    }
+
+    /**
+     * 使缓存失效，下一个请求会重新检查登录状态
+     */
+    public void invalidate(String providerName, String accountId, String reason) {
+        if (verifiedAt.remove(key(providerName, accountId)) != null) {
+            log.info("提供器 {} 账号 {} 的登录状态缓存已失效: {}", providerName, accountId, reason);
+        }
+    }
+
+    /**
+     * 距离上次确认已登录的时间（毫秒），没有缓存时返回 -1
+     */
+    public long getAge(String providerName, String accountId) {
+        Long time = verifiedAt.get(key(providerName, accountId));
+        return time != null ? System.currentTimeMillis() - time : -1;
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    /**
+     * 监听 context 的网络响应：401 或跳转到登录页时使该账号的缓存失效
+     */
+    public void install(BrowserContext context, String providerName, String accountId) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        List<String> urls = loginUrls.computeIfAbsent(providerName, name ->
+                Arrays.stream(environment.getProperty(LOGIN_URLS_PROPERTY + name, "").split(","))
+                        .map(String::trim)
+                        .filter(url -> !url.isEmpty())
+                        .toList());
+        context.onResponse(response -> {
+            try {
+                String reason = invalidationReason(response, urls);
+                if (reason != null) {
+                    invalidate(providerName, accountId, reason);
+                }
+            } catch (Exception e) {
+                // 页面关闭时读取请求信息可能失败，忽略
+                log.debug("处理响应时出错: {}", e.getMessage());
+            }
+        });
+    }
+
+    private static String invalidationReason(Response response, List<String> urls) {
+        if (!WATCHED_TYPES.contains(response.request().resourceType())) {
+            return null;
+        }
+        if (response.status() == 401) {
+            return "请求返回 401: " + response.url();
+        }
+        if (response.request().isNavigationRequest()) {
+            String url = response.url();
+            for (String loginUrl : urls) {
+                if (url.contains(loginUrl)) {
+                    return "页面跳转到登录页: " + url;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String key(String providerName, String accountId) {
+        return accountId != null && !accountId.isEmpty() ? providerName + ":" + accountId : providerName;
+    }
+}
@@ -0,0 +1,110 @@
+package site.newbie.web.llm.api.manager;
+
+import com.microsoft.playwright.Page;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.provider.LLMProvider;
+import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.ProviderType;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录状态后台检查
+ * 定期为已启动的 BrowserContext 刷新即将过期（或已失效）的登录状态缓存，让请求尽量命中缓存，
+ * 不在对话路径上等待页面检查
+ *
+ * 检查只在账号没有进行中和排队的对话时进行，使用 context 中已经打开的页面，不导航、不新开页面；
+ * 没有可用页面时跳过，由下一个请求检查
+ */
+@Slf4j
+@Component
+public class LoginStateChecker {
+
+    private final BrowserManager browserManager;
+    private final ProviderRegistry providerRegistry;
+    private final LoginStateCache loginStateCache;
+
+    // 检查间隔（毫秒），0 表示关闭后台检查
+    @Value("${app.browser.login-state.refresh-interval-ms:120000}")
+    private long refreshIntervalMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("login-state").daemon(true).factory());
+
+    public LoginStateChecker(BrowserManager browserManager, ProviderRegistry providerRegistry,
+                             LoginStateCache loginStateCache) {
+        this.browserManager = browserManager;
+        this.providerRegistry = providerRegistry;
+        this.loginStateCache = loginStateCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (refreshIntervalMs > 0 && loginStateCache.getTtlMs() > 0) {
+            scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh() {
+        if (!browserManager.isInitialized()) {
+            return;
+        }
+        for (BrowserManager.ContextInfo info : browserManager.getContextInfos()) {
+            try {
+                refresh(info.providerName(), info.accountId());
+            } catch (Exception e) {
+                log.warn("提供器 {} 账号 {} 后台检查登录状态失败: {}", info.providerName(), info.accountId(), e.getMessage());
+            }
+        }
+    }
+
+    private void refresh(String providerName, String accountId) {
+        LLMProvider provider = providerRegistry.getProviderByName(providerName);
+        if (provider == null || provider.getProviderType() != ProviderType.PLAYWRIGHT) {
+            return;
+        }
+        // 缓存在下一次检查前仍然有效时不需要刷新
+        long age = loginStateCache.getAge(providerName, accountId);
+        if (age >= 0 && age + refreshIntervalMs < loginStateCache.getTtlMs()) {
+            return;
+        }
+        providerRegistry.runIfAccountIdle(providerName, accountId, () -> {
+            Page page = findCheckPage(providerName, accountId);
+            if (page == null) {
+                return;
+            }
+            boolean loggedIn = provider.checkLoginStatus(page);
+            loginStateCache.record(providerName, accountId, loggedIn);
+            if (!loggedIn) {
+                log.warn("提供器 {} 账号 {} 后台检查发现登录状态已失效", providerName, accountId);
+            }
+        });
+    }
+
+    /**
+     * 找一个已经打开了提供器网站的页面用于检查
+     */
+    private Page findCheckPage(String providerName, String accountId) {
+        for (Page page : browserManager.getAllPages(providerName, accountId)) {
+            try {
+                if (!page.isClosed() && page.url().startsWith("http")) {
+                    return page;
+                }
+            } catch (Exception ignored) {
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
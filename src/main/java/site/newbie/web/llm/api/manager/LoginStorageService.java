@@ -1,11 +1,13 @@
 package site.newbie.web.llm.api.manager;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import site.newbie.web.llm.api.model.LoginInfo;
+import site.newbie.web.llm.api.util.DebouncedJsonFile;
 import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
 
@@ -14,11 +16,18 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * 登录状态存储服务
  * 负责将登录状态和登录会话持久化到本地文件
  * 与浏览器数据目录统一使用 user-data 目录
+ *
+ * 启动时从文件加载到内存，之后以内存中的数据为准，读取只查 Map；
+ * 修改后延迟合并写入文件（write-temp-then-rename），应用退出时立即写入
  */
 @Slf4j
 @Service
@@ -35,6 +44,22 @@ public class LoginStorageService {
     // 从配置文件读取，与浏览器数据目录保持一致
     @Value("${app.browser.user-data-dir:./user-data}")
     private String userDataDir;
+
+    // 修改后延迟写入文件的时间（毫秒），期间的多次修改合并为一次写入；0 表示每次修改立即写入
+    @Value("${app.login-storage.write-delay-ms:1000}")
+    private long writeDelayMs;
+
+    // providerName -> 登录状态
+    private final Map<String, LoginInfo> loginStatusMap = new ConcurrentHashMap<>();
+
+    // 会话键 -> 登录会话（保存序列化格式，读取时返回副本，调用方修改后需要显式保存）
+    private final Map<String, LoginSessionData> loginSessionsMap = new ConcurrentHashMap<>();
+
+    private DebouncedJsonFile loginStatusWriter;
+    private DebouncedJsonFile loginSessionsWriter;
+
+    private final ScheduledExecutorService writeScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("login-storage").daemon(true).factory());
     
     public LoginStorageService(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
@@ -47,6 +72,10 @@ public class LoginStorageService {
             this.storageDir = Paths.get(userDataDir);
             this.loginStatusFile = storageDir.resolve(LOGIN_STATUS_FILE);
             this.loginSessionsFile = storageDir.resolve(LOGIN_SESSIONS_FILE);
+            this.loginStatusWriter = new DebouncedJsonFile(loginStatusFile, objectMapper,
+                    () -> new TreeMap<>(loginStatusMap), writeDelayMs, writeScheduler);
+            this.loginSessionsWriter = new DebouncedJsonFile(loginSessionsFile, objectMapper,
+                    () -> new TreeMap<>(loginSessionsMap), writeDelayMs, writeScheduler);
             
             // 创建存储目录（与浏览器数据目录相同）
             if (!Files.exists(storageDir)) {
@@ -54,29 +83,42 @@ public class LoginStorageService {
                 log.info("创建登录数据存储目录: {}", storageDir.toAbsolutePath());
             }
             
+            loginStatusMap.putAll(loadLoginStatusMap());
+            loginSessionsMap.putAll(loadLoginSessionsMap());
+            
             // 启动时清理所有登录会话
             clearAllLoginSessions();
             
-            log.info("登录存储服务初始化完成（完全基于本地文件存储，目录: {}）", storageDir.toAbsolutePath());
+            log.info("登录存储服务初始化完成（本地文件存储，目录: {}）", storageDir.toAbsolutePath());
         } catch (Exception e) {
             log.error("初始化登录存储服务失败: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * 应用退出时写入尚未保存的修改
+     */
+    @PreDestroy
+    public void shutdown() {
+        writeScheduler.shutdownNow();
+        if (loginStatusWriter != null) {
+            loginStatusWriter.flush();
+            loginSessionsWriter.flush();
+        }
+    }
     
     /**
      * 保存登录状态
      */
     public void saveLoginStatus(String providerName, LoginInfo loginInfo) {
-        Map<String, LoginInfo> loginStatusMap = loadLoginStatusMap();
         loginStatusMap.put(providerName, loginInfo);
-        persistLoginStatus(loginStatusMap);
+        loginStatusWriter.markDirty();
     }
     
     /**
      * 获取登录状态
      */
     public LoginInfo getLoginStatus(String providerName) {
-        Map<String, LoginInfo> loginStatusMap = loadLoginStatusMap();
         return loginStatusMap.get(providerName);
     }
     
@@ -84,16 +126,16 @@ public class LoginStorageService {
      * 获取所有登录状态
      */
     public Map<String, LoginInfo> getAllLoginStatus() {
-        return loadLoginStatusMap();
+        return new HashMap<>(loginStatusMap);
     }
     
     /**
      * 删除登录状态
      */
     public void removeLoginStatus(String providerName) {
-        Map<String, LoginInfo> loginStatusMap = loadLoginStatusMap();
-        loginStatusMap.remove(providerName);
-        persistLoginStatus(loginStatusMap);
+        if (loginStatusMap.remove(providerName) != null) {
+            loginStatusWriter.markDirty();
+        }
     }
     
     /**
@@ -128,10 +170,9 @@ public class LoginStorageService {
      * 注意：登录状态的更新应由调用者在需要时通过 ProviderAdminService 显式处理
      */
     public void saveLoginSession(String providerName, String accountId, String conversationId, LoginSessionManager.LoginSession session) {
-        Map<String, LoginSessionManager.LoginSession> loginSessionsMap = loadLoginSessionsMap();
         if (session != null && conversationId != null && !conversationId.isEmpty()) {
             String key = generateSessionKey(providerName, accountId, conversationId);
-            loginSessionsMap.put(key, session);
+            loginSessionsMap.put(key, LoginSessionData.fromSession(session));
             log.debug("保存登录会话: key={}, state={}", key, session.getState());
         } else {
             if (conversationId != null && !conversationId.isEmpty()) {
@@ -140,7 +181,7 @@ public class LoginStorageService {
                 log.debug("删除登录会话: key={}", key);
             }
         }
-        persistLoginSessions(loginSessionsMap);
+        loginSessionsWriter.markDirty();
     }
     
     /**
@@ -157,9 +198,9 @@ public class LoginStorageService {
         if (conversationId == null || conversationId.isEmpty()) {
             return null;
         }
-        Map<String, LoginSessionManager.LoginSession> loginSessionsMap = loadLoginSessionsMap();
         String key = generateSessionKey(providerName, accountId, conversationId);
-        LoginSessionManager.LoginSession session = loginSessionsMap.get(key);
+        LoginSessionData data = loginSessionsMap.get(key);
+        LoginSessionManager.LoginSession session = data != null ? data.toSession() : null;
         log.debug("获取登录会话: key={}, session存在={}, state={}", 
             key, session != null, session != null ? session.getState() : null);
         return session;
@@ -169,7 +210,9 @@ public class LoginStorageService {
      * 获取所有登录会话
      */
     public Map<String, LoginSessionManager.LoginSession> getAllLoginSessions() {
-        return loadLoginSessionsMap();
+        Map<String, LoginSessionManager.LoginSession> sessions = new HashMap<>();
+        loginSessionsMap.forEach((key, data) -> sessions.put(key, data.toSession()));
+        return sessions;
     }
     
     /**
@@ -186,46 +229,37 @@ public class LoginStorageService {
         if (conversationId == null || conversationId.isEmpty()) {
             return;
         }
-        Map<String, LoginSessionManager.LoginSession> loginSessionsMap = loadLoginSessionsMap();
         String key = generateSessionKey(providerName, accountId, conversationId);
-        loginSessionsMap.remove(key);
-        persistLoginSessions(loginSessionsMap);
+        if (loginSessionsMap.remove(key) != null) {
+            loginSessionsWriter.markDirty();
+        }
     }
     
     /**
      * 根据提供器名称删除所有登录会话（用于清理）
      */
     public void removeAllLoginSessionsByProvider(String providerName) {
-        Map<String, LoginSessionManager.LoginSession> loginSessionsMap = loadLoginSessionsMap();
-        loginSessionsMap.entrySet().removeIf(entry -> entry.getKey().startsWith(providerName + ":"));
-        persistLoginSessions(loginSessionsMap);
+        if (loginSessionsMap.keySet().removeIf(key -> key.startsWith(providerName + ":"))) {
+            loginSessionsWriter.markDirty();
+        }
     }
     
     /**
      * 清理所有登录会话（启动时调用）
      */
     public void clearAllLoginSessions() {
-        try {
-            if (Files.exists(loginSessionsFile)) {
-                Map<String, LoginSessionManager.LoginSession> loginSessionsMap = loadLoginSessionsMap();
-                int count = loginSessionsMap.size();
-                if (count > 0) {
-                    loginSessionsMap.clear();
-                    persistLoginSessions(loginSessionsMap);
-                    log.info("启动时已清理 {} 个登录会话", count);
-                } else {
-                    log.debug("启动时检查登录会话，文件为空，无需清理");
-                }
-            } else {
-                log.debug("启动时检查登录会话，文件不存在，无需清理");
-            }
-        } catch (Exception e) {
-            log.error("清理登录会话失败: {}", e.getMessage(), e);
+        int count = loginSessionsMap.size();
+        if (count > 0) {
+            loginSessionsMap.clear();
+            loginSessionsWriter.flush();
+            log.info("启动时已清理 {} 个登录会话", count);
+        } else {
+            log.debug("启动时检查登录会话，无需清理");
         }
     }
     
     /**
-     * 从文件加载登录状态
+     * 从文件加载登录状态（仅启动时调用）
      */
     private Map<String, LoginInfo> loadLoginStatusMap() {
         if (!Files.exists(loginStatusFile)) {
@@ -246,22 +280,9 @@ public class LoginStorageService {
     }
     
     /**
-     * 持久化登录状态到文件
-     */
-    private void persistLoginStatus(Map<String, LoginInfo> loginStatusMap) {
-        try {
-            objectMapper.writerWithDefaultPrettyPrinter()
-                    .writeValue(loginStatusFile.toFile(), loginStatusMap);
-            log.debug("已保存登录状态到文件: {}", loginStatusFile);
-        } catch (Exception e) {
-            log.error("保存登录状态失败: {}", e.getMessage(), e);
-        }
-    }
-    
-    /**
-     * 从文件加载登录会话
+     * 从文件加载登录会话（仅启动时调用）
      */
-    private Map<String, LoginSessionManager.LoginSession> loadLoginSessionsMap() {
+    private Map<String, LoginSessionData> loadLoginSessionsMap() {
         if (!Files.exists(loginSessionsFile)) {
             log.debug("登录会话文件不存在: {}", loginSessionsFile);
             return new HashMap<>();
@@ -273,49 +294,18 @@ public class LoginStorageService {
                     new TypeReference<>() {
                     }
             );
-            
             if (loaded == null) {
                 log.debug("登录会话文件为空");
                 return new HashMap<>();
             }
-            
-            Map<String, LoginSessionManager.LoginSession> sessionsMap = new HashMap<>();
-            for (Map.Entry<String, LoginSessionData> entry : loaded.entrySet()) {
-                LoginSessionManager.LoginSession session = entry.getValue().toSession();
-                sessionsMap.put(entry.getKey(), session);
-                log.debug("加载登录会话: key={}, state={}", entry.getKey(), session.getState());
-            }
-            
-            log.debug("从文件加载了 {} 个登录会话", sessionsMap.size());
-            return sessionsMap;
+            log.debug("从文件加载了 {} 个登录会话", loaded.size());
+            return loaded;
         } catch (Exception e) {
             log.error("加载登录会话失败: {}", e.getMessage(), e);
             return new HashMap<>();
         }
     }
     
-    /**
-     * 持久化登录会话到文件
-     */
-    private void persistLoginSessions(Map<String, LoginSessionManager.LoginSession> loginSessionsMap) {
-        try {
-            // 转换为可序列化的格式
-            Map<String, LoginSessionData> sessionDataMap = new HashMap<>();
-            for (Map.Entry<String, LoginSessionManager.LoginSession> entry : loginSessionsMap.entrySet()) {
-                LoginSessionManager.LoginSession session = entry.getValue();
-                if (session != null) {
-                    sessionDataMap.put(entry.getKey(), LoginSessionData.fromSession(session));
-                }
-            }
-            
-            objectMapper.writerWithDefaultPrettyPrinter()
-                    .writeValue(loginSessionsFile.toFile(), sessionDataMap);
-            log.debug("已保存 {} 个登录会话到文件: {}", sessionDataMap.size(), loginSessionsFile);
-        } catch (Exception e) {
-            log.error("保存登录会话失败: {}", e.getMessage(), e);
-        }
-    }
-    
     /**
      * 登录会话数据（用于序列化）
      */
@@ -0,0 +1,208 @@
+package site.newbie.web.llm.api.manager;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 提供器页面的资源拦截（默认关闭，按提供器开启）
+ * 对话只需要聊天 DOM 和流式接口，图片、字体、音视频以及第三方统计脚本都不需要加载，
+ * 在 BrowserContext 上注册路由直接中止这些请求，减少新对话页面的加载时间、流量和渲染进程内存
+ *
+ * 规则：
+ * - allow-hosts（按提供器配置）中的域名全部放行，用于登录页、验证码、生成图片等必须加载的资源
+ * - block-hosts 中的第三方统计 / 埋点域名全部中止
+ * - 其他域名中 resource-types 类型（默认 image、font、media）的静态文件（按扩展名匹配）中止
+ *
+ * 路由只按正则注册这两类 URL，正则由 Playwright driver 在浏览器侧匹配：页面、脚本、样式和流式接口等其他请求
+ * 不会回调到 Java，也不会因为路由增加延迟；不要改成匹配所有 URL 的 glob 或 Predicate，那样每个请求都要经过 Java 回调
+ *
+ * 注意：Chromium 在 context 开启任何路由后都不再使用 HTTP 缓存，开启前确认该提供器的页面不会因此变慢
+ */
+@Slf4j
+@Component
+public class ResourceBlocker {
+
+    private static final String ALLOW_HOSTS_PROPERTY = "app.browser.resource-blocking.allow-hosts.";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    // 开启资源拦截的提供器（逗号分隔），留空表示不拦截
+    @Value("${app.browser.resource-blocking.providers:}")
+    private Set<String> providers;
+
+    // 中止的资源类型（Playwright resourceType，如 image、font、media）
+    @Value("${app.browser.resource-blocking.resource-types:image,font,media}")
+    private Set<String> resourceTypes;
+
+    // 第三方统计 / 埋点域名，包括子域名
+    @Value("${app.browser.resource-blocking.block-hosts:}")
+    private List<String> blockHosts;
+
+    // Playwright resourceType -> 对应静态文件的扩展名（正则片段）
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image", "png|jpe?g|gif|webp|avif|svg|ico|bmp",
+            "font", "woff2?|ttf|otf|eot",
+            "media", "mp4|webm|mp3|m4a|wav|ogg|mov");
+
+    // 提供器名称 -> 放行的域名
+    private final Map<String, List<String>> allowHosts = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ResourceBlocker(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 为提供器的 BrowserContext 注册资源拦截路由，提供器未开启拦截时不做任何处理
+     */
+    public void install(BrowserContext context, String providerName) {
+        if (!providers.contains(providerName)) {
+            return;
+        }
+        List<String> allowed = allowHosts.computeIfAbsent(providerName, name ->
+                Arrays.stream(environment.getProperty(ALLOW_HOSTS_PROPERTY + name, "").split(","))
+                        .map(String::trim)
+                        .filter(host -> !host.isEmpty())
+                        .toList());
+        Pattern hostPattern = hostPattern(blockHosts);
+        if (hostPattern != null) {
+            context.route(hostPattern, route -> handle(route, providerName, allowed));
+        }
+        Pattern typePattern = extensionPattern(resourceTypes);
+        if (typePattern != null) {
+            context.route(typePattern, route -> handle(route, providerName, allowed));
+        }
+        log.info("提供器 {} 已开启资源拦截，中止类型: {}，放行域名: {}", providerName, resourceTypes, allowed);
+    }
+
+    /**
+     * 只有命中拦截正则的请求会进入这里，再按放行域名和资源类型确认
+     */
+    private void handle(Route route, String providerName, List<String> allowed) {
+        String reason = blockReason(route.request(), allowed);
+        if (reason == null) {
+            route.fallback();
+            return;
+        }
+        counter(providerName, reason).increment();
+        try {
+            route.abort("blockedbyclient");
+        } catch (Exception e) {
+            // 页面已关闭时请求随之取消，忽略
+            log.debug("中止请求失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 判断请求是否需要中止
+     * @return 中止原因（host 或资源类型），null 表示放行
+     */
+    private String blockReason(Request request, List<String> allowed) {
+        String host = host(request.url());
+        if (host == null || matches(host, allowed)) {
+            return null;
+        }
+        if (matches(host, blockHosts)) {
+            return "host";
+        }
+        String type = request.resourceType();
+        return resourceTypes.contains(type) ? type : null;
+    }
+
+    /**
+     * 匹配 block-hosts 中的域名及其子域名的 URL，没有配置时返回 null
+     */
+    static Pattern hostPattern(List<String> hosts) {
+        String alternatives = hosts.stream()
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                // 正则会交给浏览器侧按 JS 正则匹配，不能使用 Pattern.quote 的 \Q...\E
+                .map(host -> host.replace(".", "\\."))
+                .collect(Collectors.joining("|"));
+        if (alternatives.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile("^https?://([^/?#@]*\\.)?(" + alternatives + ")(:\\d+)?([/?#].*)?$",
+                Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * 按扩展名匹配 resource-types 对应的静态文件 URL（可带查询参数），没有可识别的类型时返回 null
+     * 不带扩展名的图片等资源不会被拦截，换来其他请求不经过 Java 回调
+     */
+    static Pattern extensionPattern(Set<String> types) {
+        String extensions = types.stream()
+                .map(type -> {
+                    String value = EXTENSIONS.get(type);
+                    if (value == null) {
+                        log.warn("资源拦截不支持按扩展名匹配资源类型 {}，已忽略", type);
+                    }
+                    return value;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining("|"));
+        if (extensions.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile("^https?://[^?#]*\\.(" + extensions + ")([?#].*)?$", Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * 域名相同或是其子域名
+     */
+    private static boolean matches(String host, List<String> domains) {
+        for (String domain : domains) {
+            if (host.equals(domain) || host.endsWith("." + domain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从 URL 中取出域名（不含端口），非 http(s) 请求返回 null
+     */
+    private static String host(String url) {
+        int start = url.indexOf("://");
+        if (start < 0 || !url.startsWith("http")) {
+            return null;
+        }
+        start += 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        return url.substring(start, end).toLowerCase();
+    }
+
+    private Counter counter(String providerName, String reason) {
+        return counters.computeIfAbsent(providerName + ":" + reason, k -> Counter.builder("llm.browser.blocked.requests")
+                .description("被资源拦截中止的请求数")
+                .tag("provider", providerName)
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+}
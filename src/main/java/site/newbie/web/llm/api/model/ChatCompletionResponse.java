@@ -1,5 +1,6 @@
 package site.newbie.web.llm.api.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
@@ -21,6 +22,27 @@ public class ChatCompletionResponse {
     
     private List<Choice> choices;
 
+    // 仅非流式响应返回（流式 chunk 中不输出该字段）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Usage usage;
+
+    // 仅非流式响应返回：网页端对话 ID，继续对话时通过请求的 conversationId 传回（流式响应以代码块形式附在回复末尾）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String conversationId;
+
+    /**
+     * 只包含一段 content 增量的流式 chunk（提示消息、对话 ID 等一次性内容）
+     */
+    public static ChatCompletionResponse contentChunk(String id, String model, String content) {
+        Choice choice = Choice.builder()
+                .delta(Delta.builder().content(content).build())
+                .index(0).build();
+        return ChatCompletionResponse.builder()
+                .id(id).object("chat.completion.chunk")
+                .created(System.currentTimeMillis() / 1000)
+                .model(model).choices(List.of(choice)).build();
+    }
+
     @Data
     @Builder
     public static class Choice {
@@ -54,4 +76,20 @@ public class ChatCompletionResponse {
         @JsonProperty("reasoning_content")
         private String reasoningContent;
     }
-}
\ No newline at end of file
+
+    /**
+     * Token 用量（网页端拿不到真实计数，为按字符估算的值）
+     */
+    @Data
+    @Builder
+    public static class Usage {
+        @JsonProperty("prompt_tokens")
+        private int promptTokens;
+
+        @JsonProperty("completion_tokens")
+        private int completionTokens;
+
+        @JsonProperty("total_tokens")
+        private int totalTokens;
+    }
+}
@@ -0,0 +1,143 @@
+package site.newbie.web.llm.api.provider;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.manager.AccountManager;
+import site.newbie.web.llm.api.manager.BrowserManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 账号池负载均衡
+ * API 密钥关联了账号池时，从池中选出当前最空闲的可用账号：
+ * 优先已完成登录验证、BrowserContext 可用且最近没有连续失败的账号，
+ * 再按进行中的对话数、最近响应耗时排序
+ */
+@Slf4j
+@Component
+public class AccountLoadBalancer {
+
+    // 最近耗时的平滑系数（指数移动平均）
+    private static final double LATENCY_ALPHA = 0.3;
+
+    private final AccountManager accountManager;
+    private final BrowserManager browserManager;
+
+    // 连续失败多少次后暂时摘除账号
+    @Value("${app.account-pool.max-failures:3}")
+    private int maxFailures;
+
+    // 摘除后的冷却时间（毫秒）
+    @Value("${app.account-pool.cooldown-ms:60000}")
+    private long cooldownMs;
+
+    // provider:accountId -> 账号统计
+    private final ConcurrentHashMap<String, AccountStats> stats = new ConcurrentHashMap<>();
+
+    public AccountLoadBalancer(AccountManager accountManager, BrowserManager browserManager) {
+        this.accountManager = accountManager;
+        this.browserManager = browserManager;
+    }
+
+    /**
+     * 从账号池中选择一个账号
+     * 按 已登录 + 健康 -> 健康 -> 全部 的顺序逐级放宽，保证池非空时总能选出账号
+     * @param providerName 提供器名称
+     * @param pool 账号池
+     * @return 选中的账号ID，池为空时返回 null
+     */
+    public String select(String providerName, List<String> pool) {
+        if (pool == null || pool.isEmpty()) {
+            return null;
+        }
+        if (pool.size() == 1) {
+            return pool.getFirst();
+        }
+
+        Map<String, AccountManager.AccountInfo> accounts = new HashMap<>();
+        for (AccountManager.AccountInfo account : accountManager.getAccountsByProvider(providerName)) {
+            accounts.put(account.getAccountId(), account);
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> healthy = new ArrayList<>();
+        List<String> loggedIn = new ArrayList<>();
+        for (String accountId : pool) {
+            AccountStats accountStats = stats.get(key(providerName, accountId));
+            boolean coolingDown = accountStats != null && accountStats.unhealthyUntil > now;
+            if (coolingDown || !browserManager.isContextAlive(providerName, accountId)) {
+                continue;
+            }
+            healthy.add(accountId);
+            AccountManager.AccountInfo account = accounts.get(accountId);
+            if (account != null && account.isLoginVerified()) {
+                loggedIn.add(accountId);
+            }
+        }
+
+        List<String> candidates = !loggedIn.isEmpty() ? loggedIn : !healthy.isEmpty() ? healthy : pool;
+        if (candidates == pool) {
+            log.warn("提供器 {} 的账号池中没有健康账号，退回全部账号: {}", providerName, pool);
+        }
+
+        String selected = candidates.stream()
+                .min(Comparator.<String>comparingInt(accountId -> statsOf(providerName, accountId).inFlight.get())
+                        .thenComparingDouble(accountId -> statsOf(providerName, accountId).latencyMs))
+                .orElse(pool.getFirst());
+        log.info("账号池选择: provider={}, selected={}, inFlight={}, candidates={}",
+                providerName, selected, statsOf(providerName, selected).inFlight.get(), candidates.size());
+        return selected;
+    }
+
+    /**
+     * 对话开始时调用
+     */
+    public void onStart(String providerName, String accountId) {
+        statsOf(providerName, accountId).inFlight.incrementAndGet();
+    }
+
+    /**
+     * 对话结束时调用
+     * @param latencyMs 本次对话耗时
+     * @param success 是否正常完成
+     */
+    public void onFinish(String providerName, String accountId, long latencyMs, boolean success) {
+        AccountStats accountStats = statsOf(providerName, accountId);
+        accountStats.inFlight.updateAndGet(count -> Math.max(0, count - 1));
+        if (success) {
+            accountStats.failures.set(0);
+            accountStats.latencyMs = accountStats.latencyMs == 0
+                    ? latencyMs
+                    : accountStats.latencyMs * (1 - LATENCY_ALPHA) + latencyMs * LATENCY_ALPHA;
+        } else if (accountStats.failures.incrementAndGet() >= maxFailures) {
+            accountStats.failures.set(0);
+            accountStats.unhealthyUntil = System.currentTimeMillis() + cooldownMs;
+            log.warn("账号 {}:{} 连续失败 {} 次，暂时移出账号池 {} ms", providerName, accountId, maxFailures, cooldownMs);
+        }
+    }
+
+    private AccountStats statsOf(String providerName, String accountId) {
+        return stats.computeIfAbsent(key(providerName, accountId), k -> new AccountStats());
+    }
+
+    private static String key(String providerName, String accountId) {
+        return providerName + ":" + accountId;
+    }
+
+    /**
+     * 单个账号的负载统计
+     */
+    private static class AccountStats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile double latencyMs;
+        private volatile long unhealthyUntil;
+    }
+}
@@ -0,0 +1,100 @@
+package site.newbie.web.llm.api.provider;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 非流式请求使用的 emitter
+ * 提供器接口以 SseEmitter 作为输出，这里只作为句柄：流式增量由 SseChunkCoalescer 直接写入 {@link CompletionAccumulator}，
+ * 不会编码成 chunk；complete / completeWithError 结束聚合，流结束后通过 {@link #result()} 取得累加结果
+ *
+ * 该 emitter 不会交给 Spring MVC 处理，onCompletion / onError 等回调不会被调用，
+ * 调用方应在 {@link #result()} 完成后自行释放资源
+ */
+@Slf4j
+public class AggregatingSseEmitter extends SseEmitter {
+
+    private final ObjectMapper objectMapper;
+    private final CompletionAccumulator accumulator = new CompletionAccumulator();
+
+    private final CompletableFuture<CompletionAccumulator> result = new CompletableFuture<>();
+
+    public AggregatingSseEmitter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public CompletionAccumulator accumulator() {
+        return accumulator;
+    }
+
+    /**
+     * 只会收到不经过 SseChunkCoalescer 的一次性消息（未登录提示、错误提示等），每个请求至多几条
+     */
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        ensureActive();
+        for (DataWithMediaType item : builder.build()) {
+            // 只有 chunk 是 JSON，[DONE]、注释和 SSE 字段名都是 text/plain
+            MediaType mediaType = item.getMediaType();
+            if (mediaType != null && MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)
+                    && item.getData() instanceof String json) {
+                acceptMessage(json);
+            }
+        }
+    }
+
+    private void acceptMessage(String json) {
+        try {
+            JsonNode chunk = objectMapper.readTree(json);
+            String id = chunk.hasNonNull("id") ? chunk.get("id").asString() : null;
+            JsonNode delta = chunk.path("choices").path(0).path("delta");
+            if (delta.hasNonNull("content")) {
+                accumulator.appendContent(id, delta.get("content").asString());
+            }
+            if (delta.hasNonNull("reasoning_content")) {
+                accumulator.appendReasoning(id, delta.get("reasoning_content").asString());
+            }
+        } catch (Exception e) {
+            log.warn("解析聚合消息时出错: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 已超时或已结束时抛出 IOException，让提供器的监听循环尽快退出
+     */
+    public void ensureActive() throws IOException {
+        if (result.isDone()) {
+            throw new IOException("聚合已结束");
+        }
+    }
+
+    @Override
+    public void complete() {
+        if (result.complete(accumulator)) {
+            super.complete();
+        }
+    }
+
+    /**
+     * 提供器出错时调用；调用方也可以用它提前结束聚合（例如等待超时），之后提供器的发送会抛出 IOException
+     */
+    @Override
+    public void completeWithError(Throwable ex) {
+        if (result.completeExceptionally(ex)) {
+            super.completeWithError(ex);
+        }
+    }
+
+    /**
+     * 流结束时完成，出错时以异常完成
+     */
+    public CompletableFuture<CompletionAccumulator> result() {
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package site.newbie.web.llm.api.provider;
+
+import java.util.Objects;
+
+/**
+ * 流式 chunk 编码器
+ * 为同一个流（id + model）预先渲染 chat.completion.chunk 中不变的前缀和后缀，
+ * 每个 token 只需要转义增量文本并拼接，不再经过 builder 和 ObjectMapper
+ *
+ * 输出字段与 ChatCompletionResponse 序列化结果一致（包括值为 null 的字段）
+ */
+public final class ChatCompletionChunkEncoder {
+
+    // 每个流的监听循环运行在各自的线程上，缓存最近一次使用的编码器即可命中
+    private static final ThreadLocal<ChatCompletionChunkEncoder> LAST = new ThreadLocal<>();
+
+    private final String id;
+    private final String model;
+
+    // {"id":"...","object":"chat.completion.chunk","created":
+    private final String head;
+    // ,"model":"...","choices":[{"index":0,"message":null,"delta":{"role":null,
+    private final String middle;
+
+    private static final String TAIL = "},\"finish_reason\":null}]}";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private ChatCompletionChunkEncoder(String id, String model) {
+        this.id = id;
+        this.model = model;
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("{\"id\":");
+        appendQuoted(sb, id);
+        sb.append(",\"object\":\"chat.completion.chunk\",\"created\":");
+        this.head = sb.toString();
+
+        sb.setLength(0);
+        sb.append(",\"model\":");
+        appendQuoted(sb, model);
+        sb.append(",\"choices\":[{\"index\":0,\"message\":null,\"delta\":{\"role\":null,");
+        this.middle = sb.toString();
+    }
+
+    /**
+     * 获取指定流的编码器
+     */
+    public static ChatCompletionChunkEncoder of(String id, String model) {
+        ChatCompletionChunkEncoder encoder = LAST.get();
+        if (encoder == null || !Objects.equals(encoder.id, id) || !Objects.equals(encoder.model, model)) {
+            encoder = new ChatCompletionChunkEncoder(id, model);
+            LAST.set(encoder);
+        }
+        return encoder;
+    }
+
+    /**
+     * 回复内容增量
+     */
+    public String content(String content) {
+        return encode(content, null);
+    }
+
+    /**
+     * 思考内容增量（reasoning_content）
+     */
+    public String reasoning(String reasoningContent) {
+        return encode(null, reasoningContent);
+    }
+
+    private String encode(String content, String reasoningContent) {
+        int textLength = (content != null ? content.length() : 0) + (reasoningContent != null ? reasoningContent.length() : 0);
+        StringBuilder sb = new StringBuilder(head.length() + middle.length() + TAIL.length() + textLength + 64);
+        sb.append(head).append(System.currentTimeMillis() / 1000).append(middle);
+        sb.append("\"content\":");
+        appendQuoted(sb, content);
+        sb.append(",\"reasoning_content\":");
+        appendQuoted(sb, reasoningContent);
+        sb.append(TAIL);
+        return sb.toString();
+    }
+
+    /**
+     * 追加 JSON 字符串（与 Jackson 默认行为一致：只转义引号、反斜杠和控制字符，非 ASCII 字符原样输出）
+     */
+    static void appendQuoted(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            sb.append(value, start, i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        sb.append(value, start, length);
+        sb.append('"');
+    }
+}
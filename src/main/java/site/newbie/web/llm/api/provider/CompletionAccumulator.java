@@ -0,0 +1,71 @@
+package site.newbie.web.llm.api.provider;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 非流式请求的回复累加器
+ * 提供器的发送回调（SseChunkCoalescer、对话 ID、结束原因）直接把增量文本写入这里，
+ * 不经过 chunk 序列化和反序列化；流结束后由调用方一次性组装 chat.completion
+ */
+public class CompletionAccumulator {
+
+    private final StringBuilder content = new StringBuilder();
+    private final StringBuilder reasoningContent = new StringBuilder();
+    private String id;
+    private String finishReason;
+    private String conversationId;
+
+    /**
+     * 取得 emitter 对应的累加器，流式请求返回 null
+     */
+    public static CompletionAccumulator of(SseEmitter emitter) {
+        return emitter instanceof AggregatingSseEmitter sink ? sink.accumulator() : null;
+    }
+
+    public synchronized void appendContent(String id, String text) {
+        rememberId(id);
+        content.append(text);
+    }
+
+    public synchronized void appendReasoning(String id, String text) {
+        rememberId(id);
+        reasoningContent.append(text);
+    }
+
+    public synchronized void finish(String finishReason) {
+        this.finishReason = finishReason;
+    }
+
+    /**
+     * 流式响应中以 nwla-conversation-id 代码块发送的对话 ID，非流式响应单独返回，不拼到回复内容里
+     */
+    public synchronized void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    private void rememberId(String id) {
+        if (this.id == null) {
+            this.id = id;
+        }
+    }
+
+    public synchronized String getId() {
+        return id;
+    }
+
+    public synchronized String getContent() {
+        return content.toString();
+    }
+
+    public synchronized String getReasoningContent() {
+        return reasoningContent.toString();
+    }
+
+    public synchronized String getFinishReason() {
+        return finishReason;
+    }
+
+    public synchronized String getConversationId() {
+        return conversationId;
+    }
+}
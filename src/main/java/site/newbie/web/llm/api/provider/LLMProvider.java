@@ -26,6 +26,13 @@ public interface LLMProvider {
      */
     List<String> getSupportedModels();
     
+    /**
+     * 获取提供者类型，默认为通过浏览器自动化的 Playwright 类
+     */
+    default ProviderType getProviderType() {
+        return ProviderType.PLAYWRIGHT;
+    }
+    
     /**
      * 检查是否支持指定的模型
      */
@@ -100,6 +107,16 @@ public interface LLMProvider {
         return null;
     }
     
+    /**
+     * 释放 getOrCreatePage 取得的页面
+     * 请求结束时（包括出错和提前返回）调用，页面放回缓存变为空闲
+     * @param request 聊天请求
+     * @param page 页面对象
+     */
+    default void releasePage(ChatCompletionRequest request, Page page) {
+        // 默认实现：不支持页面管理
+    }
+    
     /**
      * 获取对话ID
      * 用于指令处理时获取对话ID
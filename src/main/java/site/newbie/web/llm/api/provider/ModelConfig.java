@@ -59,7 +59,28 @@ public interface ModelConfig<C> {
         void sendThinking(SseEmitter emitter, String id, String content, String model) throws IOException;
         void sendUrlAndComplete(Page page, SseEmitter emitter, ChatCompletionRequest request) throws IOException;
         String getSseData(Page page, String varName);
-        ParseResultWithIndex parseSseIncremental(String sseData, Map<Integer, String> fragmentTypeMap, Integer lastActiveFragmentIndex);
+
+        /**
+         * 等待并获取 SSE 数据，有数据时立即返回，最多等待 timeoutMs
+         * 默认实现为轮询：读取一次，没有数据时休眠 timeoutMs；支持推送模式的 Provider 会覆盖此方法
+         */
+        default String pollSseData(Page page, String varName, long timeoutMs) throws InterruptedException {
+            String data = getSseData(page, varName);
+            if (data == null || data.isEmpty()) {
+                Thread.sleep(timeoutMs);
+            }
+            return data;
+        }
+
+        /**
+         * 无状态的增量解析，调用该方法的 Provider 必须实现
+         * 使用有状态解析器（如 DeepSeekSseParser）的 Provider 不会调用，不需要实现；
+         * 没有实现时直接抛出异常，避免解析结果为空导致流没有内容也没有报错
+         */
+        default ParseResultWithIndex parseSseIncremental(String sseData, Map<Integer, String> fragmentTypeMap, Integer lastActiveFragmentIndex) {
+            throw new UnsupportedOperationException(getClass().getName() + " 没有实现 parseSseIncremental");
+        }
+
         String extractTextFromSse(String sseData);
     }
 }
@@ -0,0 +1,190 @@
+package site.newbie.web.llm.api.provider;
+
+import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Locator;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.options.WaitForSelectorState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * 页面操作辅助
+ * 用具体的页面条件（元素出现、按钮可用、class 变化、请求已发出等）代替固定时长的 waitForTimeout：
+ * 条件满足立即返回，超时时间只是兜底，超时后返回 false 由调用方决定是否继续
+ *
+ * 元素状态类的条件在浏览器端按短间隔轮询，不会在 Java 端反复发起 CDP 调用
+ */
+@Slf4j
+public final class PageActions {
+
+    // 点击开关后等待状态变化的默认时间
+    public static final long TOGGLE_TIMEOUT_MS = 1000;
+
+    // 等待元素出现 / 可用的默认时间
+    public static final long ELEMENT_TIMEOUT_MS = 3000;
+
+    private static final double POLLING_INTERVAL_MS = 50;
+
+    private PageActions() {
+    }
+
+    /**
+     * 等待元素可见
+     * @return false 如果超时
+     */
+    public static boolean waitForVisible(Locator locator, long timeoutMs) {
+        try {
+            locator.first().waitFor(new Locator.WaitForOptions()
+                    .setState(WaitForSelectorState.VISIBLE)
+                    .setTimeout(timeoutMs));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 等待元素隐藏或移除
+     * @return false 如果超时
+     */
+    public static boolean waitForHidden(Locator locator, long timeoutMs) {
+        try {
+            locator.first().waitFor(new Locator.WaitForOptions()
+                    .setState(WaitForSelectorState.HIDDEN)
+                    .setTimeout(timeoutMs));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 等待元素可用（没有 disabled / aria-disabled）
+     * @return false 如果元素不存在或超时
+     */
+    public static boolean waitForEnabled(Page page, Locator locator, long timeoutMs) {
+        return waitForElement(page, locator, timeoutMs,
+                "el => !el.disabled && el.getAttribute('aria-disabled') !== 'true'");
+    }
+
+    /**
+     * 等待输入框内容与预期一致（textarea 比较 value，contenteditable 比较 innerText）
+     * 比较前把连续空白（包括换行和 &nbsp;）归一为一个空格：contenteditable 的 innerText 会把段落换成 \n\n、
+     * 把连续空格换成 &nbsp;，多行消息逐字比较永远不相等
+     * @return false 如果超时
+     */
+    public static boolean waitForInputValue(Page page, Locator locator, String expected, long timeoutMs) {
+        return waitForElement(page, locator, timeoutMs, """
+                ([el, expected]) => {
+                    const normalize = s => s.replace(/[\\s\\u00a0]+/g, ' ').trim();
+                    return normalize('value' in el ? el.value : el.innerText) === normalize(expected);
+                }""",
+                expected);
+    }
+
+    /**
+     * 等待元素的 class 与点击前不同（开关类按钮点击后切换状态）
+     * @param originalClass 点击前的 class
+     * @return false 如果超时
+     */
+    public static boolean waitForClassChange(Page page, Locator locator, String originalClass, long timeoutMs) {
+        return waitForElement(page, locator, timeoutMs,
+                "([el, original]) => (el.getAttribute('class') || '') !== original",
+                originalClass != null ? originalClass : "");
+    }
+
+    /**
+     * 等待页面 URL 满足条件（包括 SPA 内部跳转）
+     * @return false 如果超时
+     */
+    public static boolean waitForUrl(Page page, Predicate<String> predicate, long timeoutMs) {
+        if (predicate.test(page.url())) {
+            return true;
+        }
+        try {
+            page.waitForURL(predicate, new Page.WaitForURLOptions().setTimeout(timeoutMs));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 执行操作并等待页面发出 URL 包含 urlPart 的请求（例如点击发送后等待对话请求发出）
+     * @return false 如果超时仍未发出请求（操作本身已执行）
+     */
+    public static boolean runAndWaitForRequest(Page page, String urlPart, long timeoutMs, Runnable action) {
+        return runAndWaitForRequest(page, request -> request.url().contains(urlPart), timeoutMs, action);
+    }
+
+    /**
+     * 执行操作并等待页面发出满足条件的请求（需要同时匹配请求方法和完整路径时使用）
+     * @return false 如果超时仍未发出请求（操作本身已执行）
+     */
+    public static boolean runAndWaitForRequest(Page page, Predicate<Request> matcher, long timeoutMs, Runnable action) {
+        try {
+            page.waitForRequest(matcher, new Page.WaitForRequestOptions().setTimeout(timeoutMs), action);
+            return true;
+        } catch (Exception e) {
+            log.debug("等待请求超时: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean waitForElement(Page page, Locator locator, long timeoutMs, String predicate, Object... args) {
+        ElementHandle element = null;
+        try {
+            element = locator.first().elementHandle(new Locator.ElementHandleOptions().setTimeout(timeoutMs));
+            Object arg = args.length == 0 ? element : Arrays.asList(element, args[0]);
+            page.waitForFunction(predicate, arg, new Page.WaitForFunctionOptions()
+                    .setPollingInterval(POLLING_INTERVAL_MS)
+                    .setTimeout(timeoutMs));
+            return true;
+        } catch (Exception e) {
+            log.debug("等待页面条件超时: {}", e.getMessage());
+            return false;
+        } finally {
+            if (element != null) {
+                try {
+                    element.dispose();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 分步耗时记录
+     * 每个请求一个实例，每完成一步调用一次 {@link #mark}，最后调用 {@link #log} 输出一行汇总，
+     * 便于定位新对话准备阶段的耗时集中在哪一步
+     */
+    public static class StepTimer {
+        private final String name;
+        private final long start = System.currentTimeMillis();
+        private long last = start;
+        private final StringBuilder steps = new StringBuilder();
+
+        public StepTimer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 记录上一步到现在的耗时
+         */
+        public void mark(String step) {
+            long now = System.currentTimeMillis();
+            if (!steps.isEmpty()) {
+                steps.append(", ");
+            }
+            steps.append(step).append('=').append(now - last).append("ms");
+            last = now;
+        }
+
+        public void log() {
+            PageActions.log.info("[{}] 页面操作耗时: {}，合计 {} ms", name, steps, System.currentTimeMillis() - start);
+        }
+    }
+}
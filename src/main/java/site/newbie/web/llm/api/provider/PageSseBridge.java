@@ -0,0 +1,393 @@
+package site.newbie.web.llm.api.provider;
+
+import com.google.gson.JsonObject;
+import com.microsoft.playwright.CDPSession;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.TimeoutError;
+import lombok.extern.slf4j.Slf4j;
+import site.newbie.web.llm.api.util.SseEventReader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 页面 SSE 数据推送通道
+ * 支持两种数据来源，都写入同一个 Java 端队列：
+ * 1. 网络层捕获：通过 CDP Network 域的 streamResourceContent 直接接收响应字节，不依赖页面 JS，
+ *    SPA 重新加载或页面脚本覆盖 fetch 后也不会丢失；字节经 {@link SseEventReader} 切分，
+ *    队列中只放完整的事件（统一为 \n 换行），下游按行解析时不会遇到被数据包截断的行或多字节字符
+ * 2. 脚本推送：通过 {@link Page#exposeBinding} 在页面中暴露一个函数，拦截脚本每收到一个 chunk 就直接推送过来
+ * 两种方式都代替了定时 page.evaluate 轮询 window 数组：有数据时立即唤醒，空闲时不再产生 CDP 往返
+ *
+ * 注意：Playwright Java 只在调用其 API 时分发事件，所以等待数据使用 {@link Page#waitForCondition}
+ * 而不是直接阻塞在队列上；事件回调中也不能再调用 Playwright API（会重入事件分发），
+ * 需要发送 CDP 命令时只记录下来，由读取数据的线程在 {@link #poll} / {@link #drain} 中发送
+ */
+@Slf4j
+public class PageSseBridge {
+
+    private final String bindingName;
+
+    // 每个页面一个队列，页面关闭时移除
+    private final Map<Page, Queue<String>> queues = new ConcurrentHashMap<>();
+
+    // 已启用网络层捕获的页面
+    private final Map<Page, NetworkCapture> networkCaptures = new ConcurrentHashMap<>();
+
+    /**
+     * @param bindingName 暴露到页面 window 上的函数名
+     */
+    public PageSseBridge(String bindingName) {
+        this.bindingName = bindingName;
+    }
+
+    public String getBindingName() {
+        return bindingName;
+    }
+
+    /**
+     * 为页面注册推送函数（同一页面只注册一次，导航后依然有效）
+     * @return true 如果推送通道可用，false 时调用方应退回轮询模式
+     */
+    public boolean install(Page page) {
+        if (page == null || page.isClosed()) {
+            return false;
+        }
+        if (queues.containsKey(page)) {
+            return true;
+        }
+        Queue<String> queue = new ConcurrentLinkedQueue<>();
+        try {
+            page.exposeBinding(bindingName, (source, args) -> {
+                if (args != null && args.length > 0 && args[0] != null) {
+                    queue.offer(args[0].toString());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("注册 SSE 推送函数 {} 失败，退回轮询模式: {}", bindingName, e.getMessage());
+            return false;
+        }
+        registerQueue(page, queue);
+        log.info("已注册 SSE 推送函数: {}", bindingName);
+        return true;
+    }
+
+    /**
+     * 为页面启用网络层 SSE 捕获
+     * 匹配 urlPatterns 且 Content-Type 为 text/event-stream 的响应，在读取线程下一次调用 poll / drain 时开启流式读取，
+     * 之后每个数据包都以 Network.dataReceived 事件送达；其他请求只会产生 Network 域的元数据事件，不会读取响应体
+     * @param urlPatterns URL 包含任一片段即匹配
+     * @return true 如果已启用，false 时调用方应退回脚本拦截（例如非 Chromium 浏览器）
+     */
+    public boolean installNetworkCapture(Page page, String[] urlPatterns) {
+        if (page == null || page.isClosed()) {
+            return false;
+        }
+        if (networkCaptures.containsKey(page)) {
+            return true;
+        }
+        Queue<String> queue = queues.getOrDefault(page, new ConcurrentLinkedQueue<>());
+        try {
+            CDPSession session = page.context().newCDPSession(page);
+            NetworkCapture capture = new NetworkCapture(session, queue);
+            session.on("Network.responseReceived", event -> {
+                JsonObject response = event.getAsJsonObject("response");
+                String url = response.has("url") ? response.get("url").getAsString() : "";
+                if (!matchesAny(url, urlPatterns)) {
+                    return;
+                }
+                String mimeType = response.has("mimeType") ? response.get("mimeType").getAsString() : "";
+                if (mimeType.contains("event-stream")) {
+                    capture.onResponse(event.get("requestId").getAsString(), url);
+                }
+            });
+            session.on("Network.dataReceived", event -> {
+                if (event.has("data")) {
+                    capture.onData(event.get("requestId").getAsString(), event.get("data").getAsString());
+                }
+            });
+            session.on("Network.loadingFinished", event -> capture.onFinished(event.get("requestId").getAsString()));
+            session.on("Network.loadingFailed", event -> capture.onFinished(event.get("requestId").getAsString()));
+            session.send("Network.enable");
+            networkCaptures.put(page, capture);
+        } catch (Exception e) {
+            log.warn("启用网络层 SSE 捕获失败，退回脚本拦截: {}", e.getMessage());
+            return false;
+        }
+        registerQueue(page, queue);
+        log.info("已启用网络层 SSE 捕获: {}", String.join(", ", urlPatterns));
+        return true;
+    }
+
+    /**
+     * 页面是否已启用网络层捕获（启用后不再需要注入拦截脚本）
+     */
+    public boolean isNetworkCaptureActive(Page page) {
+        return page != null && networkCaptures.containsKey(page);
+    }
+
+    private void registerQueue(Page page, Queue<String> queue) {
+        if (queues.putIfAbsent(page, queue) == null) {
+            page.onClose(closedPage -> {
+                queues.remove(closedPage);
+                networkCaptures.remove(closedPage);
+            });
+        }
+    }
+
+    private static void offer(Queue<String> queue, String chunk) {
+        if (chunk != null && !chunk.isEmpty()) {
+            queue.offer(chunk);
+        }
+    }
+
+    private static boolean matchesAny(String url, String[] patterns) {
+        for (String pattern : patterns) {
+            if (url.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 页面是否已注册推送函数
+     */
+    public boolean isInstalled(Page page) {
+        return page != null && queues.containsKey(page);
+    }
+
+    /**
+     * 清空页面队列中的旧数据（复用页面开始新一轮对话前调用）
+     */
+    public void clear(Page page) {
+        Queue<String> queue = queues.get(page);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * 立即取出队列中已有的全部数据，不等待
+     * @return 按到达顺序拼接的数据，没有数据时返回 null
+     */
+    public String drain(Page page) {
+        startPendingStreams(page);
+        Queue<String> queue = queues.get(page);
+        if (queue == null || queue.isEmpty()) {
+            return null;
+        }
+        // chunk 是原始响应流的连续片段，直接拼接，插入分隔符会把跨 chunk 的行拆断
+        StringBuilder sb = new StringBuilder();
+        String chunk;
+        while ((chunk = queue.poll()) != null) {
+            sb.append(chunk);
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    /**
+     * 等待数据到达（最多 timeoutMs），有数据时立即返回
+     * @return 按到达顺序拼接的数据，超时或页面关闭时返回 null
+     */
+    public String poll(Page page, long timeoutMs) {
+        Queue<String> queue = queues.get(page);
+        if (queue == null) {
+            return null;
+        }
+        NetworkCapture capture = networkCaptures.get(page);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            startPendingStreams(page);
+            long remaining = deadline - System.currentTimeMillis();
+            if (!queue.isEmpty() || page.isClosed() || remaining <= 0) {
+                break;
+            }
+            try {
+                // 收到新的 SSE 响应头时也要返回，由当前线程开启流式读取
+                page.waitForCondition(() -> !queue.isEmpty() || (capture != null && capture.hasPendingStarts()),
+                        new Page.WaitForConditionOptions().setTimeout(remaining));
+            } catch (TimeoutError e) {
+                break;
+            }
+        }
+        return drain(page);
+    }
+
+    /**
+     * 为已收到响应头的 SSE 请求开启流式读取（在读取线程中调用，不在事件回调中发送 CDP 命令）
+     */
+    private void startPendingStreams(Page page) {
+        NetworkCapture capture = networkCaptures.get(page);
+        if (capture != null) {
+            capture.startPendingStreams();
+        }
+    }
+
+    /**
+     * 单个页面的网络层捕获状态
+     * 事件回调只修改这里的状态，CDP 命令由 {@link #startPendingStreams()} 在读取线程中发送
+     */
+    private static class NetworkCapture {
+        private final CDPSession session;
+        private final Queue<String> queue;
+        // requestId -> 流状态
+        private final Map<String, CapturedStream> streams = new ConcurrentHashMap<>();
+        // 已收到响应头、等待开启流式读取的 requestId
+        private final Queue<String> pendingStarts = new ConcurrentLinkedQueue<>();
+
+        NetworkCapture(CDPSession session, Queue<String> queue) {
+            this.session = session;
+            this.queue = queue;
+        }
+
+        boolean hasPendingStarts() {
+            return !pendingStarts.isEmpty();
+        }
+
+        void onResponse(String requestId, String url) {
+            streams.put(requestId, new CapturedStream(url, queue));
+            pendingStarts.offer(requestId);
+        }
+
+        void onData(String requestId, String base64) {
+            CapturedStream stream = streams.get(requestId);
+            if (stream != null) {
+                stream.feed(Base64.getDecoder().decode(base64));
+            }
+        }
+
+        void onFinished(String requestId) {
+            CapturedStream stream = streams.get(requestId);
+            if (stream == null) {
+                return;
+            }
+            stream.finished = true;
+            // 还没开启流式读取的响应保留到 startPendingStreams 中一次性读取
+            if (stream.streaming) {
+                streams.remove(requestId);
+                stream.end();
+            }
+        }
+
+        void startPendingStreams() {
+            String requestId;
+            while ((requestId = pendingStarts.poll()) != null) {
+                CapturedStream stream = streams.get(requestId);
+                if (stream == null) {
+                    continue;
+                }
+                JsonObject args = new JsonObject();
+                args.addProperty("requestId", requestId);
+                if (!stream.finished) {
+                    try {
+                        // 开启后到达的数据包带有 data，开启前到达的数据在 bufferedData 中
+                        JsonObject result = session.send("Network.streamResourceContent", args);
+                        if (result != null && result.has("bufferedData")) {
+                            stream.feed(Base64.getDecoder().decode(result.get("bufferedData").getAsString()));
+                        }
+                        stream.streaming = true;
+                        if (stream.finished) {
+                            // 开启期间响应已经结束（loadingFinished 先于命令结果分发）
+                            streams.remove(requestId);
+                            stream.end();
+                        }
+                        log.debug("已开启网络层 SSE 流式读取: {}", stream.url);
+                        continue;
+                    } catch (Exception e) {
+                        log.debug("开启网络层 SSE 流式读取失败，改为读取完整响应: {}", e.getMessage());
+                    }
+                }
+                // 开启流式读取前响应已经结束：一次性读取完整响应体
+                streams.remove(requestId);
+                try {
+                    JsonObject body = session.send("Network.getResponseBody", args);
+                    if (body != null && body.has("body")) {
+                        String content = body.get("body").getAsString();
+                        boolean base64Encoded = body.has("base64Encoded") && body.get("base64Encoded").getAsBoolean();
+                        stream.feed(base64Encoded
+                                ? Base64.getDecoder().decode(content)
+                                : content.getBytes(StandardCharsets.UTF_8));
+                    }
+                } catch (Exception e) {
+                    log.warn("读取 SSE 响应失败: {}, url: {}", e.getMessage(), stream.url);
+                }
+                stream.end();
+            }
+        }
+    }
+
+    /**
+     * 单个 SSE 响应的捕获状态
+     * 数据包按到达顺序喂入 SseEventReader，每切出一个完整事件就以规范格式放入队列
+     */
+    private static class CapturedStream {
+        private final String url;
+        private final SseEventReader reader = new SseEventReader();
+        private final SseEventReader.EventHandler toQueue;
+        // 已开启流式读取，之后的数据包都会带 data
+        private volatile boolean streaming;
+        private volatile boolean finished;
+        private boolean ended;
+
+        CapturedStream(String url, Queue<String> queue) {
+            this.url = url;
+            this.toQueue = (event, data, offset, length) -> {
+                offer(queue, formatEvent(event, data, offset, length));
+                return true;
+            };
+        }
+
+        synchronized void feed(byte[] bytes) {
+            if (ended) {
+                return;
+            }
+            try {
+                reader.feed(bytes, 0, bytes.length, toQueue);
+            } catch (Exception e) {
+                log.warn("切分 SSE 数据失败: {}, url: {}", e.getMessage(), url);
+            }
+        }
+
+        /**
+         * 响应结束：输出没有以空行结尾的最后一个事件
+         */
+        synchronized void end() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            try {
+                reader.end(toQueue);
+            } catch (Exception e) {
+                log.warn("切分 SSE 数据失败: {}, url: {}", e.getMessage(), url);
+            }
+        }
+
+        /**
+         * 以 \n 换行重新组装事件；data 中的换行拆成多个 data 行，与原始多行 data 等价
+         */
+        private static String formatEvent(String event, byte[] data, int offset, int length) {
+            StringBuilder sb = new StringBuilder(length + 32);
+            if (event != null) {
+                sb.append("event: ").append(event).append('\n');
+            }
+            if (data != null) {
+                String payload = new String(data, offset, length, StandardCharsets.UTF_8);
+                int lineStart = 0;
+                int newline;
+                while ((newline = payload.indexOf('\n', lineStart)) >= 0) {
+                    sb.append("data: ").append(payload, lineStart, newline).append('\n');
+                    lineStart = newline + 1;
+                }
+                sb.append("data: ").append(payload, lineStart, payload.length()).append('\n');
+            }
+            return sb.append('\n').toString();
+        }
+    }
+}
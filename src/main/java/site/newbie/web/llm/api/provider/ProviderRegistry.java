@@ -2,22 +2,31 @@ package site.newbie.web.llm.api.provider;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.config.ApiKeyContext;
 import site.newbie.web.llm.api.config.ApiKeyScopedValue;
 import site.newbie.web.llm.api.model.ModelResponse;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 提供者注册表（对外 API 专用）
  * 负责模型路由、提供器锁管理等对外 API 核心功能
+ * 并发许可按 provider + account 分配，每个账号拥有独立的 BrowserContext，吞吐随登录账号数扩展
+ * 使用共享浏览器的提供器例外：所有共享账号的 context 都在同一个 Playwright 实例上，而 Playwright 不是线程安全的，
+ * 这些账号的对话和维护操作额外受一个全局许可约束，同一时间只有一个在进行
  * 
  * Admin 相关功能（登录状态管理、提供器信息查询）请使用 {@link ProviderAdminService}
  */
@@ -29,8 +38,62 @@ public class ProviderRegistry {
     private final Map<String, LLMProvider> modelToProvider = new HashMap<>();
     private final Map<String, LLMProvider> providerNameMap = new HashMap<>();
     
-    // 每个提供器的并发锁：同一提供器同一时间只允许一个对话
+    // 每个账号的并发上限（同一账号使用同一个 BrowserContext）
+    @Value("${app.concurrency.per-account:1}")
+    private int perAccountLimit;
+
+    // 每个提供器的整体并发上限，0 表示不限制（仅受账号数量约束）
+    @Value("${app.concurrency.per-provider:0}")
+    private int perProviderLimit;
+    
+    // 提供器级别的并发锁（仅在配置了 per-provider 上限时创建）
     private final ConcurrentHashMap<String, Semaphore> providerLocks = new ConcurrentHashMap<>();
+
+    // 账号级别的并发锁，key 为 provider:accountId
+    private final ConcurrentHashMap<String, Semaphore> accountLocks = new ConcurrentHashMap<>();
+
+    // 使用共享浏览器的提供器（与 BrowserManager 使用同一个配置）
+    @Value("${app.browser.shared.providers:}")
+    private Set<String> sharedProviders;
+
+    // 共享浏览器的全局许可：共享提供器所有账号的并发之和为 1
+    private final Semaphore sharedBrowserLock = new Semaphore(1);
+
+    // emitter -> 已获取的许可，保证每个请求只释放一次
+    private final ConcurrentHashMap<SseEmitter, ChatPermit> heldPermits = new ConcurrentHashMap<>();
+
+    // 每个账号的排队上限，超过后直接拒绝
+    @Value("${app.concurrency.queue.max-depth:8}")
+    private int queueMaxDepth;
+
+    // 排队的最长等待时间（毫秒）
+    @Value("${app.concurrency.queue.max-wait-ms:120000}")
+    private long queueMaxWaitMs;
+
+    // 账号级别的 FIFO 等待队列，key 为 provider:accountId
+    private final ConcurrentHashMap<String, ProviderWaitQueue> waitQueues = new ConcurrentHashMap<>();
+
+    /**
+     * 排队获取许可的结果
+     */
+    public enum AdmissionResult {
+        ACQUIRED,   // 已获取许可
+        QUEUED,     // 已进入等待队列，需要调用 awaitQueuedLock 等待许可
+        QUEUE_FULL, // 队列已满
+        TIMEOUT,    // 等待超时
+        CANCELLED   // 客户端已断开，放弃等待
+    }
+
+    /**
+     * 排队位置变化监听器
+     */
+    @FunctionalInterface
+    public interface QueuePositionListener {
+        /**
+         * @param position 当前排队位置（从 1 开始）
+         */
+        void onPosition(int position) throws IOException;
+    }
     
     public ProviderRegistry(List<LLMProvider> providers) {
         this.providers = providers != null ? providers : new ArrayList<>();
@@ -43,8 +106,10 @@ public class ProviderRegistry {
             String providerName = provider.getProviderName();
             providerNameMap.put(providerName, provider);
             
-            // 为每个提供器创建锁
-            providerLocks.put(providerName, new Semaphore(1));
+            // 配置了提供器整体上限时才创建提供器锁，账号锁在首次使用时按需创建
+            if (perProviderLimit > 0) {
+                providerLocks.put(providerName, new Semaphore(perProviderLimit));
+            }
             
             // 注册该提供者支持的所有模型
             for (String model : provider.getSupportedModels()) {
@@ -52,7 +117,11 @@ public class ProviderRegistry {
                 log.info("注册模型: {} -> 提供者: {}", model, providerName);
             }
         }
-        log.info("提供者注册完成，共 {} 个提供者，{} 个模型", providers.size(), modelToProvider.size());
+        log.info("提供者注册完成，共 {} 个提供者，{} 个模型，账号并发上限: {}，提供器并发上限: {}",
+                providers.size(), modelToProvider.size(), perAccountLimit, perProviderLimit > 0 ? perProviderLimit : "不限制");
+        if (!sharedProviders.isEmpty()) {
+            log.info("共享浏览器的提供器 {} 所有账号合计并发上限: 1", sharedProviders);
+        }
     }
     
     /**
@@ -63,41 +132,226 @@ public class ProviderRegistry {
     }
     
     /**
-     * 尝试获取提供器的锁
+     * 尝试获取提供器账号的并发许可
+     * 许可按 provider + account 维度分配，同时受提供器整体上限约束；
+     * 获取成功后许可与 emitter 绑定，由 {@link #releaseLock(SseEmitter)} 统一释放
      * @param providerName 提供器名称
-     * @return true 如果成功获取锁，false 如果锁已被占用
+     * @param accountId 账号ID（可为空，为空时按提供器默认账号处理）
+     * @param emitter 当前请求的 SSE emitter，用作许可的持有者
+     * @return true 如果成功获取许可，false 如果该账号或提供器已达并发上限
      */
-    public boolean tryAcquireLock(String providerName) {
-        Semaphore lock = providerLocks.get(providerName);
-        if (lock == null) {
+    public boolean tryAcquireLock(String providerName, String accountId, SseEmitter emitter) {
+        if (!providerNameMap.containsKey(providerName)) {
             log.warn("未找到提供器 {} 的锁", providerName);
             return true; // 如果没有锁，默认允许
         }
-        boolean acquired = lock.tryAcquire();
-        if (acquired) {
-            log.info("提供器 {} 已获取锁", providerName);
-        } else {
-            log.warn("提供器 {} 正忙，锁已被占用", providerName);
+        // 有请求在排队时不允许插队
+        ProviderWaitQueue queue = waitQueues.get(accountKey(providerName, accountId));
+        if (queue != null && queue.hasWaiters()) {
+            log.warn("账号 {} 有 {} 个请求正在排队，新请求需要排队", accountKey(providerName, accountId), queue.size());
+            return false;
         }
-        return acquired;
+        return doTryAcquire(providerName, accountId, emitter);
     }
-    
+
     /**
-     * 释放提供器的锁
+     * 获取提供器账号的并发许可，拿不到时加入等待队列
+     * 获取许可和入队在同一次调用中完成，调用方在返回 QUEUE_FULL 时仍可以直接拒绝请求（HTTP 429），
+     * 不会出现先判断队列未满、入队时才发现已满的情况
      * @param providerName 提供器名称
+     * @param accountId 账号ID
+     * @param emitter 当前请求的 SSE emitter，同时作为许可持有者和排队凭证
+     * @return ACQUIRED 已获取许可；QUEUED 已入队，需要调用 {@link #awaitQueuedLock} 等待；QUEUE_FULL 队列已满
      */
-    public void releaseLock(String providerName) {
-        Semaphore lock = providerLocks.get(providerName);
-        if (lock != null) {
-            lock.release();
-            log.info("提供器 {} 已释放锁", providerName);
+    public AdmissionResult tryAcquireOrEnqueue(String providerName, String accountId, SseEmitter emitter) {
+        if (tryAcquireLock(providerName, accountId, emitter)) {
+            return AdmissionResult.ACQUIRED;
+        }
+        String accountKey = accountKey(providerName, accountId);
+        ProviderWaitQueue queue = waitQueues.computeIfAbsent(accountKey, k -> new ProviderWaitQueue());
+        if (!queue.enqueue(emitter, queueMaxDepth)) {
+            log.warn("账号 {} 排队已满（{}），拒绝请求", accountKey, queueMaxDepth);
+            return AdmissionResult.QUEUE_FULL;
         }
+        return AdmissionResult.QUEUED;
     }
-    
+
+    /**
+     * 等待已入队的请求获取许可（阻塞直到获取成功、超时或被取消）
+     * 同一账号的请求按到达顺序获取许可，只有队首请求才会尝试获取
+     * @param providerName 提供器名称
+     * @param accountId 账号ID
+     * @param emitter {@link #tryAcquireOrEnqueue} 返回 QUEUED 时传入的 emitter
+     * @param listener 排队位置变化时的回调（可为 null）
+     * @return ACQUIRED、TIMEOUT 或 CANCELLED
+     */
+    public AdmissionResult awaitQueuedLock(String providerName, String accountId, SseEmitter emitter,
+                                           QueuePositionListener listener) throws IOException, InterruptedException {
+        String accountKey = accountKey(providerName, accountId);
+        ProviderWaitQueue queue = waitQueues.get(accountKey);
+        if (queue == null) {
+            return AdmissionResult.CANCELLED;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueMaxWaitMs);
+        int lastPosition = -1;
+        try {
+            while (true) {
+                long version = queue.version();
+                int position = queue.positionOf(emitter);
+                if (position < 0) {
+                    log.info("账号 {} 的排队请求已取消", accountKey);
+                    return AdmissionResult.CANCELLED;
+                }
+                if (position == 0 && doTryAcquire(providerName, accountId, emitter)) {
+                    return AdmissionResult.ACQUIRED;
+                }
+                if (position != lastPosition) {
+                    lastPosition = position;
+                    log.info("账号 {} 排队中，当前位置: {}", accountKey, position + 1);
+                    if (listener != null) {
+                        listener.onPosition(position + 1);
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.warn("账号 {} 排队超时（{} ms）", accountKey, queueMaxWaitMs);
+                    return AdmissionResult.TIMEOUT;
+                }
+                queue.awaitChange(version, remaining);
+            }
+        } finally {
+            queue.remove(emitter);
+        }
+    }
+
+    private boolean doTryAcquire(String providerName, String accountId, SseEmitter emitter) {
+        Semaphore providerLock = providerLocks.get(providerName);
+        if (providerLock != null && !providerLock.tryAcquire()) {
+            log.warn("提供器 {} 正忙，已达提供器并发上限 {}", providerName, perProviderLimit);
+            return false;
+        }
+        String accountKey = accountKey(providerName, accountId);
+        Semaphore accountLock = accountLocks.computeIfAbsent(accountKey, k -> new Semaphore(perAccountLimit));
+        if (!accountLock.tryAcquire()) {
+            if (providerLock != null) {
+                providerLock.release();
+            }
+            log.warn("账号 {} 正忙，已达账号并发上限 {}", accountKey, perAccountLimit);
+            return false;
+        }
+        if (isShared(providerName) && !sharedBrowserLock.tryAcquire()) {
+            accountLock.release();
+            if (providerLock != null) {
+                providerLock.release();
+            }
+            log.warn("共享浏览器正忙，账号 {} 需要等待其他共享账号的对话结束", accountKey);
+            return false;
+        }
+        heldPermits.put(emitter, new ChatPermit(providerName, accountKey));
+        log.info("账号 {} 已获取锁", accountKey);
+        return true;
+    }
+
+    /**
+     * 释放 emitter 持有的并发许可
+     * 同一个 emitter 可能在完成、超时、出错以及登录提示发送后多次触发释放，这里只会真正释放一次
+     * @param emitter 获取许可时传入的 SSE emitter
+     */
+    public void releaseLock(SseEmitter emitter) {
+        if (emitter == null) {
+            return;
+        }
+        ChatPermit permit = heldPermits.remove(emitter);
+        if (permit == null) {
+            // 还在排队的请求（客户端断开等），从队列中移除
+            waitQueues.values().forEach(queue -> queue.remove(emitter));
+            return;
+        }
+        if (isShared(permit.providerName())) {
+            sharedBrowserLock.release();
+        }
+        Semaphore accountLock = accountLocks.get(permit.accountKey());
+        if (accountLock != null) {
+            accountLock.release();
+        }
+        Semaphore providerLock = providerLocks.get(permit.providerName());
+        if (providerLock != null) {
+            providerLock.release();
+        }
+        log.info("账号 {} 已释放锁", permit.accountKey());
+        signalWaiters(permit);
+    }
+
+    /**
+     * 账号空闲（没有进行中和排队的对话）时独占执行操作，执行期间新的请求会排队或返回忙碌
+     * 用于回收 BrowserContext 等不能与对话同时进行的维护操作；共享浏览器的账号还需要其他共享账号都空闲
+     * @param providerName 提供器名称
+     * @param accountId 账号ID
+     * @param action 要执行的操作
+     * @return false 如果账号不空闲，操作未执行
+     */
+    public boolean runIfAccountIdle(String providerName, String accountId, Runnable action) {
+        String accountKey = accountKey(providerName, accountId);
+        ProviderWaitQueue queue = waitQueues.get(accountKey);
+        if (queue != null && queue.size() > 0) {
+            return false;
+        }
+        Semaphore accountLock = accountLocks.computeIfAbsent(accountKey, k -> new Semaphore(perAccountLimit));
+        if (!accountLock.tryAcquire(perAccountLimit)) {
+            return false;
+        }
+        boolean shared = isShared(providerName);
+        if (shared && !sharedBrowserLock.tryAcquire()) {
+            accountLock.release(perAccountLimit);
+            return false;
+        }
+        try {
+            action.run();
+            return true;
+        } finally {
+            if (shared) {
+                sharedBrowserLock.release();
+            }
+            accountLock.release(perAccountLimit);
+            signalWaiters(new ChatPermit(providerName, accountKey));
+        }
+    }
+
+    private boolean isShared(String providerName) {
+        return sharedProviders.contains(providerName);
+    }
+
+    /**
+     * 许可释放后唤醒等待者：配置了提供器上限时，该提供器下所有账号的队首都可能可以继续；
+     * 共享浏览器的许可释放后，所有共享提供器账号的队首都可能可以继续
+     */
+    private void signalWaiters(ChatPermit permit) {
+        if (isShared(permit.providerName())) {
+            waitQueues.forEach((key, queue) -> {
+                if (isShared(key.split(":", 2)[0])) {
+                    queue.signalAll();
+                }
+            });
+        } else if (providerLocks.containsKey(permit.providerName())) {
+            String prefix = permit.providerName() + ":";
+            waitQueues.forEach((key, queue) -> {
+                if (key.equals(permit.providerName()) || key.startsWith(prefix)) {
+                    queue.signalAll();
+                }
+            });
+        } else {
+            ProviderWaitQueue queue = waitQueues.get(permit.accountKey());
+            if (queue != null) {
+                queue.signalAll();
+            }
+        }
+    }
+
     /**
      * 检查提供器是否正忙
      * @param providerName 提供器名称
-     * @return true 如果提供器正忙（锁被占用）
+     * @return true 如果提供器已达整体并发上限
      */
     public boolean isProviderBusy(String providerName) {
         Semaphore lock = providerLocks.get(providerName);
@@ -106,6 +360,32 @@ public class ProviderRegistry {
         }
         return lock.availablePermits() == 0;
     }
+
+    /**
+     * 检查提供器下的某个账号是否正忙
+     * @param providerName 提供器名称
+     * @param accountId 账号ID
+     * @return true 如果该账号已达并发上限，或共享浏览器正被其他共享账号使用
+     */
+    public boolean isAccountBusy(String providerName, String accountId) {
+        if (isShared(providerName) && sharedBrowserLock.availablePermits() == 0) {
+            return true;
+        }
+        Semaphore lock = accountLocks.get(accountKey(providerName, accountId));
+        if (lock == null) {
+            return false;
+        }
+        return lock.availablePermits() == 0;
+    }
+
+    private static String accountKey(String providerName, String accountId) {
+        return accountId != null && !accountId.isEmpty() ? providerName + ":" + accountId : providerName;
+    }
+
+    /**
+     * 已发放的并发许可
+     */
+    private record ChatPermit(String providerName, String accountKey) {}
     
     /**
      * 根据提供者名称获取提供者
@@ -114,6 +394,13 @@ public class ProviderRegistry {
         return providerNameMap.get(providerName);
     }
     
+    /**
+     * 获取所有已注册的提供者名称
+     */
+    public Set<String> getProviderNames() {
+        return Collections.unmodifiableSet(providerNameMap.keySet());
+    }
+    
     /**
      * 获取所有提供者信息
      * 如果存在 API key 上下文，则根据 API key 过滤，只返回 API key 支持的 providers
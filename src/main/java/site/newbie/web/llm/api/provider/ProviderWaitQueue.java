@@ -0,0 +1,134 @@
+package site.newbie.web.llm.api.provider;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个账号的 FIFO 等待队列
+ * 只记录排队顺序并在许可释放时唤醒等待者，许可本身仍由 {@link ProviderRegistry} 管理
+ */
+public class ProviderWaitQueue {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Object> waiters = new ArrayDeque<>();
+
+    // 每次队列变化或许可释放都会递增，避免等待者错过唤醒信号
+    private long version;
+
+    /**
+     * 加入队尾
+     * @return false 如果队列已满
+     */
+    public boolean enqueue(Object ticket, int maxDepth) {
+        lock.lock();
+        try {
+            if (waiters.size() >= maxDepth) {
+                return false;
+            }
+            waiters.addLast(ticket);
+            version++;
+            changed.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移出队列（获取成功、超时或客户端断开时调用）
+     * @return true 如果 ticket 原本在队列中
+     */
+    public boolean remove(Object ticket) {
+        lock.lock();
+        try {
+            boolean removed = waiters.remove(ticket);
+            if (removed) {
+                version++;
+                changed.signalAll();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取 ticket 在队列中的位置（0 表示队首）
+     * @return -1 如果 ticket 已不在队列中
+     */
+    public int positionOf(Object ticket) {
+        lock.lock();
+        try {
+            int index = 0;
+            for (Object waiter : waiters) {
+                if (waiter == ticket) {
+                    return index;
+                }
+                index++;
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasWaiters() {
+        lock.lock();
+        try {
+            return !waiters.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long version() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 通知等待者重新检查（许可释放时调用）
+     */
+    public void signalAll() {
+        lock.lock();
+        try {
+            version++;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待队列状态变化
+     * @param observedVersion 调用方上次观察到的版本号，版本号已变化时立即返回
+     * @param timeoutNanos 最长等待时间
+     */
+    public void awaitChange(long observedVersion, long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (version == observedVersion && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
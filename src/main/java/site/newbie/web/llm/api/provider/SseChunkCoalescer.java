@@ -0,0 +1,232 @@
+package site.newbie.web.llm.api.provider;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import site.newbie.web.llm.api.util.TokenEstimateUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流式 chunk 合并发送
+ * 位于 ResponseHandler.sendChunk / sendThinking 与 SseEmitter 之间：
+ * 距离上次发送超过合并窗口时立即发送（首个 token 不会被延迟），
+ * 否则先缓存，窗口结束或缓存超过上限时合并成一个 chunk 发送，减少每个 token 一次的 flush
+ *
+ * 同一个 emitter 的其他数据（对话 ID、[DONE] 等）发送前必须先调用 {@link #flush}，保证顺序
+ * 非流式请求（AggregatingSseEmitter）的增量直接写入 CompletionAccumulator
+ *
+ * 同时按 emitter 累计已发送内容的估算 token 数，流结束时由调用方通过 {@link #takeCompletionTokens} 取走
+ */
+@Slf4j
+@Component
+public class SseChunkCoalescer {
+
+    private static final MediaType APPLICATION_JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
+
+    // 超过该时间没有活动的状态视为泄漏（例如出错时未调用 discard），定期清理
+    private static final long IDLE_EVICT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    // 合并窗口（毫秒），0 表示不合并
+    @Value("${app.stream.coalesce.window-ms:20}")
+    private long windowMs;
+
+    // 缓存的字符数超过该值时立即发送
+    @Value("${app.stream.coalesce.max-chars:1024}")
+    private int maxChars;
+
+    private final Map<SseEmitter, StreamBuffer> buffers = new ConcurrentHashMap<>();
+
+    // emitter -> 已发送的思考和回复内容的估算 token 数
+    private final Map<SseEmitter, StreamUsage> usages = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sse-coalescer").daemon(true).factory());
+
+    public SseChunkCoalescer() {
+        scheduler.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 发送回复内容增量
+     */
+    public void sendContent(SseEmitter emitter, String id, String content, String model) throws IOException {
+        send(emitter, id, model, false, content);
+    }
+
+    /**
+     * 发送思考内容增量
+     */
+    public void sendReasoning(SseEmitter emitter, String id, String content, String model) throws IOException {
+        send(emitter, id, model, true, content);
+    }
+
+    /**
+     * 立即发送缓存的内容并释放该 emitter 的状态（流结束前调用）
+     */
+    public void flush(SseEmitter emitter) throws IOException {
+        StreamBuffer buffer = buffers.remove(emitter);
+        if (buffer != null) {
+            buffer.lock.lock();
+            try {
+                buffer.flushLocked();
+            } finally {
+                buffer.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 取走并清除该 emitter 已发送内容的估算 token 数（流结束后调用）
+     */
+    public long takeCompletionTokens(SseEmitter emitter) {
+        StreamUsage usage = usages.remove(emitter);
+        return usage != null ? usage.tokens.sum() : 0;
+    }
+
+    /**
+     * 出错时调用：尽量发送缓存的内容，忽略发送失败，并释放状态
+     */
+    public void discard(SseEmitter emitter) {
+        try {
+            flush(emitter);
+        } catch (Exception e) {
+            log.debug("丢弃未发送的合并内容: {}", e.getMessage());
+        }
+    }
+
+    private void send(SseEmitter emitter, String id, String model, boolean reasoning, String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (emitter instanceof AggregatingSseEmitter sink) {
+            // 非流式请求：直接累加文本，不合并、不编码
+            sink.ensureActive();
+            if (reasoning) {
+                sink.accumulator().appendReasoning(id, text);
+            } else {
+                sink.accumulator().appendContent(id, text);
+            }
+            return;
+        }
+        StreamUsage usage = usages.computeIfAbsent(emitter, e -> new StreamUsage());
+        usage.tokens.add(TokenEstimateUtils.estimate(text));
+        usage.lastActivity = System.currentTimeMillis();
+        if (windowMs <= 0) {
+            emitter.send(SseEmitter.event().data(encode(id, model, reasoning, text), APPLICATION_JSON_UTF8));
+            return;
+        }
+
+        StreamBuffer buffer = buffers.computeIfAbsent(emitter, StreamBuffer::new);
+        buffer.lock.lock();
+        try {
+            buffer.rethrowFailure();
+            buffer.lastActivity = System.currentTimeMillis();
+            // 类型或流变化时先把之前的内容发出去，不能合并到一起
+            if (!buffer.text.isEmpty() && (buffer.reasoning != reasoning || !Objects.equals(buffer.id, id))) {
+                buffer.flushLocked();
+            }
+            buffer.id = id;
+            buffer.model = model;
+            buffer.reasoning = reasoning;
+            buffer.text.append(text);
+
+            long now = System.currentTimeMillis();
+            if (now - buffer.lastFlush >= windowMs || buffer.text.length() >= maxChars) {
+                buffer.flushLocked();
+            } else if (!buffer.flushScheduled) {
+                buffer.flushScheduled = true;
+                scheduler.schedule(() -> scheduledFlush(buffer), buffer.lastFlush + windowMs - now, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            buffer.lock.unlock();
+        }
+    }
+
+    private void scheduledFlush(StreamBuffer buffer) {
+        buffer.lock.lock();
+        try {
+            buffer.flushScheduled = false;
+            buffer.flushLocked();
+        } catch (Exception e) {
+            // 客户端已断开等，下一次发送时在监听线程上抛出
+            buffer.failure = e instanceof IOException io ? io : new IOException(e);
+            log.debug("定时发送合并内容失败: {}", e.getMessage());
+        } finally {
+            buffer.lock.unlock();
+        }
+    }
+
+    private void evictIdle() {
+        long threshold = System.currentTimeMillis() - IDLE_EVICT_MS;
+        buffers.values().removeIf(buffer -> buffer.lastActivity < threshold);
+        usages.values().removeIf(usage -> usage.lastActivity < threshold);
+    }
+
+    private static String encode(String id, String model, boolean reasoning, String text) {
+        ChatCompletionChunkEncoder encoder = ChatCompletionChunkEncoder.of(id, model);
+        return reasoning ? encoder.reasoning(text) : encoder.content(text);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 单个 emitter 的 token 统计
+     */
+    private static class StreamUsage {
+        private final LongAdder tokens = new LongAdder();
+        private volatile long lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * 单个 emitter 的待发送内容
+     */
+    private static class StreamBuffer {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SseEmitter emitter;
+        private final StringBuilder text = new StringBuilder();
+        private String id;
+        private String model;
+        private boolean reasoning;
+        private boolean flushScheduled;
+        private long lastFlush;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private IOException failure;
+
+        StreamBuffer(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void flushLocked() throws IOException {
+            rethrowFailure();
+            if (text.isEmpty()) {
+                return;
+            }
+            String data = encode(id, model, reasoning, text.toString());
+            text.setLength(0);
+            lastFlush = System.currentTimeMillis();
+            emitter.send(SseEmitter.event().data(data, APPLICATION_JSON_UTF8));
+        }
+
+        void rethrowFailure() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -8,11 +8,12 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
-import site.newbie.web.llm.api.model.ChatCompletionResponse;
 import site.newbie.web.llm.api.model.LoginInfo;
 import site.newbie.web.llm.api.provider.LLMProvider;
 import site.newbie.web.llm.api.provider.ModelConfig;
 import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.ProviderType;
+import site.newbie.web.llm.api.provider.SseChunkCoalescer;
 import site.newbie.web.llm.api.provider.antigravity.command.OAuthLoginCommand;
 import site.newbie.web.llm.api.provider.antigravity.core.OAuthCallbackServer;
 import site.newbie.web.llm.api.provider.antigravity.core.OAuthService;
@@ -27,7 +28,6 @@ import site.newbie.web.llm.api.provider.command.CommandParser;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +46,7 @@ public class AntigravityProvider implements LLMProvider {
     private final ObjectMapper objectMapper;
     private final Map<String, AntigravityModelConfig> modelConfigs;
     private final ProviderRegistry providerRegistry;
+    private final SseChunkCoalescer chunkCoalescer;
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     
     // 核心组件
@@ -104,8 +105,10 @@ public class AntigravityProvider implements LLMProvider {
                               RequestMapper requestMapper,
                               ResponseMapper responseMapper,
                               OAuthService oauthService,
-                              OAuthCallbackServer oauthCallbackServer) {
+                              OAuthCallbackServer oauthCallbackServer,
+                              SseChunkCoalescer chunkCoalescer) {
         this.objectMapper = objectMapper;
+        this.chunkCoalescer = chunkCoalescer;
         this.providerRegistry = providerRegistry;
         this.modelConfigs = configs.stream()
                 .collect(Collectors.toMap(AntigravityModelConfig::getModelName, Function.identity()));
@@ -149,6 +152,11 @@ public class AntigravityProvider implements LLMProvider {
         return "antigravity";
     }
 
+    @Override
+    public ProviderType getProviderType() {
+        return ProviderType.REVERSE_API;
+    }
+
     @Override
     public List<String> getSupportedModels() {
         return List.copyOf(modelConfigs.keySet());
@@ -187,6 +195,7 @@ public class AntigravityProvider implements LLMProvider {
 
             } catch (Exception e) {
                 log.error("Chat Error", e);
+                chunkCoalescer.discard(emitter);
                 emitter.completeWithError(e);
             }
         });
@@ -211,31 +220,17 @@ public class AntigravityProvider implements LLMProvider {
 
     // ==================== SSE 发送 ====================
 
-    private static final MediaType APPLICATION_JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
-
     private void sendSseChunk(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().content(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendContent(emitter, id, content, model);
     }
 
     private void sendThinkingContent(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().reasoningContent(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendReasoning(emitter, id, content, model);
     }
 
     private void sendUrlAndComplete(SseEmitter emitter, ChatCompletionRequest request) throws IOException {
+        // 先发出合并缓存中的内容，保证在 [DONE] 之前
+        chunkCoalescer.flush(emitter);
         // Antigravity 不需要发送 URL，直接完成
         emitter.send(SseEmitter.event().data("[DONE]", MediaType.TEXT_PLAIN));
         emitter.complete();
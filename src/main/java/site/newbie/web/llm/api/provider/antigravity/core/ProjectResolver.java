@@ -3,13 +3,7 @@ package site.newbie.web.llm.api.provider.antigravity.core;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import tools.jackson.databind.JsonNode;
-import tools.jackson.databind.ObjectMapper;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
 import java.util.Random;
 
 /**
@@ -20,16 +14,11 @@ import java.util.Random;
 @Component
 public class ProjectResolver {
     
-    private static final String LOAD_CODE_ASSIST_URL = "https://cloudcode-pa.googleapis.com/v1internal:loadCodeAssist";
-    private static final String USER_AGENT = "antigravity/1.11.9 windows/amd64";
+    // 与生成内容共用同一个上游客户端（同一个 HTTP/2 连接）
+    private final UpstreamClient upstreamClient;
     
-    private final HttpClient httpClient;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    public ProjectResolver() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(java.time.Duration.ofSeconds(30))
-                .build();
+    public ProjectResolver(UpstreamClient upstreamClient) {
+        this.upstreamClient = upstreamClient;
     }
     
     /**
@@ -44,19 +33,14 @@ public class ProjectResolver {
             }
             """;
         
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(LOAD_CODE_ASSIST_URL))
-                .header("Authorization", "Bearer " + accessToken)
-                .header("Host", "cloudcode-pa.googleapis.com")
-                .header("User-Agent", USER_AGENT)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(requestBody, StandardCharsets.UTF_8))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        JsonNode data = null;
+        try {
+            data = upstreamClient.callV1InternalJson("loadCodeAssist", accessToken, requestBody);
+        } catch (RuntimeException e) {
+            log.warn("调用 loadCodeAssist 失败: {}", e.getMessage());
+        }
         
-        if (!response.body().isEmpty() && response.statusCode() == 200) {
-            JsonNode data = objectMapper.readTree(response.body());
+        if (data != null) {
             if (data.has("cloudaicompanionProject")) {
                 String projectId = data.get("cloudaicompanionProject").asString();
                 log.info("成功获取 project_id: {}", projectId);
@@ -2,13 +2,11 @@ package site.newbie.web.llm.api.provider.antigravity.core;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import site.newbie.web.llm.api.util.SseEventReader;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
-import java.io.BufferedReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 
@@ -24,64 +22,34 @@ public class ResponseMapper {
     
     /**
      * 处理 SSE 流式响应
+     * 按字节切分 SSE 事件，data 直接从字节解析为 JSON，不经过中间 String
      */
     public void processStreamResponse(
             InputStream inputStream,
             String model,
             ResponseHandler handler) throws Exception {
         
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            
-            String line;
-            String id = "chatcmpl-" + UUID.randomUUID();
-            StringBuilder buffer = new StringBuilder();
-            
-            while ((line = reader.readLine()) != null) {
-                // 累积多行数据（处理可能的分块）
-                if (line.trim().isEmpty()) {
-                    // 空行表示一个完整的 SSE 事件结束
-                    if (buffer.length() > 0) {
-                        String data = buffer.toString().trim();
-                        if (data.startsWith("data: ")) {
-                            String jsonStr = data.substring(6).trim();
-                            
-                            if (jsonStr.equals("[DONE]")) {
-                                log.info("收到完成标记");
-                                break;
-                            }
-                            
-                            if (!jsonStr.isEmpty()) {
-                                processChunk(jsonStr, id, model, handler);
-                            }
-                        }
-                        buffer.setLength(0);
-                    }
-                    continue;
+        String id = "chatcmpl-" + UUID.randomUUID();
+        try (SseEventReader reader = new SseEventReader(inputStream)) {
+            reader.read((data, offset, length) -> {
+                if (SseEventReader.isDone(data, offset, length)) {
+                    log.info("收到完成标记");
+                    return false;
                 }
-                
-                buffer.append(line).append("\n");
-            }
-            
-            // 处理最后的数据（如果没有空行结尾）
-            if (buffer.length() > 0) {
-                String data = buffer.toString().trim();
-                if (data.startsWith("data: ")) {
-                    String jsonStr = data.substring(6).trim();
-                    if (!jsonStr.equals("[DONE]") && !jsonStr.isEmpty()) {
-                        processChunk(jsonStr, id, model, handler);
-                    }
+                if (!SseEventReader.isBlank(data, offset, length)) {
+                    processChunk(data, offset, length, id, model, handler);
                 }
-            }
+                return true;
+            });
         }
     }
     
     /**
      * 处理单个 SSE 数据块
      */
-    private void processChunk(String jsonStr, String id, String model, ResponseHandler handler) {
+    private void processChunk(byte[] data, int offset, int length, String id, String model, ResponseHandler handler) {
         try {
-            JsonNode json = objectMapper.readTree(jsonStr);
+            JsonNode json = objectMapper.readTree(data, offset, length);
             
             // 处理 v1internal wrapper
             JsonNode actualData = json.has("response") ? json.get("response") : json;
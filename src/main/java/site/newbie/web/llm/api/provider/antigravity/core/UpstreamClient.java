@@ -1,96 +1,200 @@
 package site.newbie.web.llm.api.provider.antigravity.core;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 上游客户端
  * 直接调用 Google v1internal API
+ *
+ * 所有 cloudcode-pa.googleapis.com 的请求（生成内容、模型列表、project_id）共用一个 HTTP/2 客户端：
+ * 同一个 TLS 连接上多路复用，避免每个请求重新握手；同时进行的请求数有上限，流式响应在关闭响应流后才归还名额
  */
 @Slf4j
 @Component
 public class UpstreamClient {
-    
-    private static final String V1_INTERNAL_BASE_URL = "https://cloudcode-pa.googleapis.com/v1internal";
+
     private static final String USER_AGENT = "antigravity/1.11.9 windows/amd64";
-    
-    private final HttpClient httpClient;
+
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    public UpstreamClient() {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+
+    // 上游地址（可以指向本地的模拟服务做测试）
+    @Value("${app.antigravity.upstream.base-url:https://cloudcode-pa.googleapis.com}")
+    private String baseUrl;
+
+    // 同时进行的上游请求数上限（包括正在输出的流式响应）
+    @Value("${app.antigravity.upstream.max-concurrent-streams:64}")
+    private int maxConcurrentStreams;
+
+    // 等待空闲名额的最长时间（毫秒）
+    @Value("${app.antigravity.upstream.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    private Semaphore streams;
+
+    public UpstreamClient(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
         this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
                 .connectTimeout(Duration.ofSeconds(30))
+                .executor(executor)
                 .build();
     }
-    
+
+    @PostConstruct
+    public void init() {
+        this.streams = new Semaphore(Math.max(1, maxConcurrentStreams));
+    }
+
     /**
      * 构建 v1internal URL
      */
     private String buildUrl(String method, String queryString) {
         if (queryString != null && !queryString.isEmpty()) {
-            return String.format("%s:%s?%s", V1_INTERNAL_BASE_URL, method, queryString);
+            return String.format("%s/v1internal:%s?%s", baseUrl, method, queryString);
         } else {
-            return String.format("%s:%s", V1_INTERNAL_BASE_URL, method);
+            return String.format("%s/v1internal:%s", baseUrl, method);
         }
     }
-    
+
+    private HttpRequest buildRequest(String method, String queryString, String accessToken,
+                                     HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(buildUrl(method, queryString)))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + accessToken)
+                .header("User-Agent", USER_AGENT)
+                .timeout(Duration.ofSeconds(600))
+                .POST(body)
+                .build();
+    }
+
     /**
      * 调用 v1internal API
+     * 返回的响应流必须关闭（读完后关闭或 try-with-resources），否则不会归还并发名额
      */
-    public HttpResponse<java.io.InputStream> callV1Internal(
+    public HttpResponse<InputStream> callV1Internal(
             String method,
             String accessToken,
             JsonNode body,
             String queryString) throws Exception {
-        
-        String url = buildUrl(method, queryString);
-        String requestBody = objectMapper.writeValueAsString(body);
-        
-        log.debug("调用 v1internal API: {} (method: {})", url, method);
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + accessToken)
-                .header("User-Agent", USER_AGENT)
-                .timeout(Duration.ofSeconds(600))
-                .POST(HttpRequest.BodyPublishers.ofString(requestBody, StandardCharsets.UTF_8))
-                .build();
-        
-        return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        log.debug("调用 v1internal API: {} (method: {})", buildUrl(method, queryString), method);
+
+        // 直接序列化为 UTF-8 字节，不再经过中间 String
+        HttpRequest request = buildRequest(method, queryString, accessToken,
+                HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+
+        acquire();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                streams.release();
+            }
+        };
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, info -> {
+                HttpResponse.BodySubscriber<InputStream> upstream = HttpResponse.BodySubscribers.ofInputStream();
+                return HttpResponse.BodySubscribers.mapping(upstream, in -> new FilterInputStream(in) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            release.run();
+                        }
+                    }
+                });
+            });
+            record(method, String.valueOf(response.statusCode()), start);
+            return response;
+        } catch (Exception e) {
+            release.run();
+            record(method, "error", start);
+            throw e;
+        }
     }
-    
+
     /**
-     * 获取可用模型列表
+     * 调用 v1internal API 并读取完整的 JSON 响应
+     * @return 响应 JSON，响应为空时返回 null
+     * @throws RuntimeException 状态码不是 200 时
      */
-    public JsonNode fetchAvailableModels(String accessToken) throws Exception {
-        String url = buildUrl("fetchAvailableModels", null);
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + accessToken)
-                .header("User-Agent", USER_AGENT)
-                .timeout(Duration.ofSeconds(600))
-                .POST(HttpRequest.BodyPublishers.ofString("{}", StandardCharsets.UTF_8))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        
+    public JsonNode callV1InternalJson(String method, String accessToken, String body) throws Exception {
+        HttpRequest request = buildRequest(method, null, accessToken, HttpRequest.BodyPublishers.ofString(body));
+
+        acquire();
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            record(method, String.valueOf(response.statusCode()), start);
+        } catch (Exception e) {
+            record(method, "error", start);
+            throw e;
+        } finally {
+            streams.release();
+        }
+
         if (response.statusCode() != 200) {
             throw new RuntimeException("Upstream error: " + response.statusCode());
         }
-        
-        return objectMapper.readTree(response.body());
+        return response.body().length > 0 ? objectMapper.readTree(response.body()) : null;
+    }
+
+    /**
+     * 获取可用模型列表
+     */
+    public JsonNode fetchAvailableModels(String accessToken) throws Exception {
+        return callV1InternalJson("fetchAvailableModels", accessToken, "{}");
+    }
+
+    private void acquire() throws InterruptedException {
+        if (!streams.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new RuntimeException("上游并发请求已达上限（" + maxConcurrentStreams + "），请稍后再试");
+        }
     }
-}
 
+    /**
+     * 记录上游请求耗时（到收到响应头为止，流式响应不包括输出时间）
+     */
+    private void record(String method, String status, long startNanos) {
+        Timer.builder("llm.antigravity.upstream")
+                .description("Antigravity 上游请求耗时（到响应头）")
+                .tag("method", method)
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.close();
+        executor.shutdownNow();
+    }
+}
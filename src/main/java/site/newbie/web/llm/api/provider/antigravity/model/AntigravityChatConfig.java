@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
+import site.newbie.web.llm.api.provider.CompletionAccumulator;
 import site.newbie.web.llm.api.provider.ModelConfig;
 import site.newbie.web.llm.api.provider.antigravity.core.ProjectResolver;
 import site.newbie.web.llm.api.provider.antigravity.core.RequestMapper;
@@ -85,7 +86,11 @@ public class AntigravityChatConfig implements AntigravityModelConfig {
             var response = upstreamClient.callV1Internal(method, accessToken, geminiBody, queryString);
             
             if (response.statusCode() != 200) {
-                String errorBody = new String(response.body().readAllBytes(), StandardCharsets.UTF_8);
+                String errorBody;
+                // 关闭响应流，归还上游客户端的并发名额
+                try (var body = response.body()) {
+                    errorBody = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                }
                 log.error("v1internal API 返回错误: status={}, body={}", response.statusCode(), errorBody);
                 throw new RuntimeException("v1internal API 错误: " + response.statusCode() + " - " + errorBody);
             }
@@ -104,7 +109,11 @@ public class AntigravityChatConfig implements AntigravityModelConfig {
                 
                 @Override
                 public void onFinish(String finishReason) {
-                    // 完成标记会在 ResponseMapper 中处理
+                    // 完成标记会在 ResponseMapper 中处理；非流式请求记录结束原因
+                    CompletionAccumulator accumulator = CompletionAccumulator.of(emitter);
+                    if (accumulator != null) {
+                        accumulator.finish(finishReason);
+                    }
                 }
             };
             
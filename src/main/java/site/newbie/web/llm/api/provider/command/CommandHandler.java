@@ -34,12 +34,13 @@ public class CommandHandler {
          * 指令执行成功后的回调
          * @param page 执行指令时使用的页面（可能为 null，如 help 指令）
          * @param model 模型名称
+         * @param accountId 账号ID（用于区分同一模型在不同账号下的页面）
          * @param emitter SSE 发射器
          * @param finalMessage 最终消息
          * @param allSuccess 是否所有指令都执行成功
          * @return 是否已发送结果（如果返回 true，CommandHandler 将不再发送结果）
          */
-        boolean onSuccess(Page page, String model, SseEmitter emitter, String finalMessage, boolean allSuccess);
+        boolean onSuccess(Page page, String model, String accountId, SseEmitter emitter, String finalMessage, boolean allSuccess);
     }
     
     /**
@@ -209,7 +210,7 @@ public class CommandHandler {
             // 如果提供了成功回调，且不是 help 指令，调用回调处理 provider 特定的逻辑
             boolean handledByCallback = false;
             if (successCallback != null && allSuccess && !onlyHelpCommand && page != null && !page.isClosed()) {
-                handledByCallback = successCallback.onSuccess(page, model, emitter, finalMessage, allSuccess);
+                handledByCallback = successCallback.onSuccess(page, model, request.getAccountId(), emitter, finalMessage, allSuccess);
             }
 
             // 如果回调没有处理，使用默认方式发送结果
@@ -235,6 +236,11 @@ public class CommandHandler {
             if (releaseLockCallback != null) {
                 releaseLockCallback.run();
             }
+        } finally {
+            // 页面放回缓存（成功回调已关联对话 ID 时可以按该 ID 取回）
+            if (page != null) {
+                provider.releasePage(request, page);
+            }
         }
     }
 
@@ -6,23 +6,31 @@ import com.microsoft.playwright.Frame;
 import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.options.RequestOptions;
+import com.microsoft.playwright.options.WaitUntilState;
 import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.manager.BrowserManager;
+import site.newbie.web.llm.api.manager.ConversationPageCache;
+import site.newbie.web.llm.api.manager.LoginStateCache;
 import site.newbie.web.llm.api.manager.LoginSessionManager;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.model.ChatCompletionResponse;
 import site.newbie.web.llm.api.model.LoginInfo;
 import site.newbie.web.llm.api.provider.AccountInfo;
+import site.newbie.web.llm.api.provider.CompletionAccumulator;
 import site.newbie.web.llm.api.provider.LLMProvider;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
+import site.newbie.web.llm.api.provider.PageSseBridge;
 import site.newbie.web.llm.api.provider.ProviderLoginHandler;
 import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.SseChunkCoalescer;
 import site.newbie.web.llm.api.provider.command.CommandParser;
 import site.newbie.web.llm.api.provider.deepseek.model.DeepSeekModelConfig;
 import site.newbie.web.llm.api.provider.deepseek.model.DeepSeekModelConfig.DeepSeekContext;
@@ -64,12 +72,15 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     private final ObjectMapper objectMapper;
     private final Map<String, DeepSeekModelConfig> modelConfigs;
     private final ProviderRegistry providerRegistry;
+    private final SseChunkCoalescer chunkCoalescer;
     private final LoginSessionManager loginSessionManager;
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     
     // 页面管理
-    private final ConcurrentHashMap<String, Page> modelPages = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> pageUrls = new ConcurrentHashMap<>();
+    private final ConversationPageCache pageCache;
+
+    // 登录状态缓存，有效期内跳过页面上的登录检查
+    private final LoginStateCache loginStateCache;
     
     // 全局指令解析器，支持全局指令
     private final CommandParser commandParser;
@@ -78,6 +89,17 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     private static final String SSE_DATA_VAR = "__deepseekSseData";
     private static final String SSE_INTERCEPTOR_VAR = "__deepseekSseInterceptorSet";
     private static final String[] SSE_URL_PATTERNS = {"/api/v0/chat/completion"};
+
+    // 首页（新对话）地址和聊天输入框
+    private static final String HOME_URL = "https://chat.deepseek.com/";
+    private static final String CHAT_INPUT_SELECTOR = "textarea.ds-scroll-area";
+    
+    // SSE 数据推送通道（拦截脚本通过该函数把 chunk 直接推送到 Java 端）
+    private final PageSseBridge sseBridge = new PageSseBridge("__deepseekSsePush");
+
+    // SSE 捕获方式：network（CDP 网络层捕获，失败时自动退回脚本拦截）或 script（仅脚本拦截）
+    @Value("${app.sse.capture-mode:network}")
+    private String sseCaptureMode;
     
     /**
      * 响应处理器实现，提供给 ModelConfig 使用
@@ -104,8 +126,8 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
         }
 
         @Override
-        public ModelConfig.ParseResultWithIndex parseSseIncremental(String sseData, Map<Integer, String> fragmentTypeMap, Integer lastActiveFragmentIndex) {
-            return DeepSeekProvider.this.parseSseIncremental(sseData, fragmentTypeMap, lastActiveFragmentIndex);
+        public String pollSseData(Page page, String varName, long timeoutMs) throws InterruptedException {
+            return DeepSeekProvider.this.pollSseDataFromPage(page, varName, timeoutMs);
         }
 
         @Override
@@ -116,8 +138,12 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
 
     public DeepSeekProvider(BrowserManager browserManager, ObjectMapper objectMapper, 
                            List<DeepSeekModelConfig> configs, @Lazy ProviderRegistry providerRegistry,
-                           LoginSessionManager loginSessionManager) {
+                           LoginSessionManager loginSessionManager, SseChunkCoalescer chunkCoalescer,
+                           ConversationPageCache pageCache, LoginStateCache loginStateCache) {
         this.browserManager = browserManager;
+        this.pageCache = pageCache;
+        this.loginStateCache = loginStateCache;
+        this.chunkCoalescer = chunkCoalescer;
         this.objectMapper = objectMapper;
         this.providerRegistry = providerRegistry;
         this.loginSessionManager = loginSessionManager;
@@ -125,6 +151,24 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                 .collect(Collectors.toMap(DeepSeekModelConfig::getModelName, Function.identity()));
         // DeepSeek 目前没有 provider 特定的命令，只支持全局命令
         this.commandParser = new CommandParser();
+        browserManager.registerPageWarmer(getProviderName(), new BrowserManager.PageWarmer() {
+            @Override
+            public void start(Page page) {
+                // 只发起导航，页面在浏览器中继续加载，是否就绪由 isReady 轮询判断
+                page.navigate(HOME_URL, new Page.NavigateOptions().setWaitUntil(WaitUntilState.COMMIT));
+            }
+
+            @Override
+            public boolean isReady(Page page) {
+                return isNewChatUrl(page.url()) && page.locator(CHAT_INPUT_SELECTOR).first().isVisible();
+            }
+
+            @Override
+            public void finish(Page page) {
+                // 提前启用 SSE 捕获
+                setupSseInterceptor(page);
+            }
+        });
         log.info("DeepSeekProvider 初始化完成，支持的模型: {}", modelConfigs.keySet());
     }
     
@@ -153,7 +197,6 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
             
             // 等待页面加载完成
             page.waitForLoadState();
-            page.waitForTimeout(1000);
             
             // 检查是否存在聊天输入框（已登录会有聊天输入框）
             // DeepSeek 的聊天输入框通常是 textarea 元素
@@ -161,6 +204,8 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                     .or(page.locator("textarea[placeholder*='输入']"))
                     .or(page.locator("textarea[placeholder*='输入消息']"))
                     .or(page.locator("textarea.ds-scroll-area"));
+            // 已登录时输入框出现即返回，不再固定等待
+            PageActions.waitForVisible(chatInputBox, PageActions.ELEMENT_TIMEOUT_MS);
             
             if (chatInputBox.count() > 0) {
                 // 检查输入框是否可见和可用
@@ -394,7 +439,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
      */
     private Page getOrCreateLoginPage(String accountId) {
         // 查找是否已有登录页面
-        for (Page existingPage : modelPages.values()) {
+        for (Page existingPage : browserManager.getAllPages(getProviderName(), accountId)) {
             if (existingPage != null && !existingPage.isClosed()) {
                 String url = existingPage.url();
                 if (url.contains("chat.deepseek.com")) {
@@ -874,12 +919,12 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                 new Thread(() -> {
                     try {
                         Thread.sleep(50); // 稍微延迟，确保消息已发送
-                        providerRegistry.releaseLock(providerName);
+                        providerRegistry.releaseLock(emitter);
                         log.info("二维码发送完成，已释放锁: {}", providerName);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                         // 即使被中断，也要释放锁
-                        providerRegistry.releaseLock(providerName);
+                        providerRegistry.releaseLock(emitter);
                     }
                 }).start();
             }
@@ -893,7 +938,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
             // 出错时也要释放锁
             String providerName = getProviderName();
             if (providerName != null) {
-                providerRegistry.releaseLock(providerName);
+                providerRegistry.releaseLock(emitter);
             }
         }
     }
@@ -1046,11 +1091,17 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                 }
 
                 // 注意：指令检查已在 Controller 层统一处理，这里只处理普通聊天请求
+                PageActions.StepTimer timer = new PageActions.StepTimer(getProviderName());
                 // 1. 获取或创建页面
                 page = getOrCreatePage(request);
+                timer.mark("获取页面");
                 
                 // 1.5. 检查登录状态（在创建页面后再次检查，因为页面创建时可能检测到登录状态丢失）
-                if (!checkLoginStatus(page)) {
+                Page current = page;
+                boolean loggedIn = loginStateCache.check(getProviderName(), request.getAccountId(),
+                        () -> checkLoginStatus(current));
+                timer.mark("检查登录");
+                if (!loggedIn) {
                     log.warn("检测到未登录状态，发送登录提示");
                     // 注意：不在这里更新 providerRegistry 的状态，避免循环依赖
                     // 状态更新由 Controller 层处理
@@ -1068,27 +1119,33 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                     // 保存会话（确保状态被持久化）
                     loginSessionManager.saveSession(getProviderName(), conversationId, session);
                     
-                    // 发送登录方式选择提示
+                    // 发送登录方式选择提示；页面保留在缓存中，可以作为登录页面使用
                     sendLoginMethodSelection(emitter, request.getModel(), getProviderName(), conversationId);
                     return;
                 }
                 
                 // 2. 设置 SSE 拦截器
                 setupSseInterceptor(page);
+                timer.mark("SSE 拦截器");
                 
-                // 3. 如果是新对话，点击"新对话"按钮
-                if (isNewConversation(request)) {
+                // 3. 如果是新对话，点击"新对话"按钮（刚打开的首页本身就是新对话，不需要再点击）
+                if (isNewConversation(request) && !isNewChatUrl(page.url())) {
                     clickNewChatButton(page);
+                    timer.mark("新对话");
                 }
                 
                 // 4. 配置模型（由 ModelConfig 实现）
                 config.configure(page);
+                timer.mark("配置模型");
                 
                 // 5. 处理联网搜索
                 handleWebSearchToggle(page, request.isWebSearch());
+                timer.mark("联网搜索");
                 
                 // 6. 发送消息
                 sendMessage(page, request);
+                timer.mark("发送消息");
+                timer.log();
                 
                 // 7. 记录发送前消息数量
                 int messageCountBefore = page.locator(".ds-markdown").count();
@@ -1105,8 +1162,12 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
 
             } catch (Exception e) {
                 log.error("Chat Error", e);
+                chunkCoalescer.discard(emitter);
                 emitter.completeWithError(e);
-                cleanupPageOnError(page, request.getModel());
+                cleanupPageOnError(page, request.getAccountId());
+            } finally {
+                // 页面放回缓存；出错时页面已关闭并移出缓存
+                releasePage(request, page);
             }
         });
     }
@@ -1115,22 +1176,25 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     
     @Override
     public Page getOrCreatePage(ChatCompletionRequest request) {
-        String model = request.getModel();
         String accountId = request.getAccountId();
         String conversationId = getConversationId(request);
         boolean isNewConversation = isNewConversation(request);
         
         Page page;
         if (!isNewConversation && conversationId != null) {
-            String conversationUrl = buildUrlFromConversationId(conversationId);
-            page = findOrCreatePageForUrl(conversationUrl, model, accountId);
+            page = findOrCreatePageForConversation(conversationId, accountId);
         } else {
-            page = createNewConversationPage(model, accountId);
+            page = createNewConversationPage(accountId);
         }
         
         return page;
     }
     
+    @Override
+    public void releasePage(ChatCompletionRequest request, Page page) {
+        pageCache.release(getProviderName(), request.getAccountId(), page, null);
+    }
+
     @Override
     public String getConversationId(ChatCompletionRequest request) {
         // 首先尝试从请求中获取
@@ -1152,71 +1216,76 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
         return conversationId == null || conversationId.isEmpty() || conversationId.startsWith("login-");
     }
     
-    private Page findOrCreatePageForUrl(String url, String model, String accountId) {
-        log.info("检测到对话 URL，尝试复用: {}", url);
+    private Page findOrCreatePageForConversation(String conversationId, String accountId) {
+        String url = buildUrlFromConversationId(conversationId);
+        log.info("检测到对话 ID，尝试复用: {}", conversationId);
         
-        // 查找已有页面
-        Page page = findPageByUrl(url, accountId);
+        // 从缓存中取回该对话的页面
+        Page page = pageCache.acquire(getProviderName(), accountId, conversationId);
         
-        if (page != null && !page.isClosed()) {
+        if (page != null) {
             String currentUrl = page.url();
             if (!currentUrl.equals(url)) {
                 page.navigate(url);
                 page.waitForLoadState();
                 // 检测登录状态是否丢失
-                checkLoginStatusLost(page);
+                checkLoginStatusLost(page, accountId);
             }
-            modelPages.put(model, page);
-            pageUrls.put(model, url);
             return page;
         }
         
         // 创建新页面（使用 accountId）
         page = browserManager.newPage(getProviderName(), accountId);
-        modelPages.put(model, page);
+        pageCache.register(getProviderName(), accountId, page);
         page.navigate(url);
         page.waitForLoadState();
-        pageUrls.put(model, url);
         log.info("已导航到对话 URL: {}", url);
         // 检测登录状态是否丢失
-        checkLoginStatusLost(page);
+        checkLoginStatusLost(page, accountId);
         return page;
     }
     
-    private Page createNewConversationPage(String model, String accountId) {
+    private Page createNewConversationPage(String accountId) {
         log.info("开启新对话，accountId: {}", accountId);
         
-        // 关闭旧页面
-        Page oldPage = modelPages.remove(model);
-        if (oldPage != null && !oldPage.isClosed()) {
-            try { oldPage.close(); } catch (Exception e) { log.warn("关闭旧页面时出错", e); }
+        // 优先使用预热好的页面（已打开首页、输入框就绪并启用了 SSE 捕获）
+        Page page = browserManager.takeWarmPage(getProviderName(), accountId);
+        if (page != null) {
+            pageCache.register(getProviderName(), accountId, page);
+            return page;
         }
-        
+
         // 创建新页面（使用 accountId）
-        Page page = browserManager.newPage(getProviderName(), accountId);
-        modelPages.put(model, page);
-        page.navigate("https://chat.deepseek.com/");
+        page = browserManager.newPage(getProviderName(), accountId);
+        pageCache.register(getProviderName(), accountId, page);
+        page.navigate(HOME_URL);
         page.waitForLoadState();
-        pageUrls.put(model, page.url());
         // 检测登录状态是否丢失
-        checkLoginStatusLost(page);
+        checkLoginStatusLost(page, accountId);
         return page;
     }
     
+    /**
+     * 是否为新对话页面（首页，URL 中还没有对话 ID）
+     */
+    private static boolean isNewChatUrl(String url) {
+        return url != null && url.startsWith(HOME_URL) && !url.contains("/chat/s/");
+    }
+
     /**
      * 检测登录状态是否丢失（通过检查是否有登录按钮）
      * 如果检测到登录按钮，说明登录状态丢失
+     * 登录状态缓存有效时跳过（跳转到登录页会在网络层使缓存失效）
      * 注意：不在这里更新 providerRegistry 的状态，避免循环依赖
      */
-    private void checkLoginStatusLost(Page page) {
+    private void checkLoginStatusLost(Page page, String accountId) {
         try {
-            if (page == null || page.isClosed()) {
+            if (page == null || page.isClosed() || loginStateCache.isFresh(getProviderName(), accountId)) {
                 return;
             }
             
             // 等待页面加载完成
             page.waitForLoadState();
-            page.waitForTimeout(1000);
             
             // 检查是否有登录按钮（登录状态丢失时会出现登录按钮）
             Locator loginButton = page.locator(".ds-sign-up-form__register-button")
@@ -1225,6 +1294,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
             
             if (loginButton.count() > 0 && loginButton.first().isVisible()) {
                 log.warn("检测到登录按钮，说明登录状态已丢失");
+                loginStateCache.invalidate(getProviderName(), accountId, "页面出现登录按钮");
                 // 注意：不在这里更新 providerRegistry 的状态，避免循环依赖
                 // 状态更新由 Controller 层处理
             }
@@ -1233,44 +1303,16 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
         }
     }
     
-    private Page findPageByUrl(String targetUrl, String accountId) {
-        if (targetUrl == null) return null;
-        
-        // 检查 modelPages
-        for (String model : modelPages.keySet()) {
-            Page page = modelPages.get(model);
-            if (page != null && !page.isClosed()) {
-                String savedUrl = pageUrls.get(model);
-                if (targetUrl.equals(savedUrl)) {
-                    return page;
-                }
-            }
-        }
-        
-        // 检查该提供器的所有 tab（使用 accountId）
-        try {
-            for (Page page : browserManager.getAllPages(getProviderName(), accountId)) {
-                if (page != null && !page.isClosed() && targetUrl.equals(page.url())) {
-                    return page;
-                }
-            }
-        } catch (Exception e) {
-            log.error("检查 tab 时出错: {}", e.getMessage());
-        }
-        
-        return null;
-    }
-    
     private void clickNewChatButton(Page page) {
         try {
-            page.waitForTimeout(1000);
             Locator newChatButton = page.locator("button:has-text('新对话')")
                     .or(page.locator("button:has-text('New Chat')"))
                     .or(page.locator("[aria-label*='New'], [aria-label*='new']"))
                     .first();
-            if (newChatButton.count() > 0) {
+            if (PageActions.waitForVisible(newChatButton, PageActions.TOGGLE_TIMEOUT_MS)) {
                 newChatButton.click();
-                page.waitForTimeout(500);
+                // 新对话页面的 URL 不再包含对话 ID
+                PageActions.waitForUrl(page, DeepSeekProvider::isNewChatUrl, PageActions.ELEMENT_TIMEOUT_MS);
                 log.info("已点击新对话按钮");
             }
         } catch (Exception e) {
@@ -1279,7 +1321,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     }
     
     private void sendMessage(Page page, ChatCompletionRequest request) {
-        Locator inputBox = page.locator("textarea.ds-scroll-area");
+        Locator inputBox = page.locator(CHAT_INPUT_SELECTOR);
         inputBox.waitFor();
         
         String message = request.getMessages().stream()
@@ -1292,33 +1334,33 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
         inputBox.fill(message);
 
         // 验证是否填充完成
-        page.waitForTimeout(200);
-        String filledText = inputBox.inputValue();
-
-        if (!filledText.equals(message)) {
+        if (!PageActions.waitForInputValue(page, inputBox, message, PageActions.TOGGLE_TIMEOUT_MS)) {
             log.warn("输入框内容与预期不符，重试填充");
             inputBox.fill(message);
         }
         
-        // 点击发送按钮
-        page.waitForTimeout(300);
+        // 点击发送按钮，等到对话请求真正发出再返回
         Locator sendButton = page.locator("div.ds-icon-button").filter(
                 new Locator.FilterOptions().setHas(page.locator("svg path[d*='M8.3125 0.981587']"))
         );
+        Runnable send;
         if (sendButton.count() > 0) {
-            sendButton.first().click();
-            log.info("已点击发送按钮");
+            PageActions.waitForEnabled(page, sendButton, PageActions.ELEMENT_TIMEOUT_MS);
+            send = () -> sendButton.first().click();
+            log.info("点击发送按钮");
         } else {
             // 备用方案：在输入框中按 Enter 键发送
             log.warn("未找到发送按钮，使用输入框 Enter 键发送");
-            inputBox.press("Enter");
+            send = () -> inputBox.press("Enter");
+        }
+        if (!PageActions.runAndWaitForRequest(page, SSE_URL_PATTERNS[0], 5000, send)) {
+            log.warn("发送后未检测到对话请求，继续监听");
         }
-        page.waitForTimeout(500);
     }
     
-    private void cleanupPageOnError(Page page, String model) {
+    private void cleanupPageOnError(Page page, String accountId) {
         if (page != null) {
-            modelPages.remove(model, page);
+            pageCache.remove(getProviderName(), accountId, page);
             try { if (!page.isClosed()) page.close(); } catch (Exception e) { }
         }
     }
@@ -1326,6 +1368,16 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     // ==================== SSE 拦截器 ====================
     
     private void setupSseInterceptor(Page page) {
+        // 优先在网络层捕获 SSE 响应：不依赖页面 JS，SPA 重新加载后也不需要重新注入脚本
+        if ("network".equalsIgnoreCase(sseCaptureMode) && sseBridge.installNetworkCapture(page, SSE_URL_PATTERNS)) {
+            sseBridge.clear(page);
+            return;
+        }
+        
+        // 注册推送通道（注册失败时拦截脚本会退回写入 window 数组）
+        sseBridge.install(page);
+        sseBridge.clear(page);
+        
         // 清空旧的 SSE 数据（避免复用页面时读取到旧数据）
         try {
             page.evaluate(String.format("() => { window.%s = []; }", SSE_DATA_VAR));
@@ -1355,6 +1407,16 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                 if (window.%s) return;
                 window.%s = true;
                 
+                // 优先通过推送函数直接发送到 Java 端，不可用时写入 window 数组等待轮询
+                const pushChunk = function(chunk) {
+                    if (typeof window.%s === 'function') {
+                        window.%s(chunk);
+                    } else {
+                        window.%s = window.%s || [];
+                        window.%s.push(chunk);
+                    }
+                };
+                
                 const originalFetch = window.fetch;
                 window.fetch = function(...args) {
                     const url = args[0];
@@ -1365,12 +1427,10 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                                 const clonedResponse = response.clone();
                                 const reader = clonedResponse.body.getReader();
                                 const decoder = new TextDecoder();
-                                window.%s = window.%s || [];
                                 function readStream() {
                                     reader.read().then(({ done, value }) => {
                                         if (done) return;
-                                        const chunk = decoder.decode(value, { stream: true });
-                                        window.%s.push(chunk);
+                                        pushChunk(decoder.decode(value, { stream: true }));
                                         readStream();
                                     }).catch(err => {});
                                 }
@@ -1396,10 +1456,9 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                                 if (responseText) {
                                     const contentType = this.getResponseHeader('content-type');
                                     if (contentType && contentType.includes('text/event-stream')) {
-                                        window.%s = window.%s || [];
                                         if (this._lastResponseLength === undefined) this._lastResponseLength = 0;
                                         if (responseText.length > this._lastResponseLength) {
-                                            window.%s.push(responseText.substring(this._lastResponseLength));
+                                            pushChunk(responseText.substring(this._lastResponseLength));
                                             this._lastResponseLength = responseText.length;
                                         }
                                     }
@@ -1410,13 +1469,17 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                     return originalXHRSend.apply(this, args);
                 };
             })();
-            """, SSE_INTERCEPTOR_VAR, SSE_INTERCEPTOR_VAR, urlCondition, 
-            SSE_DATA_VAR, SSE_DATA_VAR, SSE_DATA_VAR,
-            urlCondition.replace("url", "this._interceptedUrl"), 
-            SSE_DATA_VAR, SSE_DATA_VAR, SSE_DATA_VAR);
+            """, SSE_INTERCEPTOR_VAR, SSE_INTERCEPTOR_VAR,
+            sseBridge.getBindingName(), sseBridge.getBindingName(), SSE_DATA_VAR, SSE_DATA_VAR, SSE_DATA_VAR,
+            urlCondition,
+            urlCondition.replace("url", "this._interceptedUrl"));
     }
     
     private void verifySseInterceptor(Page page) {
+        // 网络层捕获与页面脚本无关，无需检查
+        if (sseBridge.isNetworkCaptureActive(page)) {
+            return;
+        }
         try {
             Object status = page.evaluate("() => window." + SSE_INTERCEPTOR_VAR + " || false");
             if (!Boolean.TRUE.equals(status)) {
@@ -1428,13 +1491,27 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
         }
     }
     
+    private String pollSseDataFromPage(Page page, String varName, long timeoutMs) throws InterruptedException {
+        if (sseBridge.isInstalled(page)) {
+            return sseBridge.poll(page, timeoutMs);
+        }
+        String data = getSseDataFromPage(page, varName);
+        if (data == null) {
+            Thread.sleep(timeoutMs);
+        }
+        return data;
+    }
+    
     private String getSseDataFromPage(Page page, String varName) {
+        if (sseBridge.isInstalled(page)) {
+            return sseBridge.drain(page);
+        }
         try {
             if (page.isClosed()) return null;
             Object result = page.evaluate(String.format("""
                 () => {
                     if (window.%s && window.%s.length > 0) {
-                        const data = window.%s.join('\\n');
+                        const data = window.%s.join('');
                         window.%s = [];
                         return data;
                     }
@@ -1463,11 +1540,11 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
 
                 if (enable && !isActive) {
                     toggle.click();
-                    page.waitForTimeout(500);
+                    PageActions.waitForClassChange(page, toggle, className, PageActions.TOGGLE_TIMEOUT_MS);
                     log.info("已启用联网搜索");
                 } else if (!enable && isActive) {
                     toggle.click();
-                    page.waitForTimeout(300);
+                    PageActions.waitForClassChange(page, toggle, className, PageActions.TOGGLE_TIMEOUT_MS);
                     log.info("已关闭联网搜索");
                 }
             }
@@ -1522,13 +1599,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
             }
             
             String id = UUID.randomUUID().toString();
-            ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                    .delta(ChatCompletionResponse.Delta.builder().content(message.toString()).build())
-                    .index(0).build();
-            ChatCompletionResponse response = ChatCompletionResponse.builder()
-                    .id(id).object("chat.completion.chunk")
-                    .created(System.currentTimeMillis() / 1000)
-                    .model(model).choices(List.of(choice)).build();
+            ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, message.toString());
             
             emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
             emitter.send(SseEmitter.event().data("[DONE]", MediaType.TEXT_PLAIN));
@@ -1539,7 +1610,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                 new Thread(() -> {
                     try {
                         Thread.sleep(100);
-                        providerRegistry.releaseLock(providerName);
+                        providerRegistry.releaseLock(emitter);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                     }
@@ -1553,40 +1624,29 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
                 // 忽略
             }
             if (providerName != null) {
-                providerRegistry.releaseLock(providerName);
+                providerRegistry.releaseLock(emitter);
             }
         }
     }
     
     private void sendSseChunk(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().content(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendContent(emitter, id, content, model);
     }
     
     private void sendThinkingContent(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().reasoningContent(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendReasoning(emitter, id, content, model);
     }
     
     private void sendUrlAndComplete(Page page, SseEmitter emitter, ChatCompletionRequest request) throws IOException {
+        // 先发出合并缓存中的内容，保证在对话 ID 和 [DONE] 之前
+        chunkCoalescer.flush(emitter);
         try {
             if (!page.isClosed()) {
                 String url = page.url();
                 if (url.contains("chat.deepseek.com")) {
-                    pageUrls.put(request.getModel(), url);
                     String conversationId = extractConversationIdFromUrl(url);
+                    // 关联对话 ID，请求结束释放页面后继续对话时按对话 ID 取回
+                    pageCache.bind(getProviderName(), request.getAccountId(), page, conversationId);
                     if (conversationId != null && !conversationId.isEmpty()) {
                         sendConversationId(emitter, UUID.randomUUID().toString(), conversationId, request.getModel());
                         log.info("已发送对话 ID: {} (从 URL: {})", conversationId, url);
@@ -1603,14 +1663,14 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     }
     
     private void sendConversationId(SseEmitter emitter, String id, String conversationId, String model) throws IOException {
+        CompletionAccumulator accumulator = CompletionAccumulator.of(emitter);
+        if (accumulator != null) {
+            // 非流式响应单独返回对话 ID，不拼到回复内容里
+            accumulator.setConversationId(conversationId);
+            return;
+        }
         String content = "\n\n```nwla-conversation-id\n" + conversationId + "\n```\n\n";
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().content(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
+        ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, content);
         emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
     }
     
@@ -1636,240 +1696,6 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
         return !text.isEmpty() ? text.toString() : null;
     }
     
-    private ModelConfig.ParseResultWithIndex parseSseIncremental(String sseData, Map<Integer, String> fragmentTypeMap, 
-                                                     Integer lastActiveFragmentIndex) {
-        if (sseData == null || sseData.isEmpty()) {
-            return new ModelConfig.ParseResultWithIndex(new ModelConfig.SseParseResult(null, null, false), lastActiveFragmentIndex);
-        }
-        
-        StringBuilder thinkingText = new StringBuilder();
-        StringBuilder responseText = new StringBuilder();
-        boolean finished = false;
-        Integer currentActiveIndex = lastActiveFragmentIndex;
-        
-        for (String line : sseData.split("\n")) {
-            line = line.trim();
-            
-            if (line.startsWith("event: ")) {
-                String event = line.substring(7).trim();
-                if ("finish".equals(event) || "close".equals(event)) {
-                    finished = true;
-                }
-                continue;
-            }
-            
-            if (!line.startsWith("data: ")) continue;
-            String jsonStr = line.substring(6).trim();
-            if (jsonStr.isEmpty() || jsonStr.equals("{}")) continue;
-            
-            try {
-                JsonNode json = objectMapper.readTree(jsonStr);
-                String path = json.has("p") ? json.get("p").asString() : null;
-                String operation = json.has("o") ? json.get("o").asString() : null;
-                
-                // Fragment 创建（处理多种可能的路径格式）
-                if ((path != null && (path.equals("fragments") || path.equals("response/fragments") || path.endsWith("/fragments")))
-                        && "APPEND".equals(operation) && json.has("v") && json.get("v").isArray()) {
-                    int nextIndex = fragmentTypeMap.isEmpty() ? 0 : 
-                            fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
-                    for (JsonNode fragment : json.get("v")) {
-                        if (fragment.has("type")) {
-                            String type = fragment.get("type").asString();
-                            fragmentTypeMap.put(nextIndex, type);
-                            log.info("创建 fragment {}: type={}", nextIndex, type);
-                            if (fragment.has("content")) {
-                                String content = fragment.get("content").asString();
-                                if (content != null && !content.isEmpty()) {
-                                    log.info("Fragment {} 初始内容: {}", nextIndex, content.length() > 50 ? content.substring(0, 50) + "..." : content);
-                                    if ("THINK".equals(type)) thinkingText.append(content);
-                                    else if ("RESPONSE".equals(type)) responseText.append(content);
-                                }
-                            }
-                            // 更新当前活动索引为最后创建的 fragment
-                            currentActiveIndex = nextIndex;
-                            nextIndex++;
-                        }
-                    }
-                    continue;
-                }
-                
-                // 内容更新 - 处理完整路径
-                if (path != null && path.contains("fragments/") && path.endsWith("/content")) {
-                    Integer idx = extractFragmentIndex(path);
-                    if (idx != null) {
-                        // 处理 -1 索引（表示最后一个 fragment）
-                        if (idx == -1 && !fragmentTypeMap.isEmpty()) {
-                            idx = fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
-                        }
-                        if (idx >= 0 && fragmentTypeMap.containsKey(idx)) {
-                            currentActiveIndex = idx;
-                            String type = fragmentTypeMap.get(idx);
-                            if (json.has("v") && json.get("v").isString()) {
-                                String content = json.get("v").asString();
-                                if (content != null && !content.isEmpty()) {
-                                    log.trace("Fragment {} 内容更新 (type={}): {}", idx, type, content);
-                                    if ("THINK".equals(type)) thinkingText.append(content);
-                                    else responseText.append(content);
-                                }
-                            }
-                        } else {
-                            log.info("Fragment 索引无效或不存在: idx={}, path={}", idx, path);
-                        }
-                    } else {
-                        log.info("无法从路径提取索引: {}", path);
-                    }
-                }
-                // 简单格式 - 只有 v 字段，没有 p 字段
-                else if (json.has("v") && !json.has("p") && json.get("v").isString()) {
-                    String content = json.get("v").asString();
-                    if (content != null && !content.isEmpty()) {
-                        // 根据当前活动的 fragment 类型决定是思考还是回复
-                        boolean isThinking = false;
-                        
-                        if (currentActiveIndex != null && fragmentTypeMap.containsKey(currentActiveIndex)) {
-                            // 如果当前活动 fragment 类型已知，直接使用
-                            isThinking = "THINK".equals(fragmentTypeMap.get(currentActiveIndex));
-                        } else {
-                            // 如果 fragment 类型未知，使用启发式判断：
-                            boolean hasThinkFragment = fragmentTypeMap.values().stream().anyMatch("THINK"::equals);
-                            boolean hasResponseFragment = fragmentTypeMap.values().stream().anyMatch("RESPONSE"::equals);
-                            
-                            // 启发式规则：
-                            // 1. 如果有 THINK fragment 且还没有 RESPONSE fragment，说明还在思考阶段
-                            // 2. 如果已有思考内容但还没有回复内容，继续当作思考内容（深度思考进行中）
-                            // 3. 如果已有回复内容，继续当作回复内容
-                            // 4. 如果只有 RESPONSE fragment（没有 THINK fragment），说明是不带思考的响应
-                            if (hasThinkFragment && !hasResponseFragment) {
-                                // 有思考 fragment 但还没有回复 fragment，说明还在思考
-                                isThinking = true;
-                            } else if (thinkingText.length() > 0 && responseText.length() == 0) {
-                                // 已有思考内容但还没有回复内容，说明还在深度思考中
-                                isThinking = true;
-                            } else if (responseText.length() > 0) {
-                                // 已有回复内容，继续当作回复内容
-                                isThinking = false;
-                            } else if (hasResponseFragment && !hasThinkFragment) {
-                                // 只有 RESPONSE fragment，没有 THINK fragment，说明是不带思考的响应
-                                isThinking = false;
-                            } else if (fragmentTypeMap.isEmpty()) {
-                                // fragmentTypeMap 为空时，如果已有思考内容，继续当作思考内容
-                                // 否则当作回复内容（保守策略，因为大多数情况下是不带思考的）
-                                isThinking = thinkingText.length() > 0;
-                            } else {
-                                // 其他情况，默认当作回复内容
-                                isThinking = false;
-                            }
-                        }
-                        
-                        log.trace("简单格式内容 (activeIdx={}, isThinking={}, hasThink={}, hasResponse={}, thinkingLen={}, responseLen={}): {}", 
-                                currentActiveIndex, isThinking, 
-                                fragmentTypeMap.values().stream().anyMatch("THINK"::equals),
-                                fragmentTypeMap.values().stream().anyMatch("RESPONSE"::equals),
-                                thinkingText.length(), responseText.length(),
-                                content.length() > 50 ? content.substring(0, 50) + "..." : content);
-                        if (isThinking) {
-                            thinkingText.append(content);
-                        } else {
-                            responseText.append(content);
-                        }
-                    }
-                }
-                // BATCH 操作
-                else if (path != null && "BATCH".equals(operation) && json.has("v") && json.get("v").isArray()) {
-                    for (JsonNode item : json.get("v")) {
-                        if (!item.has("p") || !item.has("v")) continue;
-                        String itemPath = item.get("p").asString();
-                        
-                        // 处理 fragment 创建
-                        if (itemPath != null && (itemPath.equals("fragments") || itemPath.endsWith("/fragments"))) {
-                            if (item.has("o") && "APPEND".equals(item.get("o").asString()) && item.get("v").isArray()) {
-                                int nextIndex = fragmentTypeMap.isEmpty() ? 0 : 
-                                        fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
-                                for (JsonNode fragment : item.get("v")) {
-                                    if (fragment.has("type")) {
-                                        String type = fragment.get("type").asString();
-                                        fragmentTypeMap.put(nextIndex, type);
-                                        log.info("BATCH 创建 fragment {}: type={}", nextIndex, type);
-                                        if (fragment.has("content")) {
-                                            String content = fragment.get("content").asString();
-                                            if (content != null && !content.isEmpty()) {
-                                                if ("THINK".equals(type)) thinkingText.append(content);
-                                                else if ("RESPONSE".equals(type)) responseText.append(content);
-                                            }
-                                        }
-                                        // 更新当前活动索引为最后创建的 fragment
-                                        currentActiveIndex = nextIndex;
-                                        nextIndex++;
-                                    }
-                                }
-                            }
-                            continue;
-                        }
-                        
-                        // 处理内容更新
-                        if (itemPath != null && itemPath.contains("fragments/") && itemPath.endsWith("/content")) {
-                            Integer idx = extractFragmentIndex(itemPath);
-                            if (idx != null) {
-                                // 处理 -1 索引（表示最后一个 fragment）
-                                if (idx == -1 && !fragmentTypeMap.isEmpty()) {
-                                    idx = fragmentTypeMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
-                                }
-                                if (idx >= 0 && fragmentTypeMap.containsKey(idx)) {
-                                    currentActiveIndex = idx;
-                                    String type = fragmentTypeMap.get(idx);
-                                    if (item.get("v").isString()) {
-                                        String content = item.get("v").asString();
-                                        if (content != null && !content.isEmpty()) {
-                                            if ("THINK".equals(type)) thinkingText.append(content);
-                                            else if ("RESPONSE".equals(type)) responseText.append(content);
-                                        }
-                                    }
-                                } else {
-                                    log.info("BATCH Fragment 索引无效或不存在: idx={}, path={}", idx, itemPath);
-                                }
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.info("解析 SSE 数据行时出错: {}, line: {}", e.getMessage(), line.length() > 100 ? line.substring(0, 100) + "..." : line);
-            }
-        }
-        
-        if (log.isDebugEnabled() && (thinkingText.length() > 0 || responseText.length() > 0)) {
-            log.info("SSE 解析结果: thinking={} chars, response={} chars, finished={}", 
-                    thinkingText.length(), responseText.length(), finished);
-        }
-        
-        ModelConfig.SseParseResult result = new ModelConfig.SseParseResult(
-                thinkingText.length() > 0 ? thinkingText.toString() : null,
-                responseText.length() > 0 ? responseText.toString() : null,
-                finished
-        );
-        return new ModelConfig.ParseResultWithIndex(result, currentActiveIndex);
-    }
-    
-    /**
-     * 从路径中提取 fragment 索引
-     * 支持格式：response/fragments/0/content, fragments/0/content
-     */
-    private Integer extractFragmentIndex(String path) {
-        if (path == null) return null;
-        try {
-            // 查找 "fragments/" 后面的数字
-            int fragmentsIdx = path.indexOf("fragments/");
-            if (fragmentsIdx >= 0) {
-                String afterFragments = path.substring(fragmentsIdx + "fragments/".length());
-                int slashIdx = afterFragments.indexOf('/');
-                String indexStr = slashIdx > 0 ? afterFragments.substring(0, slashIdx) : afterFragments;
-                return Integer.parseInt(indexStr);
-            }
-        } catch (Exception e) {
-            log.info("提取 fragment 索引失败: path={}", path);
-        }
-        return null;
-    }
-    
     // ==================== 对话 ID 提取 ====================
     
     /**
@@ -2282,11 +2108,7 @@ public class DeepSeekProvider implements LLMProvider, ProviderLoginHandler {
     
     @PreDestroy
     public void cleanup() {
-        log.info("清理页面，共 {} 个", modelPages.size());
-        modelPages.values().forEach(page -> {
-            try { if (page != null && !page.isClosed()) page.close(); } catch (Exception e) { }
-        });
-        modelPages.clear();
+        log.info("清理页面，共 {} 个", pageCache.clear(getProviderName()));
         
         // 清理 admin 登录会话
         adminLoginSessions.values().forEach(session -> {
@@ -0,0 +1,282 @@
+package site.newbie.web.llm.api.provider.deepseek;
+
+import lombok.extern.slf4j.Slf4j;
+import site.newbie.web.llm.api.provider.ModelConfig;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DeepSeek SSE 增量解析器
+ * 每个流一个实例，按到达顺序喂入原始 chunk：
+ * - 跨 chunk 断开的行会缓存到下一个 chunk 到达后再解析
+ * - data 行使用流式 JSON 读取 p / o / v 字段，不构建完整的 JsonNode 树
+ *   （只有数组 v 出现在 p / o 之前时才缓存为树，读到 p / o 后再处理）
+ * - fragment 类型按索引顺序记录在列表中，下一个 fragment 的索引即列表长度
+ *
+ * 非线程安全，只应在监听该流的线程中使用
+ */
+@Slf4j
+public class DeepSeekSseParser {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String THINK = "THINK";
+    private static final String RESPONSE = "RESPONSE";
+
+    // 尚未遇到换行的残余数据
+    private final StringBuilder pending = new StringBuilder();
+
+    // fragment 索引 -> 类型，索引从 0 连续递增
+    private final List<String> fragmentTypes = new ArrayList<>();
+    private boolean hasThinkFragment;
+    private boolean hasResponseFragment;
+
+    // 最近一次创建或更新的 fragment 索引
+    private Integer activeFragmentIndex;
+
+    // 单次 feed 的输出
+    private final StringBuilder thinkingText = new StringBuilder();
+    private final StringBuilder responseText = new StringBuilder();
+    private boolean finished;
+
+    /**
+     * 喂入一段原始 SSE 数据
+     * @param chunk 原始数据，可以在任意位置断开
+     * @return 本次新增的思考/回复内容，以及是否已收到结束事件
+     */
+    public ModelConfig.SseParseResult feed(String chunk) {
+        thinkingText.setLength(0);
+        responseText.setLength(0);
+        if (chunk != null && !chunk.isEmpty()) {
+            pending.append(chunk);
+            int lineStart = 0;
+            int newline;
+            while ((newline = pending.indexOf("\n", lineStart)) >= 0) {
+                processLine(lineStart, newline);
+                lineStart = newline + 1;
+            }
+            pending.delete(0, lineStart);
+        }
+
+        if (log.isDebugEnabled() && (!thinkingText.isEmpty() || !responseText.isEmpty())) {
+            log.debug("SSE 解析结果: thinking={} chars, response={} chars, finished={}",
+                    thinkingText.length(), responseText.length(), finished);
+        }
+        return new ModelConfig.SseParseResult(
+                !thinkingText.isEmpty() ? thinkingText.toString() : null,
+                !responseText.isEmpty() ? responseText.toString() : null,
+                finished
+        );
+    }
+
+    private void processLine(int start, int end) {
+        // 去掉首尾空白（包括 \r）
+        while (start < end && pending.charAt(start) <= ' ') start++;
+        while (end > start && pending.charAt(end - 1) <= ' ') end--;
+        if (start == end) return;
+
+        if (startsWith(start, end, "event:")) {
+            String event = pending.substring(start + 6, end).trim();
+            if ("finish".equals(event) || "close".equals(event)) {
+                finished = true;
+            }
+            return;
+        }
+        if (!startsWith(start, end, "data:")) return;
+        start += 5;
+        while (start < end && pending.charAt(start) == ' ') start++;
+        if (end - start == 0 || (end - start == 2 && pending.charAt(start) == '{' && pending.charAt(start + 1) == '}')) {
+            return;
+        }
+
+        String json = pending.substring(start, end);
+        try (JsonParser parser = MAPPER.createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                processOperation(parser, false);
+            }
+        } catch (Exception e) {
+            log.info("解析 SSE 数据行时出错: {}, line: {}", e.getMessage(), json.length() > 100 ? json.substring(0, 100) + "..." : json);
+        }
+    }
+
+    private boolean startsWith(int start, int end, String prefix) {
+        if (end - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (pending.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 处理一个 {p, o, v} 操作对象，parser 位于 START_OBJECT，返回时位于对应的 END_OBJECT
+     * @param batchItem 是否为 BATCH 中的子操作
+     */
+    private void processOperation(JsonParser parser, boolean batchItem) {
+        String path = null;
+        String operation = null;
+        String value = null;
+        JsonNode deferredArray = null;
+
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "p" -> path = token == JsonToken.VALUE_STRING ? parser.getString() : null;
+                case "o" -> operation = token == JsonToken.VALUE_STRING ? parser.getString() : null;
+                case "v" -> {
+                    if (token == JsonToken.VALUE_STRING) {
+                        value = parser.getString();
+                    } else if (token == JsonToken.START_ARRAY && path != null && operation != null) {
+                        processArray(parser, path, operation);
+                    } else if (token == JsonToken.START_ARRAY) {
+                        // 数组出现在 p / o 之前时先缓存，读完整个对象后再处理
+                        deferredArray = parser.readValueAsTree();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (deferredArray != null) {
+            if (path != null && operation != null) {
+                try (JsonParser replay = MAPPER.treeAsTokens(deferredArray)) {
+                    replay.nextToken();
+                    processArray(replay, path, operation);
+                }
+            }
+            return;
+        }
+
+        if (value == null) return;
+        if (path != null && path.contains("fragments/") && path.endsWith("/content")) {
+            appendToFragment(path, value, batchItem);
+        } else if (path == null && !batchItem) {
+            appendByHeuristic(value);
+        }
+    }
+
+    /**
+     * 处理数组值，parser 位于 START_ARRAY，返回时位于对应的 END_ARRAY
+     */
+    private void processArray(JsonParser parser, String path, String operation) {
+        if ("APPEND".equals(operation) && isFragmentsPath(path)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                readFragment(parser);
+            }
+        } else if ("BATCH".equals(operation)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    processOperation(parser, true);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    /**
+     * 读取新建的 fragment，parser 位于 START_OBJECT
+     */
+    private void readFragment(JsonParser parser) {
+        String type = null;
+        String content = null;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("type".equals(name) && token == JsonToken.VALUE_STRING) {
+                type = parser.getString();
+            } else if ("content".equals(name) && token == JsonToken.VALUE_STRING) {
+                content = parser.getString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (type == null) return;
+
+        int index = fragmentTypes.size();
+        fragmentTypes.add(type);
+        hasThinkFragment |= THINK.equals(type);
+        hasResponseFragment |= RESPONSE.equals(type);
+        activeFragmentIndex = index;
+        log.info("创建 fragment {}: type={}", index, type);
+
+        if (content != null && !content.isEmpty()) {
+            if (THINK.equals(type)) thinkingText.append(content);
+            else if (RESPONSE.equals(type)) responseText.append(content);
+        }
+    }
+
+    private void appendToFragment(String path, String content, boolean batchItem) {
+        Integer idx = extractFragmentIndex(path);
+        if (idx == null) {
+            log.info("无法从路径提取索引: {}", path);
+            return;
+        }
+        // -1 表示最后一个 fragment
+        if (idx == -1) {
+            idx = fragmentTypes.size() - 1;
+        }
+        if (idx < 0 || idx >= fragmentTypes.size()) {
+            log.info("Fragment 索引无效或不存在: idx={}, path={}", idx, path);
+            return;
+        }
+        activeFragmentIndex = idx;
+        if (content.isEmpty()) return;
+        String type = fragmentTypes.get(idx);
+        if (THINK.equals(type)) thinkingText.append(content);
+        else if (!batchItem || RESPONSE.equals(type)) responseText.append(content);
+    }
+
+    /**
+     * 简单格式（只有 v 字段）：根据当前活动 fragment 类型决定是思考还是回复
+     */
+    private void appendByHeuristic(String content) {
+        if (content.isEmpty()) return;
+        boolean isThinking;
+        if (activeFragmentIndex != null && activeFragmentIndex < fragmentTypes.size()) {
+            isThinking = THINK.equals(fragmentTypes.get(activeFragmentIndex));
+        } else if (hasThinkFragment && !hasResponseFragment) {
+            // 有思考 fragment 但还没有回复 fragment，说明还在思考
+            isThinking = true;
+        } else if (!thinkingText.isEmpty() && responseText.isEmpty()) {
+            // 已有思考内容但还没有回复内容，说明还在深度思考中
+            isThinking = true;
+        } else {
+            // 其他情况当作回复内容（大多数情况下是不带思考的响应）
+            isThinking = false;
+        }
+        if (isThinking) thinkingText.append(content);
+        else responseText.append(content);
+    }
+
+    private static boolean isFragmentsPath(String path) {
+        return path.equals("fragments") || path.endsWith("/fragments");
+    }
+
+    /**
+     * 从路径中提取 fragment 索引
+     * 支持格式：response/fragments/0/content, fragments/-1/content
+     */
+    static Integer extractFragmentIndex(String path) {
+        int fragmentsIdx = path.indexOf("fragments/");
+        if (fragmentsIdx < 0) return null;
+        int start = fragmentsIdx + "fragments/".length();
+        int end = path.indexOf('/', start);
+        try {
+            return Integer.parseInt(path, start, end > start ? end : path.length(), 10);
+        } catch (NumberFormatException e) {
+            log.info("提取 fragment 索引失败: path={}", path);
+            return null;
+        }
+    }
+}
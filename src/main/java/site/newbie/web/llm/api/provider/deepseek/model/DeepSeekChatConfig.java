@@ -7,11 +7,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
 import site.newbie.web.llm.api.provider.SseDataLogger;
+import site.newbie.web.llm.api.provider.deepseek.DeepSeekSseParser;
 
 import java.io.IOException;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DeepSeek Chat 模型配置
@@ -52,7 +53,7 @@ public class DeepSeekChatConfig implements DeepSeekModelConfig {
                     
                     if (isActive) {
                         thinkingToggle.click();
-                        page.waitForTimeout(300);
+                        PageActions.waitForClassChange(page, thinkingToggle, className, PageActions.TOGGLE_TIMEOUT_MS);
                         log.info("已关闭深度思考模式");
                     } else {
                         log.info("深度思考模式已关闭");
@@ -77,7 +78,7 @@ public class DeepSeekChatConfig implements DeepSeekModelConfig {
                             
                             if (isActive) {
                                 button.click();
-                                page.waitForTimeout(300);
+                                PageActions.waitForClassChange(page, button, className, PageActions.TOGGLE_TIMEOUT_MS);
                                 log.info("已通过 fallback 方法关闭深度思考模式");
                             }
                         }
@@ -109,8 +110,8 @@ public class DeepSeekChatConfig implements DeepSeekModelConfig {
         boolean finished = false;
         int noDataCount = 0;
         
-        java.util.Map<Integer, String> fragmentTypeMap = new ConcurrentHashMap<>();
-        Integer lastActiveFragmentIndex = null;
+        // 有状态的增量解析器，跨 chunk 保留未完成的行和 fragment 类型
+        DeepSeekSseParser parser = new DeepSeekSseParser();
         
         // 用于调试：记录所有接收到的原始 SSE 数据
         SseDataLogger sseLogger = new SseDataLogger(request.getModel(), request);
@@ -122,7 +123,8 @@ public class DeepSeekChatConfig implements DeepSeekModelConfig {
                     break;
                 }
 
-                String sseData = handler.getSseData(page, "__deepseekSseData");
+                // 等待新数据（推送模式下有数据立即返回，最多等待 100ms）
+                String sseData = handler.pollSseData(page, "__deepseekSseData", 100);
                 
                 if (sseData != null && !sseData.isEmpty()) {
                     noDataCount = 0;
@@ -130,9 +132,7 @@ public class DeepSeekChatConfig implements DeepSeekModelConfig {
                     // 记录完整的原始 SSE 响应数据（用于调试）
                     sseLogger.logSseChunk(sseData);
                     
-                    ModelConfig.ParseResultWithIndex parseResult = handler.parseSseIncremental(sseData, fragmentTypeMap, lastActiveFragmentIndex);
-                    ModelConfig.SseParseResult result = parseResult.result();
-                    lastActiveFragmentIndex = parseResult.lastActiveFragmentIndex();
+                    ModelConfig.SseParseResult result = parser.feed(sseData);
                     
                     // 只发送回复内容，忽略思考内容
                     if (result.responseContent() != null && !result.responseContent().isEmpty()) {
@@ -181,8 +181,6 @@ public class DeepSeekChatConfig implements DeepSeekModelConfig {
                     log.warn("达到超时时间，结束监听");
                     break;
                 }
-
-                Thread.sleep(100);
             } catch (Exception e) {
                 if (page.isClosed()) break;
                 if (isRecoverableError(e)) {
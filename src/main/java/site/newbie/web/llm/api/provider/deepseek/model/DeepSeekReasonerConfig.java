@@ -7,11 +7,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
 import site.newbie.web.llm.api.provider.SseDataLogger;
+import site.newbie.web.llm.api.provider.deepseek.DeepSeekSseParser;
 
 import java.io.IOException;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DeepSeek Reasoner 模型配置
@@ -22,6 +23,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
     
     public static final String MODEL_NAME = "deepseek-web-reasoner";
+
+    // 查找深度思考按钮的首次重试等待时间，之后每次翻倍
+    private static final long RETRY_BACKOFF_MS = 500;
     
     @Override
     public String getModelName() {
@@ -41,15 +45,16 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
             } catch (Exception e) {
                 log.error("等待输入框超时: {}", e.getMessage());
             }
-            page.waitForTimeout(1500);
             
             boolean thinkingEnabled = false;
             int maxRetries = 3;
             
             for (int retry = 0; retry < maxRetries && !thinkingEnabled; retry++) {
                 if (retry > 0) {
-                    log.info("重试查找深度思考按钮 (第 {} 次)", retry + 1);
-                    page.waitForTimeout(1000);
+                    // 按钮找不到或点击未生效时退避后再试（500ms、1000ms），给页面渲染和状态切换留出时间
+                    long backoffMs = RETRY_BACKOFF_MS << (retry - 1);
+                    log.info("重试查找深度思考按钮 (第 {} 次)，等待 {} ms", retry + 1, backoffMs);
+                    page.waitForTimeout(backoffMs);
                 }
                 
                 try {
@@ -63,8 +68,8 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
                             .or(page.locator("button:has-text('Thinking')"))
                             .first();
                     
-                    if (thinkingToggle.count() > 0) {
-                        thinkingToggle.waitFor();
+                    // 按钮在输入框之后渲染，出现即继续，不再固定等待
+                    if (PageActions.waitForVisible(thinkingToggle, PageActions.TOGGLE_TIMEOUT_MS)) {
                         String className = thinkingToggle.getAttribute("class");
                         boolean isActive = className != null && 
                             (className.contains("active") || className.contains("selected") || 
@@ -73,7 +78,7 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
                         
                         if (!isActive) {
                             thinkingToggle.click();
-                            page.waitForTimeout(800);
+                            PageActions.waitForClassChange(page, thinkingToggle, className, PageActions.TOGGLE_TIMEOUT_MS);
                             log.info("已启用深度思考模式");
                         } else {
                             log.info("深度思考模式已启用");
@@ -149,8 +154,8 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
         boolean finished = false;
         int noDataCount = 0;
         
-        java.util.Map<Integer, String> fragmentTypeMap = new ConcurrentHashMap<>();
-        Integer lastActiveFragmentIndex = null;
+        // 有状态的增量解析器，跨 chunk 保留未完成的行和 fragment 类型
+        DeepSeekSseParser parser = new DeepSeekSseParser();
         
         // 用于调试：记录所有接收到的原始 SSE 数据
         SseDataLogger sseLogger = new SseDataLogger(request.getModel(), request);
@@ -159,7 +164,8 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
             try {
                 if (page.isClosed()) break;
 
-                String sseData = handler.getSseData(page, "__deepseekSseData");
+                // 等待新数据（推送模式下有数据立即返回，最多等待 100ms）
+                String sseData = handler.pollSseData(page, "__deepseekSseData", 100);
                 
                 if (sseData != null && !sseData.isEmpty()) {
                     noDataCount = 0;
@@ -167,9 +173,7 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
                     // 记录完整的原始 SSE 响应数据（用于调试）
                     sseLogger.logSseChunk(sseData);
                     
-                    ModelConfig.ParseResultWithIndex parseResult = handler.parseSseIncremental(sseData, fragmentTypeMap, lastActiveFragmentIndex);
-                    ModelConfig.SseParseResult result = parseResult.result();
-                    lastActiveFragmentIndex = parseResult.lastActiveFragmentIndex();
+                    ModelConfig.SseParseResult result = parser.feed(sseData);
                     
                     // 发送思考内容
                     if (result.thinkingContent() != null && !result.thinkingContent().isEmpty()) {
@@ -218,7 +222,6 @@ public class DeepSeekReasonerConfig implements DeepSeekModelConfig {
                 }
 
                 if (System.currentTimeMillis() - startTime > 120000) break;
-                Thread.sleep(100);
             } catch (Exception e) {
                 if (page.isClosed()) break;
                 if (isRecoverableError(e)) {
@@ -2,6 +2,7 @@ package site.newbie.web.llm.api.provider.gemini;
 
 import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
+import com.microsoft.playwright.options.WaitUntilState;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
@@ -9,13 +10,18 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.manager.BrowserManager;
+import site.newbie.web.llm.api.manager.ConversationPageCache;
+import site.newbie.web.llm.api.manager.LoginStateCache;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.model.ChatCompletionResponse;
 import site.newbie.web.llm.api.model.LoginInfo;
 import site.newbie.web.llm.api.provider.AccountInfo;
+import site.newbie.web.llm.api.provider.CompletionAccumulator;
 import site.newbie.web.llm.api.provider.LLMProvider;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
 import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.SseChunkCoalescer;
 import site.newbie.web.llm.api.provider.command.Command;
 import site.newbie.web.llm.api.provider.command.CommandHandler;
 import site.newbie.web.llm.api.provider.command.CommandParser;
@@ -31,7 +37,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
@@ -49,19 +54,28 @@ public class GeminiProvider implements LLMProvider {
     private final ObjectMapper objectMapper;
     private final Map<String, GeminiModelConfig> modelConfigs;
     private final ProviderRegistry providerRegistry;
+    private final SseChunkCoalescer chunkCoalescer;
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     
     // 全局指令解析器，支持全局指令和 Gemini 特定指令
     private final CommandParser commandParser;
 
-    private final ConcurrentHashMap<String, Page> modelPages = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> pageUrls = new ConcurrentHashMap<>();
-    // 存储 conversationId -> Page 的映射，用于指令执行后保留的 tab
-    private final ConcurrentHashMap<String, Page> conversationPages = new ConcurrentHashMap<>();
+    // conversationId -> Page 的缓存，包括指令执行后保留的 tab（临时 ID）
+    private final ConversationPageCache pageCache;
+
+    // 登录状态缓存，有效期内跳过页面上的登录检查
+    private final LoginStateCache loginStateCache;
 
     // Gemini 只支持 DOM 模式
     private static final String MONITOR_MODE = "dom";
 
+    // 首页（新对话）地址和聊天输入框
+    private static final String HOME_URL = "https://gemini.google.com/app";
+    private static final String CHAT_INPUT_SELECTOR = "div[role='textbox']";
+
+    // 发送消息时页面发出的对话请求
+    private static final String STREAM_GENERATE_URL = "StreamGenerate";
+
     private final ModelConfig.ResponseHandler responseHandler = new ModelConfig.ResponseHandler() {
         @Override
         public void sendChunk(SseEmitter emitter, String id, String content, String model) throws IOException {
@@ -98,8 +112,13 @@ public class GeminiProvider implements LLMProvider {
     };
 
     public GeminiProvider(BrowserManager browserManager, ObjectMapper objectMapper,
-                          List<GeminiModelConfig> configs, @Lazy ProviderRegistry providerRegistry) {
+                          List<GeminiModelConfig> configs, @Lazy ProviderRegistry providerRegistry,
+                          SseChunkCoalescer chunkCoalescer, ConversationPageCache pageCache,
+                          LoginStateCache loginStateCache) {
         this.browserManager = browserManager;
+        this.pageCache = pageCache;
+        this.loginStateCache = loginStateCache;
+        this.chunkCoalescer = chunkCoalescer;
         this.objectMapper = objectMapper;
         this.providerRegistry = providerRegistry;
         this.modelConfigs = configs.stream()
@@ -107,6 +126,18 @@ public class GeminiProvider implements LLMProvider {
         
         // 创建指令解析器，支持全局指令和 Gemini 特定指令
         this.commandParser = new CommandParser(this::createProviderCommand);
+        browserManager.registerPageWarmer(getProviderName(), new BrowserManager.PageWarmer() {
+            @Override
+            public void start(Page page) {
+                // 只发起导航，页面在浏览器中继续加载，是否就绪由 isReady 轮询判断
+                page.navigate(HOME_URL, new Page.NavigateOptions().setWaitUntil(WaitUntilState.COMMIT));
+            }
+
+            @Override
+            public boolean isReady(Page page) {
+                return isNewChatUrl(page.url()) && page.locator(CHAT_INPUT_SELECTOR).first().isVisible();
+            }
+        });
         
         log.info("GeminiProvider 初始化完成，支持的模型: {}", modelConfigs.keySet());
     }
@@ -172,17 +203,7 @@ public class GeminiProvider implements LLMProvider {
 
             // 等待页面加载完成
             page.waitForLoadState();
-            page.waitForTimeout(1000);
 
-            // 检查URL：如果URL包含登录相关路径，说明未登录
-            String url = page.url();
-            if (url.contains("/signin") || url.contains("/login") || url.contains("/auth")) {
-                log.info("检测到登录页面URL: {}", url);
-                return false;
-            }
-
-            // 优先检查登录按钮（未登录会有登录按钮）
-            // 如果明确发现登录按钮，直接判断为未登录，优先级高于输入框检查
             // 根据实际 DOM 结构，登录按钮是 <a> 标签，带有 aria-label="登录" 和 href 包含 ServiceLogin
             Locator loginButton = page.locator("a[aria-label='登录']")
                     .or(page.locator("a[aria-label='Sign in']"))
@@ -192,19 +213,29 @@ public class GeminiProvider implements LLMProvider {
                     .or(page.locator("a:has-text('登录')"))
                     .or(page.locator("a:has-text('Sign in')"))
                     .or(page.locator("a[href*='signin']"));
+            // 使用 div[role='textbox'] 作为主要选择器
+            Locator inputBox = page.locator("div[role='textbox']")
+                    .or(page.locator("textarea[placeholder*='输入']"))
+                    .or(page.locator("textarea[placeholder*='Enter a prompt']"))
+                    .or(page.locator("textarea[aria-label*='prompt']"));
+            // 登录按钮或输入框出现即可判断，不再固定等待
+            PageActions.waitForVisible(loginButton.or(inputBox), PageActions.ELEMENT_TIMEOUT_MS);
 
+            // 检查URL：如果URL包含登录相关路径，说明未登录
+            String url = page.url();
+            if (url.contains("/signin") || url.contains("/login") || url.contains("/auth")) {
+                log.info("检测到登录页面URL: {}", url);
+                return false;
+            }
+
+            // 优先检查登录按钮（未登录会有登录按钮）
+            // 如果明确发现登录按钮，直接判断为未登录，优先级高于输入框检查
             if (loginButton.count() > 0 && loginButton.first().isVisible()) {
                 log.info("检测到登录按钮，判断为未登录");
                 return false;
             }
 
             // 检查是否存在输入框（已登录会有输入框）
-            // 使用 div[role='textbox'] 作为主要选择器
-            Locator inputBox = page.locator("div[role='textbox']")
-                    .or(page.locator("textarea[placeholder*='输入']"))
-                    .or(page.locator("textarea[placeholder*='Enter a prompt']"))
-                    .or(page.locator("textarea[aria-label*='prompt']"));
-
             if (inputBox.count() > 0 && inputBox.first().isVisible()) {
                 log.info("检测到输入框，判断为已登录");
                 return true;
@@ -355,7 +386,9 @@ public class GeminiProvider implements LLMProvider {
                 }
 
                 // 注意：指令检查已在 Controller 层统一处理，这里只处理普通聊天请求
+                PageActions.StepTimer timer = new PageActions.StepTimer(getProviderName());
                 page = getOrCreatePage(request);
+                timer.mark("获取页面");
 
                 // 检查是否找到了页面（对于非新对话，必须找到对应的 tab）
                 if (page == null) {
@@ -371,8 +404,12 @@ public class GeminiProvider implements LLMProvider {
                     throw new RuntimeException("无法创建或获取页面");
                 }
 
-                // 检查登录状态
-                if (!checkLoginStatus(page)) {
+                // 检查登录状态（缓存有效时跳过页面检查）
+                Page current = page;
+                boolean loggedIn = loginStateCache.check(getProviderName(), request.getAccountId(),
+                        () -> checkLoginStatus(current));
+                timer.mark("检查登录");
+                if (!loggedIn) {
                     log.warn("检测到未登录状态，发送手动登录提示");
 
                     String conversationId = getConversationId(request);
@@ -384,16 +421,22 @@ public class GeminiProvider implements LLMProvider {
                     return;
                 }
 
-                if (isNewConversation(request)) {
+                // 刚打开的首页本身就是新对话，不需要再点击新对话按钮
+                if (isNewConversation(request) && !isNewChatUrl(page.url())) {
                     clickNewChatButton(page);
+                    timer.mark("新对话");
                 }
 
                 config.configure(page);
+                timer.mark("配置模型");
 
                 // 处理内置指令（如添加附件）- 这些指令会作为附件添加，但消息仍会发送
                 processCommands(page, request);
+                timer.mark("处理指令");
 
                 sendMessage(page, request);
+                timer.mark("发送消息");
+                timer.log();
 
                 int messageCountBefore = countMessages(page);
 
@@ -404,8 +447,12 @@ public class GeminiProvider implements LLMProvider {
 
             } catch (Exception e) {
                 log.error("Chat Error", e);
+                chunkCoalescer.discard(emitter);
                 emitter.completeWithError(e);
-                cleanupPageOnError(page, request.getModel());
+                cleanupPageOnError(page, request.getAccountId());
+            } finally {
+                // 页面放回缓存；出错时页面已关闭并移出缓存
+                releasePage(request, page);
             }
         });
     }
@@ -414,93 +461,53 @@ public class GeminiProvider implements LLMProvider {
 
     @Override
     public Page getOrCreatePage(ChatCompletionRequest request) {
-        String model = request.getModel();
+        String accountId = request.getAccountId();
         String conversationId = getConversationId(request);
         boolean isNew = isNewConversation(request);
 
         if (!isNew && conversationId != null) {
-            // 优先从 conversationPages 中查找（指令执行后保留的 tab）
-            Page page = conversationPages.get(conversationId);
-            if (page != null && !page.isClosed()) {
-                // 如果是临时 ID（command- 开头），检查页面是否已经有了真正的 conversationId
-                if (conversationId.startsWith("command-")) {
-                    String currentUrl = page.url();
-                    String realConversationId = extractConversationIdFromUrl(currentUrl);
-                    if (realConversationId != null && !realConversationId.isEmpty()) {
-                        // 页面已经有了真正的 conversationId，更新映射关系
-                        conversationPages.remove(conversationId); // 移除临时 ID
-                        conversationPages.put(realConversationId, page); // 使用真正的 ID
-                        pageUrls.put(model, currentUrl);
-                        modelPages.put(model, page);
-                        log.info("临时 ID 已更新为真正的 conversationId: tempId={}, realId={}, url={}", 
-                            conversationId, realConversationId, currentUrl);
-                        return page;
-                    } else {
-                        // 还是临时 ID，直接使用
-                        log.info("找到已保留的 tab（临时 ID）: tempConversationId={}, url={}", conversationId, currentUrl);
-                        modelPages.put(model, page);
-                        pageUrls.put(model, currentUrl);
-                        return page;
-                    }
-                } else {
-                    // 真正的 conversationId，验证页面 URL 是否匹配
-                    String expectedUrl = buildUrlFromConversationId(conversationId);
-                    String currentUrl = page.url();
-                    if (expectedUrl.equals(currentUrl) || currentUrl.contains(conversationId)) {
-                        log.info("找到已保留的 tab: conversationId={}, url={}", conversationId, currentUrl);
-                        modelPages.put(model, page);
-                        pageUrls.put(model, currentUrl);
-                        return page;
-                    } else {
-                        // URL 不匹配，尝试导航到正确的 URL
-                        try {
-                            page.navigate(expectedUrl);
-                            page.waitForLoadState();
-                            modelPages.put(model, page);
-                            pageUrls.put(model, expectedUrl);
-                            log.info("已导航到正确的 URL: conversationId={}, url={}", conversationId, expectedUrl);
-                            return page;
-                        } catch (Exception e) {
-                            log.warn("导航到 URL 失败，移除无效的 tab 关联: conversationId={}, error={}", conversationId, e.getMessage());
-                            conversationPages.remove(conversationId);
-                        }
-                    }
-                }
-            } else if (page != null && page.isClosed()) {
-                // 页面已关闭，移除无效关联
-                log.warn("已保留的 tab 已关闭，移除关联: conversationId={}", conversationId);
-                conversationPages.remove(conversationId);
+            // 从缓存中取回对话的 tab（包括指令执行后保留的 tab）
+            Page page = pageCache.acquire(getProviderName(), accountId, conversationId);
+            if (page == null) {
+                // 找不到 tab，返回 null（会在 streamChat 中处理为系统错误）
+                log.warn("找不到对应的 tab: conversationId={}", conversationId);
+                return null;
             }
 
-            // 如果是临时 ID，找不到就直接返回 null（不尝试通过 URL 查找）
+            String currentUrl = page.url();
             if (conversationId.startsWith("command-")) {
-                log.warn("找不到对应的 tab（临时 ID）: conversationId={}", conversationId);
-                return null;
+                // 临时 ID 的页面回复结束后会改用 URL 中真正的 conversationId 缓存
+                log.info("找到已保留的 tab（临时 ID）: tempConversationId={}, url={}", conversationId, currentUrl);
+                return page;
             }
 
-            // 如果找不到已保留的 tab，尝试通过 URL 查找（但不创建新页面）
-            String conversationUrl = buildUrlFromConversationId(conversationId);
-            String accountId = request.getAccountId();
-            Page foundPage = findPageByUrl(conversationUrl, accountId);
-
-            if (foundPage != null && !foundPage.isClosed()) {
-                // 找到了页面，更新映射
-                modelPages.put(model, foundPage);
-                pageUrls.put(model, conversationUrl);
-                conversationPages.put(conversationId, foundPage);
-                log.info("通过 URL 找到已存在的 tab: conversationId={}, url={}", conversationId, conversationUrl);
-                return foundPage;
+            // 真正的 conversationId，验证页面 URL 是否匹配
+            String expectedUrl = buildUrlFromConversationId(conversationId);
+            if (expectedUrl.equals(currentUrl) || currentUrl.contains(conversationId)) {
+                log.info("找到已保留的 tab: conversationId={}, url={}", conversationId, currentUrl);
+                return page;
+            }
+            // URL 不匹配，尝试导航到正确的 URL
+            try {
+                page.navigate(expectedUrl);
+                page.waitForLoadState();
+                log.info("已导航到正确的 URL: conversationId={}, url={}", conversationId, expectedUrl);
+                return page;
+            } catch (Exception e) {
+                log.warn("导航到 URL 失败，关闭无效的 tab: conversationId={}, error={}", conversationId, e.getMessage());
+                cleanupPageOnError(page, accountId);
+                return null;
             }
-
-            // 找不到 tab，返回 null（会在 streamChat 中处理为系统错误）
-            log.warn("找不到对应的 tab: conversationId={}, url={}", conversationId, conversationUrl);
-            return null;
         } else {
-            String accountId = request.getAccountId();
-            return createNewConversationPage(model, accountId);
+            return createNewConversationPage(accountId);
         }
     }
 
+    @Override
+    public void releasePage(ChatCompletionRequest request, Page page) {
+        pageCache.release(getProviderName(), request.getAccountId(), page, null);
+    }
+
     @Override
     public String getConversationId(ChatCompletionRequest request) {
         String conversationId = request.getConversationId();
@@ -522,48 +529,37 @@ public class GeminiProvider implements LLMProvider {
         return conversationId == null || conversationId.isEmpty() || conversationId.startsWith("login-");
     }
 
-    private Page createNewConversationPage(String model, String accountId) {
-        Page oldPage = modelPages.remove(model);
-        if (oldPage != null && !oldPage.isClosed()) {
-            try {
-                oldPage.close();
-            } catch (Exception e) {
-            }
+    private Page createNewConversationPage(String accountId) {
+        // 优先使用预热好的页面（已打开首页且输入框就绪）
+        Page page = browserManager.takeWarmPage(getProviderName(), accountId);
+        if (page != null) {
+            pageCache.register(getProviderName(), accountId, page);
+            return page;
         }
 
-        Page page = browserManager.newPage(getProviderName(), accountId);
-        modelPages.put(model, page);
+        page = browserManager.newPage(getProviderName(), accountId);
+        pageCache.register(getProviderName(), accountId, page);
         // 使用 /app 路径
-        page.navigate("https://gemini.google.com/app");
+        page.navigate(HOME_URL);
         page.waitForLoadState();
-        // 等待页面加载完成（不等待输入框，因为可能未登录）
-        page.waitForTimeout(2000);
-        pageUrls.put(model, page.url());
+        // 不在这里等待输入框（可能未登录）：登录检查会等到登录按钮或输入框出现，发送消息前也会等待输入框
         return page;
     }
 
-    private Page findPageByUrl(String targetUrl, String accountId) {
-        if (targetUrl == null) return null;
-        for (String model : modelPages.keySet()) {
-            Page page = modelPages.get(model);
-            if (page != null && !page.isClosed() && targetUrl.equals(pageUrls.get(model))) {
-                return page;
-            }
-        }
-        try {
-            for (Page page : browserManager.getAllPages(getProviderName(), accountId)) {
-                if (page != null && !page.isClosed() && targetUrl.equals(page.url())) {
-                    return page;
-                }
-            }
-        } catch (Exception e) {
+    /**
+     * 是否为新对话页面（/app，URL 中还没有对话 ID）
+     */
+    private static boolean isNewChatUrl(String url) {
+        if (url == null) {
+            return false;
         }
-        return null;
+        int query = url.indexOf('?');
+        String path = query >= 0 ? url.substring(0, query) : url;
+        return path.equals(HOME_URL) || path.equals(HOME_URL + "/");
     }
 
     private void clickNewChatButton(Page page) {
         try {
-            page.waitForTimeout(1000);
             // 优先使用侧边栏的新聊天按钮
             Locator newChatButton = page.locator("bard-sidenav-container side-navigation-content mat-action-list.top-action-list button.mat-mdc-list-item")
                     .or(page.locator("button:has-text('新对话')"))
@@ -573,7 +569,7 @@ public class GeminiProvider implements LLMProvider {
                     .or(page.locator("[aria-label*='New chat']"))
                     .or(page.locator("[aria-label*='新对话']"));
 
-            if (newChatButton.count() > 0) {
+            if (PageActions.waitForVisible(newChatButton, PageActions.TOGGLE_TIMEOUT_MS)) {
                 newChatButton.first().click();
                 // 等待输入框出现，确保新聊天页面加载完成
                 try {
@@ -581,7 +577,7 @@ public class GeminiProvider implements LLMProvider {
                 } catch (Exception e) {
                     log.warn("等待新聊天页面输入框超时: {}", e.getMessage());
                 }
-                page.waitForTimeout(500);
+                PageActions.waitForUrl(page, GeminiProvider::isNewChatUrl, PageActions.ELEMENT_TIMEOUT_MS);
                 log.info("已点击新对话按钮");
             } else {
                 log.warn("未找到新对话按钮，可能需要手动创建新对话");
@@ -600,7 +596,7 @@ public class GeminiProvider implements LLMProvider {
      * 处理指令执行成功后的逻辑（保存 conversationId 等）
      * 这个方法会被 CommandHandler 调用
      */
-    private boolean handleCommandSuccess(Page page, String model, SseEmitter emitter, String finalMessage, boolean allSuccess) {
+    private boolean handleCommandSuccess(Page page, String model, String accountId, SseEmitter emitter, String finalMessage, boolean allSuccess) {
         if (page == null || page.isClosed()) {
             return false; // 没有页面，使用默认处理
         }
@@ -615,9 +611,7 @@ public class GeminiProvider implements LLMProvider {
                 String conversationId = extractConversationIdFromUrl(url);
                 if (conversationId != null && !conversationId.isEmpty()) {
                     // 保存 conversationId -> Page 的映射
-                    conversationPages.put(conversationId, page);
-                    pageUrls.put(model, url);
-                    modelPages.put(model, page);
+                    pageCache.bind(getProviderName(), accountId, page, conversationId);
                     log.info("已保存指令执行后的 tab 关联: conversationId={}, url={}", conversationId, url);
 
                     // 发送 conversationId，让客户端知道这个标识
@@ -626,9 +620,7 @@ public class GeminiProvider implements LLMProvider {
                 } else {
                     // 如果没有 conversationId，生成一个临时 ID（类似 login- 格式）
                     String tempConversationId = "command-" + UUID.randomUUID().toString();
-                    conversationPages.put(tempConversationId, page);
-                    pageUrls.put(model, url);
-                    modelPages.put(model, page);
+                    pageCache.bind(getProviderName(), accountId, page, tempConversationId);
                     log.info("已保存指令执行后的 tab 关联（使用临时 ID）: tempConversationId={}, url={}", tempConversationId, url);
                     
                     // 发送临时 conversationId，让客户端知道这个标识
@@ -772,7 +764,6 @@ public class GeminiProvider implements LLMProvider {
 
     private void sendMessage(Page page, ChatCompletionRequest request) {
         try {
-            page.waitForTimeout(1000);
             // 优先使用 div[role='textbox'] 作为输入框选择器
             Locator inputBox = page.locator("div[role='textbox']")
                     .or(page.locator("textarea[placeholder*='输入']"))
@@ -793,16 +784,18 @@ public class GeminiProvider implements LLMProvider {
             }
 
             log.info("发送消息: {}", message);
-            // 直接 fill 然后按 Enter
+            // 直接 fill 然后按 Enter，等到对话请求真正发出再返回
             if (inputBox.count() > 0) {
-                inputBox.first().fill(message);
-                page.waitForTimeout(200);
-                inputBox.first().press("Enter");
+                Locator input = inputBox.first();
+                input.fill(message);
+                PageActions.waitForInputValue(page, input, message, PageActions.TOGGLE_TIMEOUT_MS);
+                if (!PageActions.runAndWaitForRequest(page, STREAM_GENERATE_URL, 5000, () -> input.press("Enter"))) {
+                    log.warn("发送后未检测到对话请求，继续监听");
+                }
                 log.info("已发送消息（使用 Enter 键）");
             } else {
                 throw new RuntimeException("未找到输入框");
             }
-            page.waitForTimeout(500);
         } catch (Exception e) {
             log.error("发送消息时出错: {}", e.getMessage(), e);
             throw new RuntimeException("发送消息失败", e);
@@ -817,11 +810,9 @@ public class GeminiProvider implements LLMProvider {
         return locators.count();
     }
 
-    private void cleanupPageOnError(Page page, String model) {
+    private void cleanupPageOnError(Page page, String accountId) {
         if (page != null) {
-            modelPages.remove(model, page);
-            // 从 conversationPages 中移除（如果存在）
-            conversationPages.entrySet().removeIf(entry -> entry.getValue() == page);
+            pageCache.remove(getProviderName(), accountId, page);
             try {
                 if (!page.isClosed()) page.close();
             } catch (Exception e) {
@@ -834,34 +825,23 @@ public class GeminiProvider implements LLMProvider {
     private static final MediaType APPLICATION_JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
 
     private void sendSseChunk(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().content(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendContent(emitter, id, content, model);
     }
 
     private void sendThinkingContent(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().reasoningContent(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendReasoning(emitter, id, content, model);
     }
 
     private void sendUrlAndComplete(Page page, SseEmitter emitter, ChatCompletionRequest request) throws IOException {
+        // 先发出合并缓存中的内容，保证在对话 ID 和 [DONE] 之前
+        chunkCoalescer.flush(emitter);
         try {
             if (!page.isClosed()) {
                 String url = page.url();
                 if (url.contains("gemini.google.com") || url.contains("ai.google.dev")) {
-                    pageUrls.put(request.getModel(), url);
                     String conversationId = extractConversationIdFromUrl(url);
+                    // 关联对话 ID，请求结束释放页面后继续对话时按对话 ID 取回
+                    pageCache.bind(getProviderName(), request.getAccountId(), page, conversationId);
                     if (conversationId != null && !conversationId.isEmpty()) {
                         sendConversationId(emitter, UUID.randomUUID().toString(), conversationId, request.getModel());
                         log.info("已发送对话 ID: {} (从 URL: {})", conversationId, url);
@@ -878,6 +858,12 @@ public class GeminiProvider implements LLMProvider {
     }
 
     private void sendConversationId(SseEmitter emitter, String id, String conversationId, String model) throws IOException {
+        CompletionAccumulator accumulator = CompletionAccumulator.of(emitter);
+        if (accumulator != null) {
+            // 非流式响应单独返回对话 ID，不拼到回复内容里
+            accumulator.setConversationId(conversationId);
+            return;
+        }
         String content = "\n\n```nwla-conversation-id\n" + conversationId + "\n```\n\n";
         ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
                 .delta(ChatCompletionResponse.Delta.builder().content(content).build())
@@ -983,7 +969,7 @@ public class GeminiProvider implements LLMProvider {
                 new Thread(() -> {
                     try {
                         Thread.sleep(100);
-                        providerRegistry.releaseLock(providerName);
+                        providerRegistry.releaseLock(emitter);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                     }
@@ -997,7 +983,7 @@ public class GeminiProvider implements LLMProvider {
                 // 忽略
             }
             if (providerName != null) {
-                providerRegistry.releaseLock(providerName);
+                providerRegistry.releaseLock(emitter);
             }
         }
     }
@@ -1005,22 +991,7 @@ public class GeminiProvider implements LLMProvider {
 
     @PreDestroy
     public void cleanup() {
-        log.info("清理页面，modelPages: {}, conversationPages: {}", 
-            modelPages.size(), conversationPages.size());
-        modelPages.values().forEach(page -> {
-            try {
-                if (page != null && !page.isClosed()) page.close();
-            } catch (Exception e) {
-            }
-        });
-        conversationPages.values().forEach(page -> {
-            try {
-                if (page != null && !page.isClosed()) page.close();
-            } catch (Exception e) {
-            }
-        });
-        modelPages.clear();
-        conversationPages.clear();
+        log.info("清理页面，共 {} 个", pageCache.clear(getProviderName()));
     }
     
     /**
@@ -1134,7 +1105,7 @@ public class GeminiProvider implements LLMProvider {
                 }
                 
                 // 使用传入的 accountId 创建页面
-                page = createNewConversationPage("gemini-web-imagegen", accountId);
+                page = createNewConversationPage(accountId);
                 if (page == null) {
                     throw new RuntimeException("无法创建页面");
                 }
@@ -1172,6 +1143,7 @@ public class GeminiProvider implements LLMProvider {
                     log.debug("完成 emitter 时出错: {}", ex.getMessage());
                 }
             } finally {
+                pageCache.release(getProviderName(), accountId, page, null);
                 // 确保 latch 被触发（即使出错或 emitter 已完成）
                 // 因为 onCompletion 回调可能没有被触发，或者已经触发过了
                 if (latch.getCount() > 0) {
@@ -69,7 +69,8 @@ public class GeminiChatConfig implements GeminiModelConfig {
                     break;
                 }
 
-                String sseData = handler.getSseData(page, "__geminiSseData");
+                // 等待新数据（推送模式下有数据立即返回，最多等待 100ms）
+                String sseData = handler.pollSseData(page, "__geminiSseData", 100);
                 
                 if (sseData != null && !sseData.isEmpty()) {
                     noDataCount = 0;
@@ -165,8 +166,6 @@ public class GeminiChatConfig implements GeminiModelConfig {
                     log.warn("达到超时时间，结束监听");
                     break;
                 }
-
-                Thread.sleep(100);
             } catch (Exception e) {
                 if (page.isClosed()) break;
                 if (isRecoverableError(e)) {
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
 import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
 
@@ -59,7 +60,6 @@ public class GeminiImageGenConfig implements GeminiModelConfig {
             if (toolboxButton.count() > 0 && toolboxButton.first().isVisible()) {
                 toolboxButton.first().click();
                 log.info("已点击工具箱按钮");
-                page.waitForTimeout(500);
                 
                 // 点击"生成图片"选项
                 // 参考 Frame-Kitchen 项目，使用 .mdc-list-item__content .feature-content .gds-label-l:text('生成图片')
@@ -68,10 +68,10 @@ public class GeminiImageGenConfig implements GeminiModelConfig {
                         .or(page.locator(".mdc-list-item__content:has-text('Image')"))
                         .or(page.locator(".mdc-list-item__content .feature-content:has-text('生成图片')"));
                 
-                if (imageGenOption.count() > 0) {
+                // 等待菜单展开
+                if (PageActions.waitForVisible(imageGenOption, PageActions.TOGGLE_TIMEOUT_MS)) {
                     imageGenOption.first().click();
                     log.info("已点击生成图片选项");
-                    page.waitForTimeout(500);
                     
                     // 验证是否开启成功 (检查取消按钮是否出现)
                     // 参考 Frame-Kitchen 项目，使用 .toolbox-drawer-item-deselect-button[aria-label='取消选择"图片"']
@@ -80,20 +80,7 @@ public class GeminiImageGenConfig implements GeminiModelConfig {
                             .or(page.locator(".toolbox-drawer-item-deselect-button"));
                     
                     // 等待取消按钮出现，最多等待 3 秒
-                    int maxWaitAttempts = 30;
-                    int attempts = 0;
-                    while (attempts < maxWaitAttempts && deselectButton.count() == 0) {
-                        try {
-                            Thread.sleep(100);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            log.warn("等待取消按钮时被中断");
-                            break;
-                        }
-                        attempts++;
-                    }
-                    
-                    if (deselectButton.count() > 0) {
+                    if (PageActions.waitForVisible(deselectButton, PageActions.ELEMENT_TIMEOUT_MS)) {
                         log.info("生图工具已成功启用");
                     } else {
                         log.warn("未找到取消按钮，但继续执行（可能已经启用）");
@@ -2,6 +2,7 @@ package site.newbie.web.llm.api.provider.openai;
 
 import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,12 +11,18 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.manager.BrowserManager;
+import site.newbie.web.llm.api.manager.ConversationPageCache;
+import site.newbie.web.llm.api.manager.LoginStateCache;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.model.ChatCompletionResponse;
 import site.newbie.web.llm.api.model.LoginInfo;
+import site.newbie.web.llm.api.provider.CompletionAccumulator;
 import site.newbie.web.llm.api.provider.LLMProvider;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
+import site.newbie.web.llm.api.provider.PageSseBridge;
 import site.newbie.web.llm.api.provider.ProviderRegistry;
+import site.newbie.web.llm.api.provider.SseChunkCoalescer;
 import site.newbie.web.llm.api.provider.command.Command;
 import site.newbie.web.llm.api.provider.command.CommandHandler;
 import site.newbie.web.llm.api.provider.command.CommandParser;
@@ -29,10 +36,10 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -47,10 +54,13 @@ public class OpenAIProvider implements LLMProvider {
     private final ObjectMapper objectMapper;
     private final Map<String, OpenAIModelConfig> modelConfigs;
     private final ProviderRegistry providerRegistry;
+    private final SseChunkCoalescer chunkCoalescer;
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     
-    private final ConcurrentHashMap<String, Page> modelPages = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> pageUrls = new ConcurrentHashMap<>();
+    private final ConversationPageCache pageCache;
+
+    // 登录状态缓存，有效期内跳过页面上的登录检查
+    private final LoginStateCache loginStateCache;
 
     // 全局指令解析器，支持全局指令
     private final CommandParser commandParser;
@@ -61,6 +71,17 @@ public class OpenAIProvider implements LLMProvider {
     private static final String SSE_DATA_VAR = "__openaiSseData";
     private static final String SSE_INTERCEPTOR_VAR = "__openaiSseInterceptorSet";
     private static final String[] SSE_URL_PATTERNS = {"/api/conversation", "/backend-api"};
+
+    // 发送消息的对话请求地址（可带查询参数）
+    private static final Pattern CONVERSATION_REQUEST_URL =
+            Pattern.compile("https://[^/]+/backend-api/(f/)?conversation(\\?.*)?");
+    
+    // SSE 数据推送通道（拦截脚本通过该函数把 chunk 直接推送到 Java 端）
+    private final PageSseBridge sseBridge = new PageSseBridge("__openaiSsePush");
+
+    // SSE 捕获方式：network（CDP 网络层捕获，失败时自动退回脚本拦截）或 script（仅脚本拦截）
+    @Value("${app.sse.capture-mode:network}")
+    private String sseCaptureMode;
     
     private final ModelConfig.ResponseHandler responseHandler = new ModelConfig.ResponseHandler() {
         @Override
@@ -83,6 +104,11 @@ public class OpenAIProvider implements LLMProvider {
             return OpenAIProvider.this.getSseDataFromPage(page, varName);
         }
 
+        @Override
+        public String pollSseData(Page page, String varName, long timeoutMs) throws InterruptedException {
+            return OpenAIProvider.this.pollSseDataFromPage(page, varName, timeoutMs);
+        }
+
         @Override
         public ModelConfig.ParseResultWithIndex parseSseIncremental(String sseData, Map<Integer, String> fragmentTypeMap, Integer lastActiveFragmentIndex) {
             // OpenAI 使用简化的解析
@@ -96,8 +122,13 @@ public class OpenAIProvider implements LLMProvider {
     };
 
     public OpenAIProvider(BrowserManager browserManager, ObjectMapper objectMapper,
-                          List<OpenAIModelConfig> configs, @Lazy ProviderRegistry providerRegistry) {
+                          List<OpenAIModelConfig> configs, @Lazy ProviderRegistry providerRegistry,
+                          SseChunkCoalescer chunkCoalescer, ConversationPageCache pageCache,
+                          LoginStateCache loginStateCache) {
         this.browserManager = browserManager;
+        this.pageCache = pageCache;
+        this.loginStateCache = loginStateCache;
+        this.chunkCoalescer = chunkCoalescer;
         this.objectMapper = objectMapper;
         this.providerRegistry = providerRegistry;
         this.modelConfigs = configs.stream()
@@ -132,7 +163,16 @@ public class OpenAIProvider implements LLMProvider {
             
             // 等待页面加载完成
             page.waitForLoadState();
-            page.waitForTimeout(1000);
+            
+            // 登录按钮或输入框出现即可判断，不再固定等待
+            Locator loginButton = page.locator("button:has-text('登录')")
+                    .or(page.locator("button:has-text('Log in')"))
+                    .or(page.locator("a:has-text('登录')"))
+                    .or(page.locator("a:has-text('Log in')"))
+                    .or(page.locator("a[href*='login']"));
+            Locator inputBox = page.locator("div.ProseMirror[id='prompt-textarea']")
+                    .or(page.locator("div[contenteditable='true'][id='prompt-textarea']"));
+            PageActions.waitForVisible(loginButton.or(inputBox), PageActions.ELEMENT_TIMEOUT_MS);
             
             // 检查URL：如果URL包含登录相关路径，说明未登录
             String url = page.url();
@@ -142,19 +182,12 @@ public class OpenAIProvider implements LLMProvider {
             }
             
             // 优先检查登录按钮（未登录会有登录按钮）
-            Locator loginButton = page.locator("button:has-text('登录')")
-                    .or(page.locator("button:has-text('Log in')"))
-                    .or(page.locator("a:has-text('登录')"))
-                    .or(page.locator("a:has-text('Log in')"))
-                    .or(page.locator("a[href*='login']"));
             if (loginButton.count() > 0 && loginButton.first().isVisible()) {
                 log.info("检测到登录按钮，判断为未登录");
                 return false;
             }
             
             // 检查是否存在输入框（已登录会有输入框）
-            Locator inputBox = page.locator("div.ProseMirror[id='prompt-textarea']")
-                    .or(page.locator("div[contenteditable='true'][id='prompt-textarea']"));
             if (inputBox.count() > 0 && inputBox.first().isVisible()) {
                 log.info("检测到输入框，判断为已登录");
                 return true;
@@ -198,10 +231,16 @@ public class OpenAIProvider implements LLMProvider {
                 }
 
                 // 注意：指令检查已在 Controller 层统一处理，这里只处理普通聊天请求
+                PageActions.StepTimer timer = new PageActions.StepTimer(getProviderName());
                 page = getOrCreatePage(request);
+                timer.mark("获取页面");
                 
-                // 检查登录状态
-                if (!checkLoginStatus(page)) {
+                // 检查登录状态（缓存有效时跳过页面检查）
+                Page current = page;
+                boolean loggedIn = loginStateCache.check(getProviderName(), request.getAccountId(),
+                        () -> checkLoginStatus(current));
+                timer.mark("检查登录");
+                if (!loggedIn) {
                     log.warn("检测到未登录状态，发送手动登录提示");
                     
                     String conversationId = getConversationId(request);
@@ -214,13 +253,18 @@ public class OpenAIProvider implements LLMProvider {
                 }
                 
                 setupSseInterceptor(page);
+                timer.mark("SSE 拦截器");
                 
                 if (isNewConversation(request)) {
                     clickNewChatButton(page);
+                    timer.mark("新对话");
                 }
                 
                 config.configure(page);
+                timer.mark("配置模型");
                 sendMessage(page, request);
+                timer.mark("发送消息");
+                timer.log();
                 
                 int messageCountBefore = countMessages(page);
                 verifySseInterceptor(page);
@@ -232,8 +276,12 @@ public class OpenAIProvider implements LLMProvider {
 
             } catch (Exception e) {
                 log.error("Chat Error", e);
+                chunkCoalescer.discard(emitter);
                 emitter.completeWithError(e);
-                cleanupPageOnError(page, request.getModel());
+                cleanupPageOnError(page, request.getAccountId());
+            } finally {
+                // 页面放回缓存；出错时页面已关闭并移出缓存
+                releasePage(request, page);
             }
         });
     }
@@ -247,7 +295,7 @@ public class OpenAIProvider implements LLMProvider {
      * 处理指令执行成功后的逻辑（保存 conversationId 等）
      * 这个方法会被 CommandHandler 调用
      */
-    private boolean handleCommandSuccess(Page page, String model, SseEmitter emitter, String finalMessage, boolean allSuccess) {
+    private boolean handleCommandSuccess(Page page, String model, String accountId, SseEmitter emitter, String finalMessage, boolean allSuccess) {
         if (page == null || page.isClosed()) {
             return false; // 没有页面，使用默认处理
         }
@@ -255,15 +303,14 @@ public class OpenAIProvider implements LLMProvider {
         try {
             String url = page.url();
             if (url.contains("chatgpt.com") || url.contains("chat.openai.com")) {
-                // 等待一下，看看 URL 是否会变化（可能页面还在加载中）
-                page.waitForTimeout(1000);
+                // 新对话的 URL 可能还没有切换到 /c/{id}，等到 URL 带上对话 ID 或超时
+                PageActions.waitForUrl(page, u -> u.contains("/c/"), PageActions.TOGGLE_TIMEOUT_MS);
                 url = page.url(); // 重新获取 URL
                 
                 String conversationId = extractConversationIdFromUrl(url);
                 if (conversationId != null && !conversationId.isEmpty()) {
                     // 保存 conversationId -> Page 的映射
-                    pageUrls.put(model, url);
-                    modelPages.put(model, page);
+                    pageCache.bind(getProviderName(), accountId, page, conversationId);
                     log.info("已保存指令执行后的 tab 关联: conversationId={}, url={}", conversationId, url);
 
                     // 发送 conversationId，让客户端知道这个标识
@@ -282,19 +329,22 @@ public class OpenAIProvider implements LLMProvider {
     
     @Override
     public Page getOrCreatePage(ChatCompletionRequest request) {
-        String model = request.getModel();
         String accountId = request.getAccountId();
         String conversationId = getConversationId(request);
         boolean isNew = isNewConversation(request);
         
         if (!isNew && conversationId != null) {
-            String conversationUrl = buildUrlFromConversationId(conversationId);
-            return findOrCreatePageForUrl(conversationUrl, model, accountId);
+            return findOrCreatePageForConversation(conversationId, accountId);
         } else {
-            return createNewConversationPage(model, accountId);
+            return createNewConversationPage(accountId);
         }
     }
     
+    @Override
+    public void releasePage(ChatCompletionRequest request, Page page) {
+        pageCache.release(getProviderName(), request.getAccountId(), page, null);
+    }
+
     @Override
     public String getConversationId(ChatCompletionRequest request) {
         // 首先尝试从请求中获取
@@ -316,63 +366,36 @@ public class OpenAIProvider implements LLMProvider {
         return conversationId == null || conversationId.isEmpty() || conversationId.startsWith("login-");
     }
     
-    private Page findOrCreatePageForUrl(String url, String model, String accountId) {
-        Page page = findPageByUrl(url, accountId);
-            if (page != null && !page.isClosed()) {
-                if (!page.url().equals(url)) {
-                    page.navigate(url);
-                    page.waitForLoadState();
-                }
-                modelPages.put(model, page);
-                pageUrls.put(model, url);
-                return page;
+    private Page findOrCreatePageForConversation(String conversationId, String accountId) {
+        String url = buildUrlFromConversationId(conversationId);
+        Page page = pageCache.acquire(getProviderName(), accountId, conversationId);
+        if (page != null) {
+            if (!page.url().equals(url)) {
+                page.navigate(url);
+                page.waitForLoadState();
             }
-            
-            page = browserManager.newPage(getProviderName(), accountId);
-            modelPages.put(model, page);
-            page.navigate(url);
-            page.waitForLoadState();
-            pageUrls.put(model, url);
             return page;
-    }
-    
-    private Page createNewConversationPage(String model, String accountId) {
-        Page oldPage = modelPages.remove(model);
-        if (oldPage != null && !oldPage.isClosed()) {
-            try { oldPage.close(); } catch (Exception e) { }
         }
         
-        Page page = browserManager.newPage(getProviderName(), accountId);
-        modelPages.put(model, page);
-        page.navigate("https://chatgpt.com/");
+        page = browserManager.newPage(getProviderName(), accountId);
+        pageCache.register(getProviderName(), accountId, page);
+        page.navigate(url);
         page.waitForLoadState();
-        // 等待页面加载完成（不等待输入框，因为可能未登录）
-        page.waitForTimeout(2000);
-        pageUrls.put(model, page.url());
         return page;
     }
     
-    private Page findPageByUrl(String targetUrl, String accountId) {
-        if (targetUrl == null) return null;
-        for (String model : modelPages.keySet()) {
-            Page page = modelPages.get(model);
-            if (page != null && !page.isClosed() && targetUrl.equals(pageUrls.get(model))) {
-                return page;
-            }
-        }
-        try {
-            for (Page page : browserManager.getAllPages(getProviderName(), accountId)) {
-                if (page != null && !page.isClosed() && targetUrl.equals(page.url())) {
-                    return page;
-                }
-            }
-        } catch (Exception e) { }
-        return null;
+    private Page createNewConversationPage(String accountId) {
+        Page page = browserManager.newPage(getProviderName(), accountId);
+        pageCache.register(getProviderName(), accountId, page);
+        page.navigate("https://chatgpt.com/");
+        page.waitForLoadState();
+        // 不在这里等待输入框（可能未登录）：登录检查会等到登录按钮或输入框出现，发送消息前也会等待输入框
+        return page;
     }
     
     private void clickNewChatButton(Page page) {
         try {
-            page.waitForTimeout(1000);
+            PageActions.waitForVisible(page.locator("a[data-testid='create-new-chat-button']"), PageActions.TOGGLE_TIMEOUT_MS);
             Boolean result = (Boolean) page.evaluate("""
                 () => {
                     let button = document.querySelector('a[data-testid="create-new-chat-button"]');
@@ -393,7 +416,8 @@ public class OpenAIProvider implements LLMProvider {
                 }
             """);
             if (Boolean.TRUE.equals(result)) {
-                page.waitForTimeout(500);
+                // 新聊天页面的 URL 不再包含对话 ID
+                PageActions.waitForUrl(page, url -> !url.contains("/c/"), PageActions.ELEMENT_TIMEOUT_MS);
                 log.info("已点击新聊天按钮");
             }
         } catch (Exception e) {
@@ -402,7 +426,6 @@ public class OpenAIProvider implements LLMProvider {
     }
     
     private void sendMessage(Page page, ChatCompletionRequest request) {
-        page.waitForTimeout(1000);
         Locator inputBox = page.locator("div.ProseMirror[id='prompt-textarea']");
         try {
             inputBox.waitFor();
@@ -419,7 +442,6 @@ public class OpenAIProvider implements LLMProvider {
         
         log.info("发送消息: {}", message);
         inputBox.click();
-        page.waitForTimeout(200);
         
         page.evaluate("""
             (text) => {
@@ -432,9 +454,22 @@ public class OpenAIProvider implements LLMProvider {
             }
         """, message);
         
-        page.waitForTimeout(300);
-        page.keyboard().press("Enter");
-        page.waitForTimeout(500);
+        // 编辑器同步内容后再回车，等到对话请求真正发出再返回
+        if (!PageActions.waitForInputValue(page, inputBox, message, PageActions.TOGGLE_TIMEOUT_MS)) {
+            log.warn("输入框内容与预期不符，仍尝试发送");
+        }
+        if (!PageActions.runAndWaitForRequest(page, OpenAIProvider::isConversationRequest, 5000,
+                () -> page.keyboard().press("Enter"))) {
+            log.warn("发送后未检测到对话请求，继续监听");
+        }
+    }
+    
+    /**
+     * 发送消息发出的对话请求：POST /backend-api/conversation（新版网页端为 /backend-api/f/conversation），
+     * 不包括对话列表、标题生成、状态轮询等其他带 /conversation 的请求
+     */
+    private static boolean isConversationRequest(Request request) {
+        return "POST".equals(request.method()) && CONVERSATION_REQUEST_URL.matcher(request.url()).matches();
     }
     
     private int countMessages(Page page) {
@@ -443,9 +478,9 @@ public class OpenAIProvider implements LLMProvider {
         return locators.count();
     }
     
-    private void cleanupPageOnError(Page page, String model) {
+    private void cleanupPageOnError(Page page, String accountId) {
         if (page != null) {
-            modelPages.remove(model, page);
+            pageCache.remove(getProviderName(), accountId, page);
             try { if (!page.isClosed()) page.close(); } catch (Exception e) { }
         }
     }
@@ -453,6 +488,16 @@ public class OpenAIProvider implements LLMProvider {
     // ==================== SSE 拦截器 ====================
     
     private void setupSseInterceptor(Page page) {
+        // 优先在网络层捕获 SSE 响应：不依赖页面 JS，SPA 重新加载后也不需要重新注入脚本
+        if ("network".equalsIgnoreCase(sseCaptureMode) && sseBridge.installNetworkCapture(page, SSE_URL_PATTERNS)) {
+            sseBridge.clear(page);
+            return;
+        }
+        
+        // 注册推送通道（注册失败时拦截脚本会退回写入 window 数组）
+        sseBridge.install(page);
+        sseBridge.clear(page);
+        
         // 清空旧的 SSE 数据和索引（避免复用页面时读取到旧数据）
         try {
             page.evaluate(String.format("() => { window.%s = []; window.%sIndex = 0; }", SSE_DATA_VAR, SSE_DATA_VAR));
@@ -468,6 +513,15 @@ public class OpenAIProvider implements LLMProvider {
             (function() {
                 if (window.%s) return;
                 window.%s = true;
+                // 优先通过推送函数直接发送到 Java 端，不可用时写入 window 数组等待轮询
+                const pushChunk = function(chunk) {
+                    if (typeof window.%s === 'function') {
+                        window.%s(chunk);
+                    } else {
+                        window.%s = window.%s || [];
+                        window.%s.push(chunk);
+                    }
+                };
                 const originalFetch = window.fetch;
                 window.fetch = function(...args) {
                     const url = args[0];
@@ -478,11 +532,10 @@ public class OpenAIProvider implements LLMProvider {
                                 const clonedResponse = response.clone();
                                 const reader = clonedResponse.body.getReader();
                                 const decoder = new TextDecoder();
-                                window.%s = window.%s || [];
                                 function readStream() {
                                     reader.read().then(({ done, value }) => {
                                         if (done) return;
-                                        window.%s.push(decoder.decode(value, { stream: true }));
+                                        pushChunk(decoder.decode(value, { stream: true }));
                                         readStream();
                                     }).catch(err => {});
                                 }
@@ -494,8 +547,9 @@ public class OpenAIProvider implements LLMProvider {
                     return originalFetch.apply(this, args);
                 };
             })();
-            """, SSE_INTERCEPTOR_VAR, SSE_INTERCEPTOR_VAR, urlCondition, 
-            SSE_DATA_VAR, SSE_DATA_VAR, SSE_DATA_VAR);
+            """, SSE_INTERCEPTOR_VAR, SSE_INTERCEPTOR_VAR,
+            sseBridge.getBindingName(), sseBridge.getBindingName(), SSE_DATA_VAR, SSE_DATA_VAR, SSE_DATA_VAR,
+            urlCondition);
         
         try {
             page.evaluate(jsCode);
@@ -505,6 +559,10 @@ public class OpenAIProvider implements LLMProvider {
     }
     
     private void verifySseInterceptor(Page page) {
+        // 网络层捕获与页面脚本无关，无需检查
+        if (sseBridge.isNetworkCaptureActive(page)) {
+            return;
+        }
         try {
             Object status = page.evaluate("() => window." + SSE_INTERCEPTOR_VAR + " || false");
             if (!Boolean.TRUE.equals(status)) {
@@ -513,7 +571,21 @@ public class OpenAIProvider implements LLMProvider {
         } catch (Exception e) { }
     }
     
+    private String pollSseDataFromPage(Page page, String varName, long timeoutMs) throws InterruptedException {
+        if (sseBridge.isInstalled(page)) {
+            return sseBridge.poll(page, timeoutMs);
+        }
+        String data = getSseDataFromPage(page, varName);
+        if (data == null) {
+            Thread.sleep(timeoutMs);
+        }
+        return data;
+    }
+    
     private String getSseDataFromPage(Page page, String varName) {
+        if (sseBridge.isInstalled(page)) {
+            return sseBridge.drain(page);
+        }
         try {
             if (page.isClosed()) return null;
             // 使用索引跟踪已读取的数据，避免清空数组导致数据丢失
@@ -541,46 +613,35 @@ public class OpenAIProvider implements LLMProvider {
     private static final MediaType APPLICATION_JSON_UTF8 = new MediaType("application", "json", StandardCharsets.UTF_8);
     
     private void sendSseChunk(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().content(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendContent(emitter, id, content, model);
     }
     
     private void sendThinkingContent(SseEmitter emitter, String id, String content, String model) throws IOException {
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().reasoningContent(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
-        emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
+        chunkCoalescer.sendReasoning(emitter, id, content, model);
     }
     
     private void sendConversationId(SseEmitter emitter, String id, String conversationId, String model) throws IOException {
+        CompletionAccumulator accumulator = CompletionAccumulator.of(emitter);
+        if (accumulator != null) {
+            // 非流式响应单独返回对话 ID，不拼到回复内容里
+            accumulator.setConversationId(conversationId);
+            return;
+        }
         String content = "\n\n```nwla-conversation-id\n" + conversationId + "\n```\n\n";
-        ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                .delta(ChatCompletionResponse.Delta.builder().content(content).build())
-                .index(0).build();
-        ChatCompletionResponse response = ChatCompletionResponse.builder()
-                .id(id).object("chat.completion.chunk")
-                .created(System.currentTimeMillis() / 1000)
-                .model(model).choices(List.of(choice)).build();
+        ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, content);
         emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
     }
 
     private void sendUrlAndComplete(Page page, SseEmitter emitter, ChatCompletionRequest request) throws IOException {
+        // 先发出合并缓存中的内容，保证在对话 ID 和 [DONE] 之前
+        chunkCoalescer.flush(emitter);
         try {
             if (!page.isClosed()) {
                 String url = page.url();
                 if (url.contains("chatgpt.com") || url.contains("chat.openai.com")) {
-                    pageUrls.put(request.getModel(), url);
                     String conversationId = extractConversationIdFromUrl(url);
+                    // 关联对话 ID，请求结束释放页面后继续对话时按对话 ID 取回
+                    pageCache.bind(getProviderName(), request.getAccountId(), page, conversationId);
                     if (conversationId != null && !conversationId.isEmpty()) {
                         sendConversationId(emitter, UUID.randomUUID().toString(), conversationId, request.getModel());
                         log.info("已发送对话 ID: {} (从 URL: {})", conversationId, url);
@@ -971,13 +1032,7 @@ public class OpenAIProvider implements LLMProvider {
     private void sendCommandResult(SseEmitter emitter, String model, String message, boolean success) {
         try {
             String id = UUID.randomUUID().toString();
-            ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                    .delta(ChatCompletionResponse.Delta.builder().content(message).build())
-                    .index(0).build();
-            ChatCompletionResponse response = ChatCompletionResponse.builder()
-                    .id(id).object("chat.completion.chunk")
-                    .created(System.currentTimeMillis() / 1000)
-                    .model(model).choices(List.of(choice)).build();
+            ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, message);
             emitter.send(SseEmitter.event().data(
                     objectMapper.writeValueAsString(response),
                     APPLICATION_JSON_UTF8));
@@ -998,13 +1053,7 @@ public class OpenAIProvider implements LLMProvider {
         try {
             String id = UUID.randomUUID().toString();
             // 先发送结果消息
-            ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                    .delta(ChatCompletionResponse.Delta.builder().content(message).build())
-                    .index(0).build();
-            ChatCompletionResponse response = ChatCompletionResponse.builder()
-                    .id(id).object("chat.completion.chunk")
-                    .created(System.currentTimeMillis() / 1000)
-                    .model(model).choices(List.of(choice)).build();
+            ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, message);
             emitter.send(SseEmitter.event().data(
                     objectMapper.writeValueAsString(response),
                     APPLICATION_JSON_UTF8));
@@ -1040,13 +1089,7 @@ public class OpenAIProvider implements LLMProvider {
             }
             
             String id = UUID.randomUUID().toString();
-            ChatCompletionResponse.Choice choice = ChatCompletionResponse.Choice.builder()
-                    .delta(ChatCompletionResponse.Delta.builder().content(message.toString()).build())
-                    .index(0).build();
-            ChatCompletionResponse response = ChatCompletionResponse.builder()
-                    .id(id).object("chat.completion.chunk")
-                    .created(System.currentTimeMillis() / 1000)
-                    .model(model).choices(List.of(choice)).build();
+            ChatCompletionResponse response = ChatCompletionResponse.contentChunk(id, model, message.toString());
             
             emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(response), APPLICATION_JSON_UTF8));
             emitter.send(SseEmitter.event().data("[DONE]", MediaType.TEXT_PLAIN));
@@ -1057,7 +1100,7 @@ public class OpenAIProvider implements LLMProvider {
                 new Thread(() -> {
                     try {
                         Thread.sleep(100);
-                        providerRegistry.releaseLock(providerName);
+                        providerRegistry.releaseLock(emitter);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                     }
@@ -1071,7 +1114,7 @@ public class OpenAIProvider implements LLMProvider {
                 // 忽略
             }
             if (providerName != null) {
-                providerRegistry.releaseLock(providerName);
+                providerRegistry.releaseLock(emitter);
             }
         }
     }
@@ -1079,11 +1122,7 @@ public class OpenAIProvider implements LLMProvider {
     
     @PreDestroy
     public void cleanup() {
-        log.info("清理页面，共 {} 个", modelPages.size());
-        modelPages.values().forEach(page -> {
-            try { if (page != null && !page.isClosed()) page.close(); } catch (Exception e) { }
-        });
-        modelPages.clear();
+        log.info("清理页面，共 {} 个", pageCache.clear(getProviderName()));
     }
 }
 
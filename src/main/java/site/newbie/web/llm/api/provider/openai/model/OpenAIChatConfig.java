@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
 import site.newbie.web.llm.api.provider.SseDataLogger;
 
 import java.io.IOException;
@@ -45,11 +46,11 @@ public class OpenAIChatConfig implements OpenAIModelConfig {
                 
                 if (removeButton.count() > 0) {
                     removeButton.click();
-                    page.waitForTimeout(300);
+                    PageActions.waitForHidden(thinkingPill, PageActions.TOGGLE_TIMEOUT_MS);
                     log.info("已关闭深度思考模式");
                 } else {
                     thinkingPill.click();
-                    page.waitForTimeout(300);
+                    PageActions.waitForHidden(thinkingPill, PageActions.TOGGLE_TIMEOUT_MS);
                     log.info("已点击思考按钮关闭深度思考模式");
                 }
             }
@@ -91,7 +92,8 @@ public class OpenAIChatConfig implements OpenAIModelConfig {
             try {
                 if (page.isClosed()) break;
 
-                String sseData = handler.getSseData(page, "__openaiSseData");
+                // 等待新数据（推送模式下有数据立即返回，最多等待 100ms）
+                String sseData = handler.pollSseData(page, "__openaiSseData", 100);
                 
                 if (sseData != null && !sseData.isEmpty()) {
                     // 重置等待计数，因为还有数据
@@ -179,7 +181,6 @@ public class OpenAIChatConfig implements OpenAIModelConfig {
                     log.warn("达到超时时间，结束监听");
                     break;
                 }
-                Thread.sleep(100);
             } catch (Exception e) {
                 if (page.isClosed()) break;
                 if (isRecoverableError(e)) {
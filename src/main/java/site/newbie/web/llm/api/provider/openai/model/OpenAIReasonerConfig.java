@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import site.newbie.web.llm.api.model.ChatCompletionRequest;
 import site.newbie.web.llm.api.provider.ModelConfig;
+import site.newbie.web.llm.api.provider.PageActions;
 import site.newbie.web.llm.api.provider.SseDataLogger;
 import tools.jackson.databind.ObjectMapper;
 
@@ -48,14 +49,15 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
             } catch (Exception e) {
                 log.error("等待输入框超时: {}", e.getMessage());
             }
-            page.waitForTimeout(1500);
             
             // 检查是否已经激活
             boolean thinkingEnabled = false;
+            Locator thinkingPill = page.locator("button.__composer-pill[aria-label*='思考']")
+                    .or(page.locator("div[data-testid='composer-footer-actions'] button:has-text('思考')"));
             try {
-                Locator thinkingPill = page.locator("button.__composer-pill[aria-label*='思考']")
-                        .or(page.locator("div[data-testid='composer-footer-actions'] button:has-text('思考')"));
-                
+                // 输入框下方的按钮区域渲染完成后再判断
+                PageActions.waitForVisible(page.locator("button[data-testid='composer-plus-btn']").or(thinkingPill),
+                        PageActions.ELEMENT_TIMEOUT_MS);
                 if (thinkingPill.count() > 0) {
                     log.info("深度思考模式已启用");
                     thinkingEnabled = true;
@@ -69,7 +71,6 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
                 for (int retry = 0; retry < maxRetries && !thinkingEnabled; retry++) {
                     if (retry > 0) {
                         log.info("重试启用深度思考模式 (第 {} 次)", retry + 1);
-                        page.waitForTimeout(1000);
                     }
                     
                     try {
@@ -79,15 +80,14 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
                         
                         if (plusButton.count() > 0) {
                             plusButton.click();
-                            page.waitForTimeout(500);
                             
-                            // 选择"思考"选项
+                            // 选择"思考"选项（等菜单展开）
                             Locator thinkingMenuItem = page.locator("div[role='menuitemradio']:has-text('思考')")
                                     .or(page.locator("div[role='menuitemradio'] .truncate:has-text('思考')"));
                             
-                            if (thinkingMenuItem.count() > 0) {
+                            if (PageActions.waitForVisible(thinkingMenuItem, PageActions.TOGGLE_TIMEOUT_MS)) {
                                 thinkingMenuItem.click();
-                                page.waitForTimeout(800);
+                                PageActions.waitForVisible(thinkingPill, PageActions.TOGGLE_TIMEOUT_MS);
                                 thinkingEnabled = true;
                                 log.info("已启用深度思考模式");
                             }
@@ -114,7 +114,7 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
                                 Locator plusButton = page.locator("button[data-testid='composer-plus-btn']");
                                 if (plusButton.count() > 0 && plusButton.isVisible()) {
                                     plusButton.click();
-                                    page.waitForTimeout(500);
+                                    PageActions.waitForVisible(page.locator("div[role='menuitemradio']"), PageActions.TOGGLE_TIMEOUT_MS);
                                     
                                     // 选择"思考"选项（排除"深度研究"）
                                     Locator allMenuItems = page.locator("div[role='menuitemradio']");
@@ -124,7 +124,7 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
                                         String text = item.textContent();
                                         if (text != null && text.contains("思考") && !text.contains("深度研究")) {
                                             item.click();
-                                            page.waitForTimeout(800);
+                                            PageActions.waitForVisible(thinkingPill, PageActions.TOGGLE_TIMEOUT_MS);
                                             thinkingEnabled = true;
                                             log.info("通过 Playwright 备选方案启用深度思考模式");
                                             break;
@@ -181,7 +181,8 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
             try {
                 if (page.isClosed()) break;
 
-                String sseData = handler.getSseData(page, "__openaiSseData");
+                // 等待新数据（推送模式下有数据立即返回，最多等待 100ms）
+                String sseData = handler.pollSseData(page, "__openaiSseData", 100);
                 
                 if (sseData != null && !sseData.isEmpty()) {
                     // 重置等待计数，因为还有数据
@@ -261,7 +262,6 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
                     log.warn("达到超时时间，结束监听");
                     break;
                 }
-                Thread.sleep(100);
             } catch (Exception e) {
                 if (page.isClosed()) break;
                 if (isRecoverableError(e)) {
@@ -393,7 +393,8 @@ public class OpenAIReasonerConfig implements OpenAIModelConfig {
         return null;
     }
     
-    private ModelConfig.SseParseResult extractContentFromSse(String sseData) {
+    // 包级可见，供基准测试（src/jmh）直接调用
+    ModelConfig.SseParseResult extractContentFromSse(String sseData) {
         if (sseData == null) {
             return new ModelConfig.SseParseResult(null, null, false);
         }
@@ -0,0 +1,88 @@
+package site.newbie.web.llm.api.util;
+
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 延迟合并写入的 JSON 文件
+ * 内存中的数据是唯一的数据源，修改后调用 {@link #markDirty()}，延迟 delayMs 后把快照写入文件，
+ * 期间的多次修改只写一次；写入时先写临时文件再重命名，进程中途退出也不会留下写了一半的文件
+ */
+@Slf4j
+public class DebouncedJsonFile {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Supplier<Object> snapshot;
+    private final long delayMs;
+    private final ScheduledExecutorService scheduler;
+
+    // 是否已经安排了写入
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param file 目标文件
+     * @param snapshot 生成要写入的数据（在写入线程中调用，需要返回当前数据的副本或线程安全的视图）
+     * @param delayMs 延迟写入时间（毫秒），0 表示每次修改立即写入
+     * @param scheduler 执行写入的线程
+     */
+    public DebouncedJsonFile(Path file, ObjectMapper objectMapper, Supplier<Object> snapshot, long delayMs,
+                             ScheduledExecutorService scheduler) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.snapshot = snapshot;
+        this.delayMs = delayMs;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 数据已修改，安排一次写入
+     */
+    public void markDirty() {
+        if (delayMs <= 0) {
+            flush();
+            return;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // 调度器已关闭（应用正在退出），直接写入
+                flush();
+            }
+        }
+    }
+
+    /**
+     * 立即写入当前数据
+     */
+    public synchronized void flush() {
+        scheduled.set(false);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), snapshot.get());
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.debug("已写入文件: {}", file);
+        } catch (Exception e) {
+            log.error("写入文件 {} 失败: {}", file, e.getMessage(), e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package site.newbie.web.llm.api.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 字节级 SSE 事件读取器
+ * 直接在字节上按 SSE 规范切分事件：行结束符支持 \n、\r\n、\r；同一事件中的多行 data: 用 \n 拼接；
+ * 忽略注释行（以 : 开头）和 data 以外的字段。切分过程中不创建 String，事件数据以字节区间交给调用方，
+ * 可以直接交给 JSON 解析器（如 objectMapper.readTree(bytes, offset, length)）
+ *
+ * 两种用法：
+ * - 拉取：{@link #SseEventReader(InputStream)} + {@link #read(DataHandler)}，从 InputStream 读到结束
+ * - 推送：{@link #SseEventReader()} + {@link #feed} / {@link #end}，字节由调用方按到达顺序喂入（例如 CDP 捕获的数据包）
+ *
+ * 非线程安全，一个实例只读取一个流
+ */
+public class SseEventReader implements AutoCloseable {
+
+    private static final byte[] DATA_FIELD = {'d', 'a', 't', 'a'};
+    private static final byte[] EVENT_FIELD = {'e', 'v', 'e', 'n', 't'};
+    private static final byte[] DONE = {'[', 'D', 'O', 'N', 'E', ']'};
+
+    /**
+     * 事件数据处理器
+     * 传入的数组在回调返回后会被复用，需要保留时请自行复制
+     */
+    @FunctionalInterface
+    public interface DataHandler {
+        /**
+         * @return false 停止读取
+         */
+        boolean onData(byte[] data, int offset, int length) throws Exception;
+    }
+
+    /**
+     * 完整事件处理器（包括 event 字段）
+     * 只有 event 字段没有 data 的事件也会回调（DeepSeek 用 event: finish / close 表示结束），此时 data 为 null
+     * 传入的数组在回调返回后会被复用，需要保留时请自行复制
+     */
+    @FunctionalInterface
+    public interface EventHandler {
+        /**
+         * @return false 停止读取
+         */
+        boolean onEvent(String event, byte[] data, int offset, int length) throws Exception;
+    }
+
+    private final InputStream inputStream;
+    private final byte[] readBuffer;
+
+    // 当前行（不含行结束符）
+    private byte[] line = new byte[1024];
+    private int lineLength;
+    // 当前事件已累积的 data
+    private byte[] data = new byte[4096];
+    private int dataLength;
+    // 当前事件是否出现过 data 字段（区分空 data 和没有 data）
+    private boolean hasData;
+    // 当前事件的 event 字段，没有时为 null
+    private String eventName;
+    // 上一个字节是 \r，紧跟的 \n 属于同一个行结束符
+    private boolean skipLf;
+
+    public SseEventReader(InputStream inputStream) {
+        this(inputStream, 8192);
+    }
+
+    public SseEventReader(InputStream inputStream, int bufferSize) {
+        this.inputStream = inputStream;
+        this.readBuffer = new byte[bufferSize];
+    }
+
+    /**
+     * 推送模式：字节通过 {@link #feed} 喂入
+     */
+    public SseEventReader() {
+        this.inputStream = null;
+        this.readBuffer = null;
+    }
+
+    /**
+     * 读取到流结束或处理器返回 false 为止，只回调带 data 的事件
+     * 流结束时没有以空行结尾的最后一个事件也会交给处理器
+     */
+    public void read(DataHandler handler) throws Exception {
+        EventHandler dataOnly = (event, data, offset, length) -> data == null || handler.onData(data, offset, length);
+        int n;
+        while ((n = inputStream.read(readBuffer)) != -1) {
+            if (!feed(readBuffer, 0, n, dataOnly)) {
+                return;
+            }
+        }
+        end(dataOnly);
+    }
+
+    /**
+     * 喂入一段字节，可以在任意位置断开（包括 \r\n 之间和多字节字符中间）
+     * @return false 处理器要求停止读取
+     */
+    public boolean feed(byte[] bytes, int offset, int length, EventHandler handler) throws Exception {
+        int start = offset;
+        int to = offset + length;
+        for (int i = offset; i < to; i++) {
+            byte b = bytes[i];
+            if (b != '\n' && b != '\r') {
+                continue;
+            }
+            if (b == '\n' && skipLf && i == start && lineLength == 0) {
+                // \r\n 中的 \n
+                skipLf = false;
+                start = i + 1;
+                continue;
+            }
+            appendLine(bytes, start, i - start);
+            skipLf = b == '\r';
+            start = i + 1;
+            if (!processLine(handler)) {
+                return false;
+            }
+        }
+        if (start < to) {
+            skipLf = false;
+            appendLine(bytes, start, to - start);
+        }
+        return true;
+    }
+
+    /**
+     * 流结束：处理没有以换行结尾的最后一行，以及没有以空行结尾的最后一个事件
+     * @return false 处理器要求停止读取
+     */
+    public boolean end(EventHandler handler) throws Exception {
+        skipLf = false;
+        if (lineLength > 0 && !processLine(handler)) {
+            return false;
+        }
+        return dispatch(handler);
+    }
+
+    /**
+     * 判断事件数据是否为 OpenAI/Gemini 风格的结束标记 [DONE]（忽略首尾空白）
+     */
+    public static boolean isDone(byte[] data, int offset, int length) {
+        int from = offset;
+        int to = offset + length;
+        while (from < to && isWhitespace(data[from])) {
+            from++;
+        }
+        while (to > from && isWhitespace(data[to - 1])) {
+            to--;
+        }
+        return Arrays.equals(data, from, to, DONE, 0, DONE.length);
+    }
+
+    /**
+     * 判断事件数据是否只包含空白
+     */
+    public static boolean isBlank(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!isWhitespace(data[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean processLine(EventHandler handler) throws Exception {
+        int length = lineLength;
+        lineLength = 0;
+        if (length == 0) {
+            // 空行表示一个事件结束
+            return dispatch(handler);
+        }
+        if (line[0] == ':') {
+            return true;
+        }
+        int colon = indexOf(line, length, (byte) ':');
+        int nameLength = colon < 0 ? length : colon;
+        int valueStart = colon < 0 ? length : colon + 1;
+        if (valueStart < length && line[valueStart] == ' ') {
+            valueStart++;
+        }
+        if (Arrays.equals(line, 0, nameLength, EVENT_FIELD, 0, EVENT_FIELD.length)) {
+            eventName = new String(line, valueStart, length - valueStart, StandardCharsets.UTF_8);
+            return true;
+        }
+        if (!Arrays.equals(line, 0, nameLength, DATA_FIELD, 0, DATA_FIELD.length)) {
+            return true;
+        }
+        if (hasData) {
+            appendData((byte) '\n');
+        }
+        hasData = true;
+        appendData(line, valueStart, length - valueStart);
+        return true;
+    }
+
+    private boolean dispatch(EventHandler handler) throws Exception {
+        if (!hasData && eventName == null) {
+            return true;
+        }
+        String event = eventName;
+        boolean withData = hasData;
+        int length = dataLength;
+        eventName = null;
+        hasData = false;
+        dataLength = 0;
+        return handler.onEvent(event, withData ? data : null, 0, length);
+    }
+
+    private void appendLine(byte[] src, int offset, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(src, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void appendData(byte[] src, int offset, int length) {
+        ensureData(length);
+        System.arraycopy(src, offset, data, dataLength, length);
+        dataLength += length;
+    }
+
+    private void appendData(byte b) {
+        ensureData(1);
+        data[dataLength++] = b;
+    }
+
+    private void ensureData(int extra) {
+        if (dataLength + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + extra));
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte target) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * 关闭底层流（推送模式下无操作）
+     */
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null) {
+            inputStream.close();
+        }
+    }
+}
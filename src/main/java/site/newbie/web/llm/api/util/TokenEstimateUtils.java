@@ -0,0 +1,56 @@
+package site.newbie.web.llm.api.util;
+
+import site.newbie.web.llm.api.model.ChatCompletionRequest;
+
+import java.util.List;
+
+/**
+ * Token 数量估算工具类
+ * 网页端不返回真实的 token 用量，这里按常见分词器的平均比例粗略估算：
+ * CJK 等非 ASCII 字符约 1 个字符 1 个 token，ASCII 文本约 4 个字符 1 个 token
+ */
+public class TokenEstimateUtils {
+
+    /**
+     * 估算一段文本的 token 数
+     *
+     * @param text 文本
+     * @return 估算的 token 数，空文本返回 0
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLowSurrogate(c)) {
+                continue;
+            }
+            if (c < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return other + (ascii + 3) / 4;
+    }
+
+    /**
+     * 估算消息列表的 token 数（每条消息额外计入角色等格式开销）
+     *
+     * @param messages 消息列表
+     * @return 估算的 token 数
+     */
+    public static int estimate(List<ChatCompletionRequest.Message> messages) {
+        if (messages == null) {
+            return 0;
+        }
+        int tokens = 0;
+        for (ChatCompletionRequest.Message message : messages) {
+            tokens += 4 + estimate(message.getContent());
+        }
+        return tokens;
+    }
+}
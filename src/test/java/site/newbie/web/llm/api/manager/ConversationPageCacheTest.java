@@ -0,0 +1,188 @@
+package site.newbie.web.llm.api.manager;
+
+import com.microsoft.playwright.Page;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationPageCacheTest {
+
+    private static final String PROVIDER = "deepseek";
+    private static final String ACCOUNT = "a1";
+
+    private final BrowserManager browserManager = mock(BrowserManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // 模拟 context 中打开的 tab，页面关闭时移除
+    private final List<Page> contextPages = new ArrayList<>();
+
+    private ConversationPageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(browserManager.getAllPages(any(), any())).thenAnswer(invocation -> List.copyOf(contextPages));
+        cache = new ConversationPageCache(browserManager, meterRegistry);
+        ReflectionTestUtils.setField(cache, "maxPages", 2);
+        ReflectionTestUtils.setField(cache, "maxContextPages", 12);
+        ReflectionTestUtils.setField(cache, "maxIdleMs", 1_800_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void releasedPageCanBeAcquiredByConversationId() {
+        Page page = openPage();
+        cache.register(PROVIDER, ACCOUNT, page);
+        cache.release(PROVIDER, ACCOUNT, page, "c1");
+
+        assertSame(page, cache.acquire(PROVIDER, ACCOUNT, "c1"));
+        assertNull(cache.acquire(PROVIDER, ACCOUNT, "c2"));
+        assertNull(cache.acquire(PROVIDER, "other", "c1"));
+        assertEquals(1, meterRegistry.counter("llm.page.cache", "provider", PROVIDER, "result", "hit").count());
+        assertEquals(2, meterRegistry.counter("llm.page.cache", "provider", PROVIDER, "result", "miss").count());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedIdlePage() {
+        Page p1 = releasedPage("c1");
+        Page p2 = releasedPage("c2");
+        // 访问 c1 后 c2 成为最久未使用的页面
+        cache.acquire(PROVIDER, ACCOUNT, "c1");
+        cache.release(PROVIDER, ACCOUNT, p1, null);
+
+        Page p3 = releasedPage("c3");
+
+        verify(p2).close();
+        verify(p1, never()).close();
+        verify(p3, never()).close();
+        assertNull(cache.acquire(PROVIDER, ACCOUNT, "c2"));
+        assertSame(p1, cache.acquire(PROVIDER, ACCOUNT, "c1"));
+        assertSame(p3, cache.acquire(PROVIDER, ACCOUNT, "c3"));
+    }
+
+    @Test
+    void neverEvictsPagesInUse() {
+        Page p1 = openPage();
+        Page p2 = openPage();
+        Page p3 = openPage();
+        cache.register(PROVIDER, ACCOUNT, p1);
+        cache.register(PROVIDER, ACCOUNT, p2);
+        cache.register(PROVIDER, ACCOUNT, p3);
+
+        verify(p1, never()).close();
+        verify(p2, never()).close();
+        verify(p3, never()).close();
+
+        // 释放后超出上限，最久未使用的空闲页面被关闭
+        cache.release(PROVIDER, ACCOUNT, p1, "c1");
+        verify(p1).close();
+    }
+
+    @Test
+    void evictsIdlePagesWhenContextHasTooManyTabs() {
+        ReflectionTestUtils.setField(cache, "maxPages", 8);
+        ReflectionTestUtils.setField(cache, "maxContextPages", 3);
+        Page p1 = releasedPage("c1");
+        Page p2 = releasedPage("c2");
+        // 不在缓存中的 tab（预热页面、登录页面等）也计入上限
+        openPage();
+        openPage();
+
+        Page p3 = releasedPage("c3");
+
+        // 5 个 tab 超出上限 3，关闭两个最久未使用的空闲页面
+        verify(p1).close();
+        verify(p2).close();
+        verify(p3, never()).close();
+        assertEquals(3, contextPages.size());
+    }
+
+    @Test
+    void bindingConversationToAnotherPageClosesThePreviousOne() {
+        Page old = releasedPage("c1");
+        Page page = openPage();
+        cache.register(PROVIDER, ACCOUNT, page);
+
+        cache.bind(PROVIDER, ACCOUNT, page, "c1");
+        verify(old).close();
+
+        // bind 不改变使用状态，释放时不传对话 ID 也保留关联
+        cache.release(PROVIDER, ACCOUNT, page, null);
+        assertSame(page, cache.acquire(PROVIDER, ACCOUNT, "c1"));
+    }
+
+    @Test
+    void closedPagesAreDroppedOnAcquire() {
+        Page page = releasedPage("c1");
+        page.close();
+
+        assertNull(cache.acquire(PROVIDER, ACCOUNT, "c1"));
+    }
+
+    @Test
+    void idleSweepClosesStalePages() {
+        Page idle = releasedPage("c1");
+        Page inUse = openPage();
+        cache.register(PROVIDER, ACCOUNT, inUse);
+        ReflectionTestUtils.setField(cache, "maxIdleMs", -1L);
+
+        ReflectionTestUtils.invokeMethod(cache, "evictIdle");
+
+        verify(idle).close();
+        // 超过 max-idle-ms 仍未释放的页面视为遗留页面，一并关闭
+        verify(inUse).close();
+        assertNull(cache.acquire(PROVIDER, ACCOUNT, "c1"));
+    }
+
+    @Test
+    void clearClosesEveryPageOfTheProvider() {
+        Page p1 = releasedPage("c1");
+        Page p2 = openPage();
+        cache.register(PROVIDER, ACCOUNT, p2);
+        Page other = openPage();
+        cache.register("gemini", ACCOUNT, other);
+
+        assertEquals(2, cache.clear(PROVIDER));
+
+        verify(p1).close();
+        verify(p2).close();
+        verify(other, never()).close();
+    }
+
+    private Page releasedPage(String conversationId) {
+        Page page = openPage();
+        cache.register(PROVIDER, ACCOUNT, page);
+        cache.release(PROVIDER, ACCOUNT, page, conversationId);
+        return page;
+    }
+
+    private Page openPage() {
+        Page page = mock(Page.class);
+        boolean[] closed = {false};
+        when(page.isClosed()).thenAnswer(invocation -> closed[0]);
+        doAnswer(invocation -> {
+            closed[0] = true;
+            contextPages.remove(page);
+            return null;
+        }).when(page).close();
+        contextPages.add(page);
+        return page;
+    }
+}
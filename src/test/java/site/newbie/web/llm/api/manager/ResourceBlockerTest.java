@@ -0,0 +1,56 @@
+package site.newbie.web.llm.api.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceBlockerTest {
+
+    @Test
+    void hostPatternMatchesDomainAndSubdomainsOnly() {
+        Pattern pattern = ResourceBlocker.hostPattern(List.of("google-analytics.com", " sentry.io "));
+
+        assertTrue(matches(pattern, "https://google-analytics.com/collect"));
+        assertTrue(matches(pattern, "https://www.Google-Analytics.com/g/collect?v=2"));
+        assertTrue(matches(pattern, "https://o1.ingest.sentry.io:443/api/1/envelope/"));
+        assertTrue(matches(pattern, "https://sentry.io"));
+
+        assertFalse(matches(pattern, "https://notsentry.io/api"));
+        assertFalse(matches(pattern, "https://sentryxio/api"));
+        assertFalse(matches(pattern, "https://chat.deepseek.com/?ref=sentry.io"));
+        assertFalse(matches(pattern, "https://sentry.io.example.com/"));
+    }
+
+    @Test
+    void extensionPatternLeavesPagesScriptsAndStreamsAlone() {
+        Pattern pattern = ResourceBlocker.extensionPattern(Set.of("image", "font"));
+
+        assertTrue(matches(pattern, "https://cdn.example.com/logo.PNG"));
+        assertTrue(matches(pattern, "https://cdn.example.com/a/b.webp?v=1"));
+        assertTrue(matches(pattern, "https://cdn.example.com/fonts/inter.woff2#x"));
+
+        assertFalse(matches(pattern, "https://chat.deepseek.com/"));
+        assertFalse(matches(pattern, "https://chat.deepseek.com/api/v0/chat/completion"));
+        assertFalse(matches(pattern, "https://cdn.example.com/app.js"));
+        assertFalse(matches(pattern, "https://cdn.example.com/app.css?logo.png"));
+        assertFalse(matches(pattern, "https://cdn.example.com/video.mp4"));
+    }
+
+    @Test
+    void emptyConfigurationRegistersNoRoute() {
+        assertNull(ResourceBlocker.hostPattern(List.of()));
+        assertNull(ResourceBlocker.hostPattern(List.of("")));
+        assertNull(ResourceBlocker.extensionPattern(Set.of()));
+        assertNull(ResourceBlocker.extensionPattern(Set.of("stylesheet")));
+    }
+
+    private static boolean matches(Pattern pattern, String url) {
+        return pattern.matcher(url).matches();
+    }
+}
@@ -0,0 +1,145 @@
+package site.newbie.web.llm.api.provider.antigravity.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用本地 HttpServer 模拟上游（HTTP/1.1，客户端的 h2c 升级请求会被忽略并回退到 HTTP/1.1）
+ */
+class UpstreamClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // 流式响应写出第一个事件后等待该信号再写出剩余部分
+    private final CountDownLatch releaseStream = new CountDownLatch(1);
+
+    private HttpServer server;
+    private UpstreamClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1internal:streamGenerateContent", this::stream);
+        server.createContext("/v1internal:fetchAvailableModels", exchange -> respond(exchange, 200, "{\"models\":{}}"));
+        server.createContext("/v1internal:loadCodeAssist", exchange -> respond(exchange, 503, "{\"error\":\"unavailable\"}"));
+        server.start();
+
+        client = new UpstreamClient(meterRegistry);
+        ReflectionTestUtils.setField(client, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        // 只有一个名额：没有归还时下一个请求会在 acquireTimeoutMs 后失败
+        ReflectionTestUtils.setField(client, "maxConcurrentStreams", 1);
+        ReflectionTestUtils.setField(client, "acquireTimeoutMs", 200L);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseStream.countDown();
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void deliversStreamingBodyBeforeUpstreamFinishes() throws Exception {
+        HttpResponse<InputStream> response = client.callV1Internal(
+                "streamGenerateContent", "token", objectMapper.readTree("{}"), "alt=sse");
+        assertEquals(200, response.statusCode());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            // 上游还没写完时已经能读到第一个事件
+            assertEquals("data: {\"n\":1}", reader.readLine());
+            releaseStream.countDown();
+            assertEquals("", reader.readLine());
+            assertEquals("data: {\"n\":2}", reader.readLine());
+        }
+    }
+
+    @Test
+    void releasesPermitWhenStreamIsClosed() throws Exception {
+        HttpResponse<InputStream> response = client.callV1Internal(
+                "streamGenerateContent", "token", objectMapper.readTree("{}"), "alt=sse");
+
+        // 名额被未关闭的流占用
+        assertThrows(RuntimeException.class, () -> client.fetchAvailableModels("token"));
+
+        response.body().close();
+        assertNotNull(client.fetchAvailableModels("token"));
+    }
+
+    @Test
+    void releasesPermitOnNonOkResponses() throws Exception {
+        assertThrows(RuntimeException.class, () -> client.callV1InternalJson("loadCodeAssist", "token", "{}"));
+
+        try (InputStream body = client.callV1Internal("loadCodeAssist", "token", objectMapper.readTree("{}"), null).body()) {
+            assertTrue(new String(body.readAllBytes(), StandardCharsets.UTF_8).contains("unavailable"));
+        }
+
+        assertNotNull(client.fetchAvailableModels("token"));
+    }
+
+    @Test
+    void recordsUpstreamTimerWithMethodAndStatus() throws Exception {
+        client.fetchAvailableModels("token");
+        assertThrows(RuntimeException.class, () -> client.callV1InternalJson("loadCodeAssist", "token", "{}"));
+
+        Timer ok = meterRegistry.find("llm.antigravity.upstream")
+                .tag("method", "fetchAvailableModels").tag("status", "200").timer();
+        Timer failed = meterRegistry.find("llm.antigravity.upstream")
+                .tag("method", "loadCodeAssist").tag("status", "503").timer();
+        assertNotNull(ok);
+        assertEquals(1, ok.count());
+        assertNotNull(failed);
+        assertEquals(1, failed.count());
+        assertNull(meterRegistry.find("llm.antigravity.upstream").tag("status", "error").timer());
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write("data: {\"n\":1}\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            releaseStream.await(5, TimeUnit.SECONDS);
+            out.write("data: {\"n\":2}\n\n".getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package site.newbie.web.llm.api.provider.deepseek;
+
+import org.junit.jupiter.api.Test;
+import site.newbie.web.llm.api.provider.ModelConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeepSeekSseParserTest {
+
+    // 深度思考流，按网页端抓包的事件格式和顺序整理，删减了重复的增量行
+    private static final String REASONER_STREAM = """
+            event: ready
+            data: {"request_message_id":1,"response_message_id":2}
+
+            data: {"v":{"response":{"message_id":2,"parent_id":1,"model":"","role":"ASSISTANT","thinking_enabled":true,"status":"WIP","fragments":[]}}}
+
+            data: {"p":"response/fragments","o":"APPEND","v":[{"id":1,"type":"THINK","content":"嗯","elapsed_secs":null,"references":[],"stage_id":1}]}
+
+            data: {"p":"response/fragments/-1/content","o":"APPEND","v":"，用户"}
+
+            data: {"v":"问的是\\n"}
+
+            data: {"p":"response","o":"BATCH","v":[{"p":"fragments/-1/elapsed_secs","v":1.2},{"p":"fragments","o":"APPEND","v":[{"id":2,"type":"RESPONSE","content":"你好","references":[],"stage_id":1}]}]}
+
+            data: {"v":"，\\"世界\\""}
+
+            data: {"p":"response","o":"BATCH","v":[{"p":"accumulated_token_usage","v":42},{"p":"quasi_status","v":"FINISHED"}]}
+
+            data: {"p":"response/status","o":"SET","v":"FINISHED"}
+
+            event: finish
+            data: {}
+
+            event: close
+            data: {"click_behavior":"none","auto_resume":false}
+
+            """;
+
+    private static final String THINKING = "嗯，用户问的是\n";
+    private static final String RESPONSE = "你好，\"世界\"";
+
+    @Test
+    void parsesEventAlignedChunks() {
+        Collected collected = feedAll(new DeepSeekSseParser(), splitEvents(REASONER_STREAM));
+
+        assertEquals(THINKING, collected.thinking.toString());
+        assertEquals(RESPONSE, collected.response.toString());
+        assertTrue(collected.finished);
+    }
+
+    @Test
+    void reassemblesLinesSplitAtEveryOffset() {
+        for (int size = 1; size <= 64; size++) {
+            Collected collected = feedAll(new DeepSeekSseParser(), splitEvery(REASONER_STREAM, size));
+
+            assertEquals(THINKING, collected.thinking.toString(), "chunk size " + size);
+            assertEquals(RESPONSE, collected.response.toString(), "chunk size " + size);
+            assertTrue(collected.finished, "chunk size " + size);
+        }
+    }
+
+    @Test
+    void acceptsCrLfLineEndings() {
+        Collected collected = feedAll(new DeepSeekSseParser(), splitEvery(REASONER_STREAM.replace("\n", "\r\n"), 7));
+
+        assertEquals(THINKING, collected.thinking.toString());
+        assertEquals(RESPONSE, collected.response.toString());
+    }
+
+    @Test
+    void handlesValueBeforePathAtTopLevel() {
+        DeepSeekSseParser parser = new DeepSeekSseParser();
+        ModelConfig.SseParseResult result = parser.feed(
+                "data: {\"v\":[{\"id\":1,\"type\":\"THINK\",\"content\":\"想\"}],\"o\":\"APPEND\",\"p\":\"response/fragments\"}\n\n");
+
+        assertEquals("想", result.thinkingContent());
+        assertNull(result.responseContent());
+        assertEquals("法", parser.feed("data: {\"v\":\"法\"}\n\n").thinkingContent());
+    }
+
+    @Test
+    void handlesValueBeforePathInBatchItems() {
+        DeepSeekSseParser parser = new DeepSeekSseParser();
+        parser.feed("data: {\"p\":\"response/fragments\",\"o\":\"APPEND\",\"v\":[{\"id\":1,\"type\":\"THINK\",\"content\":\"想\"}]}\n\n");
+
+        ModelConfig.SseParseResult result = parser.feed("data: {\"v\":[{\"v\":1.2,\"p\":\"fragments/-1/elapsed_secs\"},"
+                + "{\"v\":[{\"id\":2,\"type\":\"RESPONSE\",\"content\":\"答\"}],\"o\":\"APPEND\",\"p\":\"fragments\"}],"
+                + "\"o\":\"BATCH\",\"p\":\"response\"}\n\n");
+
+        assertEquals("答", result.responseContent());
+        assertNull(result.thinkingContent());
+        // 后续简单格式增量归属到新建的 RESPONSE fragment
+        assertEquals("案", parser.feed("data: {\"v\":\"案\"}\n\n").responseContent());
+    }
+
+    @Test
+    void withoutThinkingEverythingIsResponse() {
+        DeepSeekSseParser parser = new DeepSeekSseParser();
+        Collected collected = feedAll(parser, List.of(
+                "data: {\"p\":\"response/fragments\",\"o\":\"APPEND\",\"v\":[{\"id\":1,\"type\":\"RESPONSE\",\"content\":\"你\"}]}\n\n",
+                "data: {\"v\":\"好\"}\n\n",
+                "data: {}\n\n"));
+
+        assertEquals("", collected.thinking.toString());
+        assertEquals("你好", collected.response.toString());
+        assertFalse(collected.finished);
+    }
+
+    @Test
+    void skipsMalformedLines() {
+        DeepSeekSseParser parser = new DeepSeekSseParser();
+        parser.feed("data: {\"p\":\"response/fragments\",\"o\":\"APPEND\",\"v\":[{\"id\":1,\"type\":\"RESPONSE\",\"content\":\"\"}]}\n\n");
+
+        Collected collected = feedAll(parser, List.of("data: {\"v\":\n\n", ": keep-alive\n\n", "data: {\"v\":\"好\"}\n\n"));
+
+        assertEquals("好", collected.response.toString());
+    }
+
+    @Test
+    void extractsFragmentIndex() {
+        assertEquals(0, DeepSeekSseParser.extractFragmentIndex("response/fragments/0/content"));
+        assertEquals(-1, DeepSeekSseParser.extractFragmentIndex("fragments/-1/content"));
+        assertEquals(12, DeepSeekSseParser.extractFragmentIndex("fragments/12"));
+        assertNull(DeepSeekSseParser.extractFragmentIndex("response/status"));
+        assertNull(DeepSeekSseParser.extractFragmentIndex("fragments/x/content"));
+    }
+
+    private static Collected feedAll(DeepSeekSseParser parser, List<String> chunks) {
+        Collected collected = new Collected();
+        for (String chunk : chunks) {
+            ModelConfig.SseParseResult result = parser.feed(chunk);
+            if (result.thinkingContent() != null) collected.thinking.append(result.thinkingContent());
+            if (result.responseContent() != null) collected.response.append(result.responseContent());
+            collected.finished |= result.finished();
+        }
+        return collected;
+    }
+
+    private static List<String> splitEvents(String stream) {
+        return List.of(stream.split("(?<=\n\n)"));
+    }
+
+    private static List<String> splitEvery(String stream, int size) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < stream.length(); i += size) {
+            chunks.add(stream.substring(i, Math.min(stream.length(), i + size)));
+        }
+        return chunks;
+    }
+
+    private static final class Collected {
+        private final StringBuilder thinking = new StringBuilder();
+        private final StringBuilder response = new StringBuilder();
+        private boolean finished;
+    }
+}
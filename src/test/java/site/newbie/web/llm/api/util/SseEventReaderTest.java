@@ -0,0 +1,138 @@
+package site.newbie.web.llm.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseEventReaderTest {
+
+    @Test
+    void acceptsLfCrLfAndCrLineEndingsSplitAcrossReads() throws Exception {
+        String lf = "data: {\"a\":1}\n\ndata: 中文\n\n";
+        for (String stream : List.of(lf, lf.replace("\n", "\r\n"), lf.replace("\n", "\r"))) {
+            for (int bufferSize = 1; bufferSize <= stream.length(); bufferSize++) {
+                assertEquals(List.of("{\"a\":1}", "中文"), readData(stream, bufferSize),
+                        "bufferSize " + bufferSize + ", stream " + stream.replace("\r", "\\r").replace("\n", "\\n"));
+            }
+        }
+    }
+
+    @Test
+    void crLfSplitBetweenReadsIsOneLineEnding() throws Exception {
+        // \r 在第一个数据包末尾，\n 在第二个数据包开头，不能被当成两个换行（会提前结束事件）
+        SseEventReader reader = new SseEventReader();
+        List<String> events = new ArrayList<>();
+        SseEventReader.EventHandler handler = collect(events);
+
+        feed(reader, "data: a\r", handler);
+        feed(reader, "\ndata: b\r", handler);
+        feed(reader, "\n\r", handler);
+        feed(reader, "\n", handler);
+
+        assertEquals(List.of("null|a\nb"), events);
+    }
+
+    @Test
+    void joinsMultiLineDataWithNewline() throws Exception {
+        assertEquals(List.of("line1\nline2\n"), readData("data: line1\ndata:line2\ndata\n\n", 8192));
+    }
+
+    @Test
+    void skipsCommentsAndUnknownFields() throws Exception {
+        String stream = ": keep-alive\nid: 1\nretry: 1000\ndata: x\n: inside event\n\n:\n\n";
+        assertEquals(List.of("x"), readData(stream, 3));
+    }
+
+    @Test
+    void dispatchesTrailingEventWithoutBlankLine() throws Exception {
+        assertEquals(List.of("a", "b"), readData("data: a\n\ndata: b", 8192));
+        assertEquals(List.of("a", "b"), readData("data: a\n\ndata: b\n", 2));
+    }
+
+    @Test
+    void reportsEventNamesIncludingEventsWithoutData() throws Exception {
+        SseEventReader reader = new SseEventReader();
+        List<String> events = new ArrayList<>();
+        SseEventReader.EventHandler handler = collect(events);
+
+        feed(reader, "event: delta\ndata: {\"v\":\"x\"}\n\nevent: finish\n\nevent: close\ndata: {}", handler);
+        reader.end(handler);
+
+        assertEquals(List.of("delta|{\"v\":\"x\"}", "finish|null", "close|{}"), events);
+    }
+
+    @Test
+    void keepsMultiByteCharactersSplitAcrossFeeds() throws Exception {
+        byte[] bytes = "data: 你好\n\n".getBytes(StandardCharsets.UTF_8);
+        for (int split = 1; split < bytes.length; split++) {
+            SseEventReader reader = new SseEventReader();
+            List<String> events = new ArrayList<>();
+            SseEventReader.EventHandler handler = collect(events);
+
+            reader.feed(bytes, 0, split, handler);
+            reader.feed(bytes, split, bytes.length - split, handler);
+            reader.end(handler);
+
+            assertEquals(List.of("null|你好"), events, "split " + split);
+        }
+    }
+
+    @Test
+    void stopsWhenHandlerReturnsFalse() throws Exception {
+        List<String> data = new ArrayList<>();
+        String stream = "data: a\n\ndata: [DONE]\n\ndata: b\n\n";
+        try (SseEventReader reader = new SseEventReader(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), 4)) {
+            reader.read((bytes, offset, length) -> {
+                if (SseEventReader.isDone(bytes, offset, length)) {
+                    return false;
+                }
+                data.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+                return true;
+            });
+        }
+        assertEquals(List.of("a"), data);
+    }
+
+    @Test
+    void detectsDoneAndBlankPayloads() {
+        byte[] done = " [DONE]\n".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(SseEventReader.isDone(done, 0, done.length));
+        byte[] notDone = "[DONE]x".getBytes(StandardCharsets.US_ASCII);
+        assertFalse(SseEventReader.isDone(notDone, 0, notDone.length));
+
+        byte[] blank = "x \t\r\n".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(SseEventReader.isBlank(blank, 1, blank.length - 1));
+        assertFalse(SseEventReader.isBlank(blank, 0, blank.length));
+    }
+
+    private static List<String> readData(String stream, int bufferSize) throws Exception {
+        List<String> data = new ArrayList<>();
+        try (SseEventReader reader = new SseEventReader(
+                new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), bufferSize)) {
+            reader.read((bytes, offset, length) -> {
+                data.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+                return true;
+            });
+        }
+        return data;
+    }
+
+    private static SseEventReader.EventHandler collect(List<String> events) {
+        return (event, data, offset, length) -> {
+            events.add(event + "|" + (data != null ? new String(data, offset, length, StandardCharsets.UTF_8) : null));
+            return true;
+        };
+    }
+
+    private static void feed(SseEventReader reader, String text, SseEventReader.EventHandler handler) throws Exception {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        reader.feed(bytes, 0, bytes.length, handler);
+    }
+}